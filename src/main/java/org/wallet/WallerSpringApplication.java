@@ -2,14 +2,27 @@ package org.wallet;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.wallet.in.config.StartupTimeline;
+import org.wallet.in.config.WalletRuntimeHints;
+import org.wallet.utils.WalletProperties;
 
 /**
  * The `WallerSpringApplication` class serves as the entry point for Spring Boot application.
  * It is annotated with `@SpringBootApplication`, which indicates that this class is a Spring Boot
  * application and that Spring Boot should perform component scanning to find and configure your
- * application's components.
+ * application's components. Scheduling is enabled for periodic maintenance tasks such as replica
+ * health checks. The startup steps are buffered so that {@link StartupTimeline} can report where the
+ * startup time goes, and the reflection the native executable needs is registered by {@link
+ * WalletRuntimeHints}. The settings records of {@link WalletProperties} are bound as beans.
  */
 @SpringBootApplication
+@ConfigurationPropertiesScan(basePackageClasses = WalletProperties.class)
+@EnableScheduling
+@ImportRuntimeHints(WalletRuntimeHints.class)
 public class WallerSpringApplication {
 
   /**
@@ -19,6 +32,9 @@ public class WallerSpringApplication {
    * @param args The command-line arguments passed to the application.
    */
   public static void main(String... args) {
-    SpringApplication.run(WallerSpringApplication.class, args);
+    SpringApplication application = new SpringApplication(WallerSpringApplication.class);
+    application.setApplicationStartup(
+        new BufferingApplicationStartup(StartupTimeline.STEP_CAPACITY));
+    application.run(args);
   }
 }
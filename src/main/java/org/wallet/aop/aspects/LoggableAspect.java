@@ -5,12 +5,16 @@ import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
 import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.wallet.aop.annotations.Loggable;
 import org.wallet.domain.model.LogAction;
 import org.wallet.domain.model.Transaction;
+import org.wallet.domain.model.Transfer;
 import org.wallet.domain.repository.DatabaseConnection;
+import org.wallet.domain.repository.log.AuditRollups;
 import org.wallet.domain.repository.log.JdbcLogRepository;
+import org.wallet.domain.service.AuditFeed;
 import org.wallet.domain.service.AuditService;
 
 /**
@@ -21,10 +25,24 @@ import org.wallet.domain.service.AuditService;
 @Component
 public class LoggableAspect {
 
-  private static final AuditService AUDIT_SERVICE;
+  private static volatile AuditService auditService = defaultAuditService();
 
-  static {
-    AUDIT_SERVICE = new AuditService(new JdbcLogRepository(new DatabaseConnection()));
+  /** Creates the audit service used until the one managed by Spring is set. */
+  private static AuditService defaultAuditService() {
+    JdbcLogRepository logRepository = new JdbcLogRepository(new DatabaseConnection());
+    return new AuditService(
+        logRepository, new AuditRollups(new DatabaseConnection()), new AuditFeed(logRepository));
+  }
+
+  /**
+   * Replaces the audit service used by the woven aspect with the one managed by Spring, so audit
+   * entries are written through the same (possibly sharded) repository as the rest of the data.
+   *
+   * @param auditService The audit service managed by Spring.
+   */
+  @Autowired
+  public void setAuditService(AuditService auditService) {
+    LoggableAspect.auditService = auditService;
   }
 
   /** Pointcut for methods annotated with {@link Loggable}. */
@@ -46,9 +64,9 @@ public class LoggableAspect {
     Object[] args = proceedingJoinPoint.getArgs();
     String login = extractLoginFromArgs(args);
     try {
-      AUDIT_SERVICE.log(action, login, details);
+      auditService.log(action, login, details);
     } catch (Exception e) {
-      AUDIT_SERVICE.log(action, login, "Error occurred: " + e.getMessage());
+      auditService.log(action, login, "Error occurred: " + e.getMessage());
       throw e;
     }
 
@@ -85,6 +103,10 @@ public class LoggableAspect {
         if (transaction.playerLogin() != null) {
           return transaction.playerLogin();
         }
+      } else if (arg instanceof Transfer transfer) {
+        if (transfer.senderLogin() != null) {
+          return transfer.senderLogin();
+        }
       }
     }
     return null;
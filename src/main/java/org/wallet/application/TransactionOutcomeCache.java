@@ -0,0 +1,164 @@
+package org.wallet.application;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.stereotype.Component;
+import org.wallet.domain.model.Transaction;
+import org.wallet.domain.model.TransactionOutcome;
+import org.wallet.exception.TransactionAlreadyExistException;
+
+/**
+ * The {@code TransactionOutcomeCache} class keeps the outcomes of recently registered transactions
+ * so that a client retrying an identical request receives the original result without touching the
+ * database. The cache is bounded both in size and in time; a transaction ID reused by another
+ * player or with different parameters is rejected as a conflict.
+ */
+@Component
+public class TransactionOutcomeCache implements MeterBinder {
+
+  private static final int CAPACITY = 100_000;
+  private static final Duration TIME_TO_LIVE = Duration.ofMinutes(10);
+
+  private final Clock clock;
+  private final int capacity;
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+  private final Queue<String> insertionOrder = new ConcurrentLinkedQueue<>();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder conflicts = new LongAdder();
+  private final LongAdder sizeEvictions = new LongAdder();
+  private final LongAdder expirations = new LongAdder();
+
+  /** Creates a cache using the system clock and the default capacity. */
+  public TransactionOutcomeCache() {
+    this(Clock.systemUTC(), CAPACITY);
+  }
+
+  /**
+   * Creates a cache with the given clock and capacity.
+   *
+   * @param clock The clock used to expire entries.
+   * @param capacity The maximum number of cached outcomes.
+   */
+  TransactionOutcomeCache(Clock clock, int capacity) {
+    this.clock = clock;
+    this.capacity = capacity;
+  }
+
+  /**
+   * Looks up the outcome of an earlier execution of the given transaction.
+   *
+   * @param transaction The submitted transaction.
+   * @return The original outcome marked as replayed, or an empty optional if the transaction ID is
+   *     not cached.
+   * @throws TransactionAlreadyExistException If the cached transaction ID belongs to a different
+   *     player or was submitted with different parameters.
+   */
+  public Optional<TransactionOutcome> replay(Transaction transaction) {
+    Entry entry = entries.get(transaction.transactionId());
+    if (entry == null || isExpired(entry)) {
+      misses.increment();
+      return Optional.empty();
+    }
+    if (!isSameRequest(entry.transaction(), transaction)) {
+      conflicts.increment();
+      throw new TransactionAlreadyExistException();
+    }
+    hits.increment();
+    return Optional.of(entry.outcome().asReplay());
+  }
+
+  /**
+   * Stores the outcome of an applied transaction.
+   *
+   * @param transaction The applied transaction.
+   * @param outcome The outcome of the transaction.
+   */
+  public void put(Transaction transaction, TransactionOutcome outcome) {
+    long expiresAt = clock.millis() + TIME_TO_LIVE.toMillis();
+    if (entries.putIfAbsent(transaction.transactionId(), new Entry(transaction, outcome, expiresAt))
+        == null) {
+      insertionOrder.add(transaction.transactionId());
+      evict();
+    }
+  }
+
+  /**
+   * Returns the number of cached outcomes.
+   *
+   * @return The number of entries in the cache.
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Binds the cache statistics to the given meter registry.
+   *
+   * @param registry The registry to bind the meters to.
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    counter(registry, "wallet.transaction.outcomes.lookups", "result", "hit", hits);
+    counter(registry, "wallet.transaction.outcomes.lookups", "result", "miss", misses);
+    counter(registry, "wallet.transaction.outcomes.lookups", "result", "conflict", conflicts);
+    counter(registry, "wallet.transaction.outcomes.evictions", "reason", "size", sizeEvictions);
+    counter(registry, "wallet.transaction.outcomes.evictions", "reason", "expired", expirations);
+    Gauge.builder("wallet.transaction.outcomes.size", entries, Map::size).register(registry);
+  }
+
+  /**
+   * Removes expired entries from the head of the insertion queue and the oldest entries beyond the
+   * capacity. Entries expire in insertion order because they all share the same time to live.
+   */
+  private void evict() {
+    String oldest;
+    while ((oldest = insertionOrder.peek()) != null) {
+      Entry entry = entries.get(oldest);
+      boolean expired = entry != null && isExpired(entry);
+      if (!expired && entries.size() <= capacity) {
+        return;
+      }
+      if (insertionOrder.remove(oldest) && entry != null && entries.remove(oldest, entry)) {
+        (expired ? expirations : sizeEvictions).increment();
+      }
+    }
+  }
+
+  private boolean isExpired(Entry entry) {
+    return entry.expiresAt() <= clock.millis();
+  }
+
+  /**
+   * Checks whether a submitted transaction repeats an earlier one with the same ID.
+   *
+   * @param earlier The transaction registered earlier.
+   * @param submitted The submitted transaction.
+   * @return {@code true} if both have the same player, type and amount.
+   */
+  static boolean isSameRequest(Transaction earlier, Transaction submitted) {
+    return Objects.equals(earlier.playerLogin(), submitted.playerLogin())
+        && earlier.type() == submitted.type()
+        && earlier.amount().compareTo(submitted.amount()) == 0;
+  }
+
+  private static void counter(
+      MeterRegistry registry, String name, String tag, String value, LongAdder adder) {
+    FunctionCounter.builder(name, adder, LongAdder::sum).tag(tag, value).register(registry);
+  }
+
+  /** A cached outcome together with the request that produced it. */
+  private record Entry(Transaction transaction, TransactionOutcome outcome, long expiresAt) {}
+}
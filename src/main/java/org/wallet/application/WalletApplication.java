@@ -1,18 +1,32 @@
 package org.wallet.application;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.wallet.aop.annotations.Loggable;
+import org.wallet.domain.model.ActionCount;
+import org.wallet.domain.model.Ledger;
+import org.wallet.domain.model.LedgerPage;
 import org.wallet.domain.model.Log;
 import org.wallet.domain.model.LogAction;
 import org.wallet.domain.model.Player;
+import org.wallet.domain.model.RollupInterval;
 import org.wallet.domain.model.Transaction;
+import org.wallet.domain.model.TransactionOutcome;
+import org.wallet.domain.model.TransactionStatus;
+import org.wallet.domain.model.TransactionType;
+import org.wallet.domain.model.Transfer;
+import org.wallet.domain.repository.log.LogQuery;
 import org.wallet.domain.service.AuditService;
 import org.wallet.domain.service.PlayerService;
 import org.wallet.domain.service.TransactionService;
+import org.wallet.exception.CrossShardTransferException;
 import org.wallet.exception.PlayerNotFoundException;
+import org.wallet.exception.TransactionAlreadyExistException;
 import org.wallet.exception.UnauthorizedAccessException;
 
 /**
@@ -24,11 +38,16 @@ import org.wallet.exception.UnauthorizedAccessException;
 @RequiredArgsConstructor
 public class WalletApplication {
 
+  /** The start of an audit log query without a lower bound. */
+  private static final LocalDateTime OLDEST_LOG_TIMESTAMP = LocalDateTime.of(1970, 1, 1, 0, 0);
+
   private final TransactionService transactionService;
   private final PlayerService playerService;
 
   private final AuditService auditService;
 
+  private final TransactionOutcomeCache transactionOutcomeCache;
+
   /**
    * Registers a new player with the specified login and password.
    *
@@ -41,13 +60,41 @@ public class WalletApplication {
   }
 
   /**
-   * Retrieves the balance of a player with the specified login.
+   * Retrieves the balance of a player with the specified login. The balance may be read from a
+   * replica; the player's own recent writes are always visible.
    *
    * @param login The player's login.
    * @return The balance of the player.
    */
   public BigDecimal getBalanceOfPlayer(String login) {
-    return getPlayerByLogin(login).getBalance();
+    return getPlayerSnapshotByLogin(login).getBalance();
+  }
+
+  /**
+   * Returns the ledger version of a player, which changes whenever the balance or the transactions
+   * of the player change. It is stored with the player, so every instance returns the same version,
+   * and is read without reading the balance or the transactions.
+   *
+   * @param login The player's login.
+   * @return The ledger version of the player, or an empty optional if the player does not exist.
+   */
+  public OptionalLong getLedgerVersion(String login) {
+    return playerService.getLedgerVersion(login);
+  }
+
+  /**
+   * Retrieves the balance a player had at a past time. The balance is computed from the nearest
+   * balance checkpoint before that time and the transactions created after it.
+   *
+   * @param login The player's login.
+   * @param timestamp The time to retrieve the balance at, inclusive.
+   * @return The balance of the player at that time.
+   * @throws PlayerNotFoundException If the player does not exist.
+   */
+  public BigDecimal getBalanceAt(String login, LocalDateTime timestamp) {
+    return transactionService
+        .getBalanceAt(login, timestamp)
+        .orElseThrow(PlayerNotFoundException::new);
   }
 
   /**
@@ -82,16 +129,78 @@ public class WalletApplication {
   }
 
   /**
-   * Registers a new transaction for the currently logged-in player. If no player is logged in, it
-   * does nothing.
+   * Returns the cached outcome of an identical transaction registered earlier. A retried request is
+   * answered from memory, without reading the player or writing to the audit log.
+   *
+   * @param transaction The submitted transaction.
+   * @return The original outcome marked as replayed, or an empty optional if the transaction has not
+   *     been registered recently.
+   * @throws TransactionAlreadyExistException If the transaction ID was recently used for a different
+   *     transaction.
+   */
+  public Optional<TransactionOutcome> replayTransaction(Transaction transaction) {
+    return transactionOutcomeCache.replay(transaction);
+  }
+
+  /**
+   * Registers a new transaction for the currently logged-in player and remembers its outcome, so
+   * that a retry of the same request can be replayed. If an identical transaction has already been
+   * applied, by a concurrent request, by another instance or before a restart, it is replayed from
+   * the cache or, failing that, from the stored transaction.
    *
    * @param transaction The transaction to register.
+   * @return The outcome of the transaction.
+   * @throws TransactionAlreadyExistException If a different transaction with the same ID exists.
    */
   @Loggable(LogAction.TRANSACTION)
-  public void registerTransaction(Transaction transaction) {
+  public TransactionOutcome registerTransaction(Transaction transaction) {
     var currentPlayer = getPlayerByLogin(transaction.playerLogin());
-    transactionService.registerTransaction(currentPlayer, transaction);
-    playerService.updatePlayer(currentPlayer);
+    try {
+      transactionService.registerTransaction(currentPlayer, transaction);
+    } catch (TransactionAlreadyExistException e) {
+      return transactionOutcomeCache
+          .replay(transaction)
+          .or(() -> replayStored(transaction))
+          .orElseThrow(() -> e);
+    }
+    transactionService.publishTransaction(currentPlayer, transaction);
+
+    var outcome = TransactionOutcome.applied(transaction, currentPlayer.getBalance());
+    transactionOutcomeCache.put(transaction, outcome);
+    return outcome;
+  }
+
+  /**
+   * Transfers money from the currently logged-in player to another player. The debit of the sender
+   * and the credit of the recipient are applied atomically. Like a transaction, a retry of an
+   * already applied transfer is replayed: from the cached outcome, or from the stored legs when
+   * the outcome is no longer cached.
+   *
+   * @param transfer The transfer to apply.
+   * @return The outcome of the debit of the sender, with the balance of the sender.
+   * @throws PlayerNotFoundException If the sender or the recipient does not exist.
+   * @throws TransactionAlreadyExistException If the ID of the transfer is already used by a
+   *     different transfer or transaction.
+   * @throws CrossShardTransferException If the sender and the recipient are on different shards.
+   */
+  @Loggable(LogAction.TRANSACTION)
+  public TransactionOutcome transfer(Transfer transfer) {
+    BigDecimal balance;
+    try {
+      balance = transactionService.transfer(transfer);
+    } catch (TransactionAlreadyExistException e) {
+      return replayTransfer(transfer).orElseThrow(() -> e);
+    }
+
+    var outcome =
+        new TransactionOutcome(
+            transfer.transferId(),
+            TransactionType.DEBIT,
+            transfer.amount(),
+            balance,
+            TransactionStatus.APPLIED);
+    transactionOutcomeCache.put(transfer.debit(), outcome);
+    return outcome;
   }
 
   /**
@@ -103,7 +212,34 @@ public class WalletApplication {
    * @throws UnauthorizedAccessException If no player is currently authenticated.
    */
   public List<Transaction> getTransactionsOfPlayer(String login) {
-    return transactionService.getTransactionsByPlayer(getPlayerByLogin(login));
+    return transactionService.getTransactionsByPlayer(getPlayerSnapshotByLogin(login));
+  }
+
+  /**
+   * Returns the transactions of a player together with the ledger version they were read at.
+   *
+   * @param login The login of the authenticated player.
+   * @return The ledger of the player.
+   * @throws PlayerNotFoundException If the player does not exist.
+   */
+  public Ledger getLedgerOfPlayer(String login) {
+    return transactionService.getLedgerByPlayer(getPlayerSnapshotByLogin(login));
+  }
+
+  /**
+   * Returns a page of the transactions of a player, walking the history back from the most recent
+   * transactions.
+   *
+   * @param login The login of the authenticated player.
+   * @param cursor The cursor returned with the following page, or {@code null} for the most recent
+   *     transactions.
+   * @param limit The maximum number of transactions of the page.
+   * @return The page of transactions.
+   * @throws PlayerNotFoundException If the player does not exist.
+   * @throws IllegalArgumentException If the cursor is malformed or the limit is not positive.
+   */
+  public LedgerPage getLedgerPageOfPlayer(String login, String cursor, int limit) {
+    return transactionService.getLedgerPageByPlayer(getPlayerSnapshotByLogin(login), cursor, limit);
   }
 
   /**
@@ -115,7 +251,96 @@ public class WalletApplication {
     return auditService.getLogMessages();
   }
 
+  /**
+   * Get the list of log messages written in a time range. A missing start reads from the oldest
+   * entry and a missing end reads up to now.
+   *
+   * @param from The start of the range, inclusive, or {@code null}.
+   * @param to The end of the range, exclusive, or {@code null}.
+   * @return List of log messages ordered by timestamp.
+   */
+  public List<Log> getLogMessages(LocalDateTime from, LocalDateTime to) {
+    return auditService.getLogMessages(
+        from != null ? from : OLDEST_LOG_TIMESTAMP, to != null ? to : LocalDateTime.now());
+  }
+
+  /**
+   * Get a filtered page of log messages.
+   *
+   * @param query The filter and page to retrieve.
+   * @return List of log messages, newest first.
+   */
+  public List<Log> getLogMessages(LogQuery query) {
+    return auditService.getLogMessages(query);
+  }
+
+  /**
+   * Get the number of log messages per interval and action written in a time range.
+   *
+   * @param from The start of the range, inclusive.
+   * @param to The end of the range, exclusive.
+   * @param interval The length of the intervals to count by.
+   * @return The counts, ordered by interval and action.
+   */
+  public List<ActionCount> getActionCounts(
+      LocalDateTime from, LocalDateTime to, RollupInterval interval) {
+    return auditService.getActionCounts(from, to, interval);
+  }
+
+  /**
+   * Replays a transaction from the stored transaction with the same ID, for a retry the cache of
+   * this instance does not know. The balance right after the original transaction is not stored,
+   * so the replayed outcome has none.
+   */
+  private Optional<TransactionOutcome> replayStored(Transaction transaction) {
+    return transactionService
+        .getTransactionById(transaction.transactionId())
+        .filter(stored -> TransactionOutcomeCache.isSameRequest(stored, transaction))
+        .map(stored -> TransactionOutcome.applied(stored, null).asReplay());
+  }
+
+  /**
+   * Replays a transfer whose legs are both stored with the same players and amount. The outcome is
+   * cached under the debit of the sender, which does not name the recipient, so the stored credit
+   * is checked first.
+   */
+  private Optional<TransactionOutcome> replayTransfer(Transfer transfer) {
+    if (!isStored(transfer.debit()) || !isStored(transfer.credit())) {
+      return Optional.empty();
+    }
+    return transactionOutcomeCache
+        .replay(transfer.debit())
+        .or(
+            () ->
+                Optional.of(
+                    new TransactionOutcome(
+                        transfer.transferId(),
+                        TransactionType.DEBIT,
+                        transfer.amount(),
+                        null,
+                        TransactionStatus.REPLAYED)));
+  }
+
+  private boolean isStored(Transaction transaction) {
+    return transactionService
+        .getTransactionById(transaction.transactionId())
+        .filter(stored -> TransactionOutcomeCache.isSameRequest(stored, transaction))
+        .isPresent();
+  }
+
   private Player getPlayerByLogin(String login) {
     return playerService.getPlayerByLogin(login).orElseThrow(PlayerNotFoundException::new);
   }
+
+  /**
+   * Retrieves a player for display purposes. The player may be read from a replica; the player's
+   * own recent writes are always visible, and its ledger version matches its balance.
+   *
+   * @param login The player's login.
+   * @return The player.
+   * @throws PlayerNotFoundException If the player does not exist.
+   */
+  public Player getPlayerSnapshotByLogin(String login) {
+    return playerService.getPlayerSnapshotByLogin(login).orElseThrow(PlayerNotFoundException::new);
+  }
 }
@@ -2,11 +2,14 @@ package org.wallet.domain.dto.mapper;
 
 import org.mapstruct.Mapper;
 import org.mapstruct.factory.Mappers;
+import org.wallet.domain.dto.response.ActionCountResponseDto;
 import org.wallet.domain.dto.response.LogResponseDto;
+import org.wallet.domain.model.ActionCount;
 import org.wallet.domain.model.Log;
 
 /**
- * Mapper interface for converting {@link Log} objects to {@link LogResponseDto} objects.
+ * Mapper interface for converting {@link Log} objects to {@link LogResponseDto} objects and {@link
+ * ActionCount} objects to {@link ActionCountResponseDto} objects.
  */
 @Mapper
 public interface LogMapper {
@@ -23,4 +26,12 @@ public interface LogMapper {
    * @return The corresponding {@link LogResponseDto} object.
    */
   LogResponseDto logToLogDto(Log log);
+
+  /**
+   * Converts an {@link ActionCount} object to an {@link ActionCountResponseDto}.
+   *
+   * @param actionCount The {@link ActionCount} object to convert.
+   * @return The corresponding {@link ActionCountResponseDto} object.
+   */
+  ActionCountResponseDto actionCountToActionCountDto(ActionCount actionCount);
 }
@@ -4,8 +4,12 @@ import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.factory.Mappers;
 import org.wallet.domain.dto.request.TransactionRequestDto;
+import org.wallet.domain.dto.request.TransferRequestDto;
+import org.wallet.domain.dto.response.TransactionOutcomeResponseDto;
 import org.wallet.domain.dto.response.TransactionResponseDto;
 import org.wallet.domain.model.Transaction;
+import org.wallet.domain.model.TransactionOutcome;
+import org.wallet.domain.model.Transfer;
 
 /**
  * Mapper interface for converting between {@link TransactionRequestDto} and {@link
@@ -29,6 +33,18 @@ public interface TransactionMapper {
       expression = "java(org.wallet.utils.JwtTokenUtility.getLogin(transaction.getJwtToken()))")
   Transaction transactionRequestDtoToTransaction(TransactionRequestDto transaction);
 
+  /**
+   * Converts a {@link TransferRequestDto} to a {@link Transfer} object. The sender is the player
+   * identified by the JWT token.
+   *
+   * @param transfer The {@link TransferRequestDto} to convert.
+   * @return The corresponding {@link Transfer} object.
+   */
+  @Mapping(
+      target = "senderLogin",
+      expression = "java(org.wallet.utils.JwtTokenUtility.getLogin(transfer.getJwtToken()))")
+  Transfer transferRequestDtoToTransfer(TransferRequestDto transfer);
+
   /**
    * Converts a {@link Transaction} to a {@link TransactionResponseDto} object.
    *
@@ -36,4 +52,13 @@ public interface TransactionMapper {
    * @return The corresponding {@link TransactionResponseDto} object.
    */
   TransactionResponseDto transactionToTransactionResponseDto(Transaction transaction);
+
+  /**
+   * Converts a {@link TransactionOutcome} to a {@link TransactionOutcomeResponseDto} object.
+   *
+   * @param outcome The {@link TransactionOutcome} to convert.
+   * @return The corresponding {@link TransactionOutcomeResponseDto} object.
+   */
+  TransactionOutcomeResponseDto transactionOutcomeToTransactionOutcomeResponseDto(
+      TransactionOutcome outcome);
 }
@@ -0,0 +1,36 @@
+package org.wallet.domain.dto.request;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.math.BigDecimal;
+import lombok.Data;
+
+/**
+ * The {@code TransferRequestDto} class represents a Data Transfer Object (DTO) for transfer
+ * requests. It includes fields for a JWT token identifying the sender, the transfer ID, the login
+ * of the recipient and the amount. It also provides an {@code isValid} method for validation.
+ */
+@Data
+public class TransferRequestDto implements Validator {
+  private String jwtToken;
+  private String transferId;
+  private String recipientLogin;
+  private BigDecimal amount;
+
+  /**
+   * Checks the validity of the TransferRequestDto. It is considered valid if the transfer ID and
+   * the login of the recipient are not null and not blank, and the amount is not null and greater
+   * than zero.
+   *
+   * @return {@code true} if the conditions for validity are met; otherwise, {@code false}.
+   */
+  @Override
+  @JsonIgnore
+  public boolean isValid() {
+    return transferId != null
+        && !transferId.isBlank()
+        && recipientLogin != null
+        && !recipientLogin.isBlank()
+        && amount != null
+        && amount.compareTo(BigDecimal.ZERO) > 0;
+  }
+}
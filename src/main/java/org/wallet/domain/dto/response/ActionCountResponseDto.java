@@ -0,0 +1,19 @@
+package org.wallet.domain.dto.response;
+
+import lombok.Data;
+
+/**
+ * The {@code ActionCountResponseDto} class represents a Data Transfer Object (DTO) for providing
+ * the number of audit log entries of an action written in an interval.
+ */
+@Data
+public class ActionCountResponseDto {
+  /** The start of the interval. */
+  private String bucket;
+
+  /** The action the entries were logged for. */
+  private String action;
+
+  /** The number of entries. */
+  private long count;
+}
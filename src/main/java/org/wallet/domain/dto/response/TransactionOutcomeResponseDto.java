@@ -0,0 +1,32 @@
+package org.wallet.domain.dto.response;
+
+import java.math.BigDecimal;
+import lombok.Data;
+import org.wallet.domain.model.TransactionStatus;
+import org.wallet.domain.model.TransactionType;
+
+/**
+ * The {@code TransactionOutcomeResponseDto} class represents a Data Transfer Object (DTO) for
+ * providing the result of a registered transaction. It includes the transaction fields, the
+ * resulting balance of the player and whether the request was applied or replayed.
+ */
+@Data
+public class TransactionOutcomeResponseDto {
+  /** The unique identifier for the transaction. */
+  private String transactionId;
+
+  /** The type of transaction (e.g., debit or credit). */
+  private TransactionType type;
+
+  /** The amount associated with the transaction. */
+  private BigDecimal amount;
+
+  /**
+   * The balance of the player right after the transaction was applied, or {@code null} for a
+   * replay of a transaction whose outcome is no longer cached.
+   */
+  private BigDecimal balance;
+
+  /** Whether the transaction was applied by this request or replayed. */
+  private TransactionStatus status;
+}
@@ -0,0 +1,13 @@
+package org.wallet.domain.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * The {@code ActionCount} class represents the number of audit entries of an action written in a
+ * time interval.
+ *
+ * @param bucket The start of the interval.
+ * @param action The logged action.
+ * @param count The number of entries.
+ */
+public record ActionCount(LocalDateTime bucket, LogAction action, long count) {}
@@ -0,0 +1,13 @@
+package org.wallet.domain.model;
+
+import java.util.List;
+
+/**
+ * The {@code Ledger} class represents the transactions of a player together with the ledger
+ * version they were read at. The version is read before the transactions and from the same
+ * database, so it never describes newer transactions than those returned.
+ *
+ * @param version The ledger version of the player, or a negative value if it is not known.
+ * @param transactions The transactions of the player, in the order they were added.
+ */
+public record Ledger(long version, List<Transaction> transactions) {}
@@ -0,0 +1,14 @@
+package org.wallet.domain.model;
+
+import java.math.BigDecimal;
+
+/**
+ * The {@code LedgerBalance} class represents the balance of a player as written by a change of its
+ * ledger, together with the ledger version the change produced. Versions of a player only grow, so
+ * of two balances of the same player the one with the higher version is the more recent.
+ *
+ * @param login The login of the player.
+ * @param balance The balance of the player after the change.
+ * @param ledgerVersion The ledger version of the player after the change.
+ */
+public record LedgerBalance(String login, BigDecimal balance, long ledgerVersion) {}
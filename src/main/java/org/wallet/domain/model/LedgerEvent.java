@@ -0,0 +1,41 @@
+package org.wallet.domain.model;
+
+import java.math.BigDecimal;
+
+/**
+ * The {@code LedgerEvent} class represents a change of the balance of a player, as published to
+ * the subscribers of the player by the {@code LedgerEventBus}. Events are published after the
+ * change has been committed and outside the lock of the player, so two events of the same player
+ * may be delivered in the opposite order; the ledger version tells which one is the more recent.
+ *
+ * @param login The login of the player the event belongs to.
+ * @param transaction The applied transaction, or {@code null} for a balance corrected without a
+ *     transaction, like by the reconciliation.
+ * @param balance The balance of the player after the change, or {@code null} if it is not known
+ *     to the publisher.
+ * @param ledgerVersion The ledger version of the player after the change.
+ */
+public record LedgerEvent(
+    String login, Transaction transaction, BigDecimal balance, long ledgerVersion) {
+
+  /**
+   * Creates the event of an applied transaction.
+   *
+   * @param transaction The applied transaction; its player login identifies the player.
+   * @param balance The balance of the player after the transaction.
+   * @param ledgerVersion The ledger version of the player after the transaction.
+   */
+  public LedgerEvent(Transaction transaction, BigDecimal balance, long ledgerVersion) {
+    this(transaction.playerLogin(), transaction, balance, ledgerVersion);
+  }
+
+  /**
+   * Creates the event of an applied transaction from the balance it produced.
+   *
+   * @param transaction The applied transaction.
+   * @param ledgerBalance The balance and ledger version of the player after the transaction.
+   */
+  public LedgerEvent(Transaction transaction, LedgerBalance ledgerBalance) {
+    this(transaction, ledgerBalance.balance(), ledgerBalance.ledgerVersion());
+  }
+}
@@ -0,0 +1,16 @@
+package org.wallet.domain.model;
+
+import java.util.List;
+
+/**
+ * The {@code LedgerPage} class represents a page of the transactions of a player. Pages walk the
+ * history back from the most recent transactions; the transactions of a page are in the order they
+ * were added.
+ *
+ * @param version The ledger version of the player the page was read at, or a negative value if it
+ *     is not known.
+ * @param transactions The transactions of the page, in the order they were added.
+ * @param nextCursor The cursor of the page with the preceding transactions, or {@code null} if
+ *     this page starts with the oldest transaction of the player.
+ */
+public record LedgerPage(long version, List<Transaction> transactions, String nextCursor) {}
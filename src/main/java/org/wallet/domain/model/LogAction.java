@@ -6,22 +6,43 @@ import lombok.Getter;
 @Getter
 public enum LogAction {
   /** Represents the action of user registration. */
-  REGISTRATION("User registered."),
+  REGISTRATION((short) 1, "User registered."),
 
   /** Represents the action of user authorization (login). */
-  AUTHORIZATION("User logged in."),
+  AUTHORIZATION((short) 2, "User logged in."),
 
   /** Represents the action of registering a transaction. */
-  TRANSACTION("Transaction registered");
+  TRANSACTION((short) 3, "Transaction registered");
+
+  /** Code under which the action is stored in the database. */
+  private final short code;
 
   private final String details;
 
   /**
-   * Creates a new `LogAction` with the given details.
+   * Creates a new `LogAction` with the given database code and details.
    *
+   * @param code The code under which the action is stored.
    * @param details Details of the log action.
    */
-  LogAction(String details) {
+  LogAction(short code, String details) {
+    this.code = code;
     this.details = details;
   }
+
+  /**
+   * Returns the log action stored under the given code.
+   *
+   * @param code The database code of the action.
+   * @return The log action.
+   * @throws IllegalArgumentException if no action has the given code.
+   */
+  public static LogAction fromCode(int code) {
+    for (LogAction action : values()) {
+      if (action.code == code) {
+        return action;
+      }
+    }
+    throw new IllegalArgumentException("Unknown log action code: " + code);
+  }
 }
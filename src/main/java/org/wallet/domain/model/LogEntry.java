@@ -0,0 +1,12 @@
+package org.wallet.domain.model;
+
+/**
+ * The {@code LogEntry} class represents an audit log entry together with its position in the audit
+ * store. Positions are assigned by the store when the entry is added and grow with the order the
+ * entries were added in, so they survive restarts and can be used to read the entries added after
+ * a given one.
+ *
+ * @param id The position of the entry in the audit store.
+ * @param log The audit log entry.
+ */
+public record LogEntry(long id, Log log) {}
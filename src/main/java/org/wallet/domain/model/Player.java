@@ -6,7 +6,8 @@ import org.wallet.exception.InsufficientMoneyException;
 
 /**
  * The {@code Player} class represents a player in a financial application. It includes information
- * such as the player's login, password, and balance.
+ * such as the player's login, password, and balance, and, for a player read from the data store,
+ * the ledger version the balance was read at.
  */
 @Data
 public class Player {
@@ -14,6 +15,7 @@ public class Player {
   private final String password;
   private final String login;
   private BigDecimal balance;
+  private long ledgerVersion;
 
   /**
    * Constructs a new player with the specified login and password.
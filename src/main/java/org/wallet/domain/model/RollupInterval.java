@@ -0,0 +1,37 @@
+package org.wallet.domain.model;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/** The `RollupInterval` enum represents the intervals audit entries can be counted by. */
+public enum RollupInterval {
+  /** Counts per minute. */
+  MINUTE(ChronoUnit.MINUTES),
+
+  /** Counts per hour. */
+  HOUR(ChronoUnit.HOURS),
+
+  /** Counts per day. */
+  DAY(ChronoUnit.DAYS);
+
+  private final ChronoUnit unit;
+
+  /**
+   * Creates a new `RollupInterval` of the given length.
+   *
+   * @param unit The length of the interval.
+   */
+  RollupInterval(ChronoUnit unit) {
+    this.unit = unit;
+  }
+
+  /**
+   * Returns the start of the interval the given time falls into.
+   *
+   * @param dateTime The time.
+   * @return The time truncated to the interval.
+   */
+  public LocalDateTime truncate(LocalDateTime dateTime) {
+    return dateTime.truncatedTo(unit);
+  }
+}
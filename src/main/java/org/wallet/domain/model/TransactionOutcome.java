@@ -0,0 +1,48 @@
+package org.wallet.domain.model;
+
+import java.math.BigDecimal;
+
+/**
+ * The {@code TransactionOutcome} class represents the result of registering a transaction. It
+ * includes the transaction itself, the player's balance right after it was applied and the status
+ * of the request.
+ *
+ * @param transactionId The unique identifier for the transaction.
+ * @param type The type of the transaction (DEBIT or CREDIT).
+ * @param amount The amount involved in the transaction.
+ * @param balance The balance of the player right after the transaction was applied, or {@code
+ *     null} for a replay of a transaction whose outcome is no longer cached.
+ * @param status Whether the transaction was applied by this request or replayed.
+ */
+public record TransactionOutcome(
+    String transactionId,
+    TransactionType type,
+    BigDecimal amount,
+    BigDecimal balance,
+    TransactionStatus status) {
+
+  /**
+   * Creates the outcome of a transaction that has just been applied.
+   *
+   * @param transaction The applied transaction.
+   * @param balance The balance of the player after the transaction.
+   * @return The outcome with the {@link TransactionStatus#APPLIED} status.
+   */
+  public static TransactionOutcome applied(Transaction transaction, BigDecimal balance) {
+    return new TransactionOutcome(
+        transaction.transactionId(),
+        transaction.type(),
+        transaction.amount(),
+        balance,
+        TransactionStatus.APPLIED);
+  }
+
+  /**
+   * Returns a copy of this outcome marked as a replay of the original execution.
+   *
+   * @return The outcome with the {@link TransactionStatus#REPLAYED} status.
+   */
+  public TransactionOutcome asReplay() {
+    return new TransactionOutcome(transactionId, type, amount, balance, TransactionStatus.REPLAYED);
+  }
+}
@@ -0,0 +1,13 @@
+package org.wallet.domain.model;
+
+/**
+ * The {@code TransactionStatus} enumeration represents how a submitted transaction was handled. It
+ * lets a client that retries a request tell the original execution from a replay.
+ */
+public enum TransactionStatus {
+  /** Represents a transaction that was applied to the player's balance by this request. */
+  APPLIED,
+
+  /** Represents a retried transaction answered with the outcome of its original execution. */
+  REPLAYED
+}
@@ -1,13 +1,44 @@
 package org.wallet.domain.model;
 
+import lombok.Getter;
+
 /**
  * The {@code TransactionType} enumeration represents the type of a financial transaction. It can be
  * either a DEBIT or CREDIT transaction.
  */
+@Getter
 public enum TransactionType {
   /** Represents a DEBIT transaction, where money is withdrawn from an account. */
-  DEBIT,
+  DEBIT((short) 1),
 
   /** Represents a CREDIT transaction, where money is deposited into an account. */
-  CREDIT
+  CREDIT((short) 2);
+
+  /** Code under which the type is stored in the database. */
+  private final short code;
+
+  /**
+   * Creates a new {@code TransactionType} with the given database code.
+   *
+   * @param code The code under which the type is stored.
+   */
+  TransactionType(short code) {
+    this.code = code;
+  }
+
+  /**
+   * Returns the transaction type stored under the given code.
+   *
+   * @param code The database code of the type.
+   * @return The transaction type.
+   * @throws IllegalArgumentException if no type has the given code.
+   */
+  public static TransactionType fromCode(int code) {
+    for (TransactionType type : values()) {
+      if (type.code == code) {
+        return type;
+      }
+    }
+    throw new IllegalArgumentException("Unknown transaction type code: " + code);
+  }
 }
@@ -0,0 +1,35 @@
+package org.wallet.domain.model;
+
+import java.math.BigDecimal;
+
+/**
+ * The {@code Transfer} class represents a movement of money from one player to another. It is
+ * stored as two transactions sharing the ID of the transfer: a debit of the sender and a credit of
+ * the recipient.
+ *
+ * @param transferId The unique identifier for the transfer.
+ * @param senderLogin The login of the player the amount is taken from.
+ * @param recipientLogin The login of the player the amount is given to.
+ * @param amount The amount moved by the transfer.
+ */
+public record Transfer(
+    String transferId, String senderLogin, String recipientLogin, BigDecimal amount) {
+
+  /**
+   * Returns the debit of the sender.
+   *
+   * @return The transaction taking the amount from the sender.
+   */
+  public Transaction debit() {
+    return new Transaction(senderLogin, transferId + ":debit", TransactionType.DEBIT, amount);
+  }
+
+  /**
+   * Returns the credit of the recipient.
+   *
+   * @return The transaction giving the amount to the recipient.
+   */
+  public Transaction credit() {
+    return new Transaction(recipientLogin, transferId + ":credit", TransactionType.CREDIT, amount);
+  }
+}
@@ -0,0 +1,109 @@
+package org.wallet.domain.repository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.wallet.domain.model.LogAction;
+import org.wallet.domain.model.TransactionType;
+import org.wallet.domain.repository.shard.ShardRouter;
+
+/**
+ * The {@code CompactSchemaBackfill} class moves rows written before the compact schema to the
+ * surrogate player key and the numeric type and action codes. The rows are converted in small
+ * batches, each committed on its own, so the tables stay available while the backfill runs. The
+ * legacy text columns of a converted row are cleared, which also removes it from the partial
+ * indexes used to find the remaining rows.
+ *
+ * <p>Transactions of players that do not exist are left as they are; the repositories keep reading
+ * them through the legacy columns.
+ */
+@Component
+@RequiredArgsConstructor
+public class CompactSchemaBackfill implements MeterBinder {
+
+  private static final String BACKFILL_TRANSACTIONS_SQL =
+      "UPDATE wallet.transactions t SET player_id = p.id, type_code = "
+          + codes("t.type", TransactionType.values(), TransactionType::getCode)
+          + ", player_login = NULL, type = NULL FROM wallet.players p"
+          + " WHERE p.login = t.player_login AND t.id IN (SELECT pending.id"
+          + " FROM wallet.transactions pending WHERE pending.player_id IS NULL AND EXISTS"
+          + " (SELECT 1 FROM wallet.players owner WHERE owner.login = pending.player_login)"
+          + " LIMIT ? FOR UPDATE SKIP LOCKED)";
+  private static final String BACKFILL_LOGS_SQL =
+      "UPDATE wallet.logs SET action_code = "
+          + codes("action", LogAction.values(), LogAction::getCode)
+          + ", action = NULL WHERE id IN (SELECT id FROM wallet.logs"
+          + " WHERE action_code IS NULL LIMIT ? FOR UPDATE SKIP LOCKED)";
+
+  /** Number of rows converted per statement. */
+  private static final int BATCH_SIZE = 5_000;
+
+  private final ShardRouter shardRouter;
+
+  private final LongAdder backfilledTransactions = new LongAdder();
+  private final LongAdder backfilledLogs = new LongAdder();
+
+  /**
+   * Converts the remaining legacy rows of every shard. Once everything is converted, a run costs a
+   * single lookup in each of the empty partial indexes.
+   */
+  @Scheduled(fixedDelay = 60_000, initialDelay = 10_000)
+  public void backfill() {
+    for (int i = 0; i < shardRouter.size(); i++) {
+      DatabaseConnection shard = shardRouter.getShard(i);
+      backfilledTransactions.add(backfill(shard, BACKFILL_TRANSACTIONS_SQL));
+      backfilledLogs.add(backfill(shard, BACKFILL_LOGS_SQL));
+    }
+  }
+
+  /**
+   * Binds the number of converted rows to the given meter registry.
+   *
+   * @param registry The registry to bind the meters to.
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("wallet.schema.backfill.rows", backfilledTransactions, LongAdder::sum)
+        .tag("table", "transactions")
+        .register(registry);
+    FunctionCounter.builder("wallet.schema.backfill.rows", backfilledLogs, LongAdder::sum)
+        .tag("table", "logs")
+        .register(registry);
+  }
+
+  private long backfill(DatabaseConnection databaseConnection, String sql) {
+    long converted = 0;
+    try (Connection connection = databaseConnection.getConnection();
+        PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+      preparedStatement.setInt(1, BATCH_SIZE);
+      int updated;
+      do {
+        updated = preparedStatement.executeUpdate();
+        converted += updated;
+      } while (updated > 0);
+    } catch (SQLException e) {
+      e.printStackTrace();
+    }
+    return converted;
+  }
+
+  private static <E extends Enum<E>> String codes(
+      String column, E[] values, ToIntFunction<E> code) {
+    StringBuilder sql = new StringBuilder("CASE ").append(column);
+    for (E value : values) {
+      sql.append(" WHEN '")
+          .append(value.name())
+          .append("' THEN ")
+          .append(code.applyAsInt(value));
+    }
+    return sql.append(" END").toString();
+  }
+}
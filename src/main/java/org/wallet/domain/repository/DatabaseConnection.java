@@ -1,21 +1,43 @@
 package org.wallet.domain.repository;
 
-import java.io.InputStream;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.util.Properties;
-import lombok.RequiredArgsConstructor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.wallet.domain.repository.player.JdbcPlayerRepository;
+import org.wallet.utils.WalletProperties;
 
 /**
  * The `DatabaseConnection` class represents a database connection manager. It provides methods to
  * establish a connection to a relational database.
+ *
+ * <p>Writes always go to the primary. Read-only queries executed through {@link
+ * #executeRead(String, ReadCallback)} are spread over the configured replicas, except for players
+ * that have written recently, whose reads stay on the primary so they always see their own writes.
+ * A replica that fails is taken out of rotation until the periodic health check finds it healthy.
+ *
+ * <p>The recent writers are only known to the instance that handled their writes: a read of the
+ * same player served by another instance may still go to a replica and miss the write.
+ *
+ * <p>When the database is a shard, every write transaction first passes the logins it writes to
+ * the {@link RangeFence} of the shard, which rejects logins whose hash range has been moved away.
  */
 @Component
-@RequiredArgsConstructor
-public class DatabaseConnection {
+public class DatabaseConnection implements MeterBinder {
 
   /** The username for the database connection. */
   private static String JDBC_USER;
@@ -26,37 +48,292 @@ public class DatabaseConnection {
   /** The password for the database connection. */
   private static String JDBC_PASSWORD;
 
+  /** The comma-separated JDBC URLs of the read replicas. */
+  private static String JDBC_REPLICA_URLS;
+
+  /** How long reads of a player stay on the primary after the player has written. */
+  private static final long READ_YOUR_WRITES_WINDOW_MILLIS = 5_000;
+
+  /** Interval between two replica health checks. */
+  private static final long HEALTH_CHECK_INTERVAL_MILLIS = 5_000;
+
+  /** Timeout of a single replica health check. */
+  private static final int HEALTH_CHECK_TIMEOUT_SECONDS = 1;
+
+  /** SQLSTATE class of the connection exceptions, the only errors that take a replica out. */
+  private static final String FAILOVER_SQL_STATE_CLASS = "08";
+
   static {
     try {
       Class.forName("org.postgresql.Driver");
-      Properties properties = new Properties();
-      ClassLoader classLoader = JdbcPlayerRepository.class.getClassLoader();
-      InputStream inputStream = classLoader.getResourceAsStream("application.yml");
-      properties.load(inputStream);
-      JDBC_URL = properties.getProperty("url");
-      JDBC_USER = properties.getProperty("username");
-      JDBC_PASSWORD = properties.getProperty("password");
-    } catch (Exception ignored) {
+    } catch (ClassNotFoundException ignored) {
     }
+    WalletProperties.Datasource datasource =
+        WalletProperties.get(WalletProperties.Datasource.class);
+    JDBC_URL = datasource.url();
+    JDBC_USER = datasource.username();
+    JDBC_PASSWORD = datasource.password();
+    JDBC_REPLICA_URLS = datasource.replicaUrls();
+  }
+
+  private final Target primary;
+  private final List<Target> replicas = new ArrayList<>();
+  private final Map<String, Long> pinnedUntil = new ConcurrentHashMap<>();
+  private final AtomicInteger nextReplica = new AtomicInteger();
+  private final LongAdder pinnedReads = new LongAdder();
+  private final LongAdder failovers = new LongAdder();
+  private volatile RangeFence rangeFence;
+
+  /** Constructor for creating a `DatabaseConnection` object from the application configuration. */
+  public DatabaseConnection() {
+    this(JDBC_URL, parseUrls(JDBC_REPLICA_URLS));
   }
 
   /**
-   * Constructor for creating a `DatabaseConnection` object with a custom JDBC URL.
+   * Constructor for creating a `DatabaseConnection` object with a custom JDBC URL and no replicas.
    *
    * @param url The custom JDBC URL for the database connection.
    */
   public DatabaseConnection(String url) {
-    JDBC_URL = url;
+    this(url, List.of());
   }
 
   /**
-   * Establishes a database connection using the stored `JDBC_URL`, `JDBC_USER`, and `JDBC_PASSWORD`
-   * fields.
+   * Constructor for creating a `DatabaseConnection` object with a custom primary and replicas.
+   *
+   * @param url The JDBC URL of the primary database.
+   * @param replicaUrls The JDBC URLs of the read replicas.
+   */
+  public DatabaseConnection(String url, List<String> replicaUrls) {
+    primary = new Target("primary", url);
+    for (int i = 0; i < replicaUrls.size(); i++) {
+      replicas.add(new Target("replica-" + i, replicaUrls.get(i)));
+    }
+  }
+
+  /**
+   * Establishes a connection to the primary database using the stored URL, `JDBC_USER`, and
+   * `JDBC_PASSWORD` fields.
    *
    * @return A `Connection` object representing the database connection.
    * @throws SQLException if a database access error occurs.
    */
   public Connection getConnection() throws SQLException {
-    return DriverManager.getConnection(JDBC_URL, JDBC_USER, JDBC_PASSWORD);
+    return primary.connect();
+  }
+
+  /**
+   * Executes a read-only query on a replica, or on the primary if the player has written within the
+   * read-your-writes window or no replica is healthy. If the replica fails with a connection error,
+   * it is taken out of rotation and the query is retried on the primary.
+   *
+   * @param login The login of the player whose data is read, or {@code null} if the query is not
+   *     tied to a player.
+   * @param callback The query to execute.
+   * @param <T> The type of the query result.
+   * @return The result of the query.
+   * @throws SQLException if a database access error occurs.
+   */
+  public <T> T executeRead(String login, ReadCallback<T> callback) throws SQLException {
+    Target target = selectReadTarget(login);
+    if (target != primary) {
+      try {
+        return target.execute(callback);
+      } catch (SQLException e) {
+        if (!isFailoverError(e)) {
+          throw e;
+        }
+        target.healthy = false;
+        failovers.increment();
+      }
+    }
+    return primary.execute(callback);
+  }
+
+  /**
+   * Records that the player has just written, pinning the player's reads on this instance to the
+   * primary for the read-your-writes window.
+   *
+   * @param login The login of the player who wrote.
+   */
+  public void markWrite(String login) {
+    if (login != null && !replicas.isEmpty()) {
+      pinnedUntil.put(login, System.currentTimeMillis() + READ_YOUR_WRITES_WINDOW_MILLIS);
+    }
+  }
+
+  /**
+   * Sets the fence checking that the hash ranges of the written players belong to this database.
+   *
+   * @param rangeFence The fence, or {@code null} if the database is not a shard.
+   */
+  public void setRangeFence(RangeFence rangeFence) {
+    this.rangeFence = rangeFence;
+  }
+
+  /**
+   * Locks the hash ranges of the given players for the rest of the write transaction, so a range
+   * cannot be moved to another shard until the transaction ends. Does nothing if no fence is set.
+   *
+   * @param connection The connection of the write transaction; auto-commit must be disabled.
+   * @param logins The logins of the players written by the transaction.
+   * @throws SQLException if a database access error occurs.
+   */
+  public void lockRanges(Connection connection, Collection<String> logins) throws SQLException {
+    RangeFence fence = rangeFence;
+    if (fence != null) {
+      fence.lock(connection, logins);
+    }
+  }
+
+  /**
+   * Checks every replica and puts the healthy ones back into rotation. Expired read-your-writes pins
+   * are dropped at the same time.
+   */
+  @Scheduled(fixedDelay = HEALTH_CHECK_INTERVAL_MILLIS)
+  public void checkReplicas() {
+    for (Target replica : replicas) {
+      try (Connection connection = replica.connect()) {
+        replica.healthy = connection.isValid(HEALTH_CHECK_TIMEOUT_SECONDS);
+      } catch (SQLException e) {
+        replica.healthy = false;
+      }
+    }
+    long now = System.currentTimeMillis();
+    pinnedUntil.values().removeIf(until -> until <= now);
+  }
+
+  /**
+   * Returns the number of replicas currently in rotation.
+   *
+   * @return The number of healthy replicas.
+   */
+  public long getHealthyReplicaCount() {
+    return replicas.stream().filter(replica -> replica.healthy).count();
+  }
+
+  /**
+   * Binds the per-target read latency, replica health and routing statistics to the given meter
+   * registry.
+   *
+   * @param registry The registry to bind the meters to.
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    primary.bindTo(registry);
+    for (Target replica : replicas) {
+      replica.bindTo(registry);
+      Gauge.builder("wallet.db.replica.healthy", replica, target -> target.healthy ? 1 : 0)
+          .tag("target", replica.name)
+          .register(registry);
+    }
+    FunctionCounter.builder("wallet.db.reads.pinned", pinnedReads, LongAdder::sum)
+        .register(registry);
+    FunctionCounter.builder("wallet.db.replica.failovers", failovers, LongAdder::sum)
+        .register(registry);
+  }
+
+  private Target selectReadTarget(String login) {
+    if (replicas.isEmpty()) {
+      return primary;
+    }
+    if (login != null) {
+      Long until = pinnedUntil.get(login);
+      if (until != null && until > System.currentTimeMillis()) {
+        pinnedReads.increment();
+        return primary;
+      }
+    }
+    int start = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+    for (int i = 0; i < replicas.size(); i++) {
+      Target replica = replicas.get((start + i) % replicas.size());
+      if (replica.healthy) {
+        return replica;
+      }
+    }
+    return primary;
+  }
+
+  private static boolean isFailoverError(SQLException e) {
+    String sqlState = e.getSQLState();
+    return sqlState != null && sqlState.startsWith(FAILOVER_SQL_STATE_CLASS);
+  }
+
+  private static List<String> parseUrls(String urls) {
+    if (urls == null || urls.isBlank()) {
+      return List.of();
+    }
+    return Arrays.stream(urls.split(",")).map(String::trim).filter(url -> !url.isEmpty()).toList();
+  }
+
+  /**
+   * A read-only query executed on a connection chosen by the {@code DatabaseConnection}.
+   *
+   * @param <T> The type of the query result.
+   */
+  @FunctionalInterface
+  public interface ReadCallback<T> {
+
+    /**
+     * Executes the query.
+     *
+     * @param connection The connection to execute the query on.
+     * @return The result of the query.
+     * @throws SQLException if a database access error occurs.
+     */
+    T read(Connection connection) throws SQLException;
+  }
+
+  /** A check run at the start of every write transaction on a shard. */
+  @FunctionalInterface
+  public interface RangeFence {
+
+    /**
+     * Locks the hash ranges of the given players in the transaction of the connection.
+     *
+     * @param connection The connection of the write transaction.
+     * @param logins The logins of the players written by the transaction.
+     * @throws SQLException if a database access error occurs.
+     */
+    void lock(Connection connection, Collection<String> logins) throws SQLException;
+  }
+
+  /** A database that reads can be routed to, together with its read statistics. */
+  private static final class Target {
+    private final String name;
+    private final String url;
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder readNanos = new LongAdder();
+    private volatile boolean healthy = true;
+
+    private Target(String name, String url) {
+      this.name = name;
+      this.url = url;
+    }
+
+    private Connection connect() throws SQLException {
+      return DriverManager.getConnection(url, JDBC_USER, JDBC_PASSWORD);
+    }
+
+    private <T> T execute(ReadCallback<T> callback) throws SQLException {
+      long start = System.nanoTime();
+      try (Connection connection = connect()) {
+        return callback.read(connection);
+      } finally {
+        reads.increment();
+        readNanos.add(System.nanoTime() - start);
+      }
+    }
+
+    private void bindTo(MeterRegistry registry) {
+      FunctionTimer.builder(
+              "wallet.db.reads",
+              this,
+              target -> target.reads.sum(),
+              target -> target.readNanos.sum(),
+              TimeUnit.NANOSECONDS)
+          .tag("target", name)
+          .register(registry);
+    }
   }
 }
@@ -0,0 +1,705 @@
+package org.wallet.domain.repository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.wallet.domain.model.LedgerEvent;
+import org.wallet.domain.model.Transaction;
+import org.wallet.domain.model.TransactionType;
+import org.wallet.domain.repository.shard.ShardRouter;
+import org.wallet.domain.repository.transaction.TransactionArchive;
+import org.wallet.domain.service.LedgerEventBus;
+import org.wallet.utils.WalletProperties;
+
+/**
+ * The {@code LedgerReconciliation} class verifies that the balance stored with every player equals
+ * the credits minus the debits of the player, including the transactions moved to the {@link
+ * TransactionArchive}. It runs every night without repairing anything and is exposed as the {@code
+ * reconciliation} actuator endpoint, which reports the progress and the mismatches found and starts
+ * a run, optionally repairing the balances.
+ *
+ * <p>The players of a shard are checked in ranges of their keys. Every range is split by a
+ * fork-join task into chunks whose players and transactions are streamed in key order in a single
+ * read-only snapshot, from a replica when one is configured, and compared while they are read.
+ * No table is locked. A mismatch seen in a chunk may be caused by a write in progress, so it is
+ * checked again on the primary before it is reported, and a repair only updates a balance that has
+ * not changed since it was checked. A repaired balance is published to the {@link LedgerEventBus}
+ * as an event without a transaction.
+ *
+ * <p>The progress of every shard is saved in {@code wallet.reconciliation_runs} after each range,
+ * and the mismatches in {@code wallet.reconciliation_mismatches}. An interrupted run is resumed
+ * from the last saved range by the next run, in its original mode. Players created after a run
+ * started are left to the next run.
+ *
+ * <p>Every instance schedules the nightly run, so a shard is only reconciled while its advisory
+ * lock is held; a shard locked by another instance is skipped, as it is being reconciled there.
+ */
+@Component
+@Endpoint(id = "reconciliation")
+public class LedgerReconciliation implements MeterBinder {
+
+  /** The number of chunks in a range, after which the progress is saved. */
+  private static final int CHUNKS_PER_RANGE = 4;
+
+  /** Number of rows fetched per round trip when streaming transactions. */
+  private static final int STREAMING_FETCH_SIZE = 10_000;
+
+  /** The maximum number of mismatches listed by the status. */
+  private static final int LISTED_MISMATCHES = 100;
+
+  /** The advisory lock key held on a shard while it is reconciled. */
+  private static final long RECONCILIATION_LOCK = 0x5245434f4e43494cL;
+
+  private static final String TRY_LOCK_SQL = "SELECT pg_try_advisory_lock(?)";
+  private static final String UNLOCK_SQL = "SELECT pg_advisory_unlock(?)";
+  private static final String SELECT_UNFINISHED_RUN_SQL =
+      "SELECT id, repair, last_player_id, max_player_id, players, transactions"
+          + " FROM wallet.reconciliation_runs WHERE finished_at IS NULL ORDER BY id DESC LIMIT 1";
+  private static final String SELECT_LAST_RUN_SQL =
+      "SELECT id, repair, last_player_id, max_player_id, players, transactions"
+          + " FROM wallet.reconciliation_runs ORDER BY id DESC LIMIT 1";
+  private static final String INSERT_RUN_SQL =
+      "INSERT INTO wallet.reconciliation_runs (started_at, repair, last_player_id,"
+          + " max_player_id, players, transactions) SELECT LOCALTIMESTAMP, ?, 0,"
+          + " COALESCE(MAX(id), 0), 0, 0 FROM wallet.players RETURNING id, max_player_id";
+  private static final String UPDATE_RUN_SQL =
+      "UPDATE wallet.reconciliation_runs SET last_player_id = ?, players = ?, transactions = ?"
+          + " WHERE id = ?";
+  private static final String FINISH_RUN_SQL =
+      "UPDATE wallet.reconciliation_runs SET finished_at = LOCALTIMESTAMP WHERE id = ?";
+  private static final String SELECT_PLAYERS_SQL =
+      "SELECT id, login, balance FROM wallet.players WHERE id > ? AND id <= ? ORDER BY id";
+  private static final String SELECT_TRANSACTIONS_SQL =
+      "SELECT player_id, type_code, amount FROM wallet.transactions"
+          + " WHERE player_id > ? AND player_id <= ? ORDER BY player_id";
+  private static final String SELECT_BALANCE_SQL =
+      "SELECT balance FROM wallet.players WHERE id = ?";
+  private static final String SELECT_PLAYER_TRANSACTIONS_SQL =
+      "SELECT transaction_id, type_code, type, amount FROM wallet.transactions"
+          + " WHERE player_id = ? OR (player_id IS NULL AND player_login = ?)";
+  private static final String REPAIR_BALANCE_SQL =
+      "UPDATE wallet.players SET balance = ?, ledger_version = ledger_version + 1"
+          + " WHERE id = ? AND balance = ? RETURNING ledger_version";
+  private static final String UPSERT_MISMATCH_SQL =
+      "INSERT INTO wallet.reconciliation_mismatches (run_id, player_id, login, balance,"
+          + " ledger_balance, repaired) VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT (run_id, player_id)"
+          + " DO UPDATE SET balance = EXCLUDED.balance, ledger_balance = EXCLUDED.ledger_balance,"
+          + " repaired = EXCLUDED.repaired";
+  private static final String SELECT_MISMATCHES_SQL =
+      "SELECT player_id, login, balance, ledger_balance, repaired"
+          + " FROM wallet.reconciliation_mismatches WHERE run_id = ? ORDER BY player_id LIMIT ?";
+
+  private final ShardRouter shardRouter;
+  private final TransactionArchive transactionArchive;
+  private final LedgerEventBus ledgerEventBus;
+  private final int parallelism;
+  private final int chunkPlayers;
+
+  private final ExecutorService runner =
+      Executors.newSingleThreadExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "ledger-reconciliation");
+            thread.setDaemon(true);
+            return thread;
+          });
+  private final Map<Integer, Progress> progress = new ConcurrentHashMap<>();
+  private final LongAdder checkedPlayers = new LongAdder();
+  private final LongAdder checkedTransactions = new LongAdder();
+  private final LongAdder foundMismatches = new LongAdder();
+  private final LongAdder repairedBalances = new LongAdder();
+
+  private final AtomicBoolean running = new AtomicBoolean();
+  private volatile long startedAt;
+
+  /**
+   * Creates the reconciliation with the parallelism and chunk size from the application
+   * configuration.
+   *
+   * @param shardRouter The router providing the connections to every shard.
+   * @param transactionArchive The archive holding the transactions moved out of the database.
+   * @param ledgerEventBus The bus the repaired balances are published to.
+   * @param reconciliation The settings of the reconciliation.
+   */
+  @Autowired
+  public LedgerReconciliation(
+      ShardRouter shardRouter,
+      TransactionArchive transactionArchive,
+      LedgerEventBus ledgerEventBus,
+      WalletProperties.Reconciliation reconciliation) {
+    this(
+        shardRouter,
+        transactionArchive,
+        ledgerEventBus,
+        reconciliation.parallelism(),
+        reconciliation.chunkPlayers());
+  }
+
+  /**
+   * Creates the reconciliation with the given parallelism and chunk size.
+   *
+   * @param shardRouter The router providing the connections to every shard.
+   * @param transactionArchive The archive holding the transactions moved out of the database.
+   * @param ledgerEventBus The bus the repaired balances are published to.
+   * @param parallelism The number of chunks checked in parallel.
+   * @param chunkPlayers The number of player keys covered by a chunk.
+   */
+  public LedgerReconciliation(
+      ShardRouter shardRouter,
+      TransactionArchive transactionArchive,
+      LedgerEventBus ledgerEventBus,
+      int parallelism,
+      int chunkPlayers) {
+    if (parallelism <= 0 || chunkPlayers <= 0) {
+      throw new IllegalArgumentException("Parallelism and chunk size must be positive.");
+    }
+    this.shardRouter = shardRouter;
+    this.transactionArchive = transactionArchive;
+    this.ledgerEventBus = ledgerEventBus;
+    this.parallelism = parallelism;
+    this.chunkPlayers = chunkPlayers;
+  }
+
+  /** Stops a run in progress; it is resumed by the next run. */
+  @PreDestroy
+  public void shutdown() {
+    runner.shutdownNow();
+  }
+
+  /** Checks every player without repairing anything every night, after the archiving. */
+  @Scheduled(cron = "0 0 5 * * *")
+  public void reconcileNightly() {
+    reconcile(false);
+  }
+
+  /**
+   * Returns the progress of the current or last run on every shard, the throughput of the current
+   * run and the first mismatches found by the last run of every shard.
+   *
+   * @return The state of the reconciliation.
+   */
+  @ReadOperation
+  public Map<String, Object> status() {
+    Map<String, Object> status = new LinkedHashMap<>();
+    status.put("running", running.get());
+    List<Map<String, Object>> shards = new ArrayList<>();
+    for (int i = 0; i < shardRouter.size(); i++) {
+      Map<String, Object> shard = new LinkedHashMap<>();
+      shard.put("shard", i);
+      try (Connection connection = shardRouter.getShard(i).getConnection()) {
+        Run run = selectRun(connection, SELECT_LAST_RUN_SQL);
+        if (run != null) {
+          shard.put("run", run.id);
+          shard.put("repair", run.repair);
+          shard.put("lastPlayerId", run.lastPlayerId);
+          shard.put("maxPlayerId", run.maxPlayerId);
+          shard.put("players", run.players);
+          shard.put("transactions", run.transactions);
+          shard.put("mismatches", selectMismatches(connection, run.id));
+        }
+      } catch (SQLException e) {
+        e.printStackTrace();
+      }
+      shards.add(shard);
+    }
+    status.put("shards", shards);
+    if (running.get()) {
+      long millis = Math.max(1, System.currentTimeMillis() - startedAt);
+      status.put("progress", progress());
+      status.put("transactionsPerSecond", checkedTransactions.sum() * 1000 / millis);
+    }
+    return status;
+  }
+
+  /**
+   * Starts a run in the background, or resumes an interrupted one, unless a run is in progress.
+   *
+   * @param repair Whether mismatching balances are corrected; {@code false} if not given.
+   * @return The state of the reconciliation.
+   */
+  @WriteOperation
+  public Map<String, Object> start(@Nullable Boolean repair) {
+    if (running.compareAndSet(false, true)) {
+      try {
+        runner.execute(() -> reconcile(Boolean.TRUE.equals(repair)));
+      } catch (RejectedExecutionException e) {
+        running.set(false);
+        throw e;
+      }
+    }
+    return status();
+  }
+
+  /**
+   * Checks every player of every shard, resuming the interrupted run of a shard if there is one.
+   * The shards being reconciled by another instance are skipped.
+   *
+   * @param repair Whether mismatching balances are corrected by a new run.
+   * @return A summary of the checked rows, the mismatches found and the skipped shards.
+   * @throws IllegalStateException if a shard cannot be reconciled.
+   */
+  public synchronized Map<String, Object> reconcile(boolean repair) {
+    long start = System.currentTimeMillis();
+    long players = checkedPlayers.sum();
+    long transactions = checkedTransactions.sum();
+    long mismatches = foundMismatches.sum();
+    long repaired = repairedBalances.sum();
+    List<Integer> skipped = new ArrayList<>();
+    running.set(true);
+    startedAt = start;
+    progress.clear();
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      Map<String, BigDecimal> archived = transactionArchive.getBalancesByPlayerLogin();
+      for (int i = 0; i < shardRouter.size(); i++) {
+        if (!reconcileLocked(i, repair, archived, pool)) {
+          skipped.add(i);
+        }
+      }
+    } catch (SQLException e) {
+      throw new IllegalStateException("Could not reconcile the ledger.", e);
+    } finally {
+      pool.shutdown();
+      running.set(false);
+    }
+
+    long millis = System.currentTimeMillis() - start;
+    Map<String, Object> summary = new LinkedHashMap<>();
+    summary.put("players", checkedPlayers.sum() - players);
+    summary.put("transactions", checkedTransactions.sum() - transactions);
+    summary.put("mismatches", foundMismatches.sum() - mismatches);
+    summary.put("repaired", repairedBalances.sum() - repaired);
+    summary.put("totalMillis", millis);
+    summary.put(
+        "transactionsPerSecond",
+        (checkedTransactions.sum() - transactions) * 1000 / Math.max(1, millis));
+    summary.put("skippedShards", skipped);
+    return summary;
+  }
+
+  /**
+   * Binds the number of checked rows, mismatches and repairs and the progress of the current run to
+   * the given meter registry.
+   *
+   * @param registry The registry to bind the meters to.
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("wallet.reconciliation.rows", checkedPlayers, LongAdder::sum)
+        .tag("table", "players")
+        .register(registry);
+    FunctionCounter.builder("wallet.reconciliation.rows", checkedTransactions, LongAdder::sum)
+        .tag("table", "transactions")
+        .register(registry);
+    FunctionCounter.builder("wallet.reconciliation.mismatches", foundMismatches, LongAdder::sum)
+        .register(registry);
+    FunctionCounter.builder("wallet.reconciliation.repaired", repairedBalances, LongAdder::sum)
+        .register(registry);
+    Gauge.builder("wallet.reconciliation.progress", this, LedgerReconciliation::progress)
+        .register(registry);
+  }
+
+  /**
+   * Reconciles a shard while holding its reconciliation lock.
+   *
+   * @return {@code false} if another instance holds the lock and the shard was skipped.
+   */
+  private boolean reconcileLocked(
+      int index, boolean repair, Map<String, BigDecimal> archived, ForkJoinPool pool)
+      throws SQLException {
+    try (Connection connection = shardRouter.getShard(index).getConnection()) {
+      if (!advisoryLock(connection, TRY_LOCK_SQL)) {
+        return false;
+      }
+      try {
+        reconcile(index, repair, archived, pool);
+        return true;
+      } finally {
+        advisoryLock(connection, UNLOCK_SQL);
+      }
+    }
+  }
+
+  /** Checks the remaining ranges of a shard and saves the progress after each of them. */
+  private void reconcile(
+      int index, boolean repair, Map<String, BigDecimal> archived, ForkJoinPool pool)
+      throws SQLException {
+    DatabaseConnection shard = shardRouter.getShard(index);
+    Run run;
+    try (Connection connection = shard.getConnection()) {
+      run = selectRun(connection, SELECT_UNFINISHED_RUN_SQL);
+      if (run == null) {
+        run = insertRun(connection, repair);
+      }
+    }
+    Progress shardProgress = new Progress(run.lastPlayerId, run.maxPlayerId);
+    progress.put(index, shardProgress);
+
+    long rangePlayers = (long) chunkPlayers * parallelism * CHUNKS_PER_RANGE;
+    while (run.lastPlayerId < run.maxPlayerId) {
+      long to = Math.min(run.lastPlayerId + rangePlayers, run.maxPlayerId);
+      Chunk result = pool.invoke(new ChunkTask(shard, run.lastPlayerId, to, archived));
+      try (Connection connection = shard.getConnection()) {
+        for (Mismatch candidate : result.candidates) {
+          recheck(connection, run, candidate, archived);
+        }
+        run.lastPlayerId = to;
+        run.players += result.players;
+        run.transactions += result.transactions;
+        try (PreparedStatement preparedStatement = connection.prepareStatement(UPDATE_RUN_SQL)) {
+          preparedStatement.setLong(1, run.lastPlayerId);
+          preparedStatement.setLong(2, run.players);
+          preparedStatement.setLong(3, run.transactions);
+          preparedStatement.setLong(4, run.id);
+          preparedStatement.executeUpdate();
+        }
+      }
+      shardProgress.last = to;
+    }
+    try (Connection connection = shard.getConnection();
+        PreparedStatement preparedStatement = connection.prepareStatement(FINISH_RUN_SQL)) {
+      preparedStatement.setLong(1, run.id);
+      preparedStatement.executeUpdate();
+    }
+  }
+
+  /**
+   * Checks a player whose balance did not match in its chunk again on the primary, including its
+   * legacy rows, and records and optionally repairs the mismatch if it persists.
+   */
+  private void recheck(
+      Connection connection, Run run, Mismatch candidate, Map<String, BigDecimal> archived)
+      throws SQLException {
+    BigDecimal balance;
+    BigDecimal ledgerBalance = BigDecimal.ZERO;
+    connection.setAutoCommit(false);
+    connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+    try {
+      try (PreparedStatement preparedStatement = connection.prepareStatement(SELECT_BALANCE_SQL)) {
+        preparedStatement.setLong(1, candidate.playerId);
+        try (ResultSet resultSet = preparedStatement.executeQuery()) {
+          if (!resultSet.next()) {
+            return;
+          }
+          balance = resultSet.getBigDecimal(1);
+        }
+      }
+      Set<String> transactionIds = new HashSet<>();
+      if (archived.containsKey(candidate.login)) {
+        for (Transaction transaction :
+            transactionArchive.getTransactionsByPlayerLogin(candidate.login)) {
+          transactionIds.add(transaction.transactionId());
+          ledgerBalance = ledgerBalance.add(signed(transaction.type(), transaction.amount()));
+        }
+      }
+      try (PreparedStatement preparedStatement =
+          connection.prepareStatement(SELECT_PLAYER_TRANSACTIONS_SQL)) {
+        preparedStatement.setLong(1, candidate.playerId);
+        preparedStatement.setString(2, candidate.login);
+        try (ResultSet resultSet = preparedStatement.executeQuery()) {
+          while (resultSet.next()) {
+            if (transactionIds.add(resultSet.getString("transaction_id"))) {
+              short code = resultSet.getShort("type_code");
+              TransactionType type =
+                  resultSet.wasNull()
+                      ? TransactionType.valueOf(resultSet.getString("type"))
+                      : TransactionType.fromCode(code);
+              ledgerBalance = ledgerBalance.add(signed(type, resultSet.getBigDecimal("amount")));
+            }
+          }
+        }
+      }
+    } finally {
+      connection.commit();
+      connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+      connection.setAutoCommit(true);
+    }
+    if (balance.compareTo(ledgerBalance) == 0) {
+      return;
+    }
+
+    boolean repaired = false;
+    if (run.repair) {
+      try (PreparedStatement preparedStatement = connection.prepareStatement(REPAIR_BALANCE_SQL)) {
+        preparedStatement.setBigDecimal(1, ledgerBalance);
+        preparedStatement.setLong(2, candidate.playerId);
+        preparedStatement.setBigDecimal(3, balance);
+        try (ResultSet resultSet = preparedStatement.executeQuery()) {
+          if (resultSet.next()) {
+            repaired = true;
+            ledgerEventBus.publish(
+                new LedgerEvent(candidate.login, null, ledgerBalance, resultSet.getLong(1)));
+          }
+        }
+      }
+    }
+    try (PreparedStatement preparedStatement = connection.prepareStatement(UPSERT_MISMATCH_SQL)) {
+      preparedStatement.setLong(1, run.id);
+      preparedStatement.setLong(2, candidate.playerId);
+      preparedStatement.setString(3, candidate.login);
+      preparedStatement.setBigDecimal(4, balance);
+      preparedStatement.setBigDecimal(5, ledgerBalance);
+      preparedStatement.setBoolean(6, repaired);
+      preparedStatement.executeUpdate();
+    }
+    foundMismatches.increment();
+    if (repaired) {
+      repairedBalances.increment();
+    }
+  }
+
+  /** Returns the share of the player keys of the current run that have been checked. */
+  private double progress() {
+    long done = 0;
+    long total = 0;
+    for (Progress shard : progress.values()) {
+      done += shard.last - shard.first;
+      total += shard.max - shard.first;
+    }
+    return total == 0 ? (running.get() ? 0 : 1) : (double) done / total;
+  }
+
+  private static boolean advisoryLock(Connection connection, String sql) throws SQLException {
+    try (PreparedStatement statement = connection.prepareStatement(sql)) {
+      statement.setLong(1, RECONCILIATION_LOCK);
+      try (ResultSet resultSet = statement.executeQuery()) {
+        return resultSet.next() && resultSet.getBoolean(1);
+      }
+    }
+  }
+
+  private static Run selectRun(Connection connection, String sql) throws SQLException {
+    try (PreparedStatement preparedStatement = connection.prepareStatement(sql);
+        ResultSet resultSet = preparedStatement.executeQuery()) {
+      if (!resultSet.next()) {
+        return null;
+      }
+      Run run = new Run(resultSet.getLong("id"), resultSet.getBoolean("repair"));
+      run.lastPlayerId = resultSet.getLong("last_player_id");
+      run.maxPlayerId = resultSet.getLong("max_player_id");
+      run.players = resultSet.getLong("players");
+      run.transactions = resultSet.getLong("transactions");
+      return run;
+    }
+  }
+
+  private static Run insertRun(Connection connection, boolean repair) throws SQLException {
+    try (PreparedStatement preparedStatement = connection.prepareStatement(INSERT_RUN_SQL)) {
+      preparedStatement.setBoolean(1, repair);
+      try (ResultSet resultSet = preparedStatement.executeQuery()) {
+        resultSet.next();
+        Run run = new Run(resultSet.getLong("id"), repair);
+        run.maxPlayerId = resultSet.getLong("max_player_id");
+        return run;
+      }
+    }
+  }
+
+  private static List<Map<String, Object>> selectMismatches(Connection connection, long runId)
+      throws SQLException {
+    List<Map<String, Object>> mismatches = new ArrayList<>();
+    try (PreparedStatement preparedStatement = connection.prepareStatement(SELECT_MISMATCHES_SQL)) {
+      preparedStatement.setLong(1, runId);
+      preparedStatement.setInt(2, LISTED_MISMATCHES);
+      try (ResultSet resultSet = preparedStatement.executeQuery()) {
+        while (resultSet.next()) {
+          Map<String, Object> mismatch = new LinkedHashMap<>();
+          mismatch.put("login", resultSet.getString("login"));
+          mismatch.put("balance", resultSet.getBigDecimal("balance"));
+          mismatch.put("ledgerBalance", resultSet.getBigDecimal("ledger_balance"));
+          mismatch.put("repaired", resultSet.getBoolean("repaired"));
+          mismatches.add(mismatch);
+        }
+      }
+    }
+    return mismatches;
+  }
+
+  private static BigDecimal signed(TransactionType type, BigDecimal amount) {
+    return type == TransactionType.CREDIT ? amount : amount.negate();
+  }
+
+  /**
+   * Checks the players with keys in {@code (from, to]}. Ranges larger than a chunk are split in two
+   * halves checked in parallel.
+   */
+  private final class ChunkTask extends RecursiveTask<Chunk> {
+    private final DatabaseConnection shard;
+    private final long from;
+    private final long to;
+    private final Map<String, BigDecimal> archived;
+
+    private ChunkTask(
+        DatabaseConnection shard, long from, long to, Map<String, BigDecimal> archived) {
+      this.shard = shard;
+      this.from = from;
+      this.to = to;
+      this.archived = archived;
+    }
+
+    @Override
+    protected Chunk compute() {
+      if (to - from > chunkPlayers) {
+        long middle = from + (to - from) / 2;
+        ChunkTask lower = new ChunkTask(shard, from, middle, archived);
+        lower.fork();
+        Chunk upper = new ChunkTask(shard, middle, to, archived).compute();
+        return lower.join().merge(upper);
+      }
+      try {
+        return shard.executeRead(null, this::check);
+      } catch (SQLException e) {
+        throw new IllegalStateException("Could not read the players up to " + to + ".", e);
+      }
+    }
+
+    /**
+     * Streams the players of the chunk and their transactions, both ordered by the player key, in a
+     * single snapshot and compares every balance with the sum of its transactions.
+     */
+    private Chunk check(Connection connection) throws SQLException {
+      Chunk chunk = new Chunk();
+      connection.setAutoCommit(false);
+      connection.setReadOnly(true);
+      connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+      try {
+        List<Mismatch> players = new ArrayList<>();
+        try (PreparedStatement preparedStatement =
+            connection.prepareStatement(SELECT_PLAYERS_SQL)) {
+          preparedStatement.setLong(1, from);
+          preparedStatement.setLong(2, to);
+          try (ResultSet resultSet = preparedStatement.executeQuery()) {
+            while (resultSet.next()) {
+              String login = resultSet.getString("login");
+              players.add(
+                  new Mismatch(
+                      resultSet.getLong("id"),
+                      login,
+                      resultSet.getBigDecimal("balance"),
+                      archived.getOrDefault(login, BigDecimal.ZERO)));
+            }
+          }
+        }
+        try (PreparedStatement preparedStatement =
+            connection.prepareStatement(SELECT_TRANSACTIONS_SQL)) {
+          preparedStatement.setLong(1, from);
+          preparedStatement.setLong(2, to);
+          preparedStatement.setFetchSize(STREAMING_FETCH_SIZE);
+          try (ResultSet resultSet = preparedStatement.executeQuery()) {
+            int next = 0;
+            while (resultSet.next()) {
+              long playerId = resultSet.getLong(1);
+              while (next < players.size() && players.get(next).playerId < playerId) {
+                next++;
+              }
+              if (next < players.size() && players.get(next).playerId == playerId) {
+                Mismatch player = players.get(next);
+                BigDecimal amount = resultSet.getBigDecimal(3);
+                player.ledgerBalance =
+                    resultSet.getShort(2) == TransactionType.CREDIT.getCode()
+                        ? player.ledgerBalance.add(amount)
+                        : player.ledgerBalance.subtract(amount);
+              }
+              chunk.transactions++;
+            }
+          }
+        }
+        for (Mismatch player : players) {
+          if (player.balance.compareTo(player.ledgerBalance) != 0) {
+            chunk.candidates.add(player);
+          }
+        }
+        chunk.players = players.size();
+      } finally {
+        connection.commit();
+      }
+      checkedPlayers.add(chunk.players);
+      checkedTransactions.add(chunk.transactions);
+      return chunk;
+    }
+  }
+
+  /** The number of rows checked in a chunk and the players whose balance did not match. */
+  private static final class Chunk {
+    private long players;
+    private long transactions;
+    private final List<Mismatch> candidates = new ArrayList<>();
+
+    private Chunk merge(Chunk other) {
+      players += other.players;
+      transactions += other.transactions;
+      candidates.addAll(other.candidates);
+      return this;
+    }
+  }
+
+  /** A player together with its stored balance and the balance computed from its transactions. */
+  private static final class Mismatch {
+    private final long playerId;
+    private final String login;
+    private final BigDecimal balance;
+    private BigDecimal ledgerBalance;
+
+    private Mismatch(long playerId, String login, BigDecimal balance, BigDecimal ledgerBalance) {
+      this.playerId = playerId;
+      this.login = login;
+      this.balance = balance;
+      this.ledgerBalance = ledgerBalance;
+    }
+  }
+
+  /** The saved state of a run on a shard. */
+  private static final class Run {
+    private final long id;
+    private final boolean repair;
+    private long lastPlayerId;
+    private long maxPlayerId;
+    private long players;
+    private long transactions;
+
+    private Run(long id, boolean repair) {
+      this.id = id;
+      this.repair = repair;
+    }
+  }
+
+  /** The keys of the players checked on a shard by the current run. */
+  private static final class Progress {
+    private final long first;
+    private final long max;
+    private volatile long last;
+
+    private Progress(long first, long max) {
+      this.first = first;
+      this.max = max;
+      this.last = first;
+    }
+  }
+}
@@ -3,50 +3,120 @@ package org.wallet.domain.repository;
 import jakarta.annotation.PostConstruct;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.Connection;
-import java.util.Properties;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
 import liquibase.Liquibase;
 import liquibase.database.Database;
 import liquibase.database.DatabaseFactory;
 import liquibase.database.jvm.JdbcConnection;
 import liquibase.resource.ClassLoaderResourceAccessor;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.stereotype.Component;
-import org.wallet.domain.repository.player.JdbcPlayerRepository;
+import org.wallet.utils.WalletProperties;
 
 /**
  * The `LiquibaseManager` class is responsible for managing database schema changes using Liquibase.
  * It allows you to migrate and update the database schema based on the specified change log file.
+ *
+ * <p>A full Liquibase update parses every changeset and compares it with the change log table,
+ * which dominates the startup time once the schema is up to date. After every update the checksum
+ * of the change log files is stored, and with the {@code checksum} migration mode a start whose
+ * change log has the same checksum skips Liquibase altogether. With the {@code off} mode nothing is
+ * migrated on start, and the schema is updated by running {@link #main(String...)} once per
+ * release, e.g. as a job before the application is rolled out.
  */
+@Slf4j
 @Component
 @RequiredArgsConstructor
 public class LiquibaseManager {
 
-  private static String CHANGE_LOG_FILE;
-  private static String LIQUIBASE_SCHEMA_NAME;
-  private static String DEFAULT_SCHEMA_NAME;
+  /** Every start runs the Liquibase update. */
+  public static final String ALWAYS_MODE = "always";
+
+  /** A start runs the Liquibase update only if the change log has changed since the last one. */
+  public static final String CHECKSUM_MODE = "checksum";
+
+  /** Starts never migrate; the schema is updated by the one-shot command. */
+  public static final String OFF_MODE = "off";
+
+  private static final String CHANGE_LOG_FILE;
+  private static final String LIQUIBASE_SCHEMA_NAME;
+  private static final String DEFAULT_SCHEMA_NAME;
+  private static final String MIGRATION_MODE;
+
+  private static final String CREATE_CHECKSUM_TABLE_SQL =
+      "CREATE TABLE IF NOT EXISTS %s.schema_checksum (change_log VARCHAR(255) PRIMARY KEY,"
+          + " checksum VARCHAR(64) NOT NULL, migrated_at TIMESTAMP NOT NULL DEFAULT now())";
+  private static final String SELECT_CHECKSUM_SQL =
+      "SELECT checksum FROM %s.schema_checksum WHERE change_log = ?";
+  private static final String UPSERT_CHECKSUM_SQL =
+      "INSERT INTO %s.schema_checksum (change_log, checksum) VALUES (?, ?)"
+          + " ON CONFLICT (change_log) DO UPDATE SET checksum = EXCLUDED.checksum,"
+          + " migrated_at = now()";
+
+  /** SQLSTATE reported when the checksum table has not been created yet. */
+  private static final String UNDEFINED_TABLE_SQL_STATE = "42P01";
 
   static {
-    try {
-      Properties properties = new Properties();
-      ClassLoader classLoader = JdbcPlayerRepository.class.getClassLoader();
-      InputStream inputStream = classLoader.getResourceAsStream("application.yml");
-      properties.load(inputStream);
-      CHANGE_LOG_FILE = properties.getProperty("changelog-file");
-      LIQUIBASE_SCHEMA_NAME = properties.getProperty("liquibase-schema");
-      DEFAULT_SCHEMA_NAME = properties.getProperty("default-schema");
-    } catch (IOException ignored) {
-    }
+    WalletProperties.Liquibase liquibase = WalletProperties.get(WalletProperties.Liquibase.class);
+    CHANGE_LOG_FILE = liquibase.changelogFile();
+    LIQUIBASE_SCHEMA_NAME = liquibase.liquibaseSchema();
+    DEFAULT_SCHEMA_NAME = liquibase.defaultSchema();
+    MIGRATION_MODE = liquibase.migrationMode();
   }
 
   /** The `DatabaseConnection` used for establishing a connection to the database. */
   private final DatabaseConnection databaseConnection;
 
   /**
-   * Migrates the database schema using Liquibase, applying changes defined in the change log file.
+   * Updates the schema of the database of the application configuration and exits. This is the
+   * one-shot migration command for the {@code off} migration mode, launched like the application
+   * with {@code -Dloader.main=org.wallet.domain.repository.LiquibaseManager}.
+   *
+   * @param args The command-line arguments, which are ignored.
+   */
+  public static void main(String... args) {
+    long start = System.nanoTime();
+    new LiquibaseManager(new DatabaseConnection()).update();
+    log.info("Schema migrated in {} ms", (System.nanoTime() - start) / 1_000_000);
+  }
+
+  /**
+   * Migrates the database schema as the configured migration mode requires: always, only when the
+   * checksum of the change log differs from the stored one, or never.
    */
   @PostConstruct
   public void migrate() {
+    try {
+      if (OFF_MODE.equals(MIGRATION_MODE)
+          || CHECKSUM_MODE.equals(MIGRATION_MODE) && changeLogChecksum().equals(storedChecksum())) {
+        return;
+      }
+      update();
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Migrates the database schema using Liquibase, applying changes defined in the change log file,
+   * and stores the checksum of the applied change log.
+   *
+   * @throws IllegalStateException if the migration fails.
+   */
+  public void update() {
     try (Connection connection = databaseConnection.getConnection()) {
       Database database =
           DatabaseFactory.getInstance()
@@ -56,8 +126,66 @@ public class LiquibaseManager {
       liquibase.getDatabase().setLiquibaseSchemaName(LIQUIBASE_SCHEMA_NAME);
       liquibase.getDatabase().setDefaultSchemaName(DEFAULT_SCHEMA_NAME);
       liquibase.update("");
+      storeChecksum(connection, changeLogChecksum());
     } catch (Exception e) {
-      e.printStackTrace();
+      throw new IllegalStateException("Schema migration failed.", e);
+    }
+  }
+
+  /**
+   * Returns the checksum stored by the last update, or {@code null} if the database was never
+   * updated by a version that stores it.
+   */
+  private String storedChecksum() throws SQLException {
+    try (Connection connection = databaseConnection.getConnection();
+        PreparedStatement statement =
+            connection.prepareStatement(SELECT_CHECKSUM_SQL.formatted(LIQUIBASE_SCHEMA_NAME))) {
+      statement.setString(1, CHANGE_LOG_FILE);
+      try (ResultSet resultSet = statement.executeQuery()) {
+        return resultSet.next() ? resultSet.getString(1) : null;
+      }
+    } catch (SQLException e) {
+      if (UNDEFINED_TABLE_SQL_STATE.equals(e.getSQLState())) {
+        return null;
+      }
+      throw e;
+    }
+  }
+
+  private void storeChecksum(Connection connection, String checksum) throws SQLException {
+    try (Statement statement = connection.createStatement();
+        PreparedStatement upsert =
+            connection.prepareStatement(UPSERT_CHECKSUM_SQL.formatted(LIQUIBASE_SCHEMA_NAME))) {
+      statement.execute(CREATE_CHECKSUM_TABLE_SQL.formatted(LIQUIBASE_SCHEMA_NAME));
+      upsert.setString(1, CHANGE_LOG_FILE);
+      upsert.setString(2, checksum);
+      upsert.executeUpdate();
+      if (!connection.getAutoCommit()) {
+        connection.commit();
+      }
+    }
+  }
+
+  /**
+   * Computes the SHA-256 checksum of the names and contents of every file in the directory of the
+   * change log, so adding or editing any changeset changes it.
+   */
+  private static String changeLogChecksum() throws IOException {
+    String directory = CHANGE_LOG_FILE.substring(0, CHANGE_LOG_FILE.lastIndexOf('/') + 1);
+    Resource[] resources =
+        new PathMatchingResourcePatternResolver().getResources("classpath*:" + directory + "*");
+    Arrays.sort(resources, Comparator.comparing(Resource::getFilename));
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      for (Resource resource : resources) {
+        digest.update(resource.getFilename().getBytes(StandardCharsets.UTF_8));
+        try (InputStream inputStream = resource.getInputStream()) {
+          digest.update(inputStream.readAllBytes());
+        }
+      }
+      return HexFormat.of().formatHex(digest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
     }
   }
 }
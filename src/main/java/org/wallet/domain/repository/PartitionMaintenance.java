@@ -0,0 +1,212 @@
+package org.wallet.domain.repository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.wallet.domain.repository.shard.ShardRouter;
+import org.wallet.utils.WalletProperties;
+
+/**
+ * The {@code PartitionMaintenance} class creates the monthly partitions of {@code
+ * wallet.transactions} and {@code wallet.logs} ahead of time on every shard and applies the audit
+ * retention policy.
+ *
+ * <p>Audit partitions whose month lies completely outside the retention period are detached from
+ * {@code wallet.logs} and, depending on the {@code audit.retention-policy} setting, either moved
+ * to the {@code wallet_archive} schema or dropped. Retiring a month is a metadata change instead of
+ * a row-by-row delete. A partition is retired by its upper bound, so the {@code logs_legacy}
+ * partition, holding everything written before the tables were partitioned, is retired the same
+ * way once its bound lies outside the retention period.
+ */
+@Component
+public class PartitionMaintenance implements MeterBinder {
+
+  /** The number of months after the current one that always have a partition. */
+  private static final int MONTHS_AHEAD = 3;
+
+  private static final String ARCHIVE_POLICY = "archive";
+  private static final String DROP_POLICY = "drop";
+
+  /** SQLSTATE reported by PostgreSQL when a new partition would overlap an existing one. */
+  private static final String OVERLAPPING_PARTITION_SQL_STATE = "42P17";
+
+  private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+  private static final DateTimeFormatter BOUND = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+  /** The upper bound in the expression of a range partition, as printed by PostgreSQL. */
+  private static final Pattern UPPER_BOUND = Pattern.compile("TO \\('([^']+)'\\)");
+
+  private static final String CREATE_PARTITION_SQL =
+      "CREATE TABLE IF NOT EXISTS wallet.%1$s_p%2$s PARTITION OF wallet.%1$s"
+          + " FOR VALUES FROM ('%3$s-01') TO ('%4$s-01')";
+  private static final String SELECT_LOG_PARTITIONS_SQL =
+      "SELECT c.relname, pg_get_expr(c.relpartbound, c.oid) FROM pg_inherits i"
+          + " JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = 'wallet.logs'::regclass";
+  private static final String DETACH_PARTITION_SQL =
+      "ALTER TABLE wallet.logs DETACH PARTITION wallet.%s CONCURRENTLY";
+  private static final String ARCHIVE_PARTITION_SQL =
+      "ALTER TABLE wallet.%s SET SCHEMA wallet_archive";
+  private static final String DROP_PARTITION_SQL = "DROP TABLE wallet.%s";
+
+  private final ShardRouter shardRouter;
+  private final Clock clock;
+  private final int retentionMonths;
+  private final String retentionPolicy;
+
+  private final LongAdder createdPartitions = new LongAdder();
+  private final LongAdder retiredPartitions = new LongAdder();
+
+  /**
+   * Creates the maintenance job with the retention settings from the application configuration.
+   *
+   * @param shardRouter The router providing the connections to every shard.
+   * @param audit The settings of the audit log.
+   */
+  @Autowired
+  public PartitionMaintenance(ShardRouter shardRouter, WalletProperties.Audit audit) {
+    this(
+        shardRouter, Clock.systemDefaultZone(), audit.retentionMonths(), audit.retentionPolicy());
+  }
+
+  /**
+   * Creates the maintenance job with the given clock and retention settings.
+   *
+   * @param shardRouter The router providing the connections to every shard.
+   * @param clock The clock determining the current month.
+   * @param retentionMonths The number of past months of audit entries to keep.
+   * @param retentionPolicy Either {@code archive} or {@code drop}.
+   */
+  public PartitionMaintenance(
+      ShardRouter shardRouter, Clock clock, int retentionMonths, String retentionPolicy) {
+    if (!ARCHIVE_POLICY.equals(retentionPolicy) && !DROP_POLICY.equals(retentionPolicy)) {
+      throw new IllegalArgumentException("Unknown audit retention policy: " + retentionPolicy);
+    }
+    this.shardRouter = shardRouter;
+    this.clock = clock;
+    this.retentionMonths = retentionMonths;
+    this.retentionPolicy = retentionPolicy;
+  }
+
+  /** Runs the maintenance once on startup, so the partitions exist before the first write. */
+  @PostConstruct
+  public void init() {
+    maintain();
+  }
+
+  /** Creates the upcoming partitions and retires expired audit partitions on every shard. */
+  @Scheduled(cron = "0 0 3 * * *")
+  public void maintain() {
+    YearMonth current = YearMonth.now(clock);
+    for (int i = 0; i < shardRouter.size(); i++) {
+      DatabaseConnection shard = shardRouter.getShard(i);
+      for (int month = 0; month <= MONTHS_AHEAD; month++) {
+        createPartition(shard, "transactions", current.plusMonths(month));
+        createPartition(shard, "logs", current.plusMonths(month));
+      }
+      retireLogPartitions(shard, current.minusMonths(retentionMonths));
+    }
+  }
+
+  /**
+   * Binds the number of created and retired partitions to the given meter registry.
+   *
+   * @param registry The registry to bind the meters to.
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("wallet.partitions.created", createdPartitions, LongAdder::sum)
+        .register(registry);
+    FunctionCounter.builder("wallet.partitions.retired", retiredPartitions, LongAdder::sum)
+        .tag("policy", retentionPolicy)
+        .register(registry);
+  }
+
+  /**
+   * Creates the partition of a month unless it already exists or the month is covered by the
+   * legacy partition.
+   *
+   * @param shard The shard to create the partition on.
+   * @param table The partitioned table, either {@code transactions} or {@code logs}.
+   * @param month The month of the partition.
+   */
+  public void createPartition(DatabaseConnection shard, String table, YearMonth month) {
+    String sql =
+        String.format(
+            CREATE_PARTITION_SQL, table, month.format(SUFFIX), month, month.plusMonths(1));
+    try (Connection connection = shard.getConnection();
+        Statement statement = connection.createStatement()) {
+      statement.executeUpdate(sql);
+      // An existing partition is reported as a notice instead of an error.
+      if (statement.getWarnings() == null) {
+        createdPartitions.increment();
+      }
+    } catch (SQLException e) {
+      // Months before the partitioning are covered by the legacy partition.
+      if (!OVERLAPPING_PARTITION_SQL_STATE.equals(e.getSQLState())) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  /** Retires every audit partition whose range ends before the first retained month. */
+  private void retireLogPartitions(DatabaseConnection shard, YearMonth firstRetained) {
+    try (Connection connection = shard.getConnection()) {
+      for (String partition : expiredLogPartitions(connection, firstRetained)) {
+        try (Statement statement = connection.createStatement()) {
+          statement.executeUpdate(String.format(DETACH_PARTITION_SQL, partition));
+          if (ARCHIVE_POLICY.equals(retentionPolicy)) {
+            statement.executeUpdate(String.format(ARCHIVE_PARTITION_SQL, partition));
+          } else {
+            statement.executeUpdate(String.format(DROP_PARTITION_SQL, partition));
+          }
+          retiredPartitions.increment();
+        }
+      }
+    } catch (SQLException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private List<String> expiredLogPartitions(Connection connection, YearMonth firstRetained)
+      throws SQLException {
+    LocalDateTime retainedFrom = firstRetained.atDay(1).atStartOfDay();
+    List<String> expired = new ArrayList<>();
+    try (PreparedStatement preparedStatement =
+            connection.prepareStatement(SELECT_LOG_PARTITIONS_SQL);
+        ResultSet resultSet = preparedStatement.executeQuery()) {
+      while (resultSet.next()) {
+        Matcher matcher = UPPER_BOUND.matcher(resultSet.getString(2));
+        if (!matcher.find()) {
+          continue;
+        }
+        try {
+          if (!LocalDateTime.parse(matcher.group(1), BOUND).isAfter(retainedFrom)) {
+            expired.add(resultSet.getString(1));
+          }
+        } catch (DateTimeParseException e) {
+          // Bounds such as MAXVALUE never expire.
+        }
+      }
+    }
+    return expired;
+  }
+}
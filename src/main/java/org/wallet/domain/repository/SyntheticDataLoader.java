@@ -0,0 +1,570 @@
+package org.wallet.domain.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.wallet.domain.model.LogAction;
+import org.wallet.domain.model.TransactionType;
+import org.wallet.domain.repository.shard.ShardRouter;
+import org.wallet.utils.StringHasher;
+
+/**
+ * The {@code SyntheticDataLoader} class fills the wallet schema with generated players,
+ * transactions and audit entries for scale testing. It is not part of the application; it runs
+ * against the database of the application configuration through {@link #main(String...)}, e.g.
+ *
+ * <pre>
+ * java -cp target/yLabProject-1.0-SNAPSHOT.war \
+ *     -Dloader.path=WEB-INF/classes,WEB-INF/lib,WEB-INF/lib-provided \
+ *     -Dloader.main=org.wallet.domain.repository.SyntheticDataLoader \
+ *     org.springframework.boot.loader.launch.PropertiesLauncher \
+ *     --players=1000000 --transactions=100000000 --seed=42
+ * </pre>
+ *
+ * <p>Player {@code i} has the login and password {@code <prefix>-<i>}, the password stored hashed
+ * as on registration. The number of transactions of a player follows a Zipf distribution over the
+ * players, so the first players are by far the most active ones. A player registers at a random
+ * time in the first half of the generated period, which ends at the start of the current day, and
+ * then alternates logins and transactions; debits never exceed the balance, and the stored balance
+ * is the sum of the transactions. The audit entries are those the application writes for the same
+ * history, and the audit rollups are updated with them. Everything a player gets is drawn from a
+ * random generator seeded with the seed and the index of the player, so a load started on the same
+ * day is reproducible whatever the number of threads.
+ *
+ * <p>The players are generated in chunks claimed by parallel producer threads. A producer streams
+ * the rows of a chunk into every table with {@code COPY}, over a connection per table and shard:
+ * the players first, since the transactions reference them, then their transaction IDs,
+ * transactions and audit entries together. Every player is written to the shard owning its login,
+ * so the loader must not run while the rebalancer moves ranges. Running applications pick up the
+ * loaded players with the next refresh of their login index; a loaded transaction ID they do not
+ * know yet is still rejected as a duplicate by the unique constraint.
+ */
+@Slf4j
+public class SyntheticDataLoader {
+
+  /** The number of players generated as a unit by a producer. */
+  private static final int CHUNK_PLAYERS = 1_000;
+
+  /** The number of characters buffered by a stream before they are sent to the database. */
+  private static final int BUFFER_CHARS = 1 << 16;
+
+  /** The probability that a player logs in again before a transaction. */
+  private static final double LOGIN_PROBABILITY = 0.25;
+
+  /** The probability that a transaction is a debit when the balance covers it. */
+  private static final double DEBIT_PROBABILITY = 0.45;
+
+  /** The smallest and largest amount of a transaction, in hundredths. */
+  private static final long MIN_AMOUNT = 100;
+
+  private static final long MAX_AMOUNT = 100_000;
+
+  /** The prefixes the generated logins may have. */
+  private static final Pattern PREFIX = Pattern.compile("[A-Za-z0-9_.]{1,32}");
+
+  private static final String RESERVE_PLAYER_IDS_SQL =
+      "SELECT setval('wallet.players_id_seq', nextval('wallet.players_id_seq') + ? - 1)";
+  private static final String LOCK_PLAYERS_SQL =
+      "LOCK TABLE wallet.players IN SHARE ROW EXCLUSIVE MODE";
+  private static final String SELECT_PREFIX_SQL =
+      "SELECT EXISTS (SELECT 1 FROM wallet.players WHERE login LIKE ?)";
+  private static final String COPY_PLAYERS_SQL =
+      "COPY wallet.players (id, login, password, balance) FROM STDIN";
+  private static final String COPY_TRANSACTION_KEYS_SQL =
+      "COPY wallet.transaction_keys (transaction_id, created_at) FROM STDIN";
+  private static final String COPY_TRANSACTIONS_SQL =
+      "COPY wallet.transactions (player_id, transaction_id, type_code, amount, created_at)"
+          + " FROM STDIN";
+  private static final String COPY_LOGS_SQL =
+      "COPY wallet.logs (timestamp, action_code, username, details) FROM STDIN";
+  private static final String UPSERT_ROLLUP_SQL =
+      "INSERT INTO wallet.audit_rollups (bucket, action_code, count) VALUES (?, ?, ?)"
+          + " ON CONFLICT (bucket, action_code)"
+          + " DO UPDATE SET count = audit_rollups.count + EXCLUDED.count";
+  private static final String ANALYZE_SQL =
+      "ANALYZE wallet.players, wallet.transaction_keys, wallet.transactions, wallet.logs";
+
+  private final ShardRouter shardRouter;
+  private final int threads;
+
+  /**
+   * Creates a loader writing with the given number of producer threads.
+   *
+   * @param shardRouter The router providing the shard of every login.
+   * @param threads The number of producer threads.
+   */
+  public SyntheticDataLoader(ShardRouter shardRouter, int threads) {
+    if (threads <= 0) {
+      throw new IllegalArgumentException("The number of threads must be positive.");
+    }
+    this.shardRouter = shardRouter;
+    this.threads = threads;
+  }
+
+  /**
+   * Loads the generated data into the database of the application configuration. The arguments
+   * are {@code --name=value} pairs; {@code players}, {@code transactions}, {@code skew}, {@code
+   * days}, {@code seed}, {@code prefix} and {@code threads} are supported.
+   *
+   * @param args The options of the load.
+   */
+  public static void main(String... args) {
+    Map<String, String> options = new HashMap<>();
+    for (String arg : args) {
+      int separator = arg.indexOf('=');
+      if (!arg.startsWith("--") || separator < 0) {
+        throw new IllegalArgumentException("Expected --name=value but got " + arg);
+      }
+      options.put(arg.substring(2, separator), arg.substring(separator + 1));
+    }
+    DatabaseConnection primary = new DatabaseConnection();
+    new LiquibaseManager(primary).migrate();
+    ShardRouter shardRouter = new ShardRouter(primary);
+    shardRouter.init();
+    try {
+      SyntheticDataLoader loader =
+          new SyntheticDataLoader(
+              shardRouter,
+              Integer.parseInt(
+                  options.getOrDefault(
+                      "threads", String.valueOf(Runtime.getRuntime().availableProcessors()))));
+      Map<String, Object> summary =
+          loader.load(
+              options.getOrDefault("prefix", "synthetic"),
+              Long.parseLong(options.getOrDefault("players", "1000")),
+              Long.parseLong(options.getOrDefault("transactions", "100000")),
+              Double.parseDouble(options.getOrDefault("skew", "1.0")),
+              Integer.parseInt(options.getOrDefault("days", "90")),
+              Long.parseLong(options.getOrDefault("seed", "1")));
+      log.info("Synthetic data loaded: {}", summary);
+    } finally {
+      shardRouter.shutdown();
+    }
+  }
+
+  /**
+   * Generates and loads players with their transactions and audit entries.
+   *
+   * @param prefix The prefix of the logins of the generated players.
+   * @param players The number of players.
+   * @param transactions The expected total number of transactions.
+   * @param skew The exponent of the Zipf distribution of the transactions over the players; {@code
+   *     0} spreads them evenly.
+   * @param days The number of days before the current one the generated history covers.
+   * @param seed The seed of the generated data.
+   * @return A summary of the loaded rows.
+   * @throws IllegalArgumentException if an option is invalid.
+   * @throws IllegalStateException if players with the prefix exist or the data cannot be written.
+   */
+  public Map<String, Object> load(
+      String prefix, long players, long transactions, double skew, int days, long seed) {
+    if (prefix == null || !PREFIX.matcher(prefix).matches()) {
+      throw new IllegalArgumentException("Invalid login prefix: " + prefix);
+    }
+    if (players <= 0 || transactions < 0 || skew < 0 || days <= 0) {
+      throw new IllegalArgumentException("Invalid size of the generated data.");
+    }
+    long start = System.currentTimeMillis();
+    Load load =
+        new Load(prefix, players, transactions, skew, days, seed, LocalDate.now().atStartOfDay());
+
+    long[] firstIds = new long[shardRouter.size()];
+    for (int i = 0; i < shardRouter.size(); i++) {
+      firstIds[i] = reservePlayerIds(shardRouter.getShard(i), prefix, players);
+    }
+
+    ExecutorService producers = Executors.newFixedThreadPool(threads);
+    long[] rollups = new long[load.rollupBuckets * LogAction.values().length];
+    try {
+      List<Future<long[]>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        futures.add(producers.submit(() -> produce(load, firstIds)));
+      }
+      for (Future<long[]> future : futures) {
+        long[] counts = future.get();
+        for (int i = 0; i < rollups.length; i++) {
+          rollups[i] += counts[i];
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("The load was interrupted.", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw new IllegalStateException("Could not load the generated data.", e.getCause());
+    } finally {
+      producers.shutdownNow();
+    }
+
+    try {
+      saveRollups(load, rollups);
+      for (int i = 0; i < shardRouter.size(); i++) {
+        try (Connection connection = shardRouter.getShard(i).getConnection();
+            Statement statement = connection.createStatement()) {
+          statement.execute(ANALYZE_SQL);
+        }
+      }
+    } catch (SQLException e) {
+      throw new IllegalStateException("Could not complete the load.", e);
+    }
+
+    long millis = Math.max(1, System.currentTimeMillis() - start);
+    Map<String, Object> summary = new LinkedHashMap<>();
+    summary.put("players", load.players.sum());
+    summary.put("transactions", load.transactions.sum());
+    summary.put("logs", load.logs.sum());
+    summary.put("totalMillis", millis);
+    summary.put(
+        "rowsPerSecond",
+        (load.players.sum() + 2 * load.transactions.sum() + load.logs.sum()) * 1000 / millis);
+    return summary;
+  }
+
+  /**
+   * Reserves a block of player keys on a shard, so player {@code i} of the load gets the returned
+   * key plus {@code i}. The players table is locked, so no registration takes a key in between.
+   */
+  private static long reservePlayerIds(DatabaseConnection shard, String prefix, long players) {
+    try (Connection connection = shard.getConnection()) {
+      connection.setAutoCommit(false);
+      try (Statement statement = connection.createStatement();
+          PreparedStatement existing = connection.prepareStatement(SELECT_PREFIX_SQL);
+          PreparedStatement reserve = connection.prepareStatement(RESERVE_PLAYER_IDS_SQL)) {
+        statement.execute(LOCK_PLAYERS_SQL);
+        existing.setString(1, prefix + "-%");
+        try (ResultSet resultSet = existing.executeQuery()) {
+          if (resultSet.next() && resultSet.getBoolean(1)) {
+            throw new IllegalStateException("Players with the prefix " + prefix + " exist.");
+          }
+        }
+        reserve.setLong(1, players);
+        try (ResultSet resultSet = reserve.executeQuery()) {
+          resultSet.next();
+          long lastId = resultSet.getLong(1);
+          connection.commit();
+          return lastId - players + 1;
+        }
+      } catch (SQLException | RuntimeException e) {
+        connection.rollback();
+        throw e;
+      }
+    } catch (SQLException e) {
+      throw new IllegalStateException("Could not reserve the keys of the players.", e);
+    }
+  }
+
+  /**
+   * Claims chunks of players until every player is written.
+   *
+   * @return The number of audit entries written per minute and action.
+   */
+  private long[] produce(Load load, long[] firstIds) throws SQLException {
+    long[] rollups = new long[load.rollupBuckets * LogAction.values().length];
+    Map<Integer, Streams> streams = new HashMap<>();
+    try {
+      long from;
+      while ((from = load.nextChunk.getAndAdd(CHUNK_PLAYERS)) < load.playerCount) {
+        long to = Math.min(from + CHUNK_PLAYERS, load.playerCount);
+
+        for (long i = from; i < to; i++) {
+          String login = load.prefix + "-" + i;
+          int shard = shardRouter.shardOf(login);
+          Streams shardStreams = streams.get(shard);
+          if (shardStreams == null) {
+            shardStreams = new Streams(shardRouter.getShard(shard));
+            streams.put(shard, shardStreams);
+          }
+          long balance = play(load, i, firstIds[shard] + i, login, null, null);
+          shardStreams
+              .players
+              .field(firstIds[shard] + i)
+              .field(login)
+              .field(StringHasher.hashString(login))
+              .field(amount(balance))
+              .endRow();
+        }
+        for (Streams shardStreams : streams.values()) {
+          load.players.add(shardStreams.players.end());
+        }
+
+        for (long i = from; i < to; i++) {
+          String login = load.prefix + "-" + i;
+          int shard = shardRouter.shardOf(login);
+          play(load, i, firstIds[shard] + i, login, streams.get(shard), rollups);
+        }
+        for (Streams shardStreams : streams.values()) {
+          shardStreams.keys.end();
+          load.transactions.add(shardStreams.transactions.end());
+          load.logs.add(shardStreams.logs.end());
+        }
+      }
+    } finally {
+      streams.values().forEach(Streams::close);
+    }
+    return rollups;
+  }
+
+  /**
+   * Generates the history of a player. Without streams, only the final balance is computed; with
+   * streams, the transactions and audit entries are written and counted in the rollups.
+   *
+   * @return The balance of the player after its transactions, in hundredths.
+   */
+  private long play(
+      Load load, long index, long playerId, String login, Streams streams, long[] rollups)
+      throws SQLException {
+    SplittableRandom random = new SplittableRandom(load.seed * 0x9E3779B97F4A7C15L + index);
+    double expected = load.transactionCount * Math.pow(index + 1, -load.skew) / load.harmonic;
+    long count = (long) expected + (random.nextDouble() < expected % 1 ? 1 : 0);
+    long time = load.startMillis + random.nextLong((load.endMillis - load.startMillis) / 2 + 1);
+    double meanGap = (double) (load.endMillis - time) / (count + 1);
+    if (streams != null) {
+      log(load, streams, rollups, LogAction.REGISTRATION, login, time);
+    }
+
+    long balance = 0;
+    for (long n = 0; n < count; n++) {
+      long gap = 1 + (long) (-Math.log1p(-random.nextDouble()) * meanGap);
+      time = Math.min(load.endMillis, time + gap);
+      boolean loggedIn = n == 0 || random.nextDouble() < LOGIN_PROBABILITY;
+      long amount = MIN_AMOUNT + random.nextLong(MAX_AMOUNT - MIN_AMOUNT + 1);
+      TransactionType type =
+          amount <= balance && random.nextDouble() < DEBIT_PROBABILITY
+              ? TransactionType.DEBIT
+              : TransactionType.CREDIT;
+      balance += type == TransactionType.DEBIT ? -amount : amount;
+      if (streams != null) {
+        if (loggedIn) {
+          log(load, streams, rollups, LogAction.AUTHORIZATION, login, time);
+        }
+        String transactionId = login + ":" + n;
+        String createdAt = timestamp(time);
+        streams.keys.field(transactionId).field(createdAt).endRow();
+        streams
+            .transactions
+            .field(playerId)
+            .field(transactionId)
+            .field(type.getCode())
+            .field(amount(amount))
+            .field(createdAt)
+            .endRow();
+        log(load, streams, rollups, LogAction.TRANSACTION, login, time);
+      }
+    }
+    return balance;
+  }
+
+  private static void log(
+      Load load, Streams streams, long[] rollups, LogAction action, String login, long time)
+      throws SQLException {
+    streams
+        .logs
+        .field(timestamp(time))
+        .field(action.getCode())
+        .field(login)
+        .field(action.getDetails())
+        .endRow();
+    int bucket = (int) ((time - load.startMillis) / 60_000);
+    rollups[bucket * LogAction.values().length + action.ordinal()]++;
+  }
+
+  /** Adds the audit entries of the load to the rollups stored on the primary shard. */
+  private void saveRollups(Load load, long[] rollups) throws SQLException {
+    LogAction[] actions = LogAction.values();
+    try (Connection connection = shardRouter.getShard(0).getConnection();
+        PreparedStatement preparedStatement = connection.prepareStatement(UPSERT_ROLLUP_SQL)) {
+      connection.setAutoCommit(false);
+      for (int bucket = 0; bucket < load.rollupBuckets; bucket++) {
+        for (LogAction action : actions) {
+          long count = rollups[bucket * actions.length + action.ordinal()];
+          if (count > 0) {
+            preparedStatement.setTimestamp(
+                1, Timestamp.valueOf(load.start.plusMinutes(bucket)));
+            preparedStatement.setShort(2, action.getCode());
+            preparedStatement.setLong(3, count);
+            preparedStatement.addBatch();
+          }
+        }
+      }
+      preparedStatement.executeBatch();
+      connection.commit();
+    }
+  }
+
+  private static String amount(long hundredths) {
+    long remainder = hundredths % 100;
+    return hundredths / 100 + (remainder < 10 ? ".0" : ".") + remainder;
+  }
+
+  private static String timestamp(long millis) {
+    int nanos = (int) Math.floorMod(millis, 1000) * 1_000_000;
+    return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000), nanos, ZoneOffset.UTC)
+        .toString();
+  }
+
+  /** The options and the progress of a load. */
+  private static final class Load {
+    private final String prefix;
+    private final long playerCount;
+    private final long transactionCount;
+    private final double skew;
+    private final long seed;
+    private final LocalDateTime start;
+    private final long startMillis;
+    private final long endMillis;
+    private final int rollupBuckets;
+    private final double harmonic;
+    private final AtomicLong nextChunk = new AtomicLong();
+    private final LongAdder players = new LongAdder();
+    private final LongAdder transactions = new LongAdder();
+    private final LongAdder logs = new LongAdder();
+
+    private Load(
+        String prefix,
+        long playerCount,
+        long transactionCount,
+        double skew,
+        int days,
+        long seed,
+        LocalDateTime end) {
+      this.prefix = prefix;
+      this.playerCount = playerCount;
+      this.transactionCount = transactionCount;
+      this.skew = skew;
+      this.seed = seed;
+      this.start = end.minusDays(days);
+      this.startMillis = start.toInstant(ZoneOffset.UTC).toEpochMilli();
+      this.endMillis = end.toInstant(ZoneOffset.UTC).toEpochMilli();
+      this.rollupBuckets = (int) ((endMillis - startMillis) / 60_000) + 1;
+      double sum = 0;
+      for (long rank = 1; rank <= playerCount; rank++) {
+        sum += Math.pow(rank, -skew);
+      }
+      this.harmonic = sum;
+    }
+  }
+
+  /** The streams of a producer into the tables of a shard. */
+  private static final class Streams implements AutoCloseable {
+    private final List<CopyStream> all = new ArrayList<>();
+    private final CopyStream players;
+    private final CopyStream keys;
+    private final CopyStream transactions;
+    private final CopyStream logs;
+
+    private Streams(DatabaseConnection shard) throws SQLException {
+      try {
+        players = open(shard, COPY_PLAYERS_SQL);
+        keys = open(shard, COPY_TRANSACTION_KEYS_SQL);
+        transactions = open(shard, COPY_TRANSACTIONS_SQL);
+        logs = open(shard, COPY_LOGS_SQL);
+      } catch (SQLException e) {
+        close();
+        throw e;
+      }
+    }
+
+    private CopyStream open(DatabaseConnection shard, String sql) throws SQLException {
+      CopyStream stream = new CopyStream(shard.getConnection(), sql);
+      all.add(stream);
+      return stream;
+    }
+
+    @Override
+    public void close() {
+      all.forEach(CopyStream::close);
+    }
+  }
+
+  /** A {@code COPY ... FROM STDIN} in the text format over a connection of its own. */
+  private static final class CopyStream implements AutoCloseable {
+    private final Connection connection;
+    private final String sql;
+    private final StringBuilder buffer = new StringBuilder(BUFFER_CHARS + 1024);
+    private CopyIn copyIn;
+    private boolean rowStarted;
+
+    private CopyStream(Connection connection, String sql) {
+      this.connection = connection;
+      this.sql = sql;
+    }
+
+    private CopyStream field(Object value) throws SQLException {
+      if (copyIn == null) {
+        copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql);
+      }
+      if (rowStarted) {
+        buffer.append('\t');
+      }
+      buffer.append(value);
+      rowStarted = true;
+      return this;
+    }
+
+    private void endRow() throws SQLException {
+      buffer.append('\n');
+      rowStarted = false;
+      if (buffer.length() >= BUFFER_CHARS) {
+        flush();
+      }
+    }
+
+    /**
+     * Completes the copy; the next row starts a new one.
+     *
+     * @return The number of copied rows.
+     */
+    private long end() throws SQLException {
+      if (copyIn == null) {
+        return 0;
+      }
+      flush();
+      long rows = copyIn.endCopy();
+      copyIn = null;
+      return rows;
+    }
+
+    private void flush() throws SQLException {
+      byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+      copyIn.writeToCopy(bytes, 0, bytes.length);
+      buffer.setLength(0);
+    }
+
+    @Override
+    public void close() {
+      try {
+        if (copyIn != null && copyIn.isActive()) {
+          copyIn.cancelCopy();
+        }
+        connection.close();
+      } catch (SQLException e) {
+        e.printStackTrace();
+      }
+    }
+  }
+}
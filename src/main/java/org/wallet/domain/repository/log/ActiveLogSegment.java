@@ -0,0 +1,262 @@
+package org.wallet.domain.repository.log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import org.wallet.domain.model.Log;
+
+/**
+ * The {@code ActiveLogSegment} class is the segment new entries are appended to. The segment file
+ * is allocated at its full capacity and memory-mapped, so an append is a copy into the page cache
+ * which survives a crash of the process; {@link #force()} writes it through to the disk. An entry
+ * becomes visible once its length is written, after its body and checksum. The pages of the file
+ * may still reach the disk out of order when the machine crashes, so recovery checks the checksum
+ * of every entry and truncates the segment at the first entry that is torn or does not decode.
+ *
+ * <p>Appends are serialized by the caller. Readers copy the block index under the lock of the
+ * segment and decode the entries written up to that point without holding it.
+ */
+final class ActiveLogSegment extends LogSegment {
+
+  private final Path path;
+  private final FileChannel channel;
+  private final MappedByteBuffer buffer;
+  private final List<Block> blocks = new ArrayList<>();
+  private final Map<String, BitSet> users = new HashMap<>();
+
+  private int blockStart;
+  private int blockCount;
+  private long blockMinMicros = Long.MAX_VALUE;
+  private long blockMaxMicros = Long.MIN_VALUE;
+  private long count;
+
+  private ActiveLogSegment(long sequence, Path path, int capacity) throws IOException {
+    super(sequence);
+    this.path = path;
+    this.channel =
+        FileChannel.open(
+            path,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+    this.buffer =
+        channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(capacity, channel.size()));
+  }
+
+  /**
+   * Creates a new segment file, or recovers the entries of an existing one. The bytes after the
+   * last valid entry are cleared, so entries written before a torn one cannot reappear behind the
+   * entries appended next.
+   *
+   * @param sequence The number of the segment.
+   * @param path The path of the segment file.
+   * @param capacity The size of the segment file in bytes; a larger existing file keeps its size.
+   * @return The segment, positioned after its last valid entry.
+   * @throws IOException if the file could not be mapped.
+   */
+  static ActiveLogSegment open(long sequence, Path path, int capacity) throws IOException {
+    ActiveLogSegment segment = new ActiveLogSegment(sequence, path, capacity);
+    ByteBuffer entries = segment.buffer.duplicate();
+    while (true) {
+      int start = entries.position();
+      Log log = recover(entries);
+      if (log == null) {
+        entries.position(start);
+        break;
+      }
+      segment.buffer.position(entries.position());
+      segment.index(log);
+    }
+    segment.buffer.position(entries.position());
+    boolean cleared = true;
+    for (int i = entries.position(); i < entries.limit() && cleared; i++) {
+      cleared = entries.get(i) == 0;
+    }
+    if (!cleared) {
+      for (int i = entries.position(); i < entries.limit(); i++) {
+        entries.put(i, (byte) 0);
+      }
+      segment.force();
+    }
+    return segment;
+  }
+
+  /**
+   * Decodes the entry at the position of the buffer and moves past it.
+   *
+   * @return The entry, or {@code null} if no valid entry starts at the position.
+   */
+  private static Log recover(ByteBuffer entries) {
+    if (entries.remaining() < 2 * Integer.BYTES) {
+      return null;
+    }
+    int start = entries.position();
+    int length = entries.getInt();
+    if (length <= Integer.BYTES || length > entries.remaining()) {
+      return null;
+    }
+    int end = start + Integer.BYTES + length;
+    if (entries.getInt() != checksum(entries, start + 2 * Integer.BYTES, end)) {
+      return null;
+    }
+    try {
+      Log log = decode(entries.duplicate().limit(end));
+      entries.position(end);
+      return log;
+    } catch (RuntimeException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Appends an entry to the segment.
+   *
+   * @param log The entry to append.
+   * @return {@code false} if the segment is too full to hold the entry.
+   */
+  synchronized boolean append(Log log) {
+    if (encodedSize(log) > buffer.remaining()) {
+      return false;
+    }
+    encode(log, buffer);
+    index(log);
+    return true;
+  }
+
+  /**
+   * Returns whether the segment holds no entries.
+   *
+   * @return {@code true} if nothing was appended to the segment.
+   */
+  synchronized boolean isEmpty() {
+    return count == 0;
+  }
+
+  /** Writes the appended entries through to the disk. */
+  void force() {
+    buffer.force();
+  }
+
+  /** Closes the segment file. The mapping is released once the segment is unreachable. */
+  void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * Returns the blocks of the segment, including the block still being filled.
+   *
+   * @return The blocks of the segment.
+   */
+  synchronized List<Block> blocks() {
+    List<Block> snapshot = new ArrayList<>(blocks);
+    if (blockCount > 0) {
+      snapshot.add(openBlock());
+    }
+    return snapshot;
+  }
+
+  /**
+   * Returns the blocks every user appears in.
+   *
+   * @return A copy of the username index.
+   */
+  synchronized Map<String, BitSet> users() {
+    Map<String, BitSet> snapshot = new HashMap<>();
+    users.forEach((username, blocks) -> snapshot.put(username, (BitSet) blocks.clone()));
+    return snapshot;
+  }
+
+  /**
+   * Returns a read-only view of the bytes of the given block.
+   *
+   * @param block The block to read.
+   * @return The bytes of the block.
+   */
+  ByteBuffer slice(Block block) {
+    return buffer
+        .duplicate()
+        .position((int) block.offset())
+        .limit((int) block.offset() + block.length())
+        .slice()
+        .asReadOnlyBuffer();
+  }
+
+  @Override
+  List<Log> read(LogQuery query) {
+    List<Block> snapshot;
+    BitSet candidates;
+    synchronized (this) {
+      snapshot = blocks();
+      candidates = candidates(snapshot, users, query);
+    }
+    List<Log> logs = new ArrayList<>();
+    for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+      decode(slice(snapshot.get(i)), snapshot.get(i).count(), query, logs);
+    }
+    return logs;
+  }
+
+  @Override
+  boolean readNewestFirst(LogQuery query, Predicate<Log> consumer) {
+    List<Block> snapshot;
+    BitSet candidates;
+    synchronized (this) {
+      snapshot = blocks();
+      candidates = candidates(snapshot, users, query);
+    }
+    for (int i = candidates.previousSetBit(snapshot.size() - 1);
+        i >= 0;
+        i = candidates.previousSetBit(i - 1)) {
+      if (!decodeNewestFirst(slice(snapshot.get(i)), snapshot.get(i).count(), query, consumer)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  Path path() {
+    return path;
+  }
+
+  @Override
+  synchronized long count() {
+    return count;
+  }
+
+  @Override
+  long bytes() {
+    return buffer.capacity();
+  }
+
+  private void index(Log log) {
+    long micros = toMicros(log.getTimestamp());
+    blockMinMicros = Math.min(blockMinMicros, micros);
+    blockMaxMicros = Math.max(blockMaxMicros, micros);
+    if (log.getUsername() != null) {
+      users.computeIfAbsent(log.getUsername(), username -> new BitSet()).set(blocks.size());
+    }
+    count++;
+    if (++blockCount == LOGS_PER_BLOCK) {
+      blocks.add(openBlock());
+      blockStart = buffer.position();
+      blockCount = 0;
+      blockMinMicros = Long.MAX_VALUE;
+      blockMaxMicros = Long.MIN_VALUE;
+    }
+  }
+
+  private Block openBlock() {
+    int length = buffer.position() - blockStart;
+    return new Block(blockStart, length, length, blockCount, blockMinMicros, blockMaxMicros);
+  }
+}
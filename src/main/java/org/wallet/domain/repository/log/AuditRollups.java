@@ -0,0 +1,293 @@
+package org.wallet.domain.repository.log;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.wallet.domain.model.ActionCount;
+import org.wallet.domain.model.LogAction;
+import org.wallet.domain.model.RollupInterval;
+import org.wallet.domain.repository.DatabaseConnection;
+
+/**
+ * The {@code AuditRollups} class counts audit entries per minute and action, so dashboards can
+ * read the activity of an interval without scanning the audit log.
+ *
+ * <p>Recent minutes are counted in memory, in a ring of buckets indexed by the minute. Recording an
+ * entry is an atomic increment; a bucket is only replaced, by compare-and-set, when its slot comes
+ * round to a new minute. The counts are flushed every few seconds into {@code
+ * wallet.audit_rollups} on the primary database by adding them to the stored ones, so several
+ * application instances can share the table. Queries combine the stored counts with the ones not
+ * flushed yet.
+ */
+@Component
+@RequiredArgsConstructor
+public class AuditRollups implements MeterBinder {
+
+  /** Number of minutes held by the ring. */
+  private static final int RING_MINUTES = 120;
+
+  private static final LogAction[] ACTIONS = LogAction.values();
+
+  private static final String UPSERT_ROLLUP_SQL =
+      "INSERT INTO wallet.audit_rollups (bucket, action_code, count) VALUES (?, ?, ?)"
+          + " ON CONFLICT (bucket, action_code)"
+          + " DO UPDATE SET count = audit_rollups.count + EXCLUDED.count";
+  private static final String SELECT_ROLLUPS_SQL =
+      "SELECT date_trunc(?, bucket) AS period, action_code, SUM(count) AS count"
+          + " FROM wallet.audit_rollups WHERE bucket >= ? AND bucket < ?"
+          + " GROUP BY period, action_code";
+
+  /** The connection to the primary database storing the flushed counts. */
+  private final DatabaseConnection databaseConnection;
+
+  private final AtomicReferenceArray<Bucket> ring = new AtomicReferenceArray<>(RING_MINUTES);
+
+  /** Buckets pushed out of the ring before they were flushed. */
+  private final Queue<Bucket> retired = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Buckets of minutes older than the ones held by the ring. A bucket is removed once a flush finds
+   * it idle.
+   */
+  private final Map<Long, Bucket> late = new ConcurrentHashMap<>();
+
+  private final LongAdder flushedRows = new LongAdder();
+
+  /**
+   * Counts an audit entry.
+   *
+   * @param action The logged action.
+   * @param timestamp The time the entry was written.
+   */
+  public void record(LogAction action, LocalDateTime timestamp) {
+    bucketOf(toMinute(timestamp)).counts.incrementAndGet(action.ordinal());
+  }
+
+  /**
+   * Adds the counts recorded since the last flush to {@code wallet.audit_rollups}. Counts that
+   * could not be written are recorded again and retried with the next flush.
+   */
+  @Scheduled(fixedDelay = 10_000)
+  public synchronized void flush() {
+    Map<Long, long[]> drained = new HashMap<>();
+    for (int slot = 0; slot < RING_MINUTES; slot++) {
+      Bucket bucket = ring.get(slot);
+      if (bucket != null) {
+        bucket.drainTo(drained);
+      }
+    }
+    for (Bucket bucket = retired.poll(); bucket != null; bucket = retired.poll()) {
+      bucket.drainTo(drained);
+    }
+    late.forEach(
+        (minute, bucket) -> {
+          if (!bucket.drainTo(drained)) {
+            late.remove(minute, bucket);
+          }
+        });
+    if (drained.isEmpty()) {
+      return;
+    }
+
+    try (Connection connection = databaseConnection.getConnection();
+        PreparedStatement preparedStatement = connection.prepareStatement(UPSERT_ROLLUP_SQL)) {
+      int rows = 0;
+      for (Map.Entry<Long, long[]> minute : drained.entrySet()) {
+        for (LogAction action : ACTIONS) {
+          long count = minute.getValue()[action.ordinal()];
+          if (count > 0) {
+            preparedStatement.setTimestamp(1, Timestamp.valueOf(fromMinute(minute.getKey())));
+            preparedStatement.setShort(2, action.getCode());
+            preparedStatement.setLong(3, count);
+            preparedStatement.addBatch();
+            rows++;
+          }
+        }
+      }
+      preparedStatement.executeBatch();
+      flushedRows.add(rows);
+    } catch (SQLException e) {
+      e.printStackTrace();
+      drained.forEach(
+          (minute, counts) -> {
+            Bucket bucket = bucketOf(minute);
+            for (int i = 0; i < counts.length; i++) {
+              bucket.counts.addAndGet(i, counts[i]);
+            }
+          });
+    }
+  }
+
+  /** Flushes the counts recorded so far when the application stops. */
+  @PreDestroy
+  public void close() {
+    flush();
+  }
+
+  /**
+   * Returns the number of audit entries per interval and action written in the minutes starting
+   * in the given time range. Intervals without entries are left out.
+   *
+   * @param from The start of the range, inclusive.
+   * @param to The end of the range, exclusive.
+   * @param interval The length of the intervals to count by.
+   * @return The counts, ordered by interval and action.
+   */
+  public synchronized List<ActionCount> getCounts(
+      LocalDateTime from, LocalDateTime to, RollupInterval interval) {
+    Map<LocalDateTime, long[]> counts = new HashMap<>();
+    try (Connection connection = databaseConnection.getConnection();
+        PreparedStatement preparedStatement = connection.prepareStatement(SELECT_ROLLUPS_SQL)) {
+      preparedStatement.setString(1, interval.name().toLowerCase());
+      preparedStatement.setTimestamp(2, Timestamp.valueOf(from));
+      preparedStatement.setTimestamp(3, Timestamp.valueOf(to));
+      try (ResultSet resultSet = preparedStatement.executeQuery()) {
+        while (resultSet.next()) {
+          LocalDateTime bucket = resultSet.getTimestamp("period").toLocalDateTime();
+          LogAction action = LogAction.fromCode(resultSet.getShort("action_code"));
+          counts.computeIfAbsent(bucket, key -> new long[ACTIONS.length])[action.ordinal()] +=
+              resultSet.getLong("count");
+        }
+      }
+    } catch (SQLException e) {
+      e.printStackTrace();
+    }
+
+    Map<Long, long[]> pending = new HashMap<>();
+    for (int slot = 0; slot < RING_MINUTES; slot++) {
+      Bucket bucket = ring.get(slot);
+      if (bucket != null) {
+        bucket.copyTo(pending);
+      }
+    }
+    retired.forEach(bucket -> bucket.copyTo(pending));
+    late.values().forEach(bucket -> bucket.copyTo(pending));
+    pending.forEach(
+        (minute, pendingCounts) -> {
+          LocalDateTime start = fromMinute(minute);
+          if (!start.isBefore(from) && start.isBefore(to)) {
+            long[] intervalCounts =
+                counts.computeIfAbsent(interval.truncate(start), key -> new long[ACTIONS.length]);
+            for (int i = 0; i < ACTIONS.length; i++) {
+              intervalCounts[i] += pendingCounts[i];
+            }
+          }
+        });
+
+    List<ActionCount> actionCounts = new ArrayList<>();
+    counts.forEach(
+        (bucket, bucketCounts) -> {
+          for (LogAction action : ACTIONS) {
+            if (bucketCounts[action.ordinal()] > 0) {
+              actionCounts.add(new ActionCount(bucket, action, bucketCounts[action.ordinal()]));
+            }
+          }
+        });
+    actionCounts.sort(
+        Comparator.comparing(ActionCount::bucket)
+            .thenComparing(actionCount -> actionCount.action().getCode()));
+    return actionCounts;
+  }
+
+  /**
+   * Binds the number of flushed rollup rows to the given meter registry.
+   *
+   * @param registry The registry to bind the meters to.
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("wallet.audit.rollups.flushed", flushedRows, LongAdder::sum)
+        .register(registry);
+  }
+
+  /**
+   * Returns the bucket of the given minute, replacing the bucket of an older minute in its slot of
+   * the ring. Minutes older than the one held by their slot are counted outside of the ring.
+   */
+  private Bucket bucketOf(long minute) {
+    int slot = (int) Math.floorMod(minute, RING_MINUTES);
+    while (true) {
+      Bucket bucket = ring.get(slot);
+      if (bucket != null && bucket.minute == minute) {
+        return bucket;
+      }
+      if (bucket != null && bucket.minute > minute) {
+        return late.computeIfAbsent(minute, Bucket::new);
+      }
+      Bucket next = new Bucket(minute);
+      if (ring.compareAndSet(slot, bucket, next)) {
+        if (bucket != null) {
+          retired.add(bucket);
+        }
+        return next;
+      }
+    }
+  }
+
+  private static long toMinute(LocalDateTime dateTime) {
+    return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 60);
+  }
+
+  private static LocalDateTime fromMinute(long minute) {
+    return LocalDateTime.ofEpochSecond(minute * 60, 0, ZoneOffset.UTC);
+  }
+
+  /** The counts of every action in a minute. */
+  private static final class Bucket {
+    private final long minute;
+    private final AtomicLongArray counts = new AtomicLongArray(ACTIONS.length);
+
+    private Bucket(long minute) {
+      this.minute = minute;
+    }
+
+    /**
+     * Moves the counts of this bucket into the given counts per minute.
+     *
+     * @return {@code false} if nothing was counted since the last drain.
+     */
+    private boolean drainTo(Map<Long, long[]> drained) {
+      boolean counted = false;
+      for (int i = 0; i < ACTIONS.length; i++) {
+        long count = counts.getAndSet(i, 0);
+        if (count > 0) {
+          drained.computeIfAbsent(minute, key -> new long[ACTIONS.length])[i] += count;
+          counted = true;
+        }
+      }
+      return counted;
+    }
+
+    /** Adds the counts of this bucket to the given counts per minute. */
+    private void copyTo(Map<Long, long[]> pending) {
+      for (int i = 0; i < ACTIONS.length; i++) {
+        long count = counts.get(i);
+        if (count > 0) {
+          pending.computeIfAbsent(minute, key -> new long[ACTIONS.length])[i] += count;
+        }
+      }
+    }
+  }
+}
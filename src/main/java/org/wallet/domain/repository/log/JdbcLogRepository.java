@@ -7,6 +7,7 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import lombok.RequiredArgsConstructor;
@@ -14,6 +15,7 @@ import org.springframework.stereotype.Repository;
 import org.wallet.domain.repository.DatabaseConnection;
 import org.wallet.domain.model.LogAction;
 import org.wallet.domain.model.Log;
+import org.wallet.domain.model.LogEntry;
 
 /**
  * The `JdbcLogRepository` class is an implementation of the `LogRepository` interface. It provides
@@ -23,59 +25,264 @@ import org.wallet.domain.model.Log;
 @Repository
 public class JdbcLogRepository implements LogRepository {
   /** SQL query to select all logs from the database. */
-  private static final String SELECT_ALL_LOGS_SQL = "SELECT * FROM wallet.logs";
+  private static final String SELECT_ALL_LOGS_SQL =
+      "SELECT timestamp, action_code, action, username, details FROM wallet.logs";
+
+  /**
+   * SQL query to select the logs of a time range. The range on the partition key limits the scan
+   * to the monthly partitions overlapping it.
+   */
+  private static final String SELECT_LOGS_BETWEEN_SQL =
+      SELECT_ALL_LOGS_SQL + " WHERE timestamp >= ? AND timestamp < ? ORDER BY timestamp";
+
+  /** Clauses of the SQL query selecting a filtered page of logs. */
+  private static final String FROM_CLAUSE = " AND timestamp >= ?";
+
+  private static final String TO_CLAUSE = " AND timestamp < ?";
+  private static final String USERNAME_CLAUSE = " AND username = ?";
+  private static final String PAGE_CLAUSE = " ORDER BY timestamp DESC LIMIT ? OFFSET ?";
+
+  /**
+   * SQL query to select the latest logs after a given ID. Every monthly partition is read by the
+   * leading ID column of its primary key.
+   */
+  private static final String SELECT_LOGS_AFTER_SQL =
+      "SELECT id, timestamp, action_code, action, username, details FROM wallet.logs"
+          + " WHERE id > ? ORDER BY id DESC LIMIT ?";
 
   /** SQL query to insert a new log entry into the database. */
   private static final String INSERT_LOG_SQL =
-      "INSERT INTO wallet.logs (timestamp, action, username, details) VALUES (?, ?, ?, ?)";
+      "INSERT INTO wallet.logs (timestamp, action_code, username, details) VALUES (?, ?, ?, ?)"
+          + " RETURNING id";
+
+  /** SQL query to insert a new log entry with an ID drawn from another database. */
+  private static final String INSERT_LOG_WITH_ID_SQL =
+      "INSERT INTO wallet.logs (id, timestamp, action_code, username, details)"
+          + " VALUES (?, ?, ?, ?, ?)";
+
+  /** SQL query to draw the next log ID. */
+  private static final String NEXT_ID_SQL = "SELECT nextval('wallet.logs_id_seq')";
 
   /** The `DatabaseConnection` used to establish a connection to the database. */
   private final DatabaseConnection databaseConnection;
 
   /**
-   * Retrieves a list of log entries from the database.
+   * Retrieves a list of log entries from the database. The query is served by a read replica when
+   * one is configured.
    *
    * @return A list of log entries.
    */
   @Override
   public List<Log> getLogs() {
-    List<Log> logs = new ArrayList<>();
+    try {
+      return databaseConnection.executeRead(
+          null,
+          connection -> {
+            try (PreparedStatement preparedStatement =
+                connection.prepareStatement(SELECT_ALL_LOGS_SQL)) {
+              return readLogs(preparedStatement);
+            }
+          });
+    } catch (SQLException e) {
+      e.printStackTrace();
+    }
+    return new ArrayList<>();
+  }
+
+  /**
+   * Retrieves the log entries of a time range from the database. Only the partitions overlapping
+   * the range are read. The query is served by a read replica when one is configured.
+   *
+   * @param from The start of the range, inclusive.
+   * @param to The end of the range, exclusive.
+   * @return A list of log entries ordered by timestamp.
+   */
+  @Override
+  public List<Log> getLogs(LocalDateTime from, LocalDateTime to) {
+    try {
+      return databaseConnection.executeRead(
+          null,
+          connection -> {
+            try (PreparedStatement preparedStatement =
+                connection.prepareStatement(SELECT_LOGS_BETWEEN_SQL)) {
+              preparedStatement.setTimestamp(1, Timestamp.valueOf(from));
+              preparedStatement.setTimestamp(2, Timestamp.valueOf(to));
+              return readLogs(preparedStatement);
+            }
+          });
+    } catch (SQLException e) {
+      e.printStackTrace();
+    }
+    return new ArrayList<>();
+  }
+
+  /**
+   * Retrieves a filtered page of log entries from the database. Only the partitions overlapping
+   * the time range of the query are read. The query is served by a read replica when one is
+   * configured.
+   *
+   * @param query The filter and page to retrieve.
+   * @return A list of log entries, newest first.
+   */
+  @Override
+  public List<Log> getLogs(LogQuery query) {
+    StringBuilder sql = new StringBuilder(SELECT_ALL_LOGS_SQL).append(" WHERE TRUE");
+    List<Object> parameters = new ArrayList<>();
+    if (query.from() != null) {
+      sql.append(FROM_CLAUSE);
+      parameters.add(Timestamp.valueOf(query.from()));
+    }
+    if (query.to() != null) {
+      sql.append(TO_CLAUSE);
+      parameters.add(Timestamp.valueOf(query.to()));
+    }
+    if (query.username() != null) {
+      sql.append(USERNAME_CLAUSE);
+      parameters.add(query.username());
+    }
+    sql.append(PAGE_CLAUSE);
+    parameters.add(query.limit());
+    parameters.add(query.offset());
+    try {
+      return databaseConnection.executeRead(
+          null,
+          connection -> {
+            try (PreparedStatement preparedStatement =
+                connection.prepareStatement(sql.toString())) {
+              for (int i = 0; i < parameters.size(); i++) {
+                preparedStatement.setObject(i + 1, parameters.get(i));
+              }
+              return readLogs(preparedStatement);
+            }
+          });
+    } catch (SQLException e) {
+      e.printStackTrace();
+    }
+    return new ArrayList<>();
+  }
+
+  /**
+   * Retrieves the latest log entries with an ID greater than the given one. The query runs on the
+   * primary, so entries added just before it are not missed on a lagging replica.
+   *
+   * @param id The ID of the last entry already seen.
+   * @param limit The maximum number of entries to return.
+   * @return A list of log entries ordered by ID.
+   */
+  @Override
+  public List<LogEntry> getLogsAfter(long id, int limit) {
+    List<LogEntry> entries = new ArrayList<>();
     try (Connection connection = databaseConnection.getConnection();
-        PreparedStatement preparedStatement = connection.prepareStatement(SELECT_ALL_LOGS_SQL);
-        ResultSet resultSet = preparedStatement.executeQuery()) {
-      while (resultSet.next()) {
-        LocalDateTime timestamp = resultSet.getTimestamp("timestamp").toLocalDateTime();
-        String action = resultSet.getString("action");
-        LogAction actionType = LogAction.valueOf(action);
-        String username = resultSet.getString("username");
-        String details = resultSet.getString("details");
-
-        Log log = new Log(timestamp, actionType, username, details);
-        logs.add(log);
+        PreparedStatement preparedStatement = connection.prepareStatement(SELECT_LOGS_AFTER_SQL)) {
+      preparedStatement.setLong(1, id);
+      preparedStatement.setInt(2, limit);
+      try (ResultSet resultSet = preparedStatement.executeQuery()) {
+        while (resultSet.next()) {
+          entries.add(new LogEntry(resultSet.getLong("id"), readLog(resultSet)));
+        }
       }
     } catch (SQLException e) {
       e.printStackTrace();
     }
-    return logs;
+    Collections.reverse(entries);
+    return entries;
   }
 
   /**
-   * Adds a new log entry to the database.
+   * Adds a new log entry to the database, numbered by the log ID sequence of this database.
    *
    * @param log The log entry to be added.
+   * @return The ID of the entry, or -1 if it could not be stored.
    */
   @Override
-  public void addLog(Log log) {
+  public long addLog(Log log) {
     try (Connection connection = databaseConnection.getConnection();
         PreparedStatement preparedStatement = connection.prepareStatement(INSERT_LOG_SQL)) {
       preparedStatement.setTimestamp(1, Timestamp.valueOf(log.getTimestamp()));
-      preparedStatement.setString(2, log.getAction().toString());
+      preparedStatement.setShort(2, log.getAction().getCode());
       preparedStatement.setString(3, log.getUsername());
       preparedStatement.setString(4, log.getDetails());
 
+      try (ResultSet resultSet = preparedStatement.executeQuery()) {
+        resultSet.next();
+        return resultSet.getLong(1);
+      }
+    } catch (SQLException e) {
+      e.printStackTrace();
+    }
+    return -1;
+  }
+
+  /**
+   * Adds a new log entry to the database under the given ID, drawn with {@link #nextId()} from the
+   * database numbering the entries of every shard.
+   *
+   * @param id The ID of the entry.
+   * @param log The log entry to be added.
+   * @return The ID of the entry, or -1 if it could not be stored.
+   */
+  public long addLog(long id, Log log) {
+    try (Connection connection = databaseConnection.getConnection();
+        PreparedStatement preparedStatement = connection.prepareStatement(INSERT_LOG_WITH_ID_SQL)) {
+      preparedStatement.setLong(1, id);
+      preparedStatement.setTimestamp(2, Timestamp.valueOf(log.getTimestamp()));
+      preparedStatement.setShort(3, log.getAction().getCode());
+      preparedStatement.setString(4, log.getUsername());
+      preparedStatement.setString(5, log.getDetails());
+
       preparedStatement.executeUpdate();
+      return id;
+    } catch (SQLException e) {
+      e.printStackTrace();
+    }
+    return -1;
+  }
+
+  /**
+   * Draws the next value of the log ID sequence of this database.
+   *
+   * @return The drawn ID, or -1 if the sequence could not be read.
+   */
+  public long nextId() {
+    try (Connection connection = databaseConnection.getConnection();
+        PreparedStatement preparedStatement = connection.prepareStatement(NEXT_ID_SQL);
+        ResultSet resultSet = preparedStatement.executeQuery()) {
+      resultSet.next();
+      return resultSet.getLong(1);
     } catch (SQLException e) {
       e.printStackTrace();
     }
+    return -1;
+  }
+
+  /**
+   * Reads the action of the current row, falling back to the legacy text column for rows that have
+   * not been backfilled yet.
+   */
+  private static LogAction readAction(ResultSet resultSet) throws SQLException {
+    short code = resultSet.getShort("action_code");
+    if (resultSet.wasNull()) {
+      return LogAction.valueOf(resultSet.getString("action"));
+    }
+    return LogAction.fromCode(code);
+  }
+
+  private static List<Log> readLogs(PreparedStatement preparedStatement) throws SQLException {
+    List<Log> logs = new ArrayList<>();
+    try (ResultSet resultSet = preparedStatement.executeQuery()) {
+      while (resultSet.next()) {
+        logs.add(readLog(resultSet));
+      }
+    }
+    return logs;
+  }
+
+  private static Log readLog(ResultSet resultSet) throws SQLException {
+    LocalDateTime timestamp = resultSet.getTimestamp("timestamp").toLocalDateTime();
+    LogAction actionType = readAction(resultSet);
+    String username = resultSet.getString("username");
+    String details = resultSet.getString("details");
+
+    return new Log(timestamp, actionType, username, details);
   }
 }
@@ -0,0 +1,79 @@
+package org.wallet.domain.repository.log;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.wallet.domain.model.Log;
+
+/**
+ * The {@code LogQuery} record describes a filtered page of the audit log. Matching entries are
+ * ordered from the newest to the oldest before the page is cut, so the first page holds the latest
+ * entries and a store can stop reading once it has found the entries up to the end of the page.
+ *
+ * @param from The start of the time range, inclusive; {@code null} for no lower bound.
+ * @param to The end of the time range, exclusive; {@code null} for no upper bound.
+ * @param username The user whose entries are selected; {@code null} for every user.
+ * @param offset The number of matching entries to skip.
+ * @param limit The maximum number of entries to return.
+ */
+public record LogQuery(
+    LocalDateTime from, LocalDateTime to, String username, int offset, int limit) {
+
+  /** Limit of a query returning every matching entry. */
+  public static final int UNLIMITED = Integer.MAX_VALUE;
+
+  /**
+   * Creates a query, validating the page bounds.
+   *
+   * @throws IllegalArgumentException if the offset is negative or the limit is not positive.
+   */
+  public LogQuery {
+    if (offset < 0 || limit <= 0) {
+      throw new IllegalArgumentException("Invalid page: offset " + offset + ", limit " + limit);
+    }
+  }
+
+  /**
+   * Returns whether the given entry matches the time range and user of this query.
+   *
+   * @param log The entry to check.
+   * @return {@code true} if the entry matches.
+   */
+  public boolean matches(Log log) {
+    return (from == null || !log.getTimestamp().isBefore(from))
+        && (to == null || log.getTimestamp().isBefore(to))
+        && (username == null || username.equals(log.getUsername()));
+  }
+
+  /**
+   * Returns whether entries written between the given timestamps may match this query.
+   *
+   * @param min The earliest timestamp, inclusive.
+   * @param max The latest timestamp, inclusive.
+   * @return {@code false} if the time range of this query does not overlap the given one.
+   */
+  public boolean overlaps(LocalDateTime min, LocalDateTime max) {
+    return (from == null || !max.isBefore(from)) && (to == null || min.isBefore(to));
+  }
+
+  /**
+   * Returns the number of newest entries a source has to return so that the page of this query can
+   * be cut from the merged entries of several sources.
+   *
+   * @return The offset plus the limit, saturated at {@link #UNLIMITED}.
+   */
+  public int window() {
+    return (int) Math.min((long) offset + limit, UNLIMITED);
+  }
+
+  /**
+   * Cuts the page of this query from the given matching entries.
+   *
+   * @param logs The matching entries, newest first.
+   * @return The entries of the page.
+   */
+  public List<Log> page(List<Log> logs) {
+    int start = Math.min(offset, logs.size());
+    return new ArrayList<>(logs.subList(start, (int) Math.min((long) start + limit, logs.size())));
+  }
+}
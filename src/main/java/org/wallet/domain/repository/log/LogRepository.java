@@ -1,7 +1,9 @@
 package org.wallet.domain.repository.log;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import org.wallet.domain.model.Log;
+import org.wallet.domain.model.LogEntry;
 
 /**
  * The `LogRepository` interface defines methods for managing logs in a data store. Implementing
@@ -15,10 +17,38 @@ public interface LogRepository {
    */
   List<Log> getLogs();
 
+  /**
+   * Retrieves the log entries written in the given time range from the data store.
+   *
+   * @param from The start of the range, inclusive.
+   * @param to The end of the range, exclusive.
+   * @return A list of log entries ordered by timestamp.
+   */
+  List<Log> getLogs(LocalDateTime from, LocalDateTime to);
+
+  /**
+   * Retrieves a filtered page of log entries from the data store.
+   *
+   * @param query The filter and page to retrieve.
+   * @return A list of log entries, newest first.
+   */
+  List<Log> getLogs(LogQuery query);
+
+  /**
+   * Retrieves the latest log entries added after the one at the given position.
+   *
+   * @param id The position of the last entry already seen.
+   * @param limit The maximum number of entries to return.
+   * @return The latest {@code limit} entries positioned after {@code id}, in the order of their
+   *     positions.
+   */
+  List<LogEntry> getLogsAfter(long id, int limit);
+
   /**
    * Adds a new log entry to the data store.
    *
    * @param log The log entry to be added.
+   * @return The position of the entry in the data store, or -1 if it could not be stored.
    */
-  void addLog(Log log);
+  long addLog(Log log);
 }
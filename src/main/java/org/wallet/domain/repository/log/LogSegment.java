@@ -0,0 +1,262 @@
+package org.wallet.domain.repository.log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.zip.CRC32C;
+import org.wallet.domain.model.Log;
+import org.wallet.domain.model.LogAction;
+
+/**
+ * The {@code LogSegment} class is a file of the {@link SegmentedLogRepository}. Entries are
+ * grouped into blocks of {@link #LOGS_PER_BLOCK} entries. The time range of every block and the
+ * blocks every user appears in form the sparse indexes of the segment, so a query only decodes the
+ * blocks that may hold matching entries.
+ *
+ * <p>An entry is stored as its length and the CRC32C checksum of its body, followed by the body:
+ * the timestamp in epoch microseconds (UTC), the action code, the username and the details. The
+ * length counts the checksum and the body. Strings are stored as a varint of their UTF-8 length
+ * plus one, with zero standing for {@code null}.
+ */
+abstract sealed class LogSegment permits ActiveLogSegment, SealedLogSegment {
+
+  /** Number of entries per block. */
+  static final int LOGS_PER_BLOCK = 256;
+
+  /**
+   * A block of entries.
+   *
+   * @param offset The position of the block in the segment.
+   * @param length The number of bytes of the block in the segment.
+   * @param size The number of bytes of the block once decompressed.
+   * @param count The number of entries in the block.
+   * @param minMicros The earliest timestamp in the block.
+   * @param maxMicros The latest timestamp in the block.
+   */
+  record Block(long offset, int length, int size, int count, long minMicros, long maxMicros) {}
+
+  /** Number of the segment; segments are created in ascending order. */
+  final long sequence;
+
+  LogSegment(long sequence) {
+    this.sequence = sequence;
+  }
+
+  /**
+   * Returns the entries of this segment matching the time range and user of the query, in the
+   * order they were written.
+   *
+   * @param query The query to match.
+   * @return The matching entries.
+   * @throws IOException if the segment could not be read.
+   */
+  abstract List<Log> read(LogQuery query) throws IOException;
+
+  /**
+   * Passes the entries of this segment matching the time range and user of the query to the
+   * consumer, from the newest to the oldest. Blocks are decoded one at a time, so the blocks older
+   * than the one the consumer stops in are never read.
+   *
+   * @param query The query to match.
+   * @param consumer The consumer of the entries, returning {@code false} to stop the read.
+   * @return {@code false} if the consumer stopped the read.
+   * @throws IOException if the segment could not be read.
+   */
+  abstract boolean readNewestFirst(LogQuery query, Predicate<Log> consumer) throws IOException;
+
+  /** Returns the path of the segment file. */
+  abstract Path path();
+
+  /** Returns the number of entries in the segment. */
+  abstract long count();
+
+  /** Returns the number of bytes the segment takes on disk. */
+  abstract long bytes();
+
+  /**
+   * Returns the blocks of the given ones that may hold entries matching the query.
+   *
+   * @param blocks The blocks of the segment.
+   * @param users The blocks every user appears in.
+   * @param query The query to match.
+   * @return The numbers of the candidate blocks.
+   */
+  static BitSet candidates(List<Block> blocks, Map<String, BitSet> users, LogQuery query) {
+    BitSet candidates = new BitSet(blocks.size());
+    if (query.username() != null) {
+      BitSet blocksOfUser = users.get(query.username());
+      if (blocksOfUser == null) {
+        return candidates;
+      }
+      candidates.or(blocksOfUser);
+    } else {
+      candidates.set(0, blocks.size());
+    }
+    for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+      Block block = blocks.get(i);
+      if (!query.overlaps(fromMicros(block.minMicros()), fromMicros(block.maxMicros()))) {
+        candidates.clear(i);
+      }
+    }
+    return candidates;
+  }
+
+  /**
+   * Decodes the given number of entries from the buffer and adds the ones matching the query.
+   *
+   * @param buffer The buffer positioned at the first entry.
+   * @param count The number of entries to decode.
+   * @param query The query to match.
+   * @param logs The list to add the matching entries to.
+   */
+  static void decode(ByteBuffer buffer, int count, LogQuery query, List<Log> logs) {
+    for (int i = 0; i < count; i++) {
+      int end = buffer.getInt() + buffer.position();
+      buffer.getInt();
+      Log log = decode(buffer);
+      buffer.position(end);
+      if (query.matches(log)) {
+        logs.add(log);
+      }
+    }
+  }
+
+  /**
+   * Decodes the given number of entries from the buffer and passes the ones matching the query to
+   * the consumer, from the newest to the oldest.
+   *
+   * @param buffer The buffer positioned at the first entry.
+   * @param count The number of entries to decode.
+   * @param query The query to match.
+   * @param consumer The consumer of the entries, returning {@code false} to stop.
+   * @return {@code false} if the consumer stopped.
+   */
+  static boolean decodeNewestFirst(
+      ByteBuffer buffer, int count, LogQuery query, Predicate<Log> consumer) {
+    List<Log> logs = new ArrayList<>(count);
+    decode(buffer, count, query, logs);
+    for (int i = logs.size() - 1; i >= 0; i--) {
+      if (!consumer.test(logs.get(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Decodes the body of an entry.
+   *
+   * @param buffer The buffer positioned after the checksum of the entry.
+   * @return The decoded entry.
+   */
+  static Log decode(ByteBuffer buffer) {
+    LocalDateTime timestamp = fromMicros(buffer.getLong());
+    LogAction action = LogAction.fromCode(buffer.getShort());
+    String username = getString(buffer);
+    String details = getString(buffer);
+    return new Log(timestamp, action, username, details);
+  }
+
+  /**
+   * Encodes an entry, including its length and checksum, into the buffer. The length is written
+   * last.
+   *
+   * @param log The entry to encode.
+   * @param buffer The buffer to write to.
+   */
+  static void encode(Log log, ByteBuffer buffer) {
+    int start = buffer.position();
+    buffer.putInt(0);
+    buffer.putInt(0);
+    buffer.putLong(toMicros(log.getTimestamp()));
+    buffer.putShort(log.getAction().getCode());
+    putString(buffer, log.getUsername());
+    putString(buffer, log.getDetails());
+    int end = buffer.position();
+    buffer.putInt(start + Integer.BYTES, checksum(buffer, start + 2 * Integer.BYTES, end));
+    buffer.putInt(start, end - start - Integer.BYTES);
+  }
+
+  /**
+   * Returns the CRC32C checksum of a range of the buffer, leaving the buffer unchanged.
+   *
+   * @param buffer The buffer.
+   * @param from The start of the range, inclusive.
+   * @param to The end of the range, exclusive.
+   * @return The checksum.
+   */
+  static int checksum(ByteBuffer buffer, int from, int to) {
+    CRC32C crc = new CRC32C();
+    crc.update(buffer.duplicate().limit(to).position(from));
+    return (int) crc.getValue();
+  }
+
+  /**
+   * Returns the number of bytes an entry is encoded to, including its length and checksum.
+   *
+   * @param log The entry.
+   * @return An upper bound of the encoded size.
+   */
+  static int encodedSize(Log log) {
+    return 2 * Integer.BYTES
+        + Long.BYTES
+        + Short.BYTES
+        + maxStringSize(log.getUsername())
+        + maxStringSize(log.getDetails());
+  }
+
+  static long toMicros(LocalDateTime dateTime) {
+    return dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + dateTime.getNano() / 1_000;
+  }
+
+  static LocalDateTime fromMicros(long micros) {
+    return LocalDateTime.ofEpochSecond(
+        Math.floorDiv(micros, 1_000_000),
+        (int) Math.floorMod(micros, 1_000_000) * 1_000,
+        ZoneOffset.UTC);
+  }
+
+  private static int maxStringSize(String value) {
+    return value == null ? 1 : 5 + value.length() * 3;
+  }
+
+  private static void putString(ByteBuffer buffer, String value) {
+    if (value == null) {
+      buffer.put((byte) 0);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    int length = bytes.length + 1;
+    while ((length & ~0x7F) != 0) {
+      buffer.put((byte) ((length & 0x7F) | 0x80));
+      length >>>= 7;
+    }
+    buffer.put((byte) length);
+    buffer.put(bytes);
+  }
+
+  private static String getString(ByteBuffer buffer) {
+    int length = 0;
+    for (int shift = 0; ; shift += 7) {
+      byte b = buffer.get();
+      length |= (b & 0x7F) << shift;
+      if (b >= 0) {
+        break;
+      }
+    }
+    if (length == 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length - 1];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,283 @@
+package org.wallet.domain.repository.log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import org.wallet.domain.model.Log;
+
+/**
+ * The {@code SealedLogSegment} class is a full segment whose blocks were compressed one by one,
+ * so a query only inflates the blocks selected by the indexes. The indexes are stored in a footer
+ * at the end of the file and kept in memory while the segment is open.
+ *
+ * <p>The file starts with a magic number and a format version, followed by the compressed blocks
+ * and the footer: the number of the segment and of its entries, the blocks and the usernames with
+ * the bitmaps of the blocks they appear in. The file ends with the length of the footer and the
+ * magic number again.
+ */
+final class SealedLogSegment extends LogSegment {
+
+  private static final int MAGIC = 0x57414c47;
+  /** Version of the file layout; version 2 added the checksum of every entry. */
+  private static final byte VERSION = 2;
+  private static final int HEADER_BYTES = Integer.BYTES + Byte.BYTES;
+  private static final int TRAILER_BYTES = 2 * Integer.BYTES;
+
+  private final Path path;
+  private final long count;
+  private final long bytes;
+  private final List<Block> blocks;
+  private final Map<String, BitSet> users;
+
+  private SealedLogSegment(
+      long sequence,
+      Path path,
+      long count,
+      long bytes,
+      List<Block> blocks,
+      Map<String, BitSet> users) {
+    super(sequence);
+    this.path = path;
+    this.count = count;
+    this.bytes = bytes;
+    this.blocks = blocks;
+    this.users = users;
+  }
+
+  /**
+   * Opens a sealed segment file and reads its footer.
+   *
+   * @param path The path of the segment file.
+   * @return The opened segment.
+   * @throws IOException if the file could not be read or is not a sealed segment.
+   */
+  static SealedLogSegment open(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < HEADER_BYTES + TRAILER_BYTES) {
+        throw new IOException("Not a log segment: " + path);
+      }
+      ByteBuffer header = read(channel, 0, HEADER_BYTES);
+      ByteBuffer trailer = read(channel, size - TRAILER_BYTES, TRAILER_BYTES);
+      int footerLength = trailer.getInt();
+      if (header.getInt() != MAGIC || trailer.getInt() != MAGIC) {
+        throw new IOException("Not a log segment: " + path);
+      }
+      if (header.get() != VERSION) {
+        throw new IOException("Unsupported log segment version: " + path);
+      }
+      ByteBuffer footerBytes =
+          read(channel, size - TRAILER_BYTES - footerLength, footerLength);
+      DataInputStream footer =
+          new DataInputStream(new ByteArrayInputStream(footerBytes.array()));
+      long sequence = footer.readLong();
+      long count = footer.readLong();
+      int blockCount = footer.readInt();
+      List<Block> blocks = new ArrayList<>(blockCount);
+      for (int i = 0; i < blockCount; i++) {
+        blocks.add(
+            new Block(
+                footer.readLong(),
+                footer.readInt(),
+                footer.readInt(),
+                footer.readInt(),
+                footer.readLong(),
+                footer.readLong()));
+      }
+      int userCount = footer.readInt();
+      Map<String, BitSet> users = new HashMap<>(userCount * 2);
+      for (int i = 0; i < userCount; i++) {
+        String username = footer.readUTF();
+        long[] words = new long[footer.readInt()];
+        for (int word = 0; word < words.length; word++) {
+          words[word] = footer.readLong();
+        }
+        users.put(username, BitSet.valueOf(words));
+      }
+      return new SealedLogSegment(sequence, path, count, size, blocks, users);
+    }
+  }
+
+  /**
+   * Compresses the blocks of a full active segment into a sealed segment file. The file is written
+   * under a temporary name and moved into place once it is complete.
+   *
+   * @param active The segment to seal.
+   * @param path The path of the sealed segment file.
+   * @return The sealed segment.
+   * @throws IOException if the file could not be written.
+   */
+  static SealedLogSegment seal(ActiveLogSegment active, Path path) throws IOException {
+    Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+    List<Block> sealedBlocks = new ArrayList<>();
+    Map<String, BitSet> users = active.users();
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try (FileChannel channel =
+        FileChannel.open(
+            temporary,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).put(VERSION).flip();
+      channel.write(header);
+      long offset = HEADER_BYTES;
+      byte[] input = new byte[0];
+      byte[] output = new byte[0];
+      for (Block block : active.blocks()) {
+        if (input.length < block.size()) {
+          input = new byte[block.size()];
+          output = new byte[block.size() + block.size() / 2 + 64];
+        }
+        active.slice(block).get(input, 0, block.size());
+        deflater.reset();
+        deflater.setInput(input, 0, block.size());
+        deflater.finish();
+        int length = deflater.deflate(output);
+        if (!deflater.finished()) {
+          throw new IOException("Could not compress block of " + path);
+        }
+        channel.write(ByteBuffer.wrap(output, 0, length));
+        sealedBlocks.add(
+            new Block(
+                offset,
+                length,
+                block.size(),
+                block.count(),
+                block.minMicros(),
+                block.maxMicros()));
+        offset += length;
+      }
+
+      ByteArrayOutputStream footerBytes = new ByteArrayOutputStream();
+      DataOutputStream footer = new DataOutputStream(footerBytes);
+      footer.writeLong(active.sequence);
+      footer.writeLong(active.count());
+      footer.writeInt(sealedBlocks.size());
+      for (Block block : sealedBlocks) {
+        footer.writeLong(block.offset());
+        footer.writeInt(block.length());
+        footer.writeInt(block.size());
+        footer.writeInt(block.count());
+        footer.writeLong(block.minMicros());
+        footer.writeLong(block.maxMicros());
+      }
+      footer.writeInt(users.size());
+      for (Map.Entry<String, BitSet> user : users.entrySet()) {
+        footer.writeUTF(user.getKey());
+        long[] words = user.getValue().toLongArray();
+        footer.writeInt(words.length);
+        for (long word : words) {
+          footer.writeLong(word);
+        }
+      }
+      footer.flush();
+      channel.write(ByteBuffer.wrap(footerBytes.toByteArray()));
+      channel.write(
+          ByteBuffer.allocate(TRAILER_BYTES).putInt(footerBytes.size()).putInt(MAGIC).flip());
+      channel.force(true);
+    } finally {
+      deflater.end();
+    }
+    Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE);
+    return open(path);
+  }
+
+  @Override
+  List<Log> read(LogQuery query) throws IOException {
+    BitSet candidates = candidates(blocks, users, query);
+    List<Log> logs = new ArrayList<>();
+    if (candidates.isEmpty()) {
+      return logs;
+    }
+    Inflater inflater = new Inflater();
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+        decode(inflate(channel, inflater, i), blocks.get(i).count(), query, logs);
+      }
+    } finally {
+      inflater.end();
+    }
+    return logs;
+  }
+
+  @Override
+  boolean readNewestFirst(LogQuery query, Predicate<Log> consumer) throws IOException {
+    BitSet candidates = candidates(blocks, users, query);
+    if (candidates.isEmpty()) {
+      return true;
+    }
+    Inflater inflater = new Inflater();
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      for (int i = candidates.previousSetBit(blocks.size() - 1);
+          i >= 0;
+          i = candidates.previousSetBit(i - 1)) {
+        ByteBuffer bytes = inflate(channel, inflater, i);
+        if (!decodeNewestFirst(bytes, blocks.get(i).count(), query, consumer)) {
+          return false;
+        }
+      }
+    } finally {
+      inflater.end();
+    }
+    return true;
+  }
+
+  @Override
+  Path path() {
+    return path;
+  }
+
+  @Override
+  long count() {
+    return count;
+  }
+
+  @Override
+  long bytes() {
+    return bytes;
+  }
+
+  private ByteBuffer inflate(FileChannel channel, Inflater inflater, int index)
+      throws IOException {
+    Block block = blocks.get(index);
+    byte[] bytes = new byte[block.size()];
+    inflater.reset();
+    inflater.setInput(read(channel, block.offset(), block.length()));
+    try {
+      if (inflater.inflate(bytes) != bytes.length) {
+        throw new IOException("Corrupt block " + index + " in " + path);
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("Corrupt block " + index + " in " + path, e);
+    }
+    return ByteBuffer.wrap(bytes);
+  }
+
+  private static ByteBuffer read(FileChannel channel, long position, int length)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of log segment");
+      }
+    }
+    return buffer.flip();
+  }
+}
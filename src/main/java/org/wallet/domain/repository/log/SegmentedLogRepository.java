@@ -0,0 +1,358 @@
+package org.wallet.domain.repository.log;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+import org.wallet.domain.model.Log;
+import org.wallet.domain.model.LogEntry;
+import org.wallet.utils.WalletProperties;
+
+/**
+ * The {@code SegmentedLogRepository} class is a {@link LogRepository} that keeps the audit log in
+ * local segment files instead of the database, so audit writes do not compete with money movement
+ * for database capacity. It is enabled with {@code audit.store: segments}.
+ *
+ * <p>Entries are appended to a memory-mapped {@link ActiveLogSegment}. When it is full, a new
+ * segment is started and the full one is compressed into a {@link SealedLogSegment} in the
+ * background. Queries read the segments from the newest one back, skip the blocks whose time range
+ * and username index rule them out and stop once the page is filled. The files are local to the
+ * node, so every application instance serves the entries it wrote.
+ *
+ * <p>The position of an entry is the number of its segment in the upper 32 bits and its index in
+ * the segment in the lower ones, so positions grow with the order of the appends and survive a
+ * restart.
+ */
+@Primary
+@Repository
+@ConditionalOnProperty(name = "audit.store", havingValue = "segments")
+public class SegmentedLogRepository implements LogRepository, MeterBinder {
+
+  /** Directory the segment files are stored in. */
+  private static final Path SEGMENT_DIR;
+
+  /** Size of a segment file in bytes. */
+  private static final int SEGMENT_BYTES;
+
+  private static final String FILE_PREFIX = "audit-";
+  private static final String ACTIVE_SUFFIX = ".log";
+  private static final String SEALED_SUFFIX = ".seg";
+
+  static {
+    WalletProperties.Audit audit = WalletProperties.get(WalletProperties.Audit.class);
+    SEGMENT_DIR = Path.of(audit.segmentDir());
+    SEGMENT_BYTES = audit.segmentMegabytes() << 20;
+  }
+
+  private final Path directory;
+  private final int segmentBytes;
+  private final List<LogSegment> segments = new CopyOnWriteArrayList<>();
+  private final ExecutorService sealer =
+      Executors.newSingleThreadExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "audit-segment-sealer");
+            thread.setDaemon(true);
+            return thread;
+          });
+  private final LongAdder appends = new LongAdder();
+
+  private volatile ActiveLogSegment active;
+
+  /** Creates a repository storing its segments as configured in {@code application.yml}. */
+  public SegmentedLogRepository() {
+    this(SEGMENT_DIR, SEGMENT_BYTES);
+  }
+
+  /**
+   * Creates a repository storing its segments in the given directory.
+   *
+   * @param directory The directory of the segment files.
+   * @param segmentBytes The size of a segment file in bytes.
+   */
+  public SegmentedLogRepository(Path directory, int segmentBytes) {
+    this.directory = directory;
+    this.segmentBytes = segmentBytes;
+  }
+
+  /**
+   * Opens the segment files of the directory. Active segments left behind by a previous run are
+   * recovered up to their last complete entry; all but the newest one are sealed.
+   *
+   * @throws IllegalStateException if the directory or a segment could not be read.
+   */
+  @PostConstruct
+  public void init() {
+    TreeMap<Long, Path> activeFiles = new TreeMap<>();
+    TreeMap<Long, Path> sealedFiles = new TreeMap<>();
+    try {
+      Files.createDirectories(directory);
+      try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+        for (Path path : stream) {
+          String name = path.getFileName().toString();
+          if (!name.startsWith(FILE_PREFIX)) {
+            continue;
+          }
+          if (name.endsWith(".tmp")) {
+            Files.delete(path);
+          } else if (name.endsWith(ACTIVE_SUFFIX)) {
+            activeFiles.put(sequenceOf(name), path);
+          } else if (name.endsWith(SEALED_SUFFIX)) {
+            sealedFiles.put(sequenceOf(name), path);
+          }
+        }
+      }
+      for (Path path : sealedFiles.values()) {
+        segments.add(SealedLogSegment.open(path));
+      }
+      for (var file : activeFiles.entrySet()) {
+        if (sealedFiles.containsKey(file.getKey())) {
+          Files.delete(file.getValue());
+          continue;
+        }
+        ActiveLogSegment segment = ActiveLogSegment.open(file.getKey(), file.getValue(), 0);
+        if (file.getKey().equals(activeFiles.lastKey())) {
+          segments.add(segment);
+          active = segment;
+        } else {
+          segments.add(seal(segment));
+        }
+      }
+      segments.sort(Comparator.comparingLong(segment -> segment.sequence));
+      if (active == null) {
+        long sequence = segments.isEmpty() ? 0 : segments.get(segments.size() - 1).sequence + 1;
+        active = startSegment(sequence);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not open the audit log in " + directory, e);
+    }
+  }
+
+  /** Waits for the segments being sealed and writes the active segment through to the disk. */
+  @PreDestroy
+  public synchronized void close() {
+    sealer.shutdown();
+    try {
+      sealer.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    active.force();
+    try {
+      active.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Writes the entries appended to the active segment through to the disk every second, which
+   * bounds the entries lost by a crash of the machine.
+   */
+  @Scheduled(fixedDelay = 1_000)
+  public void flush() {
+    active.force();
+  }
+
+  /**
+   * Retrieves every log entry, in the order they were appended.
+   *
+   * @return A list of log entries.
+   */
+  @Override
+  public List<Log> getLogs() {
+    return getLogs(null, null);
+  }
+
+  /**
+   * Retrieves the log entries of a time range, in the order they were appended.
+   *
+   * @param from The start of the range, inclusive.
+   * @param to The end of the range, exclusive.
+   * @return A list of log entries.
+   */
+  @Override
+  public List<Log> getLogs(LocalDateTime from, LocalDateTime to) {
+    List<Log> logs = getLogs(new LogQuery(from, to, null, 0, LogQuery.UNLIMITED));
+    Collections.reverse(logs);
+    return logs;
+  }
+
+  /**
+   * Retrieves a filtered page of log entries, newest first. The segments are read from the newest
+   * one back, one candidate block at a time, until the entries up to the end of the page are
+   * found; only the blocks whose time range and username index match the query are decoded.
+   *
+   * @param query The filter and page to retrieve.
+   * @return A list of log entries, newest first in the order they were appended.
+   */
+  @Override
+  public List<Log> getLogs(LogQuery query) {
+    int window = query.window();
+    List<LogSegment> snapshot = List.copyOf(segments);
+    List<Log> logs = new ArrayList<>();
+    for (int i = snapshot.size() - 1; i >= 0 && logs.size() < window; i--) {
+      readNewestFirst(
+          snapshot.get(i),
+          query,
+          log -> {
+            logs.add(log);
+            return logs.size() < window;
+          });
+    }
+    return query.page(logs);
+  }
+
+  /**
+   * Retrieves the latest log entries positioned after the given one. The segments are read from
+   * the newest one back until enough entries were found or the given position was reached.
+   *
+   * @param id The position of the last entry already seen.
+   * @param limit The maximum number of entries to return.
+   * @return A list of log entries ordered by position.
+   */
+  @Override
+  public List<LogEntry> getLogsAfter(long id, int limit) {
+    LogQuery all = new LogQuery(null, null, null, 0, LogQuery.UNLIMITED);
+    List<LogSegment> snapshot = List.copyOf(segments);
+    List<LogEntry> entries = new ArrayList<>();
+    segments:
+    for (int i = snapshot.size() - 1; i >= 0 && entries.size() < limit; i--) {
+      LogSegment segment = snapshot.get(i);
+      if (segment.sequence < id >> 32) {
+        break;
+      }
+      List<Log> logs = read(segment, all);
+      for (int index = logs.size() - 1; index >= 0 && entries.size() < limit; index--) {
+        long position = position(segment.sequence, index);
+        if (position <= id) {
+          break segments;
+        }
+        entries.add(new LogEntry(position, logs.get(index)));
+      }
+    }
+    Collections.reverse(entries);
+    return entries;
+  }
+
+  /**
+   * Appends a log entry to the active segment, starting a new segment when it is full.
+   *
+   * @param log The log entry to be added.
+   * @return The position of the entry.
+   * @throws IllegalArgumentException if the entry is larger than a segment.
+   */
+  @Override
+  public synchronized long addLog(Log log) {
+    if (!active.append(log)) {
+      if (active.isEmpty()) {
+        throw new IllegalArgumentException("Audit entry larger than a segment: " + log);
+      }
+      rollOver();
+      active.append(log);
+    }
+    appends.add(1);
+    return position(active.sequence, active.count() - 1);
+  }
+
+  /**
+   * Binds the number of appended entries and the number and size of the segments to the given
+   * meter registry.
+   *
+   * @param registry The registry to bind the meters to.
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("wallet.audit.appends", appends, LongAdder::sum).register(registry);
+    Gauge.builder("wallet.audit.segments", segments, List::size).register(registry);
+    Gauge.builder(
+            "wallet.audit.bytes",
+            segments,
+            all -> all.stream().mapToLong(LogSegment::bytes).sum())
+        .register(registry);
+  }
+
+  private void rollOver() {
+    ActiveLogSegment full = active;
+    try {
+      full.force();
+      active = startSegment(full.sequence + 1);
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not start a new audit segment.", e);
+    }
+    sealer.execute(
+        () -> {
+          try {
+            segments.set(segments.indexOf(full), seal(full));
+          } catch (IOException e) {
+            e.printStackTrace();
+          }
+        });
+  }
+
+  private ActiveLogSegment startSegment(long sequence) throws IOException {
+    ActiveLogSegment segment =
+        ActiveLogSegment.open(sequence, fileOf(sequence, ACTIVE_SUFFIX), segmentBytes);
+    segments.add(segment);
+    return segment;
+  }
+
+  /** Compresses a full active segment and deletes its file once the sealed file is in place. */
+  private SealedLogSegment seal(ActiveLogSegment full) throws IOException {
+    SealedLogSegment sealed = SealedLogSegment.seal(full, fileOf(full.sequence, SEALED_SUFFIX));
+    full.close();
+    Files.delete(full.path());
+    return sealed;
+  }
+
+  private Path fileOf(long sequence, String suffix) {
+    return directory.resolve(String.format(FILE_PREFIX + "%019d%s", sequence, suffix));
+  }
+
+  private static long position(long sequence, long index) {
+    return sequence << 32 | index;
+  }
+
+  private static long sequenceOf(String name) {
+    return Long.parseLong(name.substring(FILE_PREFIX.length(), name.indexOf('.')));
+  }
+
+  private static List<Log> read(LogSegment segment, LogQuery query) {
+    try {
+      return segment.read(query);
+    } catch (IOException e) {
+      e.printStackTrace();
+      return new ArrayList<>();
+    }
+  }
+
+  private static void readNewestFirst(
+      LogSegment segment, LogQuery query, Predicate<Log> consumer) {
+    try {
+      segment.readNewestFirst(query, consumer);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+}
@@ -8,6 +8,8 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
 import org.wallet.domain.model.Player;
@@ -28,9 +30,20 @@ public class JdbcPlayerRepository implements PlayerRepository {
   private static final String INSERT_PLAYER_SQL =
       "INSERT INTO wallet.players (login, balance, password) VALUES (?, ?, ?)";
   private static final String UPDATE_PLAYER_BALANCE_SQL =
-      "UPDATE wallet.players SET balance = ? WHERE login = ?";
+      "UPDATE wallet.players SET balance = ?, ledger_version = ledger_version + 1"
+          + " WHERE login = ?";
   private static final String CHECK_PLAYER_BY_LOGIN_SQL =
       "SELECT CASE WHEN EXISTS (SELECT 1 FROM wallet.players WHERE login = ?) THEN true ELSE false END;";
+  private static final String SELECT_LOGINS_AFTER_SQL =
+      "SELECT id, login FROM wallet.players WHERE id > ? ORDER BY id";
+  private static final String SELECT_LEDGER_VERSION_SQL =
+      "SELECT ledger_version FROM wallet.players WHERE login = ?";
+
+  /** SQLSTATE reported by PostgreSQL when a unique constraint is violated. */
+  private static final String UNIQUE_VIOLATION_SQL_STATE = "23505";
+
+  /** Number of rows fetched per round trip when streaming large result sets. */
+  private static final int STREAMING_FETCH_SIZE = 10_000;
 
   /** The `DatabaseConnection` used to establish a connection to the database. */
   private final DatabaseConnection databaseConnection;
@@ -52,6 +65,7 @@ public class JdbcPlayerRepository implements PlayerRepository {
         String password = resultSet.getString("password");
         var player = new Player(login, password);
         player.credit(balance);
+        player.setLedgerVersion(resultSet.getLong("ledger_version"));
         players.add(player);
       }
     } catch (SQLException e) {
@@ -68,25 +82,61 @@ public class JdbcPlayerRepository implements PlayerRepository {
    */
   @Override
   public Optional<Player> getPlayerByLogin(String login) {
-    try (Connection connection = databaseConnection.getConnection();
-        PreparedStatement preparedStatement =
-            connection.prepareStatement(SELECT_PLAYER_BY_LOGIN_SQL)) {
-      preparedStatement.setString(1, login);
-      try (ResultSet resultSet = preparedStatement.executeQuery()) {
-        if (resultSet.next()) {
-          BigDecimal balance = resultSet.getBigDecimal("balance");
-          String password = resultSet.getString("password");
-          var player = new Player(login, password);
-          player.credit(balance);
-          return Optional.of(player);
-        }
-      }
+    try (Connection connection = databaseConnection.getConnection()) {
+      return findPlayerByLogin(connection, login);
     } catch (SQLException e) {
       e.printStackTrace();
     }
     return Optional.empty();
   }
 
+  /**
+   * Retrieves a player by their login from a read replica. Players who have written recently are
+   * read from the primary, so they always see their own updates.
+   *
+   * @param login The login of the player to retrieve.
+   * @return An `Optional` containing the player if found, or empty if not found.
+   */
+  @Override
+  public Optional<Player> getPlayerSnapshotByLogin(String login) {
+    try {
+      return databaseConnection.executeRead(
+          login, connection -> findPlayerByLogin(connection, login));
+    } catch (SQLException e) {
+      e.printStackTrace();
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Retrieves the ledger version of a player from a read replica, or from the primary if the player
+   * has written recently.
+   *
+   * @param login The login of the player.
+   * @return The ledger version, or an empty optional if the player is not found.
+   */
+  @Override
+  public OptionalLong getLedgerVersion(String login) {
+    try {
+      return databaseConnection.executeRead(
+          login,
+          connection -> {
+            try (PreparedStatement preparedStatement =
+                connection.prepareStatement(SELECT_LEDGER_VERSION_SQL)) {
+              preparedStatement.setString(1, login);
+              try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                return resultSet.next()
+                    ? OptionalLong.of(resultSet.getLong(1))
+                    : OptionalLong.empty();
+              }
+            }
+          });
+    } catch (SQLException e) {
+      e.printStackTrace();
+    }
+    return OptionalLong.empty();
+  }
+
   /**
    * Checks if a player with the given login exists in the database.
    *
@@ -109,24 +159,33 @@ public class JdbcPlayerRepository implements PlayerRepository {
   }
 
   /**
-   * Adds a new player to the database.
+   * Adds a new player to the database. Login uniqueness is enforced by the unique constraint on
+   * {@code players.login}, so no existence query is issued before the insert.
    *
    * @param player The player entity to be added.
    * @throws PlayerAlreadyExistException if a player with the same login already exists.
    */
   @Override
   public void addPlayer(Player player) {
-    if (isPlayerExist(player.getLogin())) {
-      throw new PlayerAlreadyExistException();
-    }
-
     try (Connection connection = databaseConnection.getConnection();
         PreparedStatement preparedStatement = connection.prepareStatement(INSERT_PLAYER_SQL)) {
-      preparedStatement.setString(1, player.getLogin());
-      preparedStatement.setBigDecimal(2, player.getBalance());
-      preparedStatement.setString(3, player.getPassword());
-      preparedStatement.executeUpdate();
+      connection.setAutoCommit(false);
+      try {
+        databaseConnection.lockRanges(connection, List.of(player.getLogin()));
+        preparedStatement.setString(1, player.getLogin());
+        preparedStatement.setBigDecimal(2, player.getBalance());
+        preparedStatement.setString(3, player.getPassword());
+        preparedStatement.executeUpdate();
+        connection.commit();
+      } catch (SQLException | RuntimeException e) {
+        connection.rollback();
+        throw e;
+      }
+      databaseConnection.markWrite(player.getLogin());
     } catch (SQLException e) {
+      if (UNIQUE_VIOLATION_SQL_STATE.equals(e.getSQLState())) {
+        throw new PlayerAlreadyExistException();
+      }
       e.printStackTrace();
     }
   }
@@ -141,11 +200,71 @@ public class JdbcPlayerRepository implements PlayerRepository {
     try (Connection connection = databaseConnection.getConnection();
         PreparedStatement preparedStatement =
             connection.prepareStatement(UPDATE_PLAYER_BALANCE_SQL)) {
-      preparedStatement.setBigDecimal(1, player.getBalance());
-      preparedStatement.setString(2, player.getLogin());
-      preparedStatement.executeUpdate();
+      connection.setAutoCommit(false);
+      try {
+        databaseConnection.lockRanges(connection, List.of(player.getLogin()));
+        preparedStatement.setBigDecimal(1, player.getBalance());
+        preparedStatement.setString(2, player.getLogin());
+        preparedStatement.executeUpdate();
+        connection.commit();
+      } catch (SQLException | RuntimeException e) {
+        connection.rollback();
+        throw e;
+      }
+      databaseConnection.markWrite(player.getLogin());
+    } catch (SQLException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Streams the logins of the players with a key above the given one in key order, using a
+   * server-side cursor so that the whole table is never held in memory at once.
+   *
+   * @param lastPlayerIds The largest player key already streamed, or {@code null} to stream every
+   *     player.
+   * @param consumer The consumer receiving every login.
+   * @return The largest player key streamed, in an array of one element.
+   */
+  @Override
+  public long[] forEachLoginAfter(long[] lastPlayerIds, Consumer<String> consumer) {
+    long lastPlayerId = lastPlayerIds == null ? 0 : lastPlayerIds[0];
+    try (Connection connection = databaseConnection.getConnection()) {
+      connection.setAutoCommit(false);
+      try (PreparedStatement preparedStatement =
+          connection.prepareStatement(SELECT_LOGINS_AFTER_SQL)) {
+        preparedStatement.setLong(1, lastPlayerId);
+        preparedStatement.setFetchSize(STREAMING_FETCH_SIZE);
+        try (ResultSet resultSet = preparedStatement.executeQuery()) {
+          while (resultSet.next()) {
+            lastPlayerId = resultSet.getLong(1);
+            consumer.accept(resultSet.getString(2));
+          }
+        }
+      }
+      connection.commit();
     } catch (SQLException e) {
       e.printStackTrace();
     }
+    return new long[] {lastPlayerId};
+  }
+
+  private Optional<Player> findPlayerByLogin(Connection connection, String login)
+      throws SQLException {
+    try (PreparedStatement preparedStatement =
+        connection.prepareStatement(SELECT_PLAYER_BY_LOGIN_SQL)) {
+      preparedStatement.setString(1, login);
+      try (ResultSet resultSet = preparedStatement.executeQuery()) {
+        if (resultSet.next()) {
+          BigDecimal balance = resultSet.getBigDecimal("balance");
+          String password = resultSet.getString("password");
+          var player = new Player(login, password);
+          player.credit(balance);
+          player.setLedgerVersion(resultSet.getLong("ledger_version"));
+          return Optional.of(player);
+        }
+      }
+    }
+    return Optional.empty();
   }
 }
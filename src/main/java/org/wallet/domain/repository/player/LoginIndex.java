@@ -0,0 +1,158 @@
+package org.wallet.domain.repository.player;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.wallet.utils.ScalableBloomFilter;
+
+/**
+ * The {@code LoginIndex} class is an in-memory index of player logins kept in front of the {@link
+ * PlayerRepository}. A bloom filter of all known logins lets registration rely on the unique
+ * constraint instead of an existence query, and tells apart the lookups of logins it knows.
+ *
+ * <p>The filter belongs to one instance. It is loaded at startup and then refreshed every few
+ * seconds with the players stored since, by any instance or by the synthetic data loader. A login
+ * it does not know may therefore still exist, so a negative is confirmed by the database before a
+ * player is reported as unknown; a login found there is added to the filter and counted as a stale
+ * negative.
+ */
+@Component
+@DependsOn("liquibaseManager")
+@RequiredArgsConstructor
+public class LoginIndex implements MeterBinder {
+
+  private static final long EXPECTED_PLAYERS = 1_000_000;
+  private static final double FALSE_POSITIVE_PROBABILITY = 0.001;
+
+  /** Interval between two refreshes of the filter with the players stored since. */
+  private static final long REFRESH_INTERVAL_MILLIS = 5_000;
+
+  /** The repository used to populate the index. */
+  private final PlayerRepository playerRepository;
+
+  private final ScalableBloomFilter filter =
+      new ScalableBloomFilter(EXPECTED_PLAYERS, FALSE_POSITIVE_PROBABILITY);
+
+  private final LongAdder negatives = new LongAdder();
+  private final LongAdder positives = new LongAdder();
+  private final LongAdder falsePositives = new LongAdder();
+  private final LongAdder staleNegatives = new LongAdder();
+  private final LongAdder skippedRegistrationChecks = new LongAdder();
+
+  /** The largest player key added to the filter from every shard. */
+  private long[] lastPlayerIds;
+
+  /** Populates the index with all logins already stored in the repository. */
+  @PostConstruct
+  public synchronized void load() {
+    lastPlayerIds = playerRepository.forEachLoginAfter(null, filter::add);
+  }
+
+  /**
+   * Adds the logins of the players stored since the last load or refresh, by this or any other
+   * instance. A player whose key was taken before a key already seen but committed after it is
+   * only added when it is found as a stale negative.
+   */
+  @Scheduled(fixedDelay = REFRESH_INTERVAL_MILLIS, initialDelay = REFRESH_INTERVAL_MILLIS)
+  public synchronized void refresh() {
+    lastPlayerIds = playerRepository.forEachLoginAfter(lastPlayerIds, filter::add);
+  }
+
+  /**
+   * Registers the login of a player that has just been stored. Registration relies on the unique
+   * constraint on the login instead of an existence query, which is counted as an avoided query.
+   *
+   * @param login The login of the registered player.
+   */
+  public void add(String login) {
+    filter.add(login);
+    skippedRegistrationChecks.increment();
+  }
+
+  /**
+   * Checks whether the filter knows the given login. A login it does not know may have been stored
+   * since the last refresh and has to be looked up in the database.
+   *
+   * @param login The login to check.
+   * @return {@code false} if the login is not known to the filter, {@code true} otherwise.
+   */
+  public boolean mightContain(String login) {
+    if (filter.mightContain(login)) {
+      positives.increment();
+      return true;
+    }
+    negatives.increment();
+    return false;
+  }
+
+  /** Records a possible positive that the database did not confirm. */
+  public void recordFalsePositive() {
+    falsePositives.increment();
+  }
+
+  /**
+   * Records a negative that the database did not confirm, and adds the login to the filter.
+   *
+   * @param login The login found in the database.
+   */
+  public void recordStaleNegative(String login) {
+    filter.add(login);
+    staleNegatives.increment();
+  }
+
+  /**
+   * Returns the number of database queries avoided by the index: the existence checks skipped on
+   * registration.
+   *
+   * @return The number of avoided queries.
+   */
+  public long getQueriesAvoided() {
+    return skippedRegistrationChecks.sum();
+  }
+
+  /**
+   * Returns the share of lookups of logins not known to the filter.
+   *
+   * @return The ratio of negative lookups to all lookups, or {@code 0} if there were none.
+   */
+  public double getHitRatio() {
+    long answered = negatives.sum();
+    long total = answered + positives.sum();
+    return total == 0 ? 0 : (double) answered / total;
+  }
+
+  /**
+   * Binds the index statistics to the given meter registry.
+   *
+   * @param registry The registry to bind the meters to.
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    lookupCounter(registry, "negative", negatives);
+    lookupCounter(registry, "positive", positives);
+    lookupCounter(registry, "false_positive", falsePositives);
+    lookupCounter(registry, "stale_negative", staleNegatives);
+    FunctionCounter.builder(
+            "wallet.player.login.queries.avoided", this, LoginIndex::getQueriesAvoided)
+        .register(registry);
+    Gauge.builder("wallet.player.login.filter.hit.ratio", this, LoginIndex::getHitRatio)
+        .register(registry);
+    Gauge.builder("wallet.player.login.filter.size", filter, ScalableBloomFilter::size)
+        .register(registry);
+    Gauge.builder("wallet.player.login.filter.bytes", filter, ScalableBloomFilter::memoryBytes)
+        .register(registry);
+  }
+
+  private void lookupCounter(MeterRegistry registry, String result, LongAdder adder) {
+    FunctionCounter.builder("wallet.player.login.lookups", adder, LongAdder::sum)
+        .tag("result", result)
+        .register(registry);
+  }
+}
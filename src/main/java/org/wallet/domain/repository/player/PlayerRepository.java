@@ -2,6 +2,8 @@ package org.wallet.domain.repository.player;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
 import org.wallet.domain.model.Player;
 
 /**
@@ -26,10 +28,34 @@ public interface PlayerRepository {
    */
   Optional<Player> getPlayerByLogin(String login);
 
+  /**
+   * Retrieves a player by their login for display purposes. The result may be served by a read
+   * replica and lag slightly behind the latest writes of other sessions; it must not be used to
+   * update the player.
+   *
+   * @param login The login of the player to retrieve.
+   * @return An optional containing the retrieved player, or an empty optional if not found.
+   */
+  default Optional<Player> getPlayerSnapshotByLogin(String login) {
+    return getPlayerByLogin(login);
+  }
+
+  /**
+   * Retrieves the ledger version of a player, which is incremented by every write changing the
+   * balance or the transactions of the player. Like a snapshot, it may lag behind the latest writes
+   * of other sessions.
+   *
+   * @param login The login of the player.
+   * @return The ledger version, or an empty optional if the player is not found.
+   */
+  OptionalLong getLedgerVersion(String login);
+
   /**
    * Adds a new player to the repository.
    *
    * @param player The player to be added.
+   * @throws org.wallet.exception.PlayerAlreadyExistException If a player with the same login
+   *     already exists.
    */
   void addPlayer(Player player);
 
@@ -47,4 +73,15 @@ public interface PlayerRepository {
    * @return `true` if the player exists; otherwise, `false`.
    */
   boolean isPlayerExist(String login);
+
+  /**
+   * Streams the logins of the players stored after the given positions to the given consumer
+   * without materializing them.
+   *
+   * @param lastPlayerIds The largest player key already streamed from every shard of the store, as
+   *     returned by the previous call, or {@code null} to stream every player.
+   * @param consumer The consumer receiving every login.
+   * @return The largest player key streamed from every shard of the store.
+   */
+  long[] forEachLoginAfter(long[] lastPlayerIds, Consumer<String> consumer);
 }
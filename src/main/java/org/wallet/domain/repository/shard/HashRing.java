@@ -0,0 +1,124 @@
+package org.wallet.domain.repository.shard;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import org.wallet.utils.HashUtils;
+
+/**
+ * The {@code HashRing} class is a consistent hash ring mapping player logins to shards. Every shard
+ * owns a number of virtual nodes; a token on the ring owns the hash range between the previous
+ * token (exclusive) and itself (inclusive). Ownership of single ranges can be reassigned, which is
+ * how data is moved between shards without rehashing every login.
+ */
+public final class HashRing {
+
+  private static final long LOGIN_SEED = 0x27d4eb2f165667c5L;
+  private static final long TOKEN_SEED = 0x165667b19e3779f9L;
+
+  private final NavigableMap<Long, Integer> owners;
+
+  /**
+   * Creates a ring with the given token ownership.
+   *
+   * @param owners The shard index owning each token.
+   */
+  public HashRing(Map<Long, Integer> owners) {
+    if (owners.isEmpty()) {
+      throw new IllegalArgumentException("Hash ring must contain at least one token.");
+    }
+    this.owners = new ConcurrentSkipListMap<>(owners);
+  }
+
+  /**
+   * Creates a ring in which every shard owns the same number of virtual nodes.
+   *
+   * @param shards The number of shards.
+   * @param virtualNodes The number of tokens per shard.
+   * @return The new ring.
+   */
+  public static HashRing create(int shards, int virtualNodes) {
+    Map<Long, Integer> owners = new ConcurrentSkipListMap<>();
+    for (int shard = 0; shard < shards; shard++) {
+      for (int node = 0; node < virtualNodes; node++) {
+        owners.put(HashUtils.hash64("shard-" + shard + "-node-" + node, TOKEN_SEED), shard);
+      }
+    }
+    return new HashRing(owners);
+  }
+
+  /**
+   * Returns the position of a login on the ring.
+   *
+   * @param login The player's login.
+   * @return The hash of the login.
+   */
+  public static long hash(String login) {
+    return HashUtils.hash64(login, LOGIN_SEED);
+  }
+
+  /**
+   * Returns the shard owning the given login.
+   *
+   * @param login The player's login.
+   * @return The index of the shard.
+   */
+  public int shardOf(String login) {
+    return owners.get(tokenOf(hash(login)));
+  }
+
+  /**
+   * Returns the token of the range containing the given hash.
+   *
+   * @param hash The position on the ring.
+   * @return The token owning the position.
+   */
+  public long tokenOf(long hash) {
+    Long token = owners.ceilingKey(hash);
+    return token != null ? token : owners.firstKey();
+  }
+
+  /**
+   * Returns the shard owning the given token.
+   *
+   * @param token The token of the range.
+   * @return The index of the shard, or {@code null} if the token is not on the ring.
+   */
+  public Integer ownerOf(long token) {
+    return owners.get(token);
+  }
+
+  /**
+   * Adds a token to the ring, splitting the range that contains it. The new token is owned by the
+   * shard that already owns its position, so no data changes owner.
+   *
+   * @param token The token to add.
+   * @return The owner of the new token.
+   */
+  public int split(long token) {
+    return owners.computeIfAbsent(token, key -> owners.get(tokenOf(key)));
+  }
+
+  /**
+   * Assigns the range of a token to another shard.
+   *
+   * @param token The token of the range.
+   * @param shard The index of the new owner.
+   */
+  public void assign(long token, int shard) {
+    if (!owners.containsKey(token)) {
+      throw new IllegalArgumentException("Unknown hash ring token: " + token);
+    }
+    owners.put(token, shard);
+  }
+
+  /**
+   * Returns the ownership of every token.
+   *
+   * @return An unmodifiable view of the tokens and their owners, in ring order.
+   */
+  public Map<Long, Integer> tokens() {
+    return Collections.unmodifiableMap(owners);
+  }
+}
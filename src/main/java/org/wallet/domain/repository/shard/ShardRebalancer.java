@@ -0,0 +1,448 @@
+package org.wallet.domain.repository.shard;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.wallet.domain.model.TransactionType;
+
+/**
+ * The {@code ShardRebalancer} class moves hash ranges between shards while the service is running.
+ * It is exposed as the {@code shards} actuator endpoint.
+ *
+ * <p>A range is moved in three phases. First, its players and transactions are copied to the
+ * target shard while writes continue. Then writes to the range are frozen, the players added or
+ * changed since are copied, the transactions not yet present on the target are copied, the number
+ * of transactions of every moved player is compared between both shards and the ownership of the
+ * range is switched to the target. Finally, the moved rows are deleted from the source shard. Only
+ * the second phase blocks writes, and only those to the moved range. If the counts differ, the
+ * range stays on the source and nothing is deleted.
+ *
+ * <p>Writes are frozen by locking the row of the range in {@code wallet.shard_ranges} on the source
+ * shard, which every write transaction of every instance locks for share, as described in {@link
+ * ShardRouter}. The owner is switched in the freezing transaction, so writes that waited for it are
+ * rejected and retried on the target, and the source rows are only deleted once no instance can
+ * write them. The frozen phase reads players by key rather than scanning the whole table: the
+ * largest player key is taken under a short freeze before the first phase, so every player of the
+ * range added later has a larger key.
+ *
+ * <p>Player keys are local to a shard, so transactions are copied after their player and reference
+ * the key the player received on the target shard. Concurrent rebalances are excluded across
+ * instances by an advisory lock on shard 0.
+ */
+@Component
+@Endpoint(id = "shards")
+@RequiredArgsConstructor
+public class ShardRebalancer implements MeterBinder {
+
+  private static final String SELECT_PLAYERS_SQL =
+      "SELECT login, balance, password, ledger_version FROM wallet.players";
+  private static final String SELECT_LAST_PLAYER_ID_SQL =
+      "SELECT COALESCE(MAX(id), 0) FROM wallet.players";
+
+  /** The players added after the first phase or already copied, read by key during the freeze. */
+  private static final String SELECT_FROZEN_PLAYERS_SQL =
+      SELECT_PLAYERS_SQL + " WHERE id > ? OR login = ANY (?)";
+  private static final String UPSERT_PLAYER_SQL =
+      "INSERT INTO wallet.players (login, balance, password, ledger_version) VALUES (?, ?, ?, ?)"
+          + " ON CONFLICT (login) DO UPDATE SET balance = EXCLUDED.balance,"
+          + " password = EXCLUDED.password, ledger_version = EXCLUDED.ledger_version";
+  private static final String SELECT_TRANSACTIONS_SQL =
+      "SELECT COALESCE(p.login, t.player_login) AS player_login, t.transaction_id, t.type_code,"
+          + " t.type, t.amount, t.created_at, t.transfer_id FROM wallet.transactions t"
+          + " LEFT JOIN wallet.players p ON p.id = t.player_id";
+  private static final String SELECT_PLAYER_TRANSACTIONS_SQL =
+      SELECT_TRANSACTIONS_SQL + " WHERE p.login = ANY (?) OR t.player_login = ANY (?)";
+  private static final String SELECT_TRANSACTION_IDS_SQL =
+      "SELECT t.transaction_id FROM wallet.transactions t"
+          + " LEFT JOIN wallet.players p ON p.id = t.player_id"
+          + " WHERE p.login = ANY (?) OR t.player_login = ANY (?)";
+  private static final String COUNT_TRANSACTIONS_SQL =
+      "SELECT COALESCE(p.login, t.player_login) AS player_login, COUNT(*) AS transactions"
+          + " FROM wallet.transactions t LEFT JOIN wallet.players p ON p.id = t.player_id"
+          + " WHERE p.login = ANY (?) OR t.player_login = ANY (?)"
+          + " GROUP BY COALESCE(p.login, t.player_login)";
+  private static final String INSERT_TRANSACTION_SQL =
+      "WITH player AS (SELECT id FROM wallet.players WHERE login = ?),"
+          + " transaction_key AS (INSERT INTO wallet.transaction_keys (transaction_id, created_at)"
+          + " SELECT ?, ? FROM player ON CONFLICT (transaction_id) DO NOTHING"
+          + " RETURNING transaction_id, created_at)"
+          + " INSERT INTO wallet.transactions (player_id, transaction_id, type_code, amount,"
+          + " created_at, transfer_id) SELECT player.id, transaction_key.transaction_id, ?, ?,"
+          + " transaction_key.created_at, ? FROM player, transaction_key";
+  private static final String DELETE_TRANSACTIONS_SQL =
+      "WITH moved AS (DELETE FROM wallet.transactions WHERE player_id IN"
+          + " (SELECT id FROM wallet.players WHERE login = ANY (?)) OR player_login = ANY (?)"
+          + " RETURNING transaction_id) DELETE FROM wallet.transaction_keys"
+          + " WHERE transaction_id IN (SELECT transaction_id FROM moved)";
+  private static final String DELETE_PLAYERS_SQL =
+      "DELETE FROM wallet.players WHERE login = ANY (?)";
+  private static final String TRY_LOCK_SQL = "SELECT pg_try_advisory_lock(?)";
+  private static final String UNLOCK_SQL = "SELECT pg_advisory_unlock(?)";
+
+  /** The advisory lock key held on shard 0 while a rebalance runs. */
+  private static final long REBALANCE_LOCK = 0x5348415244L;
+
+  /** Number of rows fetched or written per round trip while copying. */
+  private static final int BATCH_SIZE = 1_000;
+
+  private final ShardRouter shardRouter;
+
+  private final LongAdder movedPlayers = new LongAdder();
+  private final LongAdder movedTransactions = new LongAdder();
+  private final LongAdder movedRanges = new LongAdder();
+
+  /**
+   * Returns the number of hash ranges owned by every shard and the number of ranges that are not on
+   * their home shard.
+   *
+   * @return The current distribution of hash ranges.
+   */
+  @ReadOperation
+  public Map<String, Object> status() {
+    Map<Long, Integer> tokens = shardRouter.getRing().tokens();
+    Map<Long, Integer> home = shardRouter.getHomeTokens();
+    Map<Integer, Long> ranges = new TreeMap<>();
+    tokens.values().forEach(shard -> ranges.merge(shard, 1L, Long::sum));
+    long misplaced =
+        home.entrySet().stream()
+            .filter(entry -> !entry.getValue().equals(tokens.get(entry.getKey())))
+            .count();
+
+    Map<String, Object> status = new LinkedHashMap<>();
+    status.put("shards", shardRouter.size());
+    status.put("ranges", ranges);
+    status.put("misplacedRanges", misplaced);
+    return status;
+  }
+
+  /**
+   * Moves a single hash range to the given shard, or, if no range is given, moves every range to
+   * its home shard on an evenly distributed ring. Ranges of newly added shards are first split off
+   * the ranges containing them.
+   *
+   * @param token The token of the range to move, or {@code null} to rebalance all ranges.
+   * @param target The index of the target shard; required when a token is given.
+   * @return A summary of the moved ranges and rows.
+   */
+  @WriteOperation
+  public synchronized Map<String, Object> rebalance(
+      @Nullable Long token, @Nullable Integer target) {
+    long start = System.currentTimeMillis();
+    Map<String, Object> summary = new LinkedHashMap<>();
+    long players = movedPlayers.sum();
+    long transactions = movedTransactions.sum();
+    long ranges = movedRanges.sum();
+    long frozenMillis;
+    if (token != null && (target == null || target < 0 || target >= shardRouter.size())) {
+      throw new IllegalArgumentException("A valid target shard is required.");
+    }
+    try (Connection connection = shardRouter.getShard(0).getConnection()) {
+      if (!advisoryLock(connection, TRY_LOCK_SQL)) {
+        throw new IllegalStateException("A rebalance is already running on another instance.");
+      }
+      try {
+        if (token != null) {
+          frozenMillis = move(token, target);
+        } else {
+          frozenMillis = 0;
+          for (Map.Entry<Long, Integer> home : shardRouter.getHomeTokens().entrySet()) {
+            if (shardRouter.getRing().ownerOf(home.getKey()) == null) {
+              shardRouter.split(home.getKey());
+            }
+            frozenMillis = Math.max(frozenMillis, move(home.getKey(), home.getValue()));
+          }
+        }
+      } finally {
+        advisoryLock(connection, UNLOCK_SQL);
+      }
+    } catch (SQLException e) {
+      throw new IllegalStateException("Could not lock the hash ring for a rebalance.", e);
+    }
+    summary.put("ranges", movedRanges.sum() - ranges);
+    summary.put("players", movedPlayers.sum() - players);
+    summary.put("transactions", movedTransactions.sum() - transactions);
+    summary.put("maxFrozenMillis", frozenMillis);
+    summary.put("totalMillis", System.currentTimeMillis() - start);
+    return summary;
+  }
+
+  /**
+   * Binds the number of moved ranges and rows to the given meter registry.
+   *
+   * @param registry The registry to bind the meters to.
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("wallet.shard.moved.ranges", movedRanges, LongAdder::sum)
+        .register(registry);
+    FunctionCounter.builder("wallet.shard.moved.rows", movedPlayers, LongAdder::sum)
+        .tag("table", "players")
+        .register(registry);
+    FunctionCounter.builder("wallet.shard.moved.rows", movedTransactions, LongAdder::sum)
+        .tag("table", "transactions")
+        .register(registry);
+  }
+
+  /**
+   * Moves a hash range to the target shard.
+   *
+   * @return The time writes to the range were frozen, in milliseconds.
+   */
+  private long move(long token, int target) {
+    Integer source = shardRouter.getRing().ownerOf(token);
+    if (source == null) {
+      throw new IllegalArgumentException("Unknown hash ring token: " + token);
+    }
+    if (source == target) {
+      return 0;
+    }
+    try (Connection from = shardRouter.getShard(source).getConnection();
+        Connection to = shardRouter.getShard(target).getConnection()) {
+      from.setAutoCommit(false);
+      to.setAutoCommit(false);
+      shardRouter.freeze(from, token, source);
+      long lastPlayerId = lastPlayerId(from);
+      from.commit();
+
+      Set<String> logins = new HashSet<>();
+      try (PreparedStatement select = from.prepareStatement(SELECT_PLAYERS_SQL)) {
+        copyPlayers(select, to, token, logins);
+      }
+      copyTransactions(from, to, token, logins);
+      from.commit();
+      to.commit();
+
+      long frozenAt = System.currentTimeMillis();
+      shardRouter.freeze(from, token, source);
+      try (PreparedStatement select = from.prepareStatement(SELECT_FROZEN_PLAYERS_SQL)) {
+        select.setLong(1, lastPlayerId);
+        select.setArray(2, from.createArrayOf("varchar", logins.toArray()));
+        copyPlayers(select, to, token, logins);
+      }
+      copyMissingTransactions(from, to, logins);
+      to.commit();
+      verifyCounts(from, to, token, logins);
+      shardRouter.switchOwner(from, to, token, target);
+      from.commit();
+      long frozenMillis = System.currentTimeMillis() - frozenAt;
+      shardRouter.assign(token, target);
+
+      delete(from, logins);
+      movedRanges.increment();
+      return frozenMillis;
+    } catch (SQLException e) {
+      throw new IllegalStateException("Could not move hash range " + token + ".", e);
+    }
+  }
+
+  private static long lastPlayerId(Connection connection) throws SQLException {
+    try (PreparedStatement select = connection.prepareStatement(SELECT_LAST_PLAYER_ID_SQL);
+        ResultSet resultSet = select.executeQuery()) {
+      resultSet.next();
+      return resultSet.getLong(1);
+    }
+  }
+
+  /**
+   * Copies the selected players of the range to the target shard. The transactions of both shards
+   * are left open.
+   */
+  private void copyPlayers(PreparedStatement select, Connection to, long token, Set<String> logins)
+      throws SQLException {
+    try (PreparedStatement upsert = to.prepareStatement(UPSERT_PLAYER_SQL)) {
+      select.setFetchSize(BATCH_SIZE);
+      int batched = 0;
+      try (ResultSet resultSet = select.executeQuery()) {
+        while (resultSet.next()) {
+          String login = resultSet.getString("login");
+          if (!isInRange(token, login)) {
+            continue;
+          }
+          upsert.setString(1, login);
+          upsert.setBigDecimal(2, resultSet.getBigDecimal("balance"));
+          upsert.setString(3, resultSet.getString("password"));
+          upsert.setLong(4, resultSet.getLong("ledger_version"));
+          upsert.addBatch();
+          if (logins.add(login)) {
+            movedPlayers.increment();
+          }
+          if (++batched % BATCH_SIZE == 0) {
+            upsert.executeBatch();
+          }
+        }
+      }
+      upsert.executeBatch();
+    }
+  }
+
+  private void copyTransactions(Connection from, Connection to, long token, Set<String> logins)
+      throws SQLException {
+    try (PreparedStatement select = from.prepareStatement(SELECT_TRANSACTIONS_SQL);
+        PreparedStatement insert = to.prepareStatement(INSERT_TRANSACTION_SQL)) {
+      select.setFetchSize(BATCH_SIZE);
+      try (ResultSet resultSet = select.executeQuery()) {
+        insertTransactions(resultSet, insert, token, Set.of(), logins);
+      }
+    }
+  }
+
+  /**
+   * Copies the transactions of the moved players that are not yet present on the target shard.
+   * Rows are compared by transaction ID rather than by key, since a row with a lower key may commit
+   * on the source after the bulk copy has passed it.
+   */
+  private void copyMissingTransactions(Connection from, Connection to, Set<String> logins)
+      throws SQLException {
+    if (logins.isEmpty()) {
+      return;
+    }
+    Set<String> present = new HashSet<>();
+    try (PreparedStatement select = to.prepareStatement(SELECT_TRANSACTION_IDS_SQL)) {
+      setLogins(to, select, logins);
+      select.setFetchSize(BATCH_SIZE);
+      try (ResultSet resultSet = select.executeQuery()) {
+        while (resultSet.next()) {
+          present.add(resultSet.getString("transaction_id"));
+        }
+      }
+    }
+    try (PreparedStatement select = from.prepareStatement(SELECT_PLAYER_TRANSACTIONS_SQL);
+        PreparedStatement insert = to.prepareStatement(INSERT_TRANSACTION_SQL)) {
+      setLogins(from, select, logins);
+      select.setFetchSize(BATCH_SIZE);
+      try (ResultSet resultSet = select.executeQuery()) {
+        insertTransactions(resultSet, insert, null, present, logins);
+      }
+    }
+  }
+
+  /**
+   * Inserts the selected transactions into the target shard, skipping those outside the range, if
+   * a range is given, and those already present.
+   */
+  private void insertTransactions(
+      ResultSet resultSet,
+      PreparedStatement insert,
+      @Nullable Long token,
+      Set<String> present,
+      Set<String> logins)
+      throws SQLException {
+    int batched = 0;
+    while (resultSet.next()) {
+      String login = resultSet.getString("player_login");
+      String transactionId = resultSet.getString("transaction_id");
+      if ((token != null && !isInRange(token, login)) || present.contains(transactionId)) {
+        continue;
+      }
+      short typeCode = resultSet.getShort("type_code");
+      if (resultSet.wasNull()) {
+        typeCode = TransactionType.valueOf(resultSet.getString("type")).getCode();
+      }
+      insert.setString(1, login);
+      insert.setString(2, transactionId);
+      insert.setTimestamp(3, resultSet.getTimestamp("created_at"));
+      insert.setShort(4, typeCode);
+      insert.setBigDecimal(5, resultSet.getBigDecimal("amount"));
+      insert.setString(6, resultSet.getString("transfer_id"));
+      insert.addBatch();
+      logins.add(login);
+      movedTransactions.increment();
+      if (++batched % BATCH_SIZE == 0) {
+        insert.executeBatch();
+      }
+    }
+    insert.executeBatch();
+  }
+
+  /**
+   * Compares the number of transactions of every moved player on both shards, so the source rows
+   * are only deleted once every one of them is present on the target.
+   */
+  private void verifyCounts(Connection from, Connection to, long token, Set<String> logins)
+      throws SQLException {
+    Map<String, Long> source = countTransactions(from, logins);
+    Map<String, Long> target = countTransactions(to, logins);
+    if (!source.equals(target)) {
+      Set<String> differing = new TreeSet<>(source.keySet());
+      differing.addAll(target.keySet());
+      differing.removeIf(login -> Objects.equals(source.get(login), target.get(login)));
+      throw new IllegalStateException(
+          "Hash range "
+              + token
+              + " was not moved, the transaction counts differ for players "
+              + differing
+              + ".");
+    }
+  }
+
+  private Map<String, Long> countTransactions(Connection connection, Set<String> logins)
+      throws SQLException {
+    Map<String, Long> counts = new HashMap<>();
+    if (logins.isEmpty()) {
+      return counts;
+    }
+    try (PreparedStatement select = connection.prepareStatement(COUNT_TRANSACTIONS_SQL)) {
+      setLogins(connection, select, logins);
+      try (ResultSet resultSet = select.executeQuery()) {
+        while (resultSet.next()) {
+          counts.put(resultSet.getString("player_login"), resultSet.getLong("transactions"));
+        }
+      }
+    }
+    return counts;
+  }
+
+  private static void setLogins(
+      Connection connection, PreparedStatement statement, Set<String> logins) throws SQLException {
+    Array array = connection.createArrayOf("varchar", logins.toArray());
+    statement.setArray(1, array);
+    statement.setArray(2, array);
+  }
+
+  private static boolean advisoryLock(Connection connection, String sql) throws SQLException {
+    try (PreparedStatement statement = connection.prepareStatement(sql)) {
+      statement.setLong(1, REBALANCE_LOCK);
+      try (ResultSet resultSet = statement.executeQuery()) {
+        return resultSet.next() && resultSet.getBoolean(1);
+      }
+    }
+  }
+
+  private void delete(Connection from, Set<String> logins) throws SQLException {
+    if (logins.isEmpty()) {
+      return;
+    }
+    try (PreparedStatement transactions = from.prepareStatement(DELETE_TRANSACTIONS_SQL);
+        PreparedStatement players = from.prepareStatement(DELETE_PLAYERS_SQL)) {
+      setLogins(from, transactions, logins);
+      transactions.executeUpdate();
+      players.setArray(1, from.createArrayOf("varchar", logins.toArray()));
+      players.executeUpdate();
+    }
+    from.commit();
+  }
+
+  private boolean isInRange(long token, String login) {
+    return shardRouter.getRing().tokenOf(HashRing.hash(login)) == token;
+  }
+}
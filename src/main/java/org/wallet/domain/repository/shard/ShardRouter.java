@@ -0,0 +1,473 @@
+package org.wallet.domain.repository.shard;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+import org.wallet.domain.repository.DatabaseConnection;
+import org.wallet.domain.repository.LiquibaseManager;
+import org.wallet.exception.RangeMovedException;
+import org.wallet.utils.WalletProperties;
+
+/**
+ * The {@code ShardRouter} class maps player logins to database shards using a consistent {@link
+ * HashRing}. Shard 0 is the primary datasource; further shards are listed in the {@code
+ * spring.datasource.shard-urls} setting. The ownership of every hash range is stored in
+ * {@code wallet.shard_ranges} on every shard, so ranges moved by the {@link ShardRebalancer} stay
+ * where they were moved across restarts. Shard 0 holds the ownership routers load at startup. A
+ * new ring starts with every range on shard 0, where the existing data lives, and is spread over
+ * the other shards by the rebalancer.
+ *
+ * <p>Every write transaction on a shard first locks the rows of its hash ranges in the {@code
+ * shard_ranges} table of that shard with {@code FOR SHARE} and is rejected if the shard no longer
+ * owns one of them. The rebalancer locks the row of the moved range with {@code FOR UPDATE}, which
+ * waits for the running writes and blocks new ones of every instance, and switches the owner
+ * before releasing it. A rejected write reloads the ownership and is retried on the new owner, so
+ * instances that missed a move catch up on their first write to the moved range. Reads are routed
+ * by the ownership the instance knows and may miss a range moved by another instance until then.
+ * Cross-shard reads are executed on all shards in parallel.
+ */
+@Component
+@DependsOn("liquibaseManager")
+public class ShardRouter implements MeterBinder {
+
+  /** The comma-separated JDBC URLs of the shards after the primary one. */
+  private static String SHARD_URLS;
+
+  /** The number of tokens every shard owns on a freshly created ring. */
+  private static final int VIRTUAL_NODES = 64;
+
+  private static final String SELECT_RANGES_SQL = "SELECT token, shard FROM wallet.shard_ranges";
+  private static final String UPSERT_RANGE_SQL =
+      "INSERT INTO wallet.shard_ranges (token, shard) VALUES (?, ?)"
+          + " ON CONFLICT (token) DO UPDATE SET shard = EXCLUDED.shard";
+  private static final String INSERT_RANGE_SQL =
+      "INSERT INTO wallet.shard_ranges (token, shard) VALUES (?, ?)"
+          + " ON CONFLICT (token) DO NOTHING";
+
+  /** The range containing a hash: the first token at or after it, wrapping around the ring. */
+  private static final String SELECT_CONTAINING_RANGE_SQL =
+      "SELECT token, shard FROM wallet.shard_ranges ORDER BY token < ?, token LIMIT 1";
+  private static final String SHARE_CONTAINING_RANGE_SQL =
+      SELECT_CONTAINING_RANGE_SQL + " FOR SHARE";
+  private static final String LOCK_CONTAINING_RANGE_SQL =
+      SELECT_CONTAINING_RANGE_SQL + " FOR UPDATE";
+  private static final String LOCK_RANGE_SQL =
+      "SELECT shard FROM wallet.shard_ranges WHERE token = ? FOR UPDATE";
+
+  static {
+    SHARD_URLS = WalletProperties.get(WalletProperties.Datasource.class).shardUrls();
+  }
+
+  private final List<DatabaseConnection> shards;
+  private final ExecutorService executor;
+  private volatile HashRing ring;
+
+  /**
+   * Creates a router over the primary datasource and the shards from the application
+   * configuration.
+   *
+   * @param primary The connection to shard 0.
+   */
+  @Autowired
+  public ShardRouter(DatabaseConnection primary) {
+    this(withConfiguredShards(primary));
+  }
+
+  /**
+   * Creates a router over the given shards. Shard 0 stores the ownership of the hash ranges.
+   *
+   * @param shards The connections to every shard.
+   */
+  public ShardRouter(List<DatabaseConnection> shards) {
+    this.shards = List.copyOf(shards);
+    this.executor =
+        Executors.newFixedThreadPool(
+            Math.max(2, shards.size()),
+            runnable -> {
+              Thread thread = new Thread(runnable, "shard-scatter");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /**
+   * Migrates the additional shards, loads the ownership of the hash ranges and installs the range
+   * fence on every shard. On first start the tokens of every shard are created and assigned to
+   * shard 0. Shards missing ranges, such as newly added ones, receive the ownership of shard 0.
+   */
+  @PostConstruct
+  public void init() {
+    for (int i = 1; i < shards.size(); i++) {
+      new LiquibaseManager(shards.get(i)).migrate();
+    }
+    Map<Long, Integer> owners = loadRanges();
+    if (owners.isEmpty()) {
+      getHomeTokens().keySet().forEach(token -> owners.put(token, 0));
+    } else if (owners.values().stream().anyMatch(shard -> shard >= shards.size())) {
+      throw new IllegalStateException(
+          "Hash ranges are assigned to shards that are not configured.");
+    }
+    for (int i = 0; i < shards.size(); i++) {
+      saveRanges(i, owners, INSERT_RANGE_SQL);
+    }
+    ring = new HashRing(loadRanges());
+    if (shards.size() > 1) {
+      for (int i = 0; i < shards.size(); i++) {
+        int shard = i;
+        shards.get(i).setRangeFence((connection, logins) -> lockRanges(connection, shard, logins));
+      }
+    }
+  }
+
+  /** Stops the threads executing cross-shard reads. */
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  /**
+   * Returns the number of shards.
+   *
+   * @return The number of configured shards.
+   */
+  public int size() {
+    return shards.size();
+  }
+
+  /**
+   * Returns the connection to a shard.
+   *
+   * @param shard The index of the shard.
+   * @return The connection to the shard.
+   */
+  public DatabaseConnection getShard(int shard) {
+    return shards.get(shard);
+  }
+
+  /**
+   * Returns the shard owning the given login.
+   *
+   * @param login The player's login.
+   * @return The index of the shard.
+   */
+  public int shardOf(String login) {
+    return ring.shardOf(login);
+  }
+
+  /**
+   * Returns the hash ring used for routing.
+   *
+   * @return The hash ring.
+   */
+  public HashRing getRing() {
+    return ring;
+  }
+
+  /**
+   * Returns the tokens every shard would own on an evenly distributed ring with the configured
+   * number of shards.
+   *
+   * @return The home shard of every token.
+   */
+  public Map<Long, Integer> getHomeTokens() {
+    return HashRing.create(shards.size(), VIRTUAL_NODES).tokens();
+  }
+
+  /**
+   * Executes a write on the shard owning the login. The write transaction locks the hash range of
+   * the login on the shard; if the range has been moved away, the ownership is reloaded and the
+   * write is retried on the new owner.
+   *
+   * @param login The login of the player the write belongs to.
+   * @param write The write, receiving the index of the owning shard.
+   */
+  public void write(String login, IntConsumer write) {
+    while (true) {
+      try {
+        write.accept(ring.shardOf(login));
+        return;
+      } catch (RangeMovedException e) {
+        reload(e);
+      }
+    }
+  }
+
+  /**
+   * Executes a write covering several logins of one shard. Logins whose range is not owned by the
+   * shard are left out of the write. If a range is moved away before the write transaction locks
+   * it, the ownership is reloaded and the write is retried without its logins.
+   *
+   * @param shard The index of the shard written to.
+   * @param logins The logins of the players the write belongs to.
+   * @param write The write, receiving the logins owned by the shard.
+   */
+  public void write(int shard, Collection<String> logins, Consumer<Set<String>> write) {
+    while (true) {
+      HashRing current = ring;
+      Set<String> owned = new HashSet<>();
+      logins.forEach(
+          login -> {
+            if (current.shardOf(login) == shard) {
+              owned.add(login);
+            }
+          });
+      try {
+        write.accept(owned);
+        return;
+      } catch (RangeMovedException e) {
+        reload(e);
+      }
+    }
+  }
+
+  /**
+   * Executes a query on every shard in parallel.
+   *
+   * @param query The query, receiving the index of the shard.
+   * @param <T> The type of the query result.
+   * @return The results of all shards, in shard order.
+   */
+  public <T> List<T> scatter(IntFunction<T> query) {
+    if (shards.size() == 1) {
+      return List.of(query.apply(0));
+    }
+    List<CompletableFuture<T>> futures = new ArrayList<>();
+    for (int i = 0; i < shards.size(); i++) {
+      int shard = i;
+      futures.add(CompletableFuture.supplyAsync(() -> query.apply(shard), executor));
+    }
+    try {
+      return futures.stream().map(CompletableFuture::join).toList();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Freezes writes to the range of a token on its owning shard until the transaction of the given
+   * connection ends. Running writes to the range are waited for.
+   *
+   * @param connection A connection to the owning shard with auto-commit disabled.
+   * @param token The token of the range.
+   * @param shard The index of the shard expected to own the range.
+   * @throws SQLException if a database access error occurs.
+   * @throws IllegalStateException if the shard does not own the range.
+   */
+  void freeze(Connection connection, long token, int shard) throws SQLException {
+    try (PreparedStatement preparedStatement = connection.prepareStatement(LOCK_RANGE_SQL)) {
+      preparedStatement.setLong(1, token);
+      try (ResultSet resultSet = preparedStatement.executeQuery()) {
+        if (!resultSet.next() || resultSet.getInt("shard") != shard) {
+          throw new IllegalStateException(
+              "Hash range " + token + " is not owned by shard " + shard + ".");
+        }
+      }
+    }
+  }
+
+  /**
+   * Switches the owner of a frozen range. The target shard is committed first and accepts writes to
+   * the range from then on; the source shard is changed in the frozen transaction, so its writes
+   * stay blocked until the caller commits it and are then rejected.
+   *
+   * @param source The connection holding the freeze of the range on the source shard.
+   * @param target A connection to the target shard with auto-commit disabled.
+   * @param token The token of the range.
+   * @param shard The index of the target shard.
+   * @throws SQLException if a database access error occurs.
+   */
+  void switchOwner(Connection source, Connection target, long token, int shard)
+      throws SQLException {
+    setOwner(target, token, shard);
+    target.commit();
+    setOwner(source, token, shard);
+  }
+
+  /**
+   * Records the new owner of a moved range on every shard and in the ring of this router.
+   *
+   * @param token The token of the range.
+   * @param shard The index of the new owner.
+   */
+  void assign(long token, int shard) {
+    for (int i = 0; i < shards.size(); i++) {
+      saveRanges(i, Map.of(token, shard), UPSERT_RANGE_SQL);
+    }
+    ring.assign(token, shard);
+  }
+
+  /**
+   * Adds a token to the ring without moving any data and persists it on every shard. On each shard
+   * the range containing the token is locked while the token is added, so writes that located the
+   * range before the split end before it.
+   *
+   * @param token The token to add.
+   */
+  void split(long token) {
+    for (DatabaseConnection shard : shards) {
+      try (Connection connection = shard.getConnection()) {
+        connection.setAutoCommit(false);
+        int owner;
+        try (PreparedStatement preparedStatement =
+            connection.prepareStatement(LOCK_CONTAINING_RANGE_SQL)) {
+          preparedStatement.setLong(1, token);
+          try (ResultSet resultSet = preparedStatement.executeQuery()) {
+            resultSet.next();
+            owner = resultSet.getInt("shard");
+          }
+        }
+        try (PreparedStatement preparedStatement =
+            connection.prepareStatement(INSERT_RANGE_SQL)) {
+          preparedStatement.setLong(1, token);
+          preparedStatement.setInt(2, owner);
+          preparedStatement.executeUpdate();
+        }
+        connection.commit();
+      } catch (SQLException e) {
+        throw new IllegalStateException("Could not split hash range at " + token + ".", e);
+      }
+    }
+    ring.split(token);
+  }
+
+  /**
+   * Binds the number of hash ranges owned by every shard to the given meter registry.
+   *
+   * @param registry The registry to bind the meters to.
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    for (int i = 0; i < shards.size(); i++) {
+      int shard = i;
+      Gauge.builder(
+              "wallet.shard.ranges",
+              this,
+              router ->
+                  router.ring.tokens().values().stream().filter(owner -> owner == shard).count())
+          .tag("shard", String.valueOf(shard))
+          .register(registry);
+    }
+  }
+
+  private Map<Long, Integer> loadRanges() {
+    Map<Long, Integer> owners = new HashMap<>();
+    try (Connection connection = shards.get(0).getConnection();
+        PreparedStatement preparedStatement = connection.prepareStatement(SELECT_RANGES_SQL);
+        ResultSet resultSet = preparedStatement.executeQuery()) {
+      while (resultSet.next()) {
+        owners.put(resultSet.getLong("token"), resultSet.getInt("shard"));
+      }
+    } catch (SQLException e) {
+      throw new IllegalStateException("Could not load the owners of the hash ranges.", e);
+    }
+    return owners;
+  }
+
+  /**
+   * Locks the hash ranges of the given logins on a shard for the rest of the transaction of the
+   * connection. A split committed while waiting for a lock is only visible to a later statement, so
+   * the range is looked up again once it is locked.
+   *
+   * @throws RangeMovedException if the shard does not own one of the ranges.
+   */
+  private static void lockRanges(Connection connection, int shard, Collection<String> logins)
+      throws SQLException {
+    long[] hashes = logins.stream().mapToLong(HashRing::hash).sorted().distinct().toArray();
+    try (PreparedStatement lock = connection.prepareStatement(SHARE_CONTAINING_RANGE_SQL);
+        PreparedStatement select = connection.prepareStatement(SELECT_CONTAINING_RANGE_SQL)) {
+      for (long hash : hashes) {
+        long token;
+        lock.setLong(1, hash);
+        try (ResultSet resultSet = lock.executeQuery()) {
+          if (!resultSet.next()) {
+            throw new IllegalStateException("Shard " + shard + " has no hash ranges.");
+          }
+          token = resultSet.getLong("token");
+          if (resultSet.getInt("shard") != shard) {
+            throw new RangeMovedException(token, resultSet.getInt("shard"));
+          }
+        }
+        select.setLong(1, hash);
+        try (ResultSet resultSet = select.executeQuery()) {
+          resultSet.next();
+          if (resultSet.getLong("token") != token) {
+            throw new RangeMovedException(resultSet.getLong("token"), resultSet.getInt("shard"));
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Reloads the ownership of the ranges from shard 0 after a write was rejected, keeping the owner
+   * reported by the rejecting shard, which is switched before shard 0 during a move.
+   */
+  private void reload(RangeMovedException e) {
+    HashRing reloaded = new HashRing(loadRanges());
+    reloaded.split(e.getToken());
+    reloaded.assign(e.getToken(), e.getOwner());
+    ring = reloaded;
+  }
+
+  private static void setOwner(Connection connection, long token, int shard) throws SQLException {
+    try (PreparedStatement preparedStatement = connection.prepareStatement(UPSERT_RANGE_SQL)) {
+      preparedStatement.setLong(1, token);
+      preparedStatement.setInt(2, shard);
+      preparedStatement.executeUpdate();
+    }
+  }
+
+  private void saveRanges(int shard, Map<Long, Integer> owners, String sql) {
+    try (Connection connection = shards.get(shard).getConnection();
+        PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+      for (Map.Entry<Long, Integer> owner : owners.entrySet()) {
+        preparedStatement.setLong(1, owner.getKey());
+        preparedStatement.setInt(2, owner.getValue());
+        preparedStatement.addBatch();
+      }
+      preparedStatement.executeBatch();
+    } catch (SQLException e) {
+      throw new IllegalStateException("Could not save the owner of a hash range.", e);
+    }
+  }
+
+  private static List<DatabaseConnection> withConfiguredShards(DatabaseConnection primary) {
+    List<DatabaseConnection> shards = new ArrayList<>();
+    shards.add(primary);
+    if (SHARD_URLS != null && !SHARD_URLS.isBlank()) {
+      Arrays.stream(SHARD_URLS.split(","))
+          .map(String::trim)
+          .filter(url -> !url.isEmpty())
+          .map(DatabaseConnection::new)
+          .forEach(shards::add);
+    }
+    return shards;
+  }
+}
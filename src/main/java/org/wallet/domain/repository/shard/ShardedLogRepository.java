@@ -0,0 +1,124 @@
+package org.wallet.domain.repository.shard;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import org.wallet.domain.model.Log;
+import org.wallet.domain.model.LogEntry;
+import org.wallet.domain.repository.log.JdbcLogRepository;
+import org.wallet.domain.repository.log.LogQuery;
+import org.wallet.domain.repository.log.LogRepository;
+
+/**
+ * The {@code ShardedLogRepository} class is a {@link LogRepository} that writes every audit entry
+ * to the shard of its user and reads the audit log by gathering all shards in parallel and merging
+ * the entries by timestamp. Audit entries are append-only and stay on the shard they were written
+ * to, so they are not moved when a hash range changes owner. It is the audit store unless
+ * {@code audit.store} selects another one.
+ *
+ * <p>The IDs of the entries of every shard are drawn from the log ID sequence of shard 0, so they
+ * are unique across shards and the entries added after a given one can be read from all shards.
+ */
+@Primary
+@Repository
+@ConditionalOnProperty(name = "audit.store", havingValue = "jdbc", matchIfMissing = true)
+public class ShardedLogRepository implements LogRepository {
+
+  private final ShardRouter shardRouter;
+  private final List<JdbcLogRepository> shards = new ArrayList<>();
+
+  /**
+   * Creates a repository with one {@link JdbcLogRepository} per shard.
+   *
+   * @param shardRouter The router mapping logins to shards.
+   */
+  public ShardedLogRepository(ShardRouter shardRouter) {
+    this.shardRouter = shardRouter;
+    for (int i = 0; i < shardRouter.size(); i++) {
+      shards.add(new JdbcLogRepository(shardRouter.getShard(i)));
+    }
+  }
+
+  /**
+   * Retrieves the log entries of every shard, ordered by timestamp.
+   *
+   * @return A list of log entries.
+   */
+  @Override
+  public List<Log> getLogs() {
+    List<Log> logs = new ArrayList<>();
+    shardRouter.scatter(shard -> shards.get(shard).getLogs()).forEach(logs::addAll);
+    logs.sort(Comparator.comparing(Log::getTimestamp));
+    return logs;
+  }
+
+  /**
+   * Retrieves the log entries of a time range from every shard, ordered by timestamp.
+   *
+   * @param from The start of the range, inclusive.
+   * @param to The end of the range, exclusive.
+   * @return A list of log entries.
+   */
+  @Override
+  public List<Log> getLogs(LocalDateTime from, LocalDateTime to) {
+    List<Log> logs = new ArrayList<>();
+    shardRouter.scatter(shard -> shards.get(shard).getLogs(from, to)).forEach(logs::addAll);
+    logs.sort(Comparator.comparing(Log::getTimestamp));
+    return logs;
+  }
+
+  /**
+   * Retrieves a filtered page of log entries. Every shard returns the newest entries of the page
+   * window, which are merged by timestamp before the page is cut.
+   *
+   * @param query The filter and page to retrieve.
+   * @return A list of log entries, newest first.
+   */
+  @Override
+  public List<Log> getLogs(LogQuery query) {
+    LogQuery window =
+        new LogQuery(query.from(), query.to(), query.username(), 0, query.window());
+    List<Log> logs = new ArrayList<>();
+    shardRouter.scatter(shard -> shards.get(shard).getLogs(window)).forEach(logs::addAll);
+    logs.sort(Comparator.comparing(Log::getTimestamp).reversed());
+    return query.page(logs);
+  }
+
+  /**
+   * Retrieves the latest log entries after the given ID from every shard, ordered by ID.
+   *
+   * @param id The ID of the last entry already seen.
+   * @param limit The maximum number of entries to return.
+   * @return A list of log entries ordered by ID.
+   */
+  @Override
+  public List<LogEntry> getLogsAfter(long id, int limit) {
+    List<LogEntry> entries = new ArrayList<>();
+    shardRouter
+        .scatter(shard -> shards.get(shard).getLogsAfter(id, limit))
+        .forEach(entries::addAll);
+    entries.sort(Comparator.comparingLong(LogEntry::id));
+    return new ArrayList<>(entries.subList(Math.max(entries.size() - limit, 0), entries.size()));
+  }
+
+  /**
+   * Adds a log entry to the shard of its user. Entries without a user go to shard 0. An entry of
+   * another shard takes its ID from the sequence of shard 0 first.
+   *
+   * @param log The log entry to be added.
+   * @return The ID of the entry, or -1 if it could not be stored.
+   */
+  @Override
+  public long addLog(Log log) {
+    int shard = log.getUsername() == null ? 0 : shardRouter.shardOf(log.getUsername());
+    if (shard == 0) {
+      return shards.get(0).addLog(log);
+    }
+    long id = shards.get(0).nextId();
+    return id < 0 ? -1 : shards.get(shard).addLog(id, log);
+  }
+}
@@ -0,0 +1,154 @@
+package org.wallet.domain.repository.shard;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import org.wallet.domain.model.Player;
+import org.wallet.domain.repository.player.JdbcPlayerRepository;
+import org.wallet.domain.repository.player.PlayerRepository;
+
+/**
+ * The {@code ShardedPlayerRepository} class is a {@link PlayerRepository} that stores every player
+ * on the shard owning its login. Reads of all players are gathered from every shard in parallel;
+ * rows found on a shard that does not own them, such as copies left by an unfinished range move,
+ * are skipped.
+ */
+@Primary
+@Repository
+public class ShardedPlayerRepository implements PlayerRepository {
+
+  private final ShardRouter shardRouter;
+  private final List<JdbcPlayerRepository> shards = new ArrayList<>();
+
+  /**
+   * Creates a repository with one {@link JdbcPlayerRepository} per shard.
+   *
+   * @param shardRouter The router mapping logins to shards.
+   */
+  public ShardedPlayerRepository(ShardRouter shardRouter) {
+    this.shardRouter = shardRouter;
+    for (int i = 0; i < shardRouter.size(); i++) {
+      shards.add(new JdbcPlayerRepository(shardRouter.getShard(i)));
+    }
+  }
+
+  /**
+   * Retrieves all players from every shard.
+   *
+   * @return A list of players.
+   */
+  @Override
+  public List<Player> getPlayers() {
+    List<Player> players = new ArrayList<>();
+    List<List<Player>> results = shardRouter.scatter(shard -> owned(shard, shards.get(shard)));
+    results.forEach(players::addAll);
+    return players;
+  }
+
+  /**
+   * Retrieves a player from the shard owning the login.
+   *
+   * @param login The login of the player to retrieve.
+   * @return An optional containing the retrieved player, or an empty optional if not found.
+   */
+  @Override
+  public Optional<Player> getPlayerByLogin(String login) {
+    return shard(login).getPlayerByLogin(login);
+  }
+
+  /**
+   * Retrieves a player for display purposes from the shard owning the login.
+   *
+   * @param login The login of the player to retrieve.
+   * @return An optional containing the retrieved player, or an empty optional if not found.
+   */
+  @Override
+  public Optional<Player> getPlayerSnapshotByLogin(String login) {
+    return shard(login).getPlayerSnapshotByLogin(login);
+  }
+
+  /**
+   * Retrieves the ledger version of a player from the shard owning the login.
+   *
+   * @param login The login of the player.
+   * @return The ledger version, or an empty optional if the player is not found.
+   */
+  @Override
+  public OptionalLong getLedgerVersion(String login) {
+    return shard(login).getLedgerVersion(login);
+  }
+
+  /**
+   * Adds a new player to the shard owning the login.
+   *
+   * @param player The player to be added.
+   */
+  @Override
+  public void addPlayer(Player player) {
+    shardRouter.write(player.getLogin(), shard -> shards.get(shard).addPlayer(player));
+  }
+
+  /**
+   * Updates the balance of a player on the shard owning the login.
+   *
+   * @param player The player whose balance needs to be updated.
+   */
+  @Override
+  public void updatePlayerBalance(Player player) {
+    shardRouter.write(player.getLogin(), shard -> shards.get(shard).updatePlayerBalance(player));
+  }
+
+  /**
+   * Checks whether a player exists on the shard owning the login.
+   *
+   * @param login The login of the player to check for existence.
+   * @return `true` if the player exists; otherwise, `false`.
+   */
+  @Override
+  public boolean isPlayerExist(String login) {
+    return shard(login).isPlayerExist(login);
+  }
+
+  /**
+   * Streams the logins of the players owned by every shard and stored after its position, one
+   * shard after another.
+   *
+   * @param lastPlayerIds The largest player key already streamed from every shard, or {@code null}
+   *     to stream every player.
+   * @param consumer The consumer receiving every login.
+   * @return The largest player key streamed from every shard.
+   */
+  @Override
+  public long[] forEachLoginAfter(long[] lastPlayerIds, Consumer<String> consumer) {
+    long[] positions = new long[shards.size()];
+    for (int i = 0; i < shards.size(); i++) {
+      int shard = i;
+      long[] after = lastPlayerIds == null ? null : new long[] {lastPlayerIds[shard]};
+      positions[shard] =
+          shards
+              .get(shard)
+              .forEachLoginAfter(
+                  after,
+                  login -> {
+                    if (shardRouter.shardOf(login) == shard) {
+                      consumer.accept(login);
+                    }
+                  })[0];
+    }
+    return positions;
+  }
+
+  private PlayerRepository shard(String login) {
+    return shards.get(shardRouter.shardOf(login));
+  }
+
+  private List<Player> owned(int shard, PlayerRepository repository) {
+    return repository.getPlayers().stream()
+        .filter(player -> shardRouter.shardOf(player.getLogin()) == shard)
+        .toList();
+  }
+}
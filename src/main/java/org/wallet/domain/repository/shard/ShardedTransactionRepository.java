@@ -0,0 +1,226 @@
+package org.wallet.domain.repository.shard;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import org.wallet.domain.model.Ledger;
+import org.wallet.domain.model.LedgerBalance;
+import org.wallet.domain.model.LedgerPage;
+import org.wallet.domain.model.Transaction;
+import org.wallet.domain.model.Transfer;
+import org.wallet.domain.repository.transaction.JdbcTransactionRepository;
+import org.wallet.domain.repository.transaction.TransactionRepository;
+import org.wallet.exception.CrossShardTransferException;
+
+/**
+ * The {@code ShardedTransactionRepository} class is a {@link TransactionRepository} that stores
+ * every transaction on the shard of its player, so a player's history is always read from a single
+ * shard. Lookups by transaction ID and reads of all transactions are gathered from every shard in
+ * parallel.
+ *
+ * <p>Transaction ID uniqueness is enforced per shard by the database. Reuse of an ID by players on
+ * different shards is caught by the {@link
+ * org.wallet.domain.repository.transaction.TransactionIdIndex} before the insert.
+ */
+@Primary
+@Repository
+public class ShardedTransactionRepository implements TransactionRepository {
+
+  private final ShardRouter shardRouter;
+  private final List<JdbcTransactionRepository> shards = new ArrayList<>();
+
+  /**
+   * Creates a repository with one {@link JdbcTransactionRepository} per shard.
+   *
+   * @param shardRouter The router mapping logins to shards.
+   */
+  public ShardedTransactionRepository(ShardRouter shardRouter) {
+    this.shardRouter = shardRouter;
+    for (int i = 0; i < shardRouter.size(); i++) {
+      shards.add(new JdbcTransactionRepository(shardRouter.getShard(i)));
+    }
+  }
+
+  /**
+   * Retrieves all transactions owned by every shard.
+   *
+   * @return A list of transactions.
+   */
+  @Override
+  public List<Transaction> getTransactions() {
+    List<Transaction> transactions = new ArrayList<>();
+    shardRouter
+        .scatter(
+            shard ->
+                shards.get(shard).getTransactions().stream()
+                    .filter(transaction -> isOwnedBy(shard, transaction))
+                    .toList())
+        .forEach(transactions::addAll);
+    return transactions;
+  }
+
+  /**
+   * Adds a transaction to the shard of its player.
+   *
+   * @param transaction The transaction to be added.
+   */
+  @Override
+  public void addTransaction(Transaction transaction) {
+    shardRouter.write(
+        transaction.playerLogin(), shard -> shards.get(shard).addTransaction(transaction));
+  }
+
+  /**
+   * Applies a transaction on the shard of its player, under the lock of the hash range of the
+   * player.
+   *
+   * @param transaction The transaction to apply.
+   * @return The balance and the ledger version of the player after the transaction.
+   */
+  @Override
+  public LedgerBalance applyTransaction(Transaction transaction) {
+    LedgerBalance[] balance = new LedgerBalance[1];
+    shardRouter.write(
+        transaction.playerLogin(),
+        shard -> balance[0] = shards.get(shard).applyTransaction(transaction));
+    return balance[0];
+  }
+
+  /**
+   * Applies a transfer on the shard owning both players, under the locks of both their hash ranges.
+   * Transfers between players on different shards cannot be applied in one database transaction
+   * and are rejected.
+   *
+   * @param transfer The transfer to apply.
+   * @return The balances and the ledger versions of the sender and the recipient after the
+   *     transfer, in this order.
+   * @throws CrossShardTransferException if the players are on different shards.
+   */
+  @Override
+  public List<LedgerBalance> transfer(Transfer transfer) {
+    List<String> logins = List.of(transfer.senderLogin(), transfer.recipientLogin());
+    while (true) {
+      int shard = shardRouter.shardOf(transfer.senderLogin());
+      if (shardRouter.shardOf(transfer.recipientLogin()) != shard) {
+        throw new CrossShardTransferException();
+      }
+      List<LedgerBalance> balances = new ArrayList<>(2);
+      shardRouter.write(
+          shard,
+          logins,
+          owned -> {
+            // A range of one of the players may have been moved while waiting for the locks.
+            if (owned.containsAll(logins)) {
+              balances.addAll(shards.get(shard).transfer(transfer));
+            }
+          });
+      if (!balances.isEmpty()) {
+        return balances;
+      }
+    }
+  }
+
+  /**
+   * Retrieves a transaction by its ID from whichever shard owns it.
+   *
+   * @param transactionId The ID of the transaction to retrieve.
+   * @return An optional containing the retrieved transaction, or an empty optional if not found.
+   */
+  @Override
+  public Optional<Transaction> getTransactionById(String transactionId) {
+    return shardRouter
+        .scatter(
+            shard ->
+                shards
+                    .get(shard)
+                    .getTransactionById(transactionId)
+                    .filter(transaction -> isOwnedBy(shard, transaction)))
+        .stream()
+        .flatMap(Optional::stream)
+        .findFirst();
+  }
+
+  /**
+   * Retrieves the transactions of a player from the shard of the player.
+   *
+   * @param playerLogin The login of the player.
+   * @return A list of transactions of the player.
+   */
+  @Override
+  public List<Transaction> getTransactionsByPlayerLogin(String playerLogin) {
+    return shards.get(shardRouter.shardOf(playerLogin)).getTransactionsByPlayerLogin(playerLogin);
+  }
+
+  /**
+   * Retrieves the ledger of a player from the shard of the player.
+   *
+   * @param playerLogin The login of the player.
+   * @return The ledger of the player.
+   */
+  @Override
+  public Ledger getLedgerByPlayerLogin(String playerLogin) {
+    return shards.get(shardRouter.shardOf(playerLogin)).getLedgerByPlayerLogin(playerLogin);
+  }
+
+  /**
+   * Retrieves a page of the ledger of a player from the shard of the player.
+   *
+   * @param playerLogin The login of the player.
+   * @param beforeId The row ID the transactions precede.
+   * @param limit The maximum number of transactions to return.
+   * @return The page of the ledger of the player.
+   */
+  @Override
+  public LedgerPage getLedgerPageByPlayerLogin(String playerLogin, long beforeId, int limit) {
+    return shards
+        .get(shardRouter.shardOf(playerLogin))
+        .getLedgerPageByPlayerLogin(playerLogin, beforeId, limit);
+  }
+
+  /**
+   * Returns which of the given transactions of a player are stored on the shard of the player.
+   *
+   * @param playerLogin The login of the player.
+   * @param transactionIds The IDs of the transactions to look up.
+   * @return The IDs of the given transactions found on the shard.
+   */
+  @Override
+  public Set<String> getStoredTransactionIds(String playerLogin, List<String> transactionIds) {
+    return shards
+        .get(shardRouter.shardOf(playerLogin))
+        .getStoredTransactionIds(playerLogin, transactionIds);
+  }
+
+  /**
+   * Checks whether a transaction with the given ID exists on any shard.
+   *
+   * @param transactionId The ID of the transaction to check.
+   * @return `true` if the transaction exists; otherwise, `false`.
+   */
+  @Override
+  public boolean isTransactionExist(String transactionId) {
+    return shardRouter
+        .scatter(shard -> shards.get(shard).isTransactionExist(transactionId))
+        .stream()
+        .anyMatch(Boolean::booleanValue);
+  }
+
+  /**
+   * Streams the transaction IDs of every shard, one shard after another. IDs of rows copied by an
+   * unfinished range move may be reported twice.
+   *
+   * @param consumer The consumer receiving every transaction ID.
+   */
+  @Override
+  public void forEachTransactionId(Consumer<String> consumer) {
+    shards.forEach(shard -> shard.forEachTransactionId(consumer));
+  }
+
+  private boolean isOwnedBy(int shard, Transaction transaction) {
+    return shardRouter.shardOf(transaction.playerLogin()) == shard;
+  }
+}
@@ -0,0 +1,484 @@
+package org.wallet.domain.repository.transaction;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import lombok.Getter;
+import org.wallet.domain.model.Transaction;
+import org.wallet.domain.model.TransactionType;
+
+/**
+ * The {@code ArchiveFile} class reads and writes the compressed columnar files holding archived
+ * transactions.
+ *
+ * <p>The rows of a file are sorted by player login and creation time and stored in row groups of up
+ * to {@value #ROWS_PER_GROUP} rows. Within a group every column is written separately, logins as
+ * runs and creation times as deltas, and the whole group is compressed with DEFLATE. A footer at
+ * the end of the file holds the minimum and maximum login and creation time of the file and a
+ * sparse index with the first and last login of every group, so reading the history of a player
+ * only decompresses the groups that may contain it.
+ */
+public final class ArchiveFile {
+
+  /** Number of rows stored in a single compressed row group. */
+  public static final int ROWS_PER_GROUP = 4_096;
+
+  /** The bytes {@code WTXA} identifying a transaction archive. */
+  private static final int MAGIC = 0x57545841;
+
+  private static final byte VERSION = 1;
+  private static final int HEADER_BYTES = Integer.BYTES + Byte.BYTES;
+
+  /** Size of the trailer holding the length of the footer and the magic number. */
+  private static final int TRAILER_BYTES = 2 * Integer.BYTES;
+
+  /** The location of the file. */
+  @Getter private final Path path;
+
+  /** The number of rows stored in the file. */
+  @Getter private final long rowCount;
+
+  /** The creation time of the oldest transaction in the file. */
+  @Getter private final LocalDateTime minCreatedAt;
+
+  /** The creation time of the newest transaction in the file. */
+  @Getter private final LocalDateTime maxCreatedAt;
+
+  /** The size of the file in bytes. */
+  @Getter private final long size;
+
+  private final String minLogin;
+  private final String maxLogin;
+  private final List<RowGroup> groups;
+
+  private ArchiveFile(
+      Path path,
+      long size,
+      long rowCount,
+      String minLogin,
+      String maxLogin,
+      LocalDateTime minCreatedAt,
+      LocalDateTime maxCreatedAt,
+      List<RowGroup> groups) {
+    this.path = path;
+    this.size = size;
+    this.rowCount = rowCount;
+    this.minLogin = minLogin;
+    this.maxLogin = maxLogin;
+    this.minCreatedAt = minCreatedAt;
+    this.maxCreatedAt = maxCreatedAt;
+    this.groups = groups;
+  }
+
+  /**
+   * Opens an archive file, reading only its footer.
+   *
+   * @param path The location of the file.
+   * @return The opened file.
+   * @throws IOException if the file cannot be read or is not a transaction archive.
+   */
+  public static ArchiveFile open(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < HEADER_BYTES + TRAILER_BYTES) {
+        throw new IOException("Not a transaction archive: " + path);
+      }
+      ByteBuffer header = read(channel, 0, HEADER_BYTES);
+      ByteBuffer trailer = read(channel, size - TRAILER_BYTES, TRAILER_BYTES);
+      int footerLength = trailer.getInt();
+      if (header.getInt() != MAGIC || header.get() != VERSION || trailer.getInt() != MAGIC) {
+        throw new IOException("Not a transaction archive: " + path);
+      }
+
+      ByteBuffer footerBytes = read(channel, size - TRAILER_BYTES - footerLength, footerLength);
+      DataInputStream footer =
+          new DataInputStream(new ByteArrayInputStream(footerBytes.array()));
+      long rowCount = footer.readLong();
+      String minLogin = footer.readUTF();
+      String maxLogin = footer.readUTF();
+      LocalDateTime minCreatedAt = fromMicros(footer.readLong());
+      LocalDateTime maxCreatedAt = fromMicros(footer.readLong());
+      int groupCount = footer.readInt();
+      List<RowGroup> groups = new ArrayList<>(groupCount);
+      for (int i = 0; i < groupCount; i++) {
+        groups.add(
+            new RowGroup(
+                footer.readLong(),
+                footer.readInt(),
+                footer.readInt(),
+                footer.readUTF(),
+                footer.readUTF()));
+      }
+      return new ArchiveFile(
+          path, size, rowCount, minLogin, maxLogin, minCreatedAt, maxCreatedAt, groups);
+    }
+  }
+
+  /**
+   * Creates a writer for a new archive file. Rows must be appended sorted by player login.
+   *
+   * @param path The location of the file, which must not exist yet.
+   * @return The writer.
+   * @throws IOException if the file cannot be created.
+   */
+  public static Writer create(Path path) throws IOException {
+    return new Writer(path);
+  }
+
+  /**
+   * Checks whether the file may contain transactions of the given player, based on the login range
+   * of the file.
+   *
+   * @param playerLogin The login of the player.
+   * @return {@code false} if the file certainly holds no transaction of the player.
+   */
+  public boolean mayContain(String playerLogin) {
+    return rowCount > 0
+        && minLogin.compareTo(playerLogin) <= 0
+        && maxLogin.compareTo(playerLogin) >= 0;
+  }
+
+  /**
+   * Reads the transactions of a player, decompressing only the row groups whose login range
+   * contains the player.
+   *
+   * @param playerLogin The login of the player.
+   * @return The transactions of the player, ordered by creation time.
+   * @throws IOException if the file cannot be read.
+   */
+  public List<ArchivedTransaction> read(String playerLogin) throws IOException {
+    List<ArchivedTransaction> transactions = new ArrayList<>();
+    if (!mayContain(playerLogin)) {
+      return transactions;
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      for (int i = firstGroupEndingAtOrAfter(playerLogin);
+          i < groups.size() && groups.get(i).firstLogin().compareTo(playerLogin) <= 0;
+          i++) {
+        readGroup(channel, groups.get(i), playerLogin, transactions::add);
+      }
+    }
+    return transactions;
+  }
+
+  /**
+   * Streams every transaction of the file to the given consumer, one row group at a time.
+   *
+   * @param consumer The consumer receiving the transactions in file order.
+   * @throws IOException if the file cannot be read.
+   */
+  public void forEach(Consumer<ArchivedTransaction> consumer) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      for (RowGroup group : groups) {
+        readGroup(channel, group, null, consumer);
+      }
+    }
+  }
+
+  /** Returns the index of the first row group whose last login is not before the given login. */
+  private int firstGroupEndingAtOrAfter(String playerLogin) {
+    int low = 0;
+    int high = groups.size();
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (groups.get(middle).lastLogin().compareTo(playerLogin) < 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Decompresses a row group and passes its rows to the consumer, or only the rows of the given
+   * player if a login is given. The rows of a player are contiguous, so values of the other rows
+   * are skipped instead of decoded.
+   */
+  private static void readGroup(
+      FileChannel channel,
+      RowGroup group,
+      String playerLogin,
+      Consumer<ArchivedTransaction> consumer)
+      throws IOException {
+    ByteBuffer bytes = read(channel, group.offset(), group.length());
+    DataInputStream in =
+        new DataInputStream(
+            new BufferedInputStream(
+                new InflaterInputStream(new ByteArrayInputStream(bytes.array()))));
+    int rows = group.rows();
+
+    String[] logins = new String[rows];
+    int first = playerLogin == null ? 0 : rows;
+    int end = playerLogin == null ? rows : 0;
+    for (int row = 0; row < rows; ) {
+      String login = in.readUTF();
+      int count = (int) readVarLong(in);
+      if (login.equals(playerLogin)) {
+        first = row;
+        end = row + count;
+      }
+      for (int i = 0; i < count; i++) {
+        logins[row++] = login;
+      }
+    }
+    if (first >= end) {
+      return;
+    }
+
+    String[] transactionIds = new String[rows];
+    for (int row = 0; row < rows; row++) {
+      if (row >= first && row < end) {
+        transactionIds[row] = in.readUTF();
+      } else {
+        in.skipNBytes(in.readUnsignedShort());
+      }
+    }
+    byte[] typeCodes = new byte[rows];
+    in.readFully(typeCodes);
+    BigDecimal[] amounts = new BigDecimal[rows];
+    for (int row = 0; row < rows; row++) {
+      int scale = (int) unzigzag(readVarLong(in));
+      int length = (int) readVarLong(in);
+      if (row >= first && row < end) {
+        byte[] unscaled = new byte[length];
+        in.readFully(unscaled);
+        amounts[row] = new BigDecimal(new BigInteger(unscaled), scale);
+      } else {
+        in.skipNBytes(length);
+      }
+    }
+    long createdAtMicros = 0;
+    for (int row = 0; row < end; row++) {
+      createdAtMicros += unzigzag(readVarLong(in));
+      if (row >= first) {
+        Transaction transaction =
+            new Transaction(
+                logins[row],
+                transactionIds[row],
+                TransactionType.fromCode(typeCodes[row]),
+                amounts[row]);
+        consumer.accept(new ArchivedTransaction(transaction, fromMicros(createdAtMicros)));
+      }
+    }
+  }
+
+  private static ByteBuffer read(FileChannel channel, long position, int length)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of transaction archive.");
+      }
+    }
+    return buffer.flip();
+  }
+
+  private static long toMicros(LocalDateTime dateTime) {
+    return dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + dateTime.getNano() / 1_000;
+  }
+
+  private static LocalDateTime fromMicros(long micros) {
+    return LocalDateTime.ofEpochSecond(
+        Math.floorDiv(micros, 1_000_000),
+        (int) Math.floorMod(micros, 1_000_000) * 1_000,
+        ZoneOffset.UTC);
+  }
+
+  private static void writeVarLong(DataOutput out, long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.writeByte((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.writeByte((int) value);
+  }
+
+  private static long readVarLong(DataInput in) throws IOException {
+    long value = 0;
+    for (int shift = 0; ; shift += 7) {
+      byte b = in.readByte();
+      value |= (long) (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+  }
+
+  private static long zigzag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private static long unzigzag(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  /** An entry of the sparse index, locating a row group and the range of logins it holds. */
+  private record RowGroup(long offset, int length, int rows, String firstLogin, String lastLogin) {}
+
+  /**
+   * The {@code Writer} class writes a new archive file. Rows are buffered until a row group is full
+   * and the footer is written when the writer is closed. The file is synced to disk on close, so it
+   * can be published by renaming it afterwards.
+   */
+  public static final class Writer implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final List<ArchivedTransaction> pending = new ArrayList<>(ROWS_PER_GROUP);
+    private final List<RowGroup> groups = new ArrayList<>();
+    private long position;
+
+    /** The number of rows appended so far. */
+    @Getter private long rowCount;
+
+    private String minLogin;
+    private String maxLogin;
+    private long minCreatedAt = Long.MAX_VALUE;
+    private long maxCreatedAt = Long.MIN_VALUE;
+
+    private Writer(Path path) throws IOException {
+      channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+      write(ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).put(VERSION).flip());
+    }
+
+    /**
+     * Appends a transaction to the file.
+     *
+     * @param archived The transaction to append.
+     * @throws IllegalArgumentException if the transaction belongs to a player whose login sorts
+     *     before the login of the previous transaction.
+     * @throws IOException if the file cannot be written.
+     */
+    public void append(ArchivedTransaction archived) throws IOException {
+      String login = archived.transaction().playerLogin();
+      if (maxLogin != null && login.compareTo(maxLogin) < 0) {
+        throw new IllegalArgumentException("Archived transactions must be sorted by login.");
+      }
+      if (minLogin == null) {
+        minLogin = login;
+      }
+      maxLogin = login;
+      long createdAt = toMicros(archived.createdAt());
+      minCreatedAt = Math.min(minCreatedAt, createdAt);
+      maxCreatedAt = Math.max(maxCreatedAt, createdAt);
+      rowCount++;
+
+      pending.add(archived);
+      if (pending.size() == ROWS_PER_GROUP) {
+        flushGroup();
+      }
+    }
+
+    /**
+     * Writes the remaining rows and the footer, and syncs the file to disk.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+      try {
+        flushGroup();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream footer = new DataOutputStream(bytes);
+        footer.writeLong(rowCount);
+        footer.writeUTF(minLogin == null ? "" : minLogin);
+        footer.writeUTF(maxLogin == null ? "" : maxLogin);
+        footer.writeLong(rowCount == 0 ? 0 : minCreatedAt);
+        footer.writeLong(rowCount == 0 ? 0 : maxCreatedAt);
+        footer.writeInt(groups.size());
+        for (RowGroup group : groups) {
+          footer.writeLong(group.offset());
+          footer.writeInt(group.length());
+          footer.writeInt(group.rows());
+          footer.writeUTF(group.firstLogin());
+          footer.writeUTF(group.lastLogin());
+        }
+        footer.flush();
+        write(ByteBuffer.wrap(bytes.toByteArray()));
+        write(ByteBuffer.allocate(TRAILER_BYTES).putInt(bytes.size()).putInt(MAGIC).flip());
+        channel.force(true);
+      } finally {
+        channel.close();
+      }
+    }
+
+    private void flushGroup() throws IOException {
+      if (pending.isEmpty()) {
+        return;
+      }
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+      try (DataOutputStream out =
+          new DataOutputStream(
+              new BufferedOutputStream(new DeflaterOutputStream(bytes, deflater)))) {
+        for (int start = 0; start < pending.size(); ) {
+          String login = pending.get(start).transaction().playerLogin();
+          int end = start;
+          while (end < pending.size()
+              && pending.get(end).transaction().playerLogin().equals(login)) {
+            end++;
+          }
+          out.writeUTF(login);
+          writeVarLong(out, end - start);
+          start = end;
+        }
+        for (ArchivedTransaction archived : pending) {
+          out.writeUTF(archived.transaction().transactionId());
+        }
+        for (ArchivedTransaction archived : pending) {
+          out.writeByte(archived.transaction().type().getCode());
+        }
+        for (ArchivedTransaction archived : pending) {
+          BigDecimal amount = archived.transaction().amount();
+          byte[] unscaled = amount.unscaledValue().toByteArray();
+          writeVarLong(out, zigzag(amount.scale()));
+          writeVarLong(out, unscaled.length);
+          out.write(unscaled);
+        }
+        long previous = 0;
+        for (ArchivedTransaction archived : pending) {
+          long createdAt = toMicros(archived.createdAt());
+          writeVarLong(out, zigzag(createdAt - previous));
+          previous = createdAt;
+        }
+      } finally {
+        deflater.end();
+      }
+
+      groups.add(
+          new RowGroup(
+              position,
+              bytes.size(),
+              pending.size(),
+              pending.get(0).transaction().playerLogin(),
+              pending.get(pending.size() - 1).transaction().playerLogin()));
+      write(ByteBuffer.wrap(bytes.toByteArray()));
+      pending.clear();
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+      while (buffer.hasRemaining()) {
+        position += channel.write(buffer);
+      }
+    }
+  }
+}
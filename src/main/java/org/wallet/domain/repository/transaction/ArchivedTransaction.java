@@ -0,0 +1,13 @@
+package org.wallet.domain.repository.transaction;
+
+import java.time.LocalDateTime;
+import org.wallet.domain.model.Transaction;
+
+/**
+ * The {@code ArchivedTransaction} class represents a transaction stored in an {@link ArchiveFile},
+ * together with the time it was created.
+ *
+ * @param transaction The archived transaction.
+ * @param createdAt The time the transaction was created.
+ */
+public record ArchivedTransaction(Transaction transaction, LocalDateTime createdAt) {}
@@ -0,0 +1,227 @@
+package org.wallet.domain.repository.transaction;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.wallet.domain.model.TransactionType;
+import org.wallet.domain.repository.DatabaseConnection;
+import org.wallet.domain.repository.shard.ShardRouter;
+import org.wallet.utils.WalletProperties;
+
+/**
+ * The {@code BalanceCheckpoints} class records the balance of every player at regular times in
+ * {@code wallet.balance_checkpoints}, so the balance at a past time is computed from the last
+ * checkpoint before it and the few transactions created after it, however long the history of the
+ * player is.
+ *
+ * <p>Checkpoints are taken on every shard at the boundaries of the configured interval, shortly
+ * after a boundary has passed. A player gets a new checkpoint when its ledger version differs from
+ * the one recorded with its last checkpoint, or when it has none yet, as after its range was moved
+ * to another shard. The balance of a checkpoint is the current balance of the player minus the
+ * transactions created since the boundary, read in one statement, so it includes the months moved
+ * to the archive and every write committed so far. Only the transactions of the recent partitions
+ * are read.
+ *
+ * <p>A write created before a boundary but committed after its checkpoint was taken is missing
+ * from that checkpoint. Its commit increments the ledger version of the player, so it is included
+ * in the next checkpoint of the player and no write is lost for the later balances.
+ *
+ * <p>Transactions moved to the {@link TransactionArchive} are no longer in the database. For a
+ * time within an archived month the balance of the last checkpoint before it is returned.
+ */
+@Component
+public class BalanceCheckpoints implements MeterBinder {
+
+  /**
+   * The time after the end of an interval before its checkpoint is taken, which leaves most writes
+   * started before the end time to commit; later commits are caught up by the next checkpoint.
+   */
+  private static final Duration SETTLE_TIME = Duration.ofMinutes(1);
+
+  /** The start of the first interval when no checkpoint has been taken yet. */
+  private static final LocalDateTime OLDEST_CHECKPOINT = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+  /** The amount of a transaction row, negative for debits. */
+  private static final String SIGNED_AMOUNT =
+      "CASE WHEN COALESCE(t.type_code, CASE t.type WHEN 'CREDIT' THEN "
+          + TransactionType.CREDIT.getCode()
+          + " END) = "
+          + TransactionType.CREDIT.getCode()
+          + " THEN t.amount ELSE -t.amount END";
+
+  private static final String SELECT_LAST_CHECKPOINT_SQL =
+      "SELECT MAX(checkpoint_at) FROM wallet.balance_checkpoints";
+
+  /**
+   * Takes the balance of every player whose ledger version changed since its last checkpoint, or
+   * that has none, and subtracts the transactions created since the checkpoint time. Rows not yet
+   * backfilled are attributed to their player by login.
+   */
+  private static final String INSERT_CHECKPOINTS_SQL =
+      "INSERT INTO wallet.balance_checkpoints (player_id, checkpoint_at, balance, ledger_version)"
+          + " SELECT p.id, ?, p.balance - COALESCE(d.amount, 0), p.ledger_version"
+          + " FROM wallet.players p"
+          + " LEFT JOIN LATERAL (SELECT ledger_version FROM wallet.balance_checkpoints"
+          + " WHERE player_id = p.id ORDER BY checkpoint_at DESC LIMIT 1) c ON TRUE"
+          + " LEFT JOIN LATERAL (SELECT SUM("
+          + SIGNED_AMOUNT
+          + ") AS amount FROM wallet.transactions t WHERE (t.player_id = p.id"
+          + " OR (t.player_id IS NULL AND t.player_login = p.login)) AND t.created_at >= ?) d"
+          + " ON TRUE WHERE c.ledger_version IS DISTINCT FROM p.ledger_version"
+          + " ON CONFLICT (player_id, checkpoint_at) DO NOTHING";
+
+  /**
+   * Adds the transactions created since the last checkpoint before the given time to the balance
+   * of that checkpoint. No row is returned for an unknown login.
+   */
+  private static final String SELECT_BALANCE_AT_SQL =
+      "WITH player AS (SELECT id FROM wallet.players WHERE login = ?),"
+          + " checkpoint AS (SELECT c.checkpoint_at, c.balance"
+          + " FROM wallet.balance_checkpoints c, player WHERE c.player_id = player.id"
+          + " AND c.checkpoint_at <= ? ORDER BY c.checkpoint_at DESC LIMIT 1)"
+          + " SELECT COALESCE((SELECT balance FROM checkpoint), 0) + COALESCE((SELECT SUM("
+          + SIGNED_AMOUNT
+          + ") FROM wallet.transactions t WHERE (t.player_id = player.id"
+          + " OR (t.player_id IS NULL AND t.player_login = ?))"
+          + " AND t.created_at >= COALESCE((SELECT checkpoint_at FROM checkpoint), '-infinity')"
+          + " AND t.created_at <= ?), 0) AS balance FROM player";
+
+  private final ShardRouter shardRouter;
+  private final Clock clock;
+  private final int checkpointMinutes;
+
+  private final LongAdder writtenCheckpoints = new LongAdder();
+
+  /**
+   * Creates the checkpoints with the interval from the application configuration.
+   *
+   * @param shardRouter The router providing the connections to every shard.
+   * @param transactions The settings of the transaction history.
+   */
+  @Autowired
+  public BalanceCheckpoints(ShardRouter shardRouter, WalletProperties.Transactions transactions) {
+    this(shardRouter, Clock.systemDefaultZone(), transactions.checkpointMinutes());
+  }
+
+  /**
+   * Creates the checkpoints with the given clock and interval.
+   *
+   * @param shardRouter The router providing the connections to every shard.
+   * @param clock The clock determining the current interval.
+   * @param checkpointMinutes The number of minutes between two checkpoints.
+   */
+  public BalanceCheckpoints(ShardRouter shardRouter, Clock clock, int checkpointMinutes) {
+    if (checkpointMinutes <= 0) {
+      throw new IllegalArgumentException("Checkpoint interval must be positive.");
+    }
+    this.shardRouter = shardRouter;
+    this.clock = clock;
+    this.checkpointMinutes = checkpointMinutes;
+  }
+
+  /** Takes the checkpoint of the last completed interval on every shard, once it has settled. */
+  @Scheduled(fixedDelay = 60_000)
+  public void checkpoint() {
+    long minutes =
+        LocalDateTime.now(clock).minus(SETTLE_TIME).toEpochSecond(ZoneOffset.UTC) / 60;
+    long boundary = minutes - Math.floorMod(minutes, checkpointMinutes);
+    checkpoint(LocalDateTime.ofEpochSecond(boundary * 60, 0, ZoneOffset.UTC));
+  }
+
+  /**
+   * Takes a checkpoint at the given time on every shard, covering the transactions created before
+   * it and committed so far. Shards whose last checkpoint is not older than the given time are left
+   * unchanged.
+   *
+   * @param checkpointAt The time of the checkpoint.
+   */
+  public void checkpoint(LocalDateTime checkpointAt) {
+    for (int i = 0; i < shardRouter.size(); i++) {
+      checkpoint(shardRouter.getShard(i), checkpointAt);
+    }
+  }
+
+  /**
+   * Computes the balance of a player at the given time from the last checkpoint before it and the
+   * transactions created after that checkpoint.
+   *
+   * @param login The login of the player.
+   * @param timestamp The time to compute the balance at, inclusive.
+   * @return The balance of the player, or an empty optional if the player does not exist.
+   */
+  public Optional<BigDecimal> getBalanceAt(String login, LocalDateTime timestamp) {
+    DatabaseConnection shard = shardRouter.getShard(shardRouter.shardOf(login));
+    try {
+      return shard.executeRead(
+          login,
+          connection -> {
+            try (PreparedStatement preparedStatement =
+                connection.prepareStatement(SELECT_BALANCE_AT_SQL)) {
+              preparedStatement.setString(1, login);
+              preparedStatement.setTimestamp(2, Timestamp.valueOf(timestamp));
+              preparedStatement.setString(3, login);
+              preparedStatement.setTimestamp(4, Timestamp.valueOf(timestamp));
+              try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                if (resultSet.next()) {
+                  return Optional.of(resultSet.getBigDecimal("balance"));
+                }
+              }
+            }
+            return Optional.<BigDecimal>empty();
+          });
+    } catch (SQLException e) {
+      e.printStackTrace();
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Binds the number of written checkpoints to the given meter registry.
+   *
+   * @param registry The registry to bind the meters to.
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("wallet.checkpoints.written", writtenCheckpoints, LongAdder::sum)
+        .register(registry);
+  }
+
+  private void checkpoint(DatabaseConnection shard, LocalDateTime checkpointAt) {
+    try (Connection connection = shard.getConnection()) {
+      LocalDateTime previous = OLDEST_CHECKPOINT;
+      try (PreparedStatement preparedStatement =
+              connection.prepareStatement(SELECT_LAST_CHECKPOINT_SQL);
+          ResultSet resultSet = preparedStatement.executeQuery()) {
+        if (resultSet.next() && resultSet.getTimestamp(1) != null) {
+          previous = resultSet.getTimestamp(1).toLocalDateTime();
+        }
+      }
+      if (!previous.isBefore(checkpointAt)) {
+        return;
+      }
+      try (PreparedStatement preparedStatement =
+          connection.prepareStatement(INSERT_CHECKPOINTS_SQL)) {
+        preparedStatement.setTimestamp(1, Timestamp.valueOf(checkpointAt));
+        preparedStatement.setTimestamp(2, Timestamp.valueOf(checkpointAt));
+        writtenCheckpoints.add(preparedStatement.executeUpdate());
+      }
+    } catch (SQLException e) {
+      e.printStackTrace();
+    }
+  }
+}
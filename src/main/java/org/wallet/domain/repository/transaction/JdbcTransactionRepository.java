@@ -6,13 +6,23 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
+import org.wallet.domain.model.Ledger;
+import org.wallet.domain.model.LedgerBalance;
+import org.wallet.domain.model.LedgerPage;
 import org.wallet.domain.model.Transaction;
 import org.wallet.domain.model.TransactionType;
+import org.wallet.domain.model.Transfer;
 import org.wallet.domain.repository.DatabaseConnection;
+import org.wallet.exception.InsufficientMoneyException;
+import org.wallet.exception.PlayerNotFoundException;
 import org.wallet.exception.TransactionAlreadyExistException;
 
 /**
@@ -23,16 +33,93 @@ import org.wallet.exception.TransactionAlreadyExistException;
 @RequiredArgsConstructor
 public class JdbcTransactionRepository implements TransactionRepository {
 
-  private static final String SELECT_ALL_TRANSACTIONS_SQL = "SELECT * FROM wallet.transactions";
+  /**
+   * Columns of a transaction row. Rows written before the compact layout and not yet backfilled
+   * keep their login and type in the legacy {@code player_login} and {@code type} columns.
+   */
+  private static final String SELECT_TRANSACTIONS_SQL =
+      "SELECT COALESCE(p.login, t.player_login) AS player_login, t.transaction_id, t.type_code,"
+          + " t.type, t.amount FROM wallet.transactions t"
+          + " LEFT JOIN wallet.players p ON p.id = t.player_id";
   private static final String INSERT_TRANSACTION_SQL =
-      "INSERT INTO wallet.transactions (player_login, transaction_id, type, amount) VALUES (?, ?, ?, ?)";
+      "WITH player AS (SELECT id FROM wallet.players WHERE login = ?),"
+          + " transaction_key AS (INSERT INTO wallet.transaction_keys (transaction_id, created_at)"
+          + " SELECT ?, LOCALTIMESTAMP FROM player RETURNING transaction_id, created_at),"
+          + " ledger_version AS (UPDATE wallet.players SET ledger_version = ledger_version + 1"
+          + " WHERE id = (SELECT id FROM player))"
+          + " INSERT INTO wallet.transactions (player_id, transaction_id, type_code, amount,"
+          + " created_at) SELECT player.id, transaction_key.transaction_id, ?, ?,"
+          + " transaction_key.created_at FROM player, transaction_key";
+  /** Locks the player of a transaction, so its balance cannot change until the commit. */
+  private static final String LOCK_PLAYER_SQL =
+      "SELECT id, balance FROM wallet.players WHERE login = ? FOR UPDATE";
+
+  /**
+   * Reserves the ID of a transaction, inserts it and changes the balance of its player by its
+   * signed amount in one statement, returning the new balance. Every statement changing a balance
+   * or adding a transaction also increments the ledger version of the player.
+   */
+  private static final String APPLY_TRANSACTION_SQL =
+      "WITH transaction_key AS (INSERT INTO wallet.transaction_keys (transaction_id, created_at)"
+          + " VALUES (?, LOCALTIMESTAMP) RETURNING transaction_id, created_at),"
+          + " leg AS (INSERT INTO wallet.transactions (player_id, transaction_id, type_code,"
+          + " amount, created_at) SELECT ?, transaction_id, ?, ?, created_at FROM transaction_key)"
+          + " UPDATE wallet.players SET balance = balance + ?, ledger_version = ledger_version + 1"
+          + " WHERE id = ? RETURNING balance, ledger_version";
+
+  /**
+   * Locks both players of a transfer in the order of their keys, so concurrent transfers between
+   * the same players in opposite directions cannot deadlock.
+   */
+  private static final String LOCK_TRANSFER_PLAYERS_SQL =
+      "SELECT id, login, balance FROM wallet.players WHERE login IN (?, ?) ORDER BY id FOR UPDATE";
+
+  /**
+   * Reserves the IDs of both legs, inserts them and updates both balances in one statement,
+   * returning both new balances.
+   */
+  private static final String INSERT_TRANSFER_SQL =
+      "WITH transaction_keys AS (INSERT INTO wallet.transaction_keys (transaction_id, created_at)"
+          + " VALUES (?, LOCALTIMESTAMP), (?, LOCALTIMESTAMP)),"
+          + " legs AS (INSERT INTO wallet.transactions (player_id, transaction_id, type_code,"
+          + " amount, created_at, transfer_id) VALUES (?, ?, ?, ?, LOCALTIMESTAMP, ?),"
+          + " (?, ?, ?, ?, LOCALTIMESTAMP, ?))"
+          + " UPDATE wallet.players SET balance = balance + CASE WHEN id = ? THEN -?::NUMERIC"
+          + " ELSE ?::NUMERIC END, ledger_version = ledger_version + 1 WHERE id IN (?, ?)"
+          + " RETURNING login, balance, ledger_version";
   private static final String SELECT_TRANSACTION_BY_ID_SQL =
-      "SELECT * FROM wallet.transactions WHERE transaction_id = ?";
+      SELECT_TRANSACTIONS_SQL
+          + " JOIN wallet.transaction_keys k ON k.transaction_id = t.transaction_id"
+          + " AND k.created_at = t.created_at WHERE k.transaction_id = ?";
   private static final String SELECT_TRANSACTIONS_BY_PLAYER_SQL =
-      "SELECT * FROM wallet.transactions WHERE player_login = ?";
+      "SELECT t.transaction_id, t.type_code, t.type, t.amount FROM wallet.transactions t"
+          + " WHERE t.player_id = (SELECT id FROM wallet.players WHERE login = ?)"
+          + " OR (t.player_id IS NULL AND t.player_login = ?) ORDER BY t.id";
+
+  /** The latest transactions of a player before a given ID, read backwards on the player index. */
+  private static final String SELECT_TRANSACTION_PAGE_BY_PLAYER_SQL =
+      "SELECT t.id, t.transaction_id, t.type_code, t.type, t.amount FROM wallet.transactions t"
+          + " WHERE (t.player_id = (SELECT id FROM wallet.players WHERE login = ?)"
+          + " OR (t.player_id IS NULL AND t.player_login = ?)) AND t.id < ?"
+          + " ORDER BY t.id DESC LIMIT ?";
+  private static final String SELECT_STORED_TRANSACTION_IDS_SQL =
+      "SELECT t.transaction_id FROM wallet.transactions t"
+          + " WHERE (t.player_id = (SELECT id FROM wallet.players WHERE login = ?)"
+          + " OR (t.player_id IS NULL AND t.player_login = ?)) AND t.transaction_id = ANY (?)";
+
+  private static final String SELECT_LEDGER_VERSION_SQL =
+      "SELECT ledger_version FROM wallet.players WHERE login = ?";
 
   private static final String CHECK_TRANSACTION_BY_ID_SQL =
-      "SELECT CASE WHEN EXISTS (SELECT 1 FROM wallet.transactions WHERE transaction_id = ?) THEN true ELSE false END;";
+      "SELECT EXISTS (SELECT 1 FROM wallet.transaction_keys WHERE transaction_id = ?)";
+  private static final String SELECT_ALL_TRANSACTION_IDS_SQL =
+      "SELECT transaction_id FROM wallet.transaction_keys";
+
+  /** SQLSTATE reported by PostgreSQL when a unique constraint is violated. */
+  private static final String UNIQUE_VIOLATION_SQL_STATE = "23505";
+
+  /** Number of rows fetched per round trip when streaming large result sets. */
+  private static final int STREAMING_FETCH_SIZE = 10_000;
 
   /** The `DatabaseConnection` used to establish a connection to the database. */
   private final DatabaseConnection databaseConnection;
@@ -47,12 +134,12 @@ public class JdbcTransactionRepository implements TransactionRepository {
     List<Transaction> transactions = new ArrayList();
     try (Connection connection = databaseConnection.getConnection();
         PreparedStatement preparedStatement =
-            connection.prepareStatement(SELECT_ALL_TRANSACTIONS_SQL);
+            connection.prepareStatement(SELECT_TRANSACTIONS_SQL);
         ResultSet resultSet = preparedStatement.executeQuery()) {
       while (resultSet.next()) {
         String playerLogin = resultSet.getString("player_login");
         String transactionId = resultSet.getString("transaction_id");
-        TransactionType type = TransactionType.valueOf(resultSet.getString("type"));
+        TransactionType type = readType(resultSet);
         BigDecimal amount = resultSet.getBigDecimal("amount");
         var transaction = new Transaction(playerLogin, transactionId, type, amount);
         transactions.add(transaction);
@@ -64,31 +151,202 @@ public class JdbcTransactionRepository implements TransactionRepository {
   }
 
   /**
-   * Adds a new transaction to the database.
+   * Adds a new transaction to the database. The player is referenced by its surrogate key, which is
+   * resolved from the login by the insert itself. The transaction ID is reserved in {@code
+   * wallet.transaction_keys} by the same statement, whose primary key enforces uniqueness across
+   * all partitions instead of a separate existence query.
    *
    * @param transaction The transaction entity to be added.
    * @throws TransactionAlreadyExistException if a transaction with the same ID already exists.
+   * @throws PlayerNotFoundException if the player of the transaction does not exist.
    */
   @Override
   public void addTransaction(Transaction transaction) {
-    if (isTransactionExist(transaction.transactionId())) {
-      throw new TransactionAlreadyExistException();
-    }
-
     try (Connection connection = databaseConnection.getConnection();
         PreparedStatement preparedStatement = connection.prepareStatement(INSERT_TRANSACTION_SQL)) {
-      preparedStatement.setString(1, transaction.playerLogin());
-      preparedStatement.setString(2, transaction.transactionId());
-      preparedStatement.setString(3, transaction.type().toString());
-      preparedStatement.setBigDecimal(4, transaction.amount());
-      preparedStatement.executeUpdate();
+      connection.setAutoCommit(false);
+      try {
+        databaseConnection.lockRanges(connection, List.of(transaction.playerLogin()));
+        preparedStatement.setString(1, transaction.playerLogin());
+        preparedStatement.setString(2, transaction.transactionId());
+        preparedStatement.setShort(3, transaction.type().getCode());
+        preparedStatement.setBigDecimal(4, transaction.amount());
+        if (preparedStatement.executeUpdate() == 0) {
+          throw new PlayerNotFoundException();
+        }
+        connection.commit();
+      } catch (SQLException | RuntimeException e) {
+        connection.rollback();
+        throw e;
+      }
+      databaseConnection.markWrite(transaction.playerLogin());
     } catch (SQLException e) {
+      if (UNIQUE_VIOLATION_SQL_STATE.equals(e.getSQLState())) {
+        throw new TransactionAlreadyExistException();
+      }
       e.printStackTrace();
     }
   }
 
   /**
-   * Retrieves a transaction from the database by its ID.
+   * Applies a transaction in a single database transaction. The player is locked before its balance
+   * is checked, then the transaction is added and the balance changed relative to its stored value
+   * by a single statement, so a concurrent transfer or payout is never overwritten.
+   *
+   * @param transaction The transaction to apply.
+   * @return The balance and the ledger version of the player after the transaction.
+   * @throws PlayerNotFoundException if the player does not exist.
+   * @throws InsufficientMoneyException if the player cannot cover a debit.
+   * @throws TransactionAlreadyExistException if the ID of the transaction already exists.
+   * @throws IllegalStateException if the transaction cannot be written.
+   */
+  @Override
+  public LedgerBalance applyTransaction(Transaction transaction) {
+    try (Connection connection = databaseConnection.getConnection()) {
+      connection.setAutoCommit(false);
+      BigDecimal balance;
+      long ledgerVersion;
+      try {
+        databaseConnection.lockRanges(connection, List.of(transaction.playerLogin()));
+        long playerId;
+        try (PreparedStatement preparedStatement = connection.prepareStatement(LOCK_PLAYER_SQL)) {
+          preparedStatement.setString(1, transaction.playerLogin());
+          try (ResultSet resultSet = preparedStatement.executeQuery()) {
+            if (!resultSet.next()) {
+              throw new PlayerNotFoundException();
+            }
+            playerId = resultSet.getLong("id");
+            balance = resultSet.getBigDecimal("balance");
+          }
+        }
+        BigDecimal signedAmount = transaction.amount();
+        if (transaction.type() == TransactionType.DEBIT) {
+          if (balance.compareTo(transaction.amount()) < 0) {
+            throw new InsufficientMoneyException();
+          }
+          signedAmount = signedAmount.negate();
+        }
+
+        try (PreparedStatement preparedStatement =
+            connection.prepareStatement(APPLY_TRANSACTION_SQL)) {
+          preparedStatement.setString(1, transaction.transactionId());
+          preparedStatement.setLong(2, playerId);
+          preparedStatement.setShort(3, transaction.type().getCode());
+          preparedStatement.setBigDecimal(4, transaction.amount());
+          preparedStatement.setBigDecimal(5, signedAmount);
+          preparedStatement.setLong(6, playerId);
+          try (ResultSet resultSet = preparedStatement.executeQuery()) {
+            resultSet.next();
+            balance = resultSet.getBigDecimal(1);
+            ledgerVersion = resultSet.getLong(2);
+          }
+        }
+        connection.commit();
+      } catch (SQLException | RuntimeException e) {
+        connection.rollback();
+        throw e;
+      }
+      databaseConnection.markWrite(transaction.playerLogin());
+      return new LedgerBalance(transaction.playerLogin(), balance, ledgerVersion);
+    } catch (SQLException e) {
+      if (UNIQUE_VIOLATION_SQL_STATE.equals(e.getSQLState())) {
+        throw new TransactionAlreadyExistException();
+      }
+      throw new IllegalStateException(
+          "Could not apply transaction " + transaction.transactionId() + ".", e);
+    }
+  }
+
+  /**
+   * Applies a transfer in a single database transaction. Both players are locked in the order of
+   * their keys before the balance of the sender is checked, then both legs are added and both
+   * balances updated by a single statement.
+   *
+   * @param transfer The transfer to apply.
+   * @return The balances and the ledger versions of the sender and the recipient after the
+   *     transfer, in this order.
+   * @throws PlayerNotFoundException if one of the players does not exist.
+   * @throws InsufficientMoneyException if the sender cannot cover the amount.
+   * @throws TransactionAlreadyExistException if the ID of a leg already exists.
+   * @throws IllegalStateException if the transfer cannot be written.
+   */
+  @Override
+  public List<LedgerBalance> transfer(Transfer transfer) {
+    Transaction debit = transfer.debit();
+    Transaction credit = transfer.credit();
+    try (Connection connection = databaseConnection.getConnection()) {
+      connection.setAutoCommit(false);
+      BigDecimal balance = null;
+      LedgerBalance[] balances = new LedgerBalance[2];
+      try {
+        databaseConnection.lockRanges(
+            connection, List.of(transfer.senderLogin(), transfer.recipientLogin()));
+        Long senderId = null;
+        Long recipientId = null;
+        try (PreparedStatement preparedStatement =
+            connection.prepareStatement(LOCK_TRANSFER_PLAYERS_SQL)) {
+          preparedStatement.setString(1, transfer.senderLogin());
+          preparedStatement.setString(2, transfer.recipientLogin());
+          try (ResultSet resultSet = preparedStatement.executeQuery()) {
+            while (resultSet.next()) {
+              if (transfer.senderLogin().equals(resultSet.getString("login"))) {
+                senderId = resultSet.getLong("id");
+                balance = resultSet.getBigDecimal("balance");
+              } else {
+                recipientId = resultSet.getLong("id");
+              }
+            }
+          }
+        }
+        if (senderId == null || recipientId == null) {
+          throw new PlayerNotFoundException();
+        }
+        if (balance.compareTo(transfer.amount()) < 0) {
+          throw new InsufficientMoneyException();
+        }
+
+        try (PreparedStatement preparedStatement =
+            connection.prepareStatement(INSERT_TRANSFER_SQL)) {
+          preparedStatement.setString(1, debit.transactionId());
+          preparedStatement.setString(2, credit.transactionId());
+          setLeg(preparedStatement, 3, senderId, debit, transfer.transferId());
+          setLeg(preparedStatement, 8, recipientId, credit, transfer.transferId());
+          preparedStatement.setLong(13, senderId);
+          preparedStatement.setBigDecimal(14, transfer.amount());
+          preparedStatement.setBigDecimal(15, transfer.amount());
+          preparedStatement.setLong(16, senderId);
+          preparedStatement.setLong(17, recipientId);
+          try (ResultSet resultSet = preparedStatement.executeQuery()) {
+            while (resultSet.next()) {
+              String login = resultSet.getString("login");
+              balances[transfer.senderLogin().equals(login) ? 0 : 1] =
+                  new LedgerBalance(
+                      login,
+                      resultSet.getBigDecimal("balance"),
+                      resultSet.getLong("ledger_version"));
+            }
+          }
+        }
+        connection.commit();
+      } catch (SQLException | RuntimeException e) {
+        connection.rollback();
+        throw e;
+      }
+      databaseConnection.markWrite(transfer.senderLogin());
+      databaseConnection.markWrite(transfer.recipientLogin());
+      return List.of(balances);
+    } catch (SQLException e) {
+      if (UNIQUE_VIOLATION_SQL_STATE.equals(e.getSQLState())) {
+        throw new TransactionAlreadyExistException();
+      }
+      throw new IllegalStateException(
+          "Could not apply transfer " + transfer.transferId() + ".", e);
+    }
+  }
+
+  /**
+   * Retrieves a transaction from the database by its ID. The creation time stored with the ID
+   * limits the lookup to the partition holding the transaction.
    *
    * @param transactionId The ID of the transaction to retrieve.
    * @return An `Optional` containing the transaction if found, or empty if not found.
@@ -102,7 +360,7 @@ public class JdbcTransactionRepository implements TransactionRepository {
       try (ResultSet resultSet = preparedStatement.executeQuery()) {
         if (resultSet.next()) {
           String playerLogin = resultSet.getString("player_login");
-          TransactionType type = TransactionType.valueOf(resultSet.getString("type"));
+          TransactionType type = readType(resultSet);
           BigDecimal amount = resultSet.getBigDecimal("amount");
           return Optional.of(new Transaction(playerLogin, transactionId, type, amount));
         }
@@ -135,29 +393,221 @@ public class JdbcTransactionRepository implements TransactionRepository {
   }
 
   /**
-   * Retrieves a list of transactions for a specific player by their login.
+   * Retrieves a list of transactions for a specific player by their login, in the order they were
+   * added. The lookup uses the {@code (player_id, id)} index. The query is served by a read replica
+   * unless the player has written recently.
    *
    * @param playerLogin The login of the player for whom transactions are to be retrieved.
    * @return A list of transaction entities.
    */
   @Override
   public List<Transaction> getTransactionsByPlayerLogin(String playerLogin) {
+    try {
+      return databaseConnection.executeRead(
+          playerLogin, connection -> findTransactionsByPlayerLogin(connection, playerLogin));
+    } catch (SQLException e) {
+      e.printStackTrace();
+    }
+    return new ArrayList<>();
+  }
+
+  /**
+   * Retrieves the transactions of a player together with its ledger version. Both are read on the
+   * same connection, the version first, so even on a lagging replica the version never describes
+   * newer transactions than those returned.
+   *
+   * @param playerLogin The login of the player.
+   * @return The ledger of the player; its version is negative if the player is not found.
+   */
+  @Override
+  public Ledger getLedgerByPlayerLogin(String playerLogin) {
+    try {
+      return databaseConnection.executeRead(
+          playerLogin,
+          connection -> {
+            long version = -1;
+            try (PreparedStatement preparedStatement =
+                connection.prepareStatement(SELECT_LEDGER_VERSION_SQL)) {
+              preparedStatement.setString(1, playerLogin);
+              try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                if (resultSet.next()) {
+                  version = resultSet.getLong(1);
+                }
+              }
+            }
+            return new Ledger(version, findTransactionsByPlayerLogin(connection, playerLogin));
+          });
+    } catch (SQLException e) {
+      e.printStackTrace();
+    }
+    return new Ledger(-1, new ArrayList<>());
+  }
+
+  /**
+   * Retrieves the latest transactions of a player added before the one with the given row ID,
+   * together with its ledger version. The version is read first and on the same connection, like
+   * {@link #getLedgerByPlayerLogin(String)}; only {@code limit} rows are read from the player
+   * index.
+   *
+   * @param playerLogin The login of the player.
+   * @param beforeId The row ID the transactions precede; {@link Long#MAX_VALUE} for the latest.
+   * @param limit The maximum number of transactions to return.
+   * @return The page; its cursor is the row ID of its first transaction if the page is full, and
+   *     its version is negative if the player is not found.
+   */
+  @Override
+  public LedgerPage getLedgerPageByPlayerLogin(String playerLogin, long beforeId, int limit) {
+    try {
+      return databaseConnection.executeRead(
+          playerLogin,
+          connection -> {
+            long version = -1;
+            try (PreparedStatement preparedStatement =
+                connection.prepareStatement(SELECT_LEDGER_VERSION_SQL)) {
+              preparedStatement.setString(1, playerLogin);
+              try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                if (resultSet.next()) {
+                  version = resultSet.getLong(1);
+                }
+              }
+            }
+            var transactions = new ArrayList<Transaction>();
+            long firstId = -1;
+            try (PreparedStatement preparedStatement =
+                connection.prepareStatement(SELECT_TRANSACTION_PAGE_BY_PLAYER_SQL)) {
+              preparedStatement.setString(1, playerLogin);
+              preparedStatement.setString(2, playerLogin);
+              preparedStatement.setLong(3, beforeId);
+              preparedStatement.setInt(4, limit);
+              try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                  firstId = resultSet.getLong("id");
+                  transactions.add(
+                      new Transaction(
+                          playerLogin,
+                          resultSet.getString("transaction_id"),
+                          readType(resultSet),
+                          resultSet.getBigDecimal("amount")));
+                }
+              }
+            }
+            Collections.reverse(transactions);
+            String nextCursor = transactions.size() == limit ? Long.toString(firstId) : null;
+            return new LedgerPage(version, transactions, nextCursor);
+          });
+    } catch (SQLException e) {
+      e.printStackTrace();
+    }
+    return new LedgerPage(-1, new ArrayList<>(), null);
+  }
+
+  /**
+   * Returns which of the given transactions of a player are stored in the database. The query is
+   * served by a read replica unless the player has written recently.
+   *
+   * @param playerLogin The login of the player.
+   * @param transactionIds The IDs of the transactions to look up.
+   * @return The IDs of the given transactions found in the database.
+   */
+  @Override
+  public Set<String> getStoredTransactionIds(String playerLogin, List<String> transactionIds) {
+    Set<String> stored = new HashSet<>();
+    if (transactionIds.isEmpty()) {
+      return stored;
+    }
+    try {
+      return databaseConnection.executeRead(
+          playerLogin,
+          connection -> {
+            try (PreparedStatement preparedStatement =
+                connection.prepareStatement(SELECT_STORED_TRANSACTION_IDS_SQL)) {
+              preparedStatement.setString(1, playerLogin);
+              preparedStatement.setString(2, playerLogin);
+              preparedStatement.setArray(
+                  3, connection.createArrayOf("varchar", transactionIds.toArray()));
+              try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                  stored.add(resultSet.getString(1));
+                }
+              }
+            }
+            return stored;
+          });
+    } catch (SQLException e) {
+      e.printStackTrace();
+    }
+    return stored;
+  }
+
+  /**
+   * Streams the IDs of all transactions in the database using a server-side cursor, so that the
+   * whole table is never held in memory at once. The IDs are read from the compact key table
+   * instead of the partitions.
+   *
+   * @param consumer The consumer receiving every transaction ID.
+   */
+  @Override
+  public void forEachTransactionId(Consumer<String> consumer) {
+    try (Connection connection = databaseConnection.getConnection()) {
+      connection.setAutoCommit(false);
+      try (PreparedStatement preparedStatement =
+          connection.prepareStatement(SELECT_ALL_TRANSACTION_IDS_SQL)) {
+        preparedStatement.setFetchSize(STREAMING_FETCH_SIZE);
+        try (ResultSet resultSet = preparedStatement.executeQuery()) {
+          while (resultSet.next()) {
+            consumer.accept(resultSet.getString(1));
+          }
+        }
+      }
+      connection.commit();
+    } catch (SQLException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private List<Transaction> findTransactionsByPlayerLogin(
+      Connection connection, String playerLogin) throws SQLException {
     var transactions = new ArrayList<Transaction>();
-    try (Connection connection = databaseConnection.getConnection();
-        PreparedStatement preparedStatement =
-            connection.prepareStatement(SELECT_TRANSACTIONS_BY_PLAYER_SQL)) {
+    try (PreparedStatement preparedStatement =
+        connection.prepareStatement(SELECT_TRANSACTIONS_BY_PLAYER_SQL)) {
       preparedStatement.setString(1, playerLogin);
+      preparedStatement.setString(2, playerLogin);
       try (ResultSet resultSet = preparedStatement.executeQuery()) {
         while (resultSet.next()) {
           String transactionId = resultSet.getString("transaction_id");
-          TransactionType type = TransactionType.valueOf(resultSet.getString("type"));
+          TransactionType type = readType(resultSet);
           BigDecimal amount = resultSet.getBigDecimal("amount");
           transactions.add(new Transaction(playerLogin, transactionId, type, amount));
         }
       }
-    } catch (SQLException e) {
-      e.printStackTrace();
     }
     return transactions;
   }
+
+  /** Sets the parameters of a transfer leg, starting at the given index. */
+  private static void setLeg(
+      PreparedStatement preparedStatement,
+      int index,
+      long playerId,
+      Transaction leg,
+      String transferId)
+      throws SQLException {
+    preparedStatement.setLong(index, playerId);
+    preparedStatement.setString(index + 1, leg.transactionId());
+    preparedStatement.setShort(index + 2, leg.type().getCode());
+    preparedStatement.setBigDecimal(index + 3, leg.amount());
+    preparedStatement.setString(index + 4, transferId);
+  }
+
+  /**
+   * Reads the transaction type of the current row, falling back to the legacy text column for rows
+   * that have not been backfilled yet.
+   */
+  private static TransactionType readType(ResultSet resultSet) throws SQLException {
+    short code = resultSet.getShort("type_code");
+    if (resultSet.wasNull()) {
+      return TransactionType.valueOf(resultSet.getString("type"));
+    }
+    return TransactionType.fromCode(code);
+  }
 }
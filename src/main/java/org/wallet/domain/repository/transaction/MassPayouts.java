@@ -0,0 +1,758 @@
+package org.wallet.domain.repository.transaction;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.wallet.domain.model.LedgerEvent;
+import org.wallet.domain.model.Transaction;
+import org.wallet.domain.model.TransactionType;
+import org.wallet.domain.repository.DatabaseConnection;
+import org.wallet.domain.repository.shard.ShardRouter;
+import org.wallet.domain.service.LedgerEventBus;
+import org.wallet.utils.WalletProperties;
+
+/**
+ * The {@code MassPayouts} class applies the same credit or debit to a selection of players, as for
+ * promotions or monthly fees, without going through the registration of single transactions. It is
+ * exposed as the {@code payouts} actuator endpoint, which starts a payout and reports its progress;
+ * like the other operational endpoints it is only served on the management port, which is bound to
+ * an internal address.
+ *
+ * <p>A payout has a name and selects every player, the players whose login matches a {@code LIKE}
+ * pattern, the players listed in the request, or the players matching both. Its transaction for a
+ * player has the ID {@code payout:<name>:<login>}, so a player is paid at most once by a payout
+ * however often it is run. A debit is skipped for players whose balance does not cover it.
+ *
+ * <p>The players of a shard are processed in ranges of their keys, split into chunks written in
+ * parallel. A chunk is a single database transaction: its players are locked, their transaction
+ * IDs reserved, their transactions inserted and their balances updated with JDBC batches, under
+ * the locks of their hash ranges so a range move cannot interleave. The rule and the progress of
+ * every shard are saved in {@code wallet.payout_runs}; starting an unfinished payout again resumes
+ * it after the last completed range, and chunks already written are recognized by their reserved
+ * IDs. A payout that fails is reported by the status with its error until the next one starts.
+ * Once a chunk is committed, the transactions of its players are published to the {@link
+ * LedgerEventBus} with their new balances.
+ */
+@Component
+@Endpoint(id = "payouts")
+public class MassPayouts implements MeterBinder {
+
+  /** The names a payout may have. */
+  private static final Pattern PAYOUT_ID = Pattern.compile("[A-Za-z0-9_.-]{1,64}");
+
+  /** The maximum number of payouts listed by the status for every shard. */
+  private static final int LISTED_PAYOUTS = 10;
+
+  private static final String SELECT_RUN_SQL =
+      "SELECT * FROM wallet.payout_runs WHERE payout_id = ?";
+  private static final String SELECT_RECENT_RUNS_SQL =
+      "SELECT * FROM wallet.payout_runs ORDER BY started_at DESC LIMIT ?";
+  private static final String INSERT_RUN_SQL =
+      "INSERT INTO wallet.payout_runs (payout_id, type_code, amount, login_pattern, logins_digest,"
+          + " started_at, last_player_id, max_player_id, applied, skipped)"
+          + " SELECT ?, ?, ?, ?, ?, LOCALTIMESTAMP, 0, COALESCE(MAX(id), 0), 0, 0"
+          + " FROM wallet.players RETURNING *";
+  private static final String UPDATE_RUN_PROGRESS_SQL =
+      "UPDATE wallet.payout_runs SET last_player_id = ? WHERE payout_id = ?";
+  private static final String UPDATE_RUN_COUNTS_SQL =
+      "UPDATE wallet.payout_runs SET applied = applied + ?, skipped = skipped + ?"
+          + " WHERE payout_id = ?";
+  private static final String FINISH_RUN_SQL =
+      "UPDATE wallet.payout_runs SET finished_at = LOCALTIMESTAMP WHERE payout_id = ?";
+  private static final String SELECT_LOGINS_SQL =
+      "SELECT login FROM wallet.players WHERE id > ? AND id <= ?";
+  private static final String LOGIN_PATTERN_CONDITION = " AND login LIKE ?";
+  private static final String LOCK_PLAYERS_SQL =
+      "SELECT id, login, balance FROM wallet.players WHERE login = ANY (?) ORDER BY id FOR UPDATE";
+  private static final String SELECT_RESERVED_IDS_SQL =
+      "SELECT transaction_id FROM wallet.transaction_keys WHERE transaction_id = ANY (?)";
+  private static final String INSERT_TRANSACTION_KEY_SQL =
+      "INSERT INTO wallet.transaction_keys (transaction_id, created_at) VALUES (?, ?)"
+          + " ON CONFLICT (transaction_id) DO NOTHING";
+  private static final String INSERT_TRANSACTION_SQL =
+      "INSERT INTO wallet.transactions (player_id, transaction_id, type_code, amount, created_at)"
+          + " VALUES (?, ?, ?, ?, ?)";
+  private static final String UPDATE_BALANCES_SQL =
+      "UPDATE wallet.players SET balance = balance + ?, ledger_version = ledger_version + 1"
+          + " WHERE id = ANY (?) RETURNING login, balance, ledger_version";
+
+  private final ShardRouter shardRouter;
+  private final TransactionIdIndex transactionIdIndex;
+  private final LedgerEventBus ledgerEventBus;
+  private final int parallelism;
+  private final int chunkPlayers;
+
+  private final ExecutorService runner =
+      Executors.newSingleThreadExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "mass-payout");
+            thread.setDaemon(true);
+            return thread;
+          });
+  private final LongAdder appliedPlayers = new LongAdder();
+  private final LongAdder skippedPlayers = new LongAdder();
+  private final LongAdder duplicatePlayers = new LongAdder();
+  private final LongAdder writtenChunks = new LongAdder();
+  private final LongAdder chunkNanos = new LongAdder();
+  private final LongAccumulator maxChunkNanos = new LongAccumulator(Math::max, 0);
+
+  private final AtomicReference<String> running = new AtomicReference<>();
+  private volatile Map<String, Object> failure;
+  private volatile long startedAt;
+  private volatile long startedChunks;
+  private volatile long startedChunkNanos;
+  private volatile long startedPlayers;
+
+  /**
+   * Creates the payouts with the parallelism and chunk size from the application configuration.
+   *
+   * @param shardRouter The router providing the connections to every shard.
+   * @param transactionIdIndex The index the IDs of the created transactions are added to.
+   * @param ledgerEventBus The bus the created transactions are published to.
+   * @param payouts The settings of the payouts.
+   */
+  @Autowired
+  public MassPayouts(
+      ShardRouter shardRouter,
+      TransactionIdIndex transactionIdIndex,
+      LedgerEventBus ledgerEventBus,
+      WalletProperties.Payouts payouts) {
+    this(
+        shardRouter,
+        transactionIdIndex,
+        ledgerEventBus,
+        payouts.parallelism(),
+        payouts.chunkPlayers());
+  }
+
+  /**
+   * Creates the payouts with the given parallelism and chunk size.
+   *
+   * @param shardRouter The router providing the connections to every shard.
+   * @param transactionIdIndex The index the IDs of the created transactions are added to.
+   * @param ledgerEventBus The bus the created transactions are published to.
+   * @param parallelism The number of chunks written in parallel.
+   * @param chunkPlayers The number of player keys covered by a chunk.
+   */
+  public MassPayouts(
+      ShardRouter shardRouter,
+      TransactionIdIndex transactionIdIndex,
+      LedgerEventBus ledgerEventBus,
+      int parallelism,
+      int chunkPlayers) {
+    if (parallelism <= 0 || chunkPlayers <= 0) {
+      throw new IllegalArgumentException("Parallelism and chunk size must be positive.");
+    }
+    this.shardRouter = shardRouter;
+    this.transactionIdIndex = transactionIdIndex;
+    this.ledgerEventBus = ledgerEventBus;
+    this.parallelism = parallelism;
+    this.chunkPlayers = chunkPlayers;
+  }
+
+  /** Stops a payout in progress; it is resumed when it is started again. */
+  @PreDestroy
+  public void shutdown() {
+    runner.shutdownNow();
+  }
+
+  /**
+   * Returns the payout in progress with its throughput and chunk latency, the failure of the last
+   * payout if it failed, and the last payouts of every shard with their progress.
+   *
+   * @return The state of the payouts.
+   */
+  @ReadOperation
+  public Map<String, Object> status() {
+    Map<String, Object> status = new LinkedHashMap<>();
+    String payout = running.get();
+    status.put("running", payout);
+    Map<String, Object> lastFailure = failure;
+    if (lastFailure != null) {
+      status.put("failure", lastFailure);
+    }
+    if (payout != null) {
+      long millis = Math.max(1, System.currentTimeMillis() - startedAt);
+      long chunks = writtenChunks.sum() - startedChunks;
+      status.put("playersPerSecond", (processedPlayers() - startedPlayers) * 1000 / millis);
+      status.put("chunks", chunks);
+      status.put(
+          "meanChunkMillis",
+          chunks == 0 ? 0 : (chunkNanos.sum() - startedChunkNanos) / chunks / 1_000_000);
+      status.put("maxChunkMillis", maxChunkNanos.get() / 1_000_000);
+    }
+    List<Map<String, Object>> shards = new ArrayList<>();
+    for (int i = 0; i < shardRouter.size(); i++) {
+      Map<String, Object> shard = new LinkedHashMap<>();
+      shard.put("shard", i);
+      List<Map<String, Object>> payouts = new ArrayList<>();
+      try (Connection connection = shardRouter.getShard(i).getConnection();
+          PreparedStatement preparedStatement =
+              connection.prepareStatement(SELECT_RECENT_RUNS_SQL)) {
+        preparedStatement.setInt(1, LISTED_PAYOUTS);
+        try (ResultSet resultSet = preparedStatement.executeQuery()) {
+          while (resultSet.next()) {
+            Run run = readRun(resultSet);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("payout", run.payoutId);
+            entry.put("type", run.type);
+            entry.put("amount", run.amount);
+            entry.put("finished", resultSet.getTimestamp("finished_at") != null);
+            entry.put("lastPlayerId", run.lastPlayerId);
+            entry.put("maxPlayerId", run.maxPlayerId);
+            entry.put("applied", resultSet.getLong("applied"));
+            entry.put("skipped", resultSet.getLong("skipped"));
+            payouts.add(entry);
+          }
+        }
+      } catch (SQLException e) {
+        e.printStackTrace();
+      }
+      shard.put("payouts", payouts);
+      shards.add(shard);
+    }
+    status.put("shards", shards);
+    return status;
+  }
+
+  /**
+   * Starts a payout in the background, or resumes an unfinished one with the same name, unless a
+   * payout is in progress.
+   *
+   * @param payout The name of the payout.
+   * @param type The type of the created transactions, {@code CREDIT} or {@code DEBIT}.
+   * @param amount The amount of every created transaction.
+   * @param loginPattern The {@code LIKE} pattern of the logins of the selected players, if any.
+   * @param logins The logins of the selected players, if any.
+   * @return The state of the payouts.
+   * @throws IllegalArgumentException if the payout is invalid.
+   */
+  @WriteOperation
+  public Map<String, Object> start(
+      String payout,
+      String type,
+      BigDecimal amount,
+      @Nullable String loginPattern,
+      @Nullable List<String> logins) {
+    Rule rule = rule(payout, TransactionType.valueOf(type), amount, loginPattern, logins);
+    if (running.compareAndSet(null, payout)) {
+      try {
+        runner.execute(
+            () -> {
+              try {
+                pay(rule);
+              } catch (RuntimeException e) {
+                e.printStackTrace();
+              }
+            });
+      } catch (RejectedExecutionException e) {
+        running.set(null);
+        throw e;
+      }
+    }
+    return status();
+  }
+
+  /**
+   * Applies a payout to every shard, resuming it on the shards where it was interrupted. Shards
+   * where the payout has completed are left unchanged.
+   *
+   * @param payout The name of the payout.
+   * @param type The type of the created transactions.
+   * @param amount The amount of every created transaction.
+   * @param loginPattern The {@code LIKE} pattern of the logins of the selected players, or {@code
+   *     null} to select players regardless of their login.
+   * @param logins The logins of the selected players, or {@code null} to select players
+   *     regardless of such a list. A payout has to be resumed with the same logins.
+   * @return A summary of the processed players.
+   * @throws IllegalArgumentException if the payout is invalid or was started with another rule.
+   * @throws IllegalStateException if a shard cannot be processed.
+   */
+  public Map<String, Object> pay(
+      String payout,
+      TransactionType type,
+      BigDecimal amount,
+      @Nullable String loginPattern,
+      @Nullable Collection<String> logins) {
+    return pay(rule(payout, type, amount, loginPattern, logins));
+  }
+
+  /**
+   * Binds the number of processed players by outcome and the latency of the written chunks to the
+   * given meter registry.
+   *
+   * @param registry The registry to bind the meters to.
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("wallet.payouts.players", appliedPlayers, LongAdder::sum)
+        .tag("outcome", "applied")
+        .register(registry);
+    FunctionCounter.builder("wallet.payouts.players", skippedPlayers, LongAdder::sum)
+        .tag("outcome", "skipped")
+        .register(registry);
+    FunctionCounter.builder("wallet.payouts.players", duplicatePlayers, LongAdder::sum)
+        .tag("outcome", "duplicate")
+        .register(registry);
+    FunctionTimer.builder(
+            "wallet.payouts.chunks",
+            this,
+            payouts -> payouts.writtenChunks.sum(),
+            payouts -> payouts.chunkNanos.sum(),
+            TimeUnit.NANOSECONDS)
+        .register(registry);
+  }
+
+  private synchronized Map<String, Object> pay(Rule rule) {
+    long start = System.currentTimeMillis();
+    long applied = appliedPlayers.sum();
+    long skipped = skippedPlayers.sum();
+    long duplicates = duplicatePlayers.sum();
+    running.set(rule.payoutId);
+    failure = null;
+    startedAt = start;
+    startedChunks = writtenChunks.sum();
+    startedChunkNanos = chunkNanos.sum();
+    startedPlayers = processedPlayers();
+    maxChunkNanos.reset();
+    ExecutorService workers = Executors.newFixedThreadPool(parallelism);
+    try {
+      for (int i = 0; i < shardRouter.size(); i++) {
+        pay(i, rule, workers);
+      }
+    } catch (SQLException e) {
+      throw failed(
+          rule, new IllegalStateException("Could not apply payout " + rule.payoutId + ".", e));
+    } catch (RuntimeException e) {
+      throw failed(rule, e);
+    } finally {
+      workers.shutdown();
+      running.set(null);
+    }
+
+    long millis = System.currentTimeMillis() - start;
+    long processed = processedPlayers() - startedPlayers;
+    Map<String, Object> summary = new LinkedHashMap<>();
+    summary.put("payout", rule.payoutId);
+    summary.put("applied", appliedPlayers.sum() - applied);
+    summary.put("skipped", skippedPlayers.sum() - skipped);
+    summary.put("duplicates", duplicatePlayers.sum() - duplicates);
+    summary.put("totalMillis", millis);
+    summary.put("playersPerSecond", processed * 1000 / Math.max(1, millis));
+    return summary;
+  }
+
+  /** Processes the remaining ranges of a shard and saves the progress after each of them. */
+  private void pay(int index, Rule rule, ExecutorService workers) throws SQLException {
+    DatabaseConnection shard = shardRouter.getShard(index);
+    Run run;
+    try (Connection connection = shard.getConnection()) {
+      run = selectRun(connection, rule.payoutId);
+      if (run == null) {
+        run = insertRun(connection, rule);
+      } else if (!run.rule().equals(rule)) {
+        throw new IllegalArgumentException(
+            "Payout " + rule.payoutId + " was started with a different rule.");
+      } else if (run.finished) {
+        return;
+      }
+    }
+
+    long rangePlayers = (long) chunkPlayers * parallelism;
+    while (run.lastPlayerId < run.maxPlayerId) {
+      long to = Math.min(run.lastPlayerId + rangePlayers, run.maxPlayerId);
+      List<Callable<Void>> chunks = new ArrayList<>();
+      for (long from = run.lastPlayerId; from < to; from += chunkPlayers) {
+        long chunkFrom = from;
+        long chunkTo = Math.min(from + chunkPlayers, to);
+        chunks.add(
+            () -> {
+              writeChunk(index, rule, chunkFrom, chunkTo);
+              return null;
+            });
+      }
+      try {
+        for (Future<Void> chunk : workers.invokeAll(chunks)) {
+          chunk.get();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Payout " + rule.payoutId + " was interrupted.", e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException cause) {
+          throw cause;
+        }
+        throw new IllegalStateException("Could not apply payout " + rule.payoutId + ".", e);
+      }
+
+      run.lastPlayerId = to;
+      try (Connection connection = shard.getConnection();
+          PreparedStatement preparedStatement =
+              connection.prepareStatement(UPDATE_RUN_PROGRESS_SQL)) {
+        preparedStatement.setLong(1, run.lastPlayerId);
+        preparedStatement.setString(2, rule.payoutId);
+        preparedStatement.executeUpdate();
+      }
+    }
+    try (Connection connection = shard.getConnection();
+        PreparedStatement preparedStatement = connection.prepareStatement(FINISH_RUN_SQL)) {
+      preparedStatement.setString(1, rule.payoutId);
+      preparedStatement.executeUpdate();
+    }
+  }
+
+  /**
+   * Applies the payout to the selected players with keys in {@code (from, to]}, under the locks of
+   * their hash ranges.
+   */
+  private void writeChunk(int index, Rule rule, long from, long to) throws SQLException {
+    long start = System.nanoTime();
+    DatabaseConnection shard = shardRouter.getShard(index);
+    List<String> logins = new ArrayList<>();
+    try (Connection connection = shard.getConnection();
+        PreparedStatement preparedStatement =
+            connection.prepareStatement(
+                rule.loginPattern == null
+                    ? SELECT_LOGINS_SQL
+                    : SELECT_LOGINS_SQL + LOGIN_PATTERN_CONDITION)) {
+      preparedStatement.setLong(1, from);
+      preparedStatement.setLong(2, to);
+      if (rule.loginPattern != null) {
+        preparedStatement.setString(3, rule.loginPattern);
+      }
+      try (ResultSet resultSet = preparedStatement.executeQuery()) {
+        while (resultSet.next()) {
+          String login = resultSet.getString(1);
+          if (rule.logins == null || rule.logins.contains(login)) {
+            logins.add(login);
+          }
+        }
+      }
+    }
+    if (!logins.isEmpty()) {
+      shardRouter.write(
+          index,
+          logins,
+          owned -> {
+            try (Connection connection = shard.getConnection()) {
+              writeChunk(shard, connection, rule, owned);
+            } catch (SQLException e) {
+              throw new IllegalStateException(
+                  "Could not apply payout " + rule.payoutId + " up to player " + to + ".", e);
+            }
+          });
+    }
+    long nanos = System.nanoTime() - start;
+    writtenChunks.increment();
+    chunkNanos.add(nanos);
+    maxChunkNanos.accumulate(nanos);
+  }
+
+  /**
+   * Writes the transactions of the given players in a single database transaction. Players already
+   * paid by the payout are left unchanged, as are players who cannot cover a debit.
+   */
+  private void writeChunk(
+      DatabaseConnection shard, Connection connection, Rule rule, Set<String> logins)
+      throws SQLException {
+    if (logins.isEmpty()) {
+      return;
+    }
+    List<String> applied = new ArrayList<>();
+    List<LedgerEvent> events = new ArrayList<>();
+    int skipped = 0;
+    int duplicates = 0;
+    connection.setAutoCommit(false);
+    try {
+      shard.lockRanges(connection, logins);
+      List<Long> playerIds = new ArrayList<>();
+      List<String> transactionIds = new ArrayList<>();
+      Array loginArray = connection.createArrayOf("varchar", logins.toArray());
+      try (PreparedStatement lock = connection.prepareStatement(LOCK_PLAYERS_SQL)) {
+        lock.setArray(1, loginArray);
+        try (ResultSet resultSet = lock.executeQuery()) {
+          while (resultSet.next()) {
+            if (rule.type == TransactionType.DEBIT
+                && resultSet.getBigDecimal("balance").compareTo(rule.amount) < 0) {
+              skipped++;
+              continue;
+            }
+            playerIds.add(resultSet.getLong("id"));
+            transactionIds.add(rule.transactionId(resultSet.getString("login")));
+          }
+        }
+      }
+      Set<String> reserved = new HashSet<>();
+      try (PreparedStatement select = connection.prepareStatement(SELECT_RESERVED_IDS_SQL)) {
+        select.setArray(1, connection.createArrayOf("varchar", transactionIds.toArray()));
+        try (ResultSet resultSet = select.executeQuery()) {
+          while (resultSet.next()) {
+            reserved.add(resultSet.getString(1));
+          }
+        }
+      }
+
+      Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+      List<Long> paidIds = new ArrayList<>();
+      try (PreparedStatement insertKey = connection.prepareStatement(INSERT_TRANSACTION_KEY_SQL)) {
+        List<Integer> candidates = new ArrayList<>();
+        for (int i = 0; i < transactionIds.size(); i++) {
+          if (!reserved.contains(transactionIds.get(i))) {
+            insertKey.setString(1, transactionIds.get(i));
+            insertKey.setTimestamp(2, createdAt);
+            insertKey.addBatch();
+            candidates.add(i);
+          }
+        }
+        duplicates = transactionIds.size() - candidates.size();
+        int[] counts = insertKey.executeBatch();
+        for (int i = 0; i < counts.length; i++) {
+          // An ID reserved since the lookup is left to the payout run that reserved it.
+          if (counts[i] == 0) {
+            duplicates++;
+          } else {
+            applied.add(transactionIds.get(candidates.get(i)));
+            paidIds.add(playerIds.get(candidates.get(i)));
+          }
+        }
+      }
+
+      BigDecimal signedAmount =
+          rule.type == TransactionType.CREDIT ? rule.amount : rule.amount.negate();
+      try (PreparedStatement insertTransaction =
+              connection.prepareStatement(INSERT_TRANSACTION_SQL);
+          PreparedStatement updateBalances = connection.prepareStatement(UPDATE_BALANCES_SQL)) {
+        for (int i = 0; i < applied.size(); i++) {
+          insertTransaction.setLong(1, paidIds.get(i));
+          insertTransaction.setString(2, applied.get(i));
+          insertTransaction.setShort(3, rule.type.getCode());
+          insertTransaction.setBigDecimal(4, rule.amount);
+          insertTransaction.setTimestamp(5, createdAt);
+          insertTransaction.addBatch();
+        }
+        insertTransaction.executeBatch();
+        updateBalances.setBigDecimal(1, signedAmount);
+        updateBalances.setArray(2, connection.createArrayOf("bigint", paidIds.toArray()));
+        try (ResultSet resultSet = updateBalances.executeQuery()) {
+          while (resultSet.next()) {
+            String login = resultSet.getString("login");
+            events.add(
+                new LedgerEvent(
+                    new Transaction(login, rule.transactionId(login), rule.type, rule.amount),
+                    resultSet.getBigDecimal("balance"),
+                    resultSet.getLong("ledger_version")));
+          }
+        }
+      }
+      try (PreparedStatement updateRun = connection.prepareStatement(UPDATE_RUN_COUNTS_SQL)) {
+        updateRun.setLong(1, applied.size());
+        updateRun.setLong(2, skipped);
+        updateRun.setString(3, rule.payoutId);
+        updateRun.executeUpdate();
+      }
+      connection.commit();
+    } catch (SQLException | RuntimeException e) {
+      connection.rollback();
+      throw e;
+    }
+    applied.forEach(transactionIdIndex::add);
+    events.forEach(ledgerEventBus::publish);
+    appliedPlayers.add(applied.size());
+    skippedPlayers.add(skipped);
+    duplicatePlayers.add(duplicates);
+  }
+
+  /** Records the failure of a payout for the status and returns it. */
+  private RuntimeException failed(Rule rule, RuntimeException e) {
+    Map<String, Object> failed = new LinkedHashMap<>();
+    failed.put("payout", rule.payoutId);
+    failed.put("error", e.getClass().getSimpleName());
+    failed.put("message", e.getMessage());
+    failed.put("failedAt", LocalDateTime.now().toString());
+    failure = failed;
+    return e;
+  }
+
+  private long processedPlayers() {
+    return appliedPlayers.sum() + skippedPlayers.sum() + duplicatePlayers.sum();
+  }
+
+  private static Rule rule(
+      String payoutId,
+      TransactionType type,
+      BigDecimal amount,
+      @Nullable String loginPattern,
+      @Nullable Collection<String> loginList) {
+    if (payoutId == null || !PAYOUT_ID.matcher(payoutId).matches()) {
+      throw new IllegalArgumentException(
+          "A payout name of up to 64 letters, digits, dots, dashes or underscores is required.");
+    }
+    if (type == null || amount == null || amount.signum() <= 0) {
+      throw new IllegalArgumentException("A transaction type and a positive amount are required.");
+    }
+    Set<String> logins = null;
+    String loginsDigest = null;
+    if (loginList != null) {
+      logins = new TreeSet<>();
+      for (String login : loginList) {
+        if (login != null && !login.isBlank()) {
+          logins.add(login.trim());
+        }
+      }
+      loginsDigest = digest(logins);
+    }
+    return new Rule(payoutId, type, amount, loginPattern, loginsDigest, logins);
+  }
+
+  /** Returns the SHA-256 digest of the sorted logins, one per line. */
+  private static String digest(Set<String> logins) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      for (String login : logins) {
+        digest.update(login.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '\n');
+      }
+      return HexFormat.of().formatHex(digest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static Run selectRun(Connection connection, String payoutId) throws SQLException {
+    try (PreparedStatement preparedStatement = connection.prepareStatement(SELECT_RUN_SQL)) {
+      preparedStatement.setString(1, payoutId);
+      try (ResultSet resultSet = preparedStatement.executeQuery()) {
+        return resultSet.next() ? readRun(resultSet) : null;
+      }
+    }
+  }
+
+  private static Run insertRun(Connection connection, Rule rule) throws SQLException {
+    try (PreparedStatement preparedStatement = connection.prepareStatement(INSERT_RUN_SQL)) {
+      preparedStatement.setString(1, rule.payoutId);
+      preparedStatement.setShort(2, rule.type.getCode());
+      preparedStatement.setBigDecimal(3, rule.amount);
+      preparedStatement.setString(4, rule.loginPattern);
+      preparedStatement.setString(5, rule.loginsDigest);
+      try (ResultSet resultSet = preparedStatement.executeQuery()) {
+        resultSet.next();
+        return readRun(resultSet);
+      }
+    }
+  }
+
+  private static Run readRun(ResultSet resultSet) throws SQLException {
+    Run run = new Run();
+    run.payoutId = resultSet.getString("payout_id");
+    run.type = TransactionType.fromCode(resultSet.getShort("type_code"));
+    run.amount = resultSet.getBigDecimal("amount");
+    run.loginPattern = resultSet.getString("login_pattern");
+    run.loginsDigest = resultSet.getString("logins_digest");
+    run.finished = resultSet.getTimestamp("finished_at") != null;
+    run.lastPlayerId = resultSet.getLong("last_player_id");
+    run.maxPlayerId = resultSet.getLong("max_player_id");
+    return run;
+  }
+
+  /** The transaction a payout applies and the players it selects. */
+  private static final class Rule {
+    private final String payoutId;
+    private final TransactionType type;
+    private final BigDecimal amount;
+    private final String loginPattern;
+    private final String loginsDigest;
+    private final Set<String> logins;
+
+    private Rule(
+        String payoutId,
+        TransactionType type,
+        BigDecimal amount,
+        String loginPattern,
+        String loginsDigest,
+        Set<String> logins) {
+      this.payoutId = payoutId;
+      this.type = type;
+      this.amount = amount;
+      this.loginPattern = loginPattern;
+      this.loginsDigest = loginsDigest;
+      this.logins = logins;
+    }
+
+    private String transactionId(String login) {
+      return "payout:" + payoutId + ":" + login;
+    }
+
+    /** Compares the stored parts of the rules, the logins by their digest. */
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof Rule rule
+          && payoutId.equals(rule.payoutId)
+          && type == rule.type
+          && amount.compareTo(rule.amount) == 0
+          && Objects.equals(loginPattern, rule.loginPattern)
+          && Objects.equals(loginsDigest, rule.loginsDigest);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(payoutId, type, loginPattern, loginsDigest);
+    }
+  }
+
+  /** The saved state of a payout on a shard. */
+  private static final class Run {
+    private String payoutId;
+    private TransactionType type;
+    private BigDecimal amount;
+    private String loginPattern;
+    private String loginsDigest;
+    private boolean finished;
+    private long lastPlayerId;
+    private long maxPlayerId;
+
+    /** Returns the rule the payout was started with, without its logins. */
+    private Rule rule() {
+      return new Rule(payoutId, type, amount, loginPattern, loginsDigest, null);
+    }
+  }
+}
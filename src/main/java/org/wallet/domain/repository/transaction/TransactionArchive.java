@@ -0,0 +1,724 @@
+package org.wallet.domain.repository.transaction;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.wallet.domain.model.Transaction;
+import org.wallet.domain.model.TransactionType;
+import org.wallet.domain.repository.DatabaseConnection;
+import org.wallet.domain.repository.PartitionMaintenance;
+import org.wallet.domain.repository.shard.ShardRouter;
+import org.wallet.utils.WalletProperties;
+
+/**
+ * The {@code TransactionArchive} class moves transactions older than the configured number of
+ * months out of the database into compressed {@link ArchiveFile}s in the archive directory, one
+ * file per month and shard, and reads them back for the transaction history of a player. It is
+ * exposed as the {@code archive} actuator endpoint, which lists the archived months, archives on
+ * demand and restores a month into the database.
+ *
+ * <p>A month is archived in two steps. Its rows are first written to a temporary file that is
+ * synced and renamed into place, and only then removed from the database: a month with a partition
+ * of its own is detached and dropped, rows in the legacy partition are deleted in batches. The
+ * transaction IDs stay in {@code wallet.transaction_keys}, so an archived ID can still not be
+ * reused. A crash between both steps leaves the rows in both places; readers drop the duplicates
+ * and the next run archives the remaining rows again.
+ *
+ * <p>The files are not tied to a shard when read, so the history of a player moved to another
+ * shard is still found.
+ *
+ * <p>Every instance reads the files of the same directory, so {@code transactions.archive-dir} must
+ * be storage shared by all instances, such as a network volume. Archiving and restoring hold an
+ * advisory lock on shard 0, so only one instance writes to the directory at a time, and every
+ * instance picks up the files added or removed by the others every minute.
+ */
+@Component
+@Endpoint(id = "archive")
+public class TransactionArchive implements MeterBinder {
+
+  private static final String FILE_SUFFIX = ".wtx";
+  private static final String TEMPORARY_SUFFIX = ".tmp";
+  private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+  /**
+   * Expired rows sorted by month and login. The binary collation sorts logins the way {@link
+   * String#compareTo} does, which the login ranges of the archive files rely on.
+   */
+  private static final String SELECT_EXPIRED_SQL =
+      "SELECT t.id, COALESCE(p.login, t.player_login) AS player_login, t.transaction_id,"
+          + " t.type_code, t.type, t.amount, t.created_at FROM wallet.transactions t"
+          + " LEFT JOIN wallet.players p ON p.id = t.player_id WHERE t.created_at < ?"
+          + " ORDER BY date_trunc('month', t.created_at),"
+          + " COALESCE(p.login, t.player_login) COLLATE \"C\", t.created_at, t.id";
+  private static final String TRY_LOCK_SQL = "SELECT pg_try_advisory_lock(?)";
+  private static final String UNLOCK_SQL = "SELECT pg_advisory_unlock(?)";
+  private static final String SELECT_PARTITION_EXISTS_SQL = "SELECT to_regclass(?) IS NOT NULL";
+  private static final String SELECT_NEWER_ROWS_EXIST_SQL =
+      "SELECT EXISTS (SELECT 1 FROM wallet.%s WHERE id > ?)";
+  private static final String DETACH_PARTITION_SQL =
+      "ALTER TABLE wallet.transactions DETACH PARTITION wallet.%s CONCURRENTLY";
+  private static final String DROP_PARTITION_SQL = "DROP TABLE wallet.%s";
+  private static final String DELETE_ARCHIVED_SQL =
+      "DELETE FROM wallet.transactions WHERE (id, created_at) IN (SELECT id, created_at"
+          + " FROM wallet.transactions WHERE created_at >= ? AND created_at < ? AND id <= ?"
+          + " LIMIT ?)";
+  private static final String CREATE_RESTORED_TABLE_SQL =
+      "CREATE TEMPORARY TABLE restored_transactions (player_login VARCHAR(255),"
+          + " transaction_id VARCHAR(255), type_code SMALLINT, amount NUMERIC,"
+          + " created_at TIMESTAMP) ON COMMIT DROP";
+  private static final String COPY_RESTORED_SQL =
+      "COPY restored_transactions (player_login, transaction_id, type_code, amount, created_at)"
+          + " FROM STDIN";
+  private static final String INSERT_RESTORED_KEYS_SQL =
+      "INSERT INTO wallet.transaction_keys (transaction_id, created_at)"
+          + " SELECT transaction_id, created_at FROM restored_transactions"
+          + " ON CONFLICT (transaction_id) DO NOTHING";
+  private static final String INSERT_RESTORED_TRANSACTIONS_SQL =
+      "INSERT INTO wallet.transactions (player_id, transaction_id, type_code, amount, created_at)"
+          + " SELECT DISTINCT ON (r.transaction_id, r.created_at) p.id, r.transaction_id,"
+          + " r.type_code, r.amount, r.created_at FROM restored_transactions r"
+          + " JOIN wallet.players p ON p.login = r.player_login WHERE NOT EXISTS (SELECT 1"
+          + " FROM wallet.transactions t WHERE t.transaction_id = r.transaction_id"
+          + " AND t.created_at = r.created_at)";
+
+  /** The advisory lock key held on shard 0 while the archive directory is written. */
+  private static final long ARCHIVE_LOCK = 0x41524348495645L;
+
+  /** Number of rows fetched, deleted or restored per round trip. */
+  private static final int BATCH_SIZE = 5_000;
+
+  private final ShardRouter shardRouter;
+  private final PartitionMaintenance partitionMaintenance;
+  private final Clock clock;
+  private final Path directory;
+  private final int archiveAfterMonths;
+
+  private final List<ArchiveFile> files = new CopyOnWriteArrayList<>();
+  private final LongAdder archivedRows = new LongAdder();
+  private final LongAdder restoredRows = new LongAdder();
+
+  /**
+   * Creates the archive with the directory and cutoff from the application configuration.
+   *
+   * @param shardRouter The router providing the connections to every shard.
+   * @param partitionMaintenance The job creating the partitions of restored months.
+   * @param transactions The settings of the transaction history.
+   */
+  @Autowired
+  public TransactionArchive(
+      ShardRouter shardRouter,
+      PartitionMaintenance partitionMaintenance,
+      WalletProperties.Transactions transactions) {
+    this(
+        shardRouter,
+        partitionMaintenance,
+        Clock.systemDefaultZone(),
+        Path.of(transactions.archiveDir()),
+        transactions.archiveAfterMonths());
+  }
+
+  /**
+   * Creates the archive with the given clock, directory and cutoff.
+   *
+   * @param shardRouter The router providing the connections to every shard.
+   * @param partitionMaintenance The job creating the partitions of restored months.
+   * @param clock The clock determining the current month.
+   * @param directory The directory holding the archive files.
+   * @param archiveAfterMonths The number of past months kept in the database.
+   */
+  public TransactionArchive(
+      ShardRouter shardRouter,
+      PartitionMaintenance partitionMaintenance,
+      Clock clock,
+      Path directory,
+      int archiveAfterMonths) {
+    this.shardRouter = shardRouter;
+    this.partitionMaintenance = partitionMaintenance;
+    this.clock = clock;
+    this.directory = directory;
+    this.archiveAfterMonths = archiveAfterMonths;
+  }
+
+  /**
+   * Opens the archive files in the directory.
+   *
+   * @throws IllegalStateException if the directory cannot be read.
+   */
+  @PostConstruct
+  public void init() {
+    try {
+      Files.createDirectories(directory);
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not open the transaction archive " + directory, e);
+    }
+    refresh();
+  }
+
+  /**
+   * Opens the archive files added to the directory by other instances and forgets the ones they
+   * removed.
+   *
+   * @throws IllegalStateException if the directory cannot be read.
+   */
+  @Scheduled(fixedDelay = 60_000)
+  public synchronized void refresh() {
+    Set<Path> known = new HashSet<>();
+    for (ArchiveFile file : files) {
+      if (Files.exists(file.getPath())) {
+        known.add(file.getPath());
+      } else {
+        files.remove(file);
+      }
+    }
+    try (DirectoryStream<Path> archived =
+        Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+      for (Path path : archived) {
+        if (!known.contains(path)) {
+          files.add(ArchiveFile.open(path));
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not open the transaction archive " + directory, e);
+    }
+  }
+
+  /**
+   * Retrieves the archived transactions of a player, oldest first. Only files whose login range
+   * contains the player are read. A file removed by a restore on another instance is skipped, as
+   * its transactions are back in the database.
+   *
+   * @param playerLogin The login of the player.
+   * @return The archived transactions of the player.
+   * @throws IllegalStateException if an archive file cannot be read.
+   */
+  public List<Transaction> getTransactionsByPlayerLogin(String playerLogin) {
+    List<ArchivedTransaction> archived = new ArrayList<>();
+    for (ArchiveFile file : files) {
+      if (file.mayContain(playerLogin)) {
+        try {
+          archived.addAll(file.read(playerLogin));
+        } catch (NoSuchFileException e) {
+          files.remove(file);
+        } catch (IOException e) {
+          throw new IllegalStateException("Could not read the archive file " + file.getPath(), e);
+        }
+      }
+    }
+    archived.sort(Comparator.comparing(ArchivedTransaction::createdAt));
+    Set<String> transactionIds = new HashSet<>();
+    return archived.stream()
+        .map(ArchivedTransaction::transaction)
+        .filter(transaction -> transactionIds.add(transaction.transactionId()))
+        .toList();
+  }
+
+  /**
+   * Sums the archived credits minus debits of every player by reading each archive file once. A
+   * transaction archived twice by an interrupted run is counted once; both copies are in files of
+   * the same month, so the IDs of one month at a time are kept to find them.
+   *
+   * @return The archived balance of every player with archived transactions.
+   * @throws IllegalStateException if an archive file cannot be read.
+   */
+  public Map<String, BigDecimal> getBalancesByPlayerLogin() {
+    Map<YearMonth, List<ArchiveFile>> months = new TreeMap<>();
+    for (ArchiveFile file : files) {
+      months
+          .computeIfAbsent(YearMonth.from(file.getMinCreatedAt()), month -> new ArrayList<>())
+          .add(file);
+    }
+    Map<String, BigDecimal> balances = new HashMap<>();
+    for (List<ArchiveFile> monthFiles : months.values()) {
+      Set<String> transactionIds = new HashSet<>();
+      for (ArchiveFile file : monthFiles) {
+        try {
+          file.forEach(
+              archived -> {
+                Transaction transaction = archived.transaction();
+                if (!transactionIds.add(transaction.transactionId())) {
+                  return;
+                }
+                BigDecimal amount =
+                    transaction.type() == TransactionType.CREDIT
+                        ? transaction.amount()
+                        : transaction.amount().negate();
+                balances.merge(transaction.playerLogin(), amount, BigDecimal::add);
+              });
+        } catch (IOException e) {
+          throw new IllegalStateException("Could not read the archive file " + file.getPath(), e);
+        }
+      }
+    }
+    return balances;
+  }
+
+  /**
+   * Archives the expired months every night, after the partition maintenance. Only the instance
+   * taking the archive lock runs it.
+   */
+  @Scheduled(cron = "0 30 3 * * *")
+  public void archiveExpired() {
+    withArchiveLock(this::archiveMonths);
+  }
+
+  /**
+   * Returns the archived months and the size of the archive.
+   *
+   * @return The state of the archive.
+   */
+  @ReadOperation
+  public Map<String, Object> status() {
+    Set<String> months = new TreeSet<>();
+    long rows = 0;
+    long bytes = 0;
+    for (ArchiveFile file : files) {
+      months.add(YearMonth.from(file.getMinCreatedAt()).toString());
+      rows += file.getRowCount();
+      bytes += file.getSize();
+    }
+    Map<String, Object> status = new LinkedHashMap<>();
+    status.put("archiveAfterMonths", archiveAfterMonths);
+    status.put("months", months);
+    status.put("files", files.size());
+    status.put("rows", rows);
+    status.put("bytes", bytes);
+    return status;
+  }
+
+  /**
+   * Moves the transactions of every month before the cutoff from every shard to the archive.
+   *
+   * @return A summary of the archived months and rows.
+   * @throws IllegalStateException if the transactions cannot be archived or another instance is
+   *     writing to the archive.
+   */
+  @WriteOperation
+  public Map<String, Object> archive() {
+    Map<String, Object> summary = withArchiveLock(this::archiveMonths);
+    if (summary == null) {
+      throw new IllegalStateException("The archive is being written by another instance.");
+    }
+    return summary;
+  }
+
+  /**
+   * Copies the transactions of an archived month back into the database and removes the month
+   * from the archive. Every transaction is written to the shard currently owning its player;
+   * transactions already present are skipped, so an interrupted restore can be repeated.
+   *
+   * @param month The month to restore, formatted as {@code yyyy-MM}.
+   * @return A summary of the restored rows.
+   * @throws IllegalArgumentException if the month is invalid or not archived.
+   * @throws IllegalStateException if the month cannot be restored or another instance is writing
+   *     to the archive.
+   */
+  @DeleteOperation
+  public Map<String, Object> restore(@Selector String month) {
+    Map<String, Object> summary = withArchiveLock(() -> restoreMonth(month));
+    if (summary == null) {
+      throw new IllegalStateException("The archive is being written by another instance.");
+    }
+    return summary;
+  }
+
+  /**
+   * Runs a change of the archive directory while holding the archive lock, after removing the
+   * files left behind by an interrupted run and picking up the files of the other instances.
+   *
+   * @return The result of the change, or {@code null} if another instance holds the lock.
+   */
+  private synchronized Map<String, Object> withArchiveLock(Supplier<Map<String, Object>> change) {
+    try (Connection connection = shardRouter.getShard(0).getConnection()) {
+      if (!advisoryLock(connection, TRY_LOCK_SQL)) {
+        return null;
+      }
+      try {
+        try (DirectoryStream<Path> temporary =
+            Files.newDirectoryStream(directory, "*" + TEMPORARY_SUFFIX)) {
+          for (Path path : temporary) {
+            Files.delete(path);
+          }
+        }
+        refresh();
+        return change.get();
+      } finally {
+        advisoryLock(connection, UNLOCK_SQL);
+      }
+    } catch (SQLException | IOException e) {
+      throw new IllegalStateException("Could not lock the transaction archive.", e);
+    }
+  }
+
+  private Map<String, Object> archiveMonths() {
+    long start = System.currentTimeMillis();
+    LocalDateTime cutoff =
+        YearMonth.now(clock).minusMonths(archiveAfterMonths).atDay(1).atStartOfDay();
+    Set<String> months = new TreeSet<>();
+    long rows = 0;
+    long bytes = 0;
+    try {
+      for (int i = 0; i < shardRouter.size(); i++) {
+        DatabaseConnection shard = shardRouter.getShard(i);
+        List<ArchiveFile> written = new ArrayList<>();
+        long maxId = writeExpired(shard, i, cutoff, written);
+        for (ArchiveFile file : written) {
+          YearMonth month = YearMonth.from(file.getMinCreatedAt());
+          removeArchived(shard, month, maxId);
+          months.add(month.toString());
+          rows += file.getRowCount();
+          bytes += file.getSize();
+        }
+      }
+    } catch (SQLException | IOException e) {
+      throw new IllegalStateException("Could not archive transactions.", e);
+    }
+    archivedRows.add(rows);
+    return summary(months, rows, bytes, System.currentTimeMillis() - start);
+  }
+
+  private Map<String, Object> restoreMonth(String month) {
+    long start = System.currentTimeMillis();
+    YearMonth yearMonth;
+    try {
+      yearMonth = YearMonth.parse(month);
+    } catch (DateTimeParseException e) {
+      throw new IllegalArgumentException("Invalid month: " + month, e);
+    }
+    List<ArchiveFile> restored =
+        files.stream()
+            .filter(file -> YearMonth.from(file.getMinCreatedAt()).equals(yearMonth))
+            .toList();
+    if (restored.isEmpty()) {
+      throw new IllegalArgumentException("No transactions of " + month + " are archived.");
+    }
+
+    long rows = 0;
+    long bytes = 0;
+    long inserted = 0;
+    List<Connection> connections = new ArrayList<>();
+    try {
+      List<CopyIn> copies = new ArrayList<>();
+      for (int i = 0; i < shardRouter.size(); i++) {
+        partitionMaintenance.createPartition(shardRouter.getShard(i), "transactions", yearMonth);
+        Connection connection = shardRouter.getShard(i).getConnection();
+        connections.add(connection);
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+          statement.execute(CREATE_RESTORED_TABLE_SQL);
+        }
+        copies.add(
+            connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_RESTORED_SQL));
+      }
+      List<StringBuilder> buffers = new ArrayList<>();
+      copies.forEach(copy -> buffers.add(new StringBuilder()));
+      int[] buffered = new int[copies.size()];
+      for (ArchiveFile file : restored) {
+        file.forEach(
+            archived -> {
+              int shard = shardRouter.shardOf(archived.transaction().playerLogin());
+              appendCopyRow(buffers.get(shard), archived);
+              if (++buffered[shard] % BATCH_SIZE == 0) {
+                writeToCopy(copies.get(shard), buffers.get(shard), month);
+              }
+            });
+        rows += file.getRowCount();
+        bytes += file.getSize();
+      }
+      for (int i = 0; i < connections.size(); i++) {
+        writeToCopy(copies.get(i), buffers.get(i), month);
+        copies.get(i).endCopy();
+        try (Statement statement = connections.get(i).createStatement()) {
+          statement.executeUpdate(INSERT_RESTORED_KEYS_SQL);
+          inserted += statement.executeUpdate(INSERT_RESTORED_TRANSACTIONS_SQL);
+        }
+      }
+      for (Connection connection : connections) {
+        connection.commit();
+      }
+      for (ArchiveFile file : restored) {
+        files.remove(file);
+        Files.delete(file.getPath());
+      }
+    } catch (SQLException | IOException e) {
+      throw new IllegalStateException("Could not restore " + month + ".", e);
+    } finally {
+      for (Connection connection : connections) {
+        try {
+          connection.close();
+        } catch (SQLException e) {
+          e.printStackTrace();
+        }
+      }
+    }
+    restoredRows.add(inserted);
+
+    Map<String, Object> summary =
+        summary(Set.of(yearMonth.toString()), rows, bytes, System.currentTimeMillis() - start);
+    summary.put("restored", inserted);
+    summary.put("skipped", rows - inserted);
+    return summary;
+  }
+
+  /**
+   * Binds the number of archived and restored rows and the size of the archive to the given meter
+   * registry.
+   *
+   * @param registry The registry to bind the meters to.
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("wallet.archive.rows", archivedRows, LongAdder::sum)
+        .tag("direction", "archived")
+        .register(registry);
+    FunctionCounter.builder("wallet.archive.rows", restoredRows, LongAdder::sum)
+        .tag("direction", "restored")
+        .register(registry);
+    Gauge.builder("wallet.archive.bytes", files, archived -> size(archived))
+        .register(registry);
+  }
+
+  /**
+   * Streams the expired transactions of a shard, sorted by month and player, into one published
+   * file per month.
+   *
+   * @return The highest ID among the archived rows.
+   */
+  private long writeExpired(
+      DatabaseConnection shard, int index, LocalDateTime cutoff, List<ArchiveFile> written)
+      throws SQLException, IOException {
+    long maxId = 0;
+    try (Connection connection = shard.getConnection()) {
+      connection.setAutoCommit(false);
+      try (PreparedStatement select = connection.prepareStatement(SELECT_EXPIRED_SQL)) {
+        select.setTimestamp(1, Timestamp.valueOf(cutoff));
+        select.setFetchSize(BATCH_SIZE);
+        try (ResultSet resultSet = select.executeQuery()) {
+          PendingFile pending = null;
+          try {
+            while (resultSet.next()) {
+              maxId = Math.max(maxId, resultSet.getLong("id"));
+              ArchivedTransaction archived = readRow(resultSet);
+              YearMonth month = YearMonth.from(archived.createdAt());
+              if (pending == null || !pending.month().equals(month)) {
+                if (pending != null) {
+                  written.add(publish(pending));
+                }
+                pending = createPendingFile(month, index);
+              }
+              pending.writer().append(archived);
+            }
+            if (pending != null) {
+              written.add(publish(pending));
+              pending = null;
+            }
+          } finally {
+            if (pending != null) {
+              discard(pending);
+            }
+          }
+        }
+      }
+      connection.commit();
+    }
+    return maxId;
+  }
+
+  /**
+   * Removes the archived rows of a month from a shard. A partition holding only archived rows is
+   * dropped; otherwise the archived rows are deleted in batches.
+   */
+  private void removeArchived(DatabaseConnection shard, YearMonth month, long maxId)
+      throws SQLException {
+    String partition = "transactions_p" + month.format(SUFFIX);
+    try (Connection connection = shard.getConnection()) {
+      if (partitionExists(connection, partition) && !hasNewerRows(connection, partition, maxId)) {
+        try (Statement statement = connection.createStatement()) {
+          statement.executeUpdate(String.format(DETACH_PARTITION_SQL, partition));
+          statement.executeUpdate(String.format(DROP_PARTITION_SQL, partition));
+        }
+        return;
+      }
+      try (PreparedStatement delete = connection.prepareStatement(DELETE_ARCHIVED_SQL)) {
+        delete.setTimestamp(1, Timestamp.valueOf(month.atDay(1).atStartOfDay()));
+        delete.setTimestamp(2, Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay()));
+        delete.setLong(3, maxId);
+        delete.setInt(4, BATCH_SIZE);
+        while (delete.executeUpdate() > 0) {
+          // Each batch is committed on its own to keep locks and WAL bursts short.
+        }
+      }
+    }
+  }
+
+  private static boolean advisoryLock(Connection connection, String sql) throws SQLException {
+    try (PreparedStatement statement = connection.prepareStatement(sql)) {
+      statement.setLong(1, ARCHIVE_LOCK);
+      try (ResultSet resultSet = statement.executeQuery()) {
+        return resultSet.next() && resultSet.getBoolean(1);
+      }
+    }
+  }
+
+  private static boolean partitionExists(Connection connection, String partition)
+      throws SQLException {
+    try (PreparedStatement statement = connection.prepareStatement(SELECT_PARTITION_EXISTS_SQL)) {
+      statement.setString(1, "wallet." + partition);
+      try (ResultSet resultSet = statement.executeQuery()) {
+        return resultSet.next() && resultSet.getBoolean(1);
+      }
+    }
+  }
+
+  /** Checks for rows written to the partition after the archived rows were read. */
+  private static boolean hasNewerRows(Connection connection, String partition, long maxId)
+      throws SQLException {
+    try (PreparedStatement statement =
+        connection.prepareStatement(String.format(SELECT_NEWER_ROWS_EXIST_SQL, partition))) {
+      statement.setLong(1, maxId);
+      try (ResultSet resultSet = statement.executeQuery()) {
+        return resultSet.next() && resultSet.getBoolean(1);
+      }
+    }
+  }
+
+  private PendingFile createPendingFile(YearMonth month, int shard) throws IOException {
+    String name =
+        String.format(
+            "transactions_p%s_s%d_%d%s",
+            month.format(SUFFIX), shard, System.currentTimeMillis(), FILE_SUFFIX);
+    Path temporary = directory.resolve(name + TEMPORARY_SUFFIX);
+    ArchiveFile.Writer writer = ArchiveFile.create(temporary);
+    return new PendingFile(month, directory.resolve(name), temporary, writer);
+  }
+
+  /** Closes a pending file and atomically moves it into place. */
+  private ArchiveFile publish(PendingFile pending) throws IOException {
+    pending.writer().close();
+    Files.move(pending.temporary(), pending.path(), StandardCopyOption.ATOMIC_MOVE);
+    ArchiveFile file = ArchiveFile.open(pending.path());
+    files.add(file);
+    return file;
+  }
+
+  private static void discard(PendingFile pending) {
+    try {
+      pending.writer().close();
+      Files.deleteIfExists(pending.temporary());
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private static ArchivedTransaction readRow(ResultSet resultSet) throws SQLException {
+    short code = resultSet.getShort("type_code");
+    TransactionType type =
+        resultSet.wasNull()
+            ? TransactionType.valueOf(resultSet.getString("type"))
+            : TransactionType.fromCode(code);
+    Transaction transaction =
+        new Transaction(
+            resultSet.getString("player_login"),
+            resultSet.getString("transaction_id"),
+            type,
+            resultSet.getBigDecimal("amount"));
+    return new ArchivedTransaction(
+        transaction, resultSet.getTimestamp("created_at").toLocalDateTime());
+  }
+
+  /** Appends an archived transaction to the buffer as a row of the COPY text format. */
+  private static void appendCopyRow(StringBuilder buffer, ArchivedTransaction archived) {
+    Transaction transaction = archived.transaction();
+    appendCopyValue(buffer, transaction.playerLogin()).append('\t');
+    appendCopyValue(buffer, transaction.transactionId()).append('\t');
+    buffer.append(transaction.type().getCode()).append('\t');
+    buffer.append(transaction.amount().toPlainString()).append('\t');
+    buffer.append(Timestamp.valueOf(archived.createdAt())).append('\n');
+  }
+
+  private static StringBuilder appendCopyValue(StringBuilder buffer, String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '\\' -> buffer.append("\\\\");
+        case '\t' -> buffer.append("\\t");
+        case '\n' -> buffer.append("\\n");
+        case '\r' -> buffer.append("\\r");
+        default -> buffer.append(c);
+      }
+    }
+    return buffer;
+  }
+
+  private static void writeToCopy(CopyIn copy, StringBuilder buffer, String month) {
+    byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+    buffer.setLength(0);
+    try {
+      copy.writeToCopy(bytes, 0, bytes.length);
+    } catch (SQLException e) {
+      throw new IllegalStateException("Could not restore " + month + ".", e);
+    }
+  }
+
+  private static double size(List<ArchiveFile> files) {
+    return files.stream().mapToLong(ArchiveFile::getSize).sum();
+  }
+
+  private static Map<String, Object> summary(
+      Set<String> months, long rows, long bytes, long millis) {
+    Map<String, Object> summary = new LinkedHashMap<>();
+    summary.put("months", months);
+    summary.put("rows", rows);
+    summary.put("bytes", bytes);
+    summary.put("millis", millis);
+    summary.put("rowsPerSecond", millis == 0 ? rows : rows * 1_000 / millis);
+    return summary;
+  }
+
+  /** A file of a single month that is still being written. */
+  private record PendingFile(
+      YearMonth month, Path path, Path temporary, ArchiveFile.Writer writer) {}
+}
@@ -0,0 +1,162 @@
+package org.wallet.domain.repository.transaction;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.wallet.utils.ScalableBloomFilter;
+
+/**
+ * The {@code TransactionIdIndex} class is an in-memory dedup index of transaction IDs kept in front
+ * of the {@link TransactionRepository}. A bloom filter answers "definitely new" without a query, a
+ * bounded set of recently written IDs answers retries exactly, and only possible positives fall
+ * back to the database.
+ *
+ * <p>The filter is filled with the stored IDs by a background thread started with the application,
+ * so neither the startup nor the first transaction waits for the scan. Until it is filled, every
+ * lookup that is not a recent ID is answered by the database.
+ */
+@Component
+@Lazy(false)
+@DependsOn("liquibaseManager")
+@RequiredArgsConstructor
+public class TransactionIdIndex implements MeterBinder {
+
+  private static final long EXPECTED_TRANSACTIONS = 1_000_000;
+  private static final double FALSE_POSITIVE_PROBABILITY = 0.001;
+  private static final int RECENT_IDS_CAPACITY = 100_000;
+
+  /** The repository used to populate the index and to resolve possible positives. */
+  private final TransactionRepository transactionRepository;
+
+  private final ScalableBloomFilter filter =
+      new ScalableBloomFilter(EXPECTED_TRANSACTIONS, FALSE_POSITIVE_PROBABILITY);
+
+  private final Set<String> recentIds =
+      Collections.newSetFromMap(
+          Collections.synchronizedMap(
+              new LinkedHashMap<>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                  return size() > RECENT_IDS_CAPACITY;
+                }
+              }));
+
+  private final LongAdder filterMisses = new LongAdder();
+  private final LongAdder recentHits = new LongAdder();
+  private final LongAdder databaseHits = new LongAdder();
+  private final LongAdder falsePositives = new LongAdder();
+
+  private volatile boolean loaded;
+
+  /** Starts populating the index in the background. */
+  @PostConstruct
+  public void init() {
+    Thread loader = new Thread(this::load, "transaction-id-index-loader");
+    loader.setDaemon(true);
+    loader.start();
+  }
+
+  /**
+   * Populates the index with all transaction IDs already stored in the repository, after which
+   * the filter answers for new IDs.
+   */
+  public void load() {
+    transactionRepository.forEachTransactionId(filter::add);
+    loaded = true;
+  }
+
+  /**
+   * Registers a transaction ID that has just been stored.
+   *
+   * @param transactionId The ID of the stored transaction.
+   */
+  public void add(String transactionId) {
+    filter.add(transactionId);
+    recentIds.add(transactionId);
+  }
+
+  /**
+   * Checks if a transaction with the given ID exists, querying the repository only when the bloom
+   * filter reports a possible positive for an ID that was not written recently, or when the filter
+   * is not populated yet.
+   *
+   * @param transactionId The ID of the transaction to check.
+   * @return {@code true} if the transaction exists, {@code false} otherwise.
+   */
+  public boolean contains(String transactionId) {
+    if (loaded && !filter.mightContain(transactionId)) {
+      filterMisses.increment();
+      return false;
+    }
+    if (recentIds.contains(transactionId)) {
+      recentHits.increment();
+      return true;
+    }
+    if (transactionRepository.isTransactionExist(transactionId)) {
+      databaseHits.increment();
+      return true;
+    }
+    if (loaded) {
+      falsePositives.increment();
+    }
+    return false;
+  }
+
+  /**
+   * Returns the number of lookups answered without a database query.
+   *
+   * @return The number of avoided queries.
+   */
+  public long getQueriesAvoided() {
+    return filterMisses.sum() + recentHits.sum();
+  }
+
+  /**
+   * Returns the number of lookups where the filter reported a possible positive that the database
+   * did not confirm.
+   *
+   * @return The number of false positives.
+   */
+  public long getFalsePositives() {
+    return falsePositives.sum();
+  }
+
+  /**
+   * Binds the index statistics to the given meter registry.
+   *
+   * @param registry The registry to bind the meters to.
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    lookupCounter(registry, "filter_miss", filterMisses);
+    lookupCounter(registry, "recent_hit", recentHits);
+    lookupCounter(registry, "database_hit", databaseHits);
+    lookupCounter(registry, "false_positive", falsePositives);
+    Gauge.builder("wallet.transaction.dedup.filter.size", filter, ScalableBloomFilter::size)
+        .register(registry);
+    Gauge.builder("wallet.transaction.dedup.filter.bytes", filter, ScalableBloomFilter::memoryBytes)
+        .register(registry);
+    Gauge.builder(
+            "wallet.transaction.dedup.filter.fpp",
+            filter,
+            ScalableBloomFilter::expectedFalsePositiveProbability)
+        .register(registry);
+  }
+
+  private void lookupCounter(MeterRegistry registry, String result, LongAdder adder) {
+    FunctionCounter.builder("wallet.transaction.dedup.lookups", adder, LongAdder::sum)
+        .tag("result", result)
+        .register(registry);
+  }
+}
@@ -2,7 +2,13 @@ package org.wallet.domain.repository.transaction;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import org.wallet.domain.model.Ledger;
+import org.wallet.domain.model.LedgerBalance;
+import org.wallet.domain.model.LedgerPage;
 import org.wallet.domain.model.Transaction;
+import org.wallet.domain.model.Transfer;
 
 /**
  * The {@code TransactionRepository} interface defines methods for interacting with transaction
@@ -25,6 +31,25 @@ public interface TransactionRepository {
    */
   void addTransaction(Transaction transaction);
 
+  /**
+   * Applies a transaction atomically: it is added and the balance of its player is changed by its
+   * amount together, or nothing is changed.
+   *
+   * @param transaction The transaction to apply.
+   * @return The balance and the ledger version of the player after the transaction.
+   */
+  LedgerBalance applyTransaction(Transaction transaction);
+
+  /**
+   * Applies a transfer atomically: both legs are added and both balances are updated together, or
+   * nothing is changed.
+   *
+   * @param transfer The transfer to apply.
+   * @return The balances and the ledger versions of the sender and the recipient after the
+   *     transfer, in this order.
+   */
+  List<LedgerBalance> transfer(Transfer transfer);
+
   /**
    * Retrieves a transaction by its unique ID.
    *
@@ -41,6 +66,35 @@ public interface TransactionRepository {
    */
   List<Transaction> getTransactionsByPlayerLogin(String playerLogin);
 
+  /**
+   * Retrieves the transactions of a player together with its ledger version, which is read first
+   * and from the same database, so it never describes newer transactions than those returned.
+   *
+   * @param playerLogin The login of the player.
+   * @return The ledger of the player; its version is negative if the player is not found.
+   */
+  Ledger getLedgerByPlayerLogin(String playerLogin);
+
+  /**
+   * Retrieves the latest transactions of a player added before the one with the given row ID,
+   * together with the ledger version read before them.
+   *
+   * @param playerLogin The login of the player.
+   * @param beforeId The row ID the transactions precede; {@link Long#MAX_VALUE} for the latest.
+   * @param limit The maximum number of transactions to return.
+   * @return The page; its cursor is the row ID of its first transaction if the page is full.
+   */
+  LedgerPage getLedgerPageByPlayerLogin(String playerLogin, long beforeId, int limit);
+
+  /**
+   * Returns which of the given transactions of a player are stored in the data store.
+   *
+   * @param playerLogin The login of the player.
+   * @param transactionIds The IDs of the transactions to look up.
+   * @return The IDs of the given transactions found in the data store.
+   */
+  Set<String> getStoredTransactionIds(String playerLogin, List<String> transactionIds);
+
   /**
    * Checks whether a player with the given login exists in the data store.
    *
@@ -48,4 +102,11 @@ public interface TransactionRepository {
    * @return `true` if the transaction exists; otherwise, `false`.
    */
   boolean isTransactionExist(String transactionId);
+
+  /**
+   * Streams the IDs of all stored transactions to the given consumer without materializing them.
+   *
+   * @param consumer The consumer receiving every transaction ID.
+   */
+  void forEachTransactionId(Consumer<String> consumer);
 }
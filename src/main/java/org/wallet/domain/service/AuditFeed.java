@@ -0,0 +1,161 @@
+package org.wallet.domain.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import org.springframework.stereotype.Component;
+import org.wallet.domain.model.Log;
+import org.wallet.domain.model.LogEntry;
+import org.wallet.domain.repository.log.LogRepository;
+import org.wallet.utils.WalletProperties;
+
+/**
+ * The {@code AuditFeed} class delivers the audit log entries recorded by the {@link AuditService}
+ * to in-process subscribers, and lets a subscriber resume after the last entry it has seen by
+ * reading the entries stored after it from the {@link LogRepository}.
+ *
+ * <p>Entries are identified by their position in the audit store, which outlives the process, so
+ * a subscriber can resume on another instance or after a restart. An entry is kept for delivery
+ * without locking, under a sequence number of the feed. The entries are then delivered in the order
+ * of their sequence numbers by one recording thread at a time, while the others return at once and
+ * leave their entries to it. Subscribers must only record or hand the entries off without
+ * blocking. An entry overwritten before its turn, after {@code audit.stream.history} newer ones
+ * were recorded, is not delivered.
+ */
+@Component
+public class AuditFeed {
+
+  /**
+   * Number of the latest entries kept for delivery, and the largest number of stored entries
+   * returned to a resuming subscriber.
+   */
+  private static final int HISTORY =
+      WalletProperties.get(WalletProperties.Audit.class).stream().history();
+
+  /**
+   * The entries returned to a resuming subscriber.
+   *
+   * @param entries The latest stored entries after the last one seen, in the order of their IDs.
+   * @param gap Whether more entries were stored after the last one seen than are returned.
+   */
+  public record Replay(List<LogEntry> entries, boolean gap) {}
+
+  /** An entry kept for delivery under its sequence number. */
+  private record Slot(long sequence, LogEntry entry) {}
+
+  private final LogRepository logRepository;
+  private final AtomicReferenceArray<Slot> pending = new AtomicReferenceArray<>(HISTORY);
+  private final List<Consumer<LogEntry>> subscribers = new CopyOnWriteArrayList<>();
+  private final AtomicLong nextSequence = new AtomicLong();
+
+  /** Held while entries are delivered. */
+  private final ReentrantLock delivery = new ReentrantLock();
+
+  /** Sequence number of the last delivered entry; only written while holding {@link #delivery}. */
+  private volatile long delivered = -1;
+
+  /**
+   * Creates a feed.
+   *
+   * @param logRepository The audit store resuming subscribers read from.
+   */
+  public AuditFeed(LogRepository logRepository) {
+    this.logRepository = logRepository;
+  }
+
+  /**
+   * Keeps a stored entry and delivers it to the subscribers, unless another thread is delivering,
+   * in which case that thread delivers it.
+   *
+   * @param id The position of the entry in the audit store.
+   * @param log The recorded audit log entry.
+   * @return The entry.
+   */
+  public LogEntry append(long id, Log log) {
+    LogEntry entry = new LogEntry(id, log);
+    long sequence = nextSequence.getAndIncrement();
+    pending.set(slot(sequence), new Slot(sequence, entry));
+    deliver();
+    return entry;
+  }
+
+  /**
+   * Subscribes to the entries appended from now on.
+   *
+   * @param subscriber The subscriber, called on a recording thread.
+   */
+  public void subscribe(Consumer<LogEntry> subscriber) {
+    subscribers.add(subscriber);
+  }
+
+  /**
+   * Subscribes to the entries appended from now on and returns the latest {@code
+   * audit.stream.history} entries stored after the given one, by any instance. The subscriber is
+   * added before the store is read, so an entry recorded by this instance meanwhile may be both
+   * returned and delivered; the subscriber drops the delivered entries with the ID of a returned
+   * one.
+   *
+   * @param lastSeenId The ID of the last entry seen by the subscriber.
+   * @param subscriber The subscriber, called on a recording thread.
+   * @return The stored entries after the given one.
+   */
+  public Replay subscribe(long lastSeenId, Consumer<LogEntry> subscriber) {
+    subscribers.add(subscriber);
+    List<LogEntry> entries = logRepository.getLogsAfter(lastSeenId, HISTORY + 1);
+    if (entries.size() > HISTORY) {
+      return new Replay(new ArrayList<>(entries.subList(1, entries.size())), true);
+    }
+    return new Replay(entries, false);
+  }
+
+  /**
+   * Removes a subscriber. Removing a subscriber twice has no effect.
+   *
+   * @param subscriber The subscriber.
+   */
+  public void unsubscribe(Consumer<LogEntry> subscriber) {
+    subscribers.remove(subscriber);
+  }
+
+  /**
+   * Delivers the kept entries following the last delivered one, until the next one has not been
+   * kept yet. The check after unlocking picks up an entry kept while the lock was being released.
+   */
+  private void deliver() {
+    while (delivery.tryLock()) {
+      try {
+        Slot next;
+        while ((next = pending.get(slot(delivered + 1))) != null && next.sequence() > delivered) {
+          delivered++;
+          if (next.sequence() == delivered) {
+            notifySubscribers(next.entry());
+          }
+        }
+      } finally {
+        delivery.unlock();
+      }
+      Slot next = pending.get(slot(delivered + 1));
+      if (next == null || next.sequence() <= delivered) {
+        return;
+      }
+    }
+  }
+
+  private void notifySubscribers(LogEntry entry) {
+    for (Consumer<LogEntry> subscriber : subscribers) {
+      try {
+        subscriber.accept(entry);
+      } catch (RuntimeException e) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  private static int slot(long sequence) {
+    return (int) (sequence % HISTORY);
+  }
+}
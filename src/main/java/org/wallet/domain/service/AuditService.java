@@ -1,11 +1,16 @@
 package org.wallet.domain.service;
 
+import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.wallet.domain.model.ActionCount;
 import org.wallet.domain.model.Log;
 import org.wallet.domain.model.LogAction;
+import org.wallet.domain.model.RollupInterval;
+import org.wallet.domain.repository.log.AuditRollups;
+import org.wallet.domain.repository.log.LogQuery;
 import org.wallet.domain.repository.log.LogRepository;
 
 /**
@@ -19,9 +24,16 @@ public class AuditService {
 
   /** Collection to store log messages. */
   private final LogRepository logRepository;
-  
+
+  /** Counts of log messages per minute and action. */
+  private final AuditRollups auditRollups;
+
+  /** The feed the recorded log messages are streamed from. */
+  private final AuditFeed auditFeed;
+
   /**
-   * Logs an audit action with the specified parameters.
+   * Logs an audit action with the specified parameters. The log message is appended to the {@link
+   * AuditFeed} under its position in the store once it is stored.
    *
    * @param action The type of audit action (e.g., AUTHORIZATION, DEBIT, CREDIT, EXIT).
    * @param username The username associated with the action.
@@ -29,7 +41,11 @@ public class AuditService {
    */
   public void log(LogAction action, String username, String details) {
     Log log = new Log(action, username, details);
-    logRepository.addLog(log);
+    long id = logRepository.addLog(log);
+    auditRollups.record(log.getAction(), log.getTimestamp());
+    if (id >= 0) {
+      auditFeed.append(id, log);
+    }
   }
 
   /**
@@ -40,4 +56,39 @@ public class AuditService {
   public List<Log> getLogMessages() {
     return Collections.unmodifiableList(logRepository.getLogs());
   }
+
+  /**
+   * Get the list of log messages written in the given time range.
+   *
+   * @param from The start of the range, inclusive.
+   * @param to The end of the range, exclusive.
+   * @return List of log messages ordered by timestamp.
+   */
+  public List<Log> getLogMessages(LocalDateTime from, LocalDateTime to) {
+    return Collections.unmodifiableList(logRepository.getLogs(from, to));
+  }
+
+  /**
+   * Get a filtered page of log messages.
+   *
+   * @param query The filter and page to retrieve.
+   * @return List of log messages, newest first.
+   */
+  public List<Log> getLogMessages(LogQuery query) {
+    return Collections.unmodifiableList(logRepository.getLogs(query));
+  }
+
+  /**
+   * Get the number of log messages per interval and action written in the given time range. The
+   * counts are read from the rollups instead of the log messages.
+   *
+   * @param from The start of the range, inclusive.
+   * @param to The end of the range, exclusive.
+   * @param interval The length of the intervals to count by.
+   * @return The counts, ordered by interval and action.
+   */
+  public List<ActionCount> getActionCounts(
+      LocalDateTime from, LocalDateTime to, RollupInterval interval) {
+    return Collections.unmodifiableList(auditRollups.getCounts(from, to, interval));
+  }
 }
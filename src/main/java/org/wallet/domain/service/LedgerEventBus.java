@@ -0,0 +1,79 @@
+package org.wallet.domain.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import org.springframework.stereotype.Component;
+import org.wallet.domain.model.LedgerEvent;
+
+/**
+ * The {@code LedgerEventBus} class delivers the changes of balances, published by the {@link
+ * TransactionService}, the mass payouts and the reconciliation, to in-process subscribers of the
+ * player they belong to. Changes are published after they are committed, so the events of a player
+ * may arrive out of order and are ordered by their ledger versions.
+ *
+ * <p>Events are delivered on the thread that applied the transaction, before the request that
+ * applied it returns, so subscribers must only record or hand off the event and never block. A
+ * publish for a player without subscribers is a single map lookup. Subscribing and unsubscribing
+ * change the list of a player inside the atomic update of its map entry, so a subscriber is never
+ * added to a list that an unsubscribe has just removed from the map.
+ */
+@Component
+public class LedgerEventBus {
+
+  private final Map<String, List<Consumer<LedgerEvent>>> subscribers = new ConcurrentHashMap<>();
+
+  /**
+   * Subscribes to the events of a player.
+   *
+   * @param login The login of the player.
+   * @param subscriber The subscriber, called on the publishing thread.
+   */
+  public void subscribe(String login, Consumer<LedgerEvent> subscriber) {
+    subscribers.compute(
+        login,
+        (key, list) -> {
+          List<Consumer<LedgerEvent>> result = list == null ? new CopyOnWriteArrayList<>() : list;
+          result.add(subscriber);
+          return result;
+        });
+  }
+
+  /**
+   * Removes a subscriber added by {@link #subscribe(String, Consumer)}. Removing a subscriber
+   * twice has no effect.
+   *
+   * @param login The login of the player.
+   * @param subscriber The subscriber.
+   */
+  public void unsubscribe(String login, Consumer<LedgerEvent> subscriber) {
+    subscribers.computeIfPresent(
+        login,
+        (key, list) -> {
+          list.remove(subscriber);
+          return list.isEmpty() ? null : list;
+        });
+  }
+
+  /**
+   * Delivers an event to the subscribers of its player. A failing subscriber does not prevent the
+   * delivery to the others and does not fail the publisher.
+   *
+   * @param event The event.
+   */
+  public void publish(LedgerEvent event) {
+    List<Consumer<LedgerEvent>> list = subscribers.get(event.login());
+    if (list == null) {
+      return;
+    }
+    for (Consumer<LedgerEvent> subscriber : list) {
+      try {
+        subscriber.accept(event);
+      } catch (RuntimeException e) {
+        e.printStackTrace();
+      }
+    }
+  }
+}
@@ -1,10 +1,13 @@
 package org.wallet.domain.service;
 
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.function.Function;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.wallet.domain.model.Player;
+import org.wallet.domain.repository.player.LoginIndex;
 import org.wallet.domain.repository.player.PlayerRepository;
 import org.wallet.exception.PlayerAlreadyExistException;
 import org.wallet.utils.StringHasher;
@@ -20,6 +23,9 @@ public class PlayerService {
   /** The repository for managing players. */
   private final PlayerRepository playerRepository;
 
+  /** The in-memory index of the known logins. */
+  private final LoginIndex loginIndex;
+
   /**
    * Checks if a player with the given login exists.
    *
@@ -27,13 +33,16 @@ public class PlayerService {
    * @return `true` if the player exists, `false` otherwise.
    */
   public boolean isPlayerExist(String login) {
-    return playerRepository.isPlayerExist(login);
+    boolean known = loginIndex.mightContain(login);
+    boolean exists = playerRepository.isPlayerExist(login);
+    record(login, known, exists);
+    return exists;
   }
 
   /**
    * Registers a new player with the specified login and password. If a player with the same login
-   * already exists, a `PlayerAlreadyExistException` is thrown. The password is hashed before
-   * storing it in the player's information.
+   * already exists, a `PlayerAlreadyExistException` is thrown by the repository. The password is
+   * hashed before storing it in the player's information.
    *
    * @param login The login of the player to register.
    * @param password The password of the player to register.
@@ -41,15 +50,12 @@ public class PlayerService {
    * @throws PlayerAlreadyExistException If a player with the same login already exists.
    */
   public Player registerPlayer(String login, String password) {
-    if (isPlayerExist(login)) {
-      throw new PlayerAlreadyExistException();
-    }
-
     String hashedPassword = StringHasher.hashString(password);
 
     Player player = new Player(login, hashedPassword);
 
     playerRepository.addPlayer(player);
+    loginIndex.add(login);
 
     return player;
   }
@@ -65,7 +71,7 @@ public class PlayerService {
    * @return An optional containing the logged-in player, or an empty optional if login fails.
    */
   public Optional<Player> login(String login, String password) {
-    var player = playerRepository.getPlayerByLogin(login);
+    var player = getPlayerByLogin(login);
 
     if (player.isPresent()
         && StringHasher.hashString(password).equals(player.get().getPassword())) {
@@ -93,6 +99,50 @@ public class PlayerService {
    * @return An optional containing the player if found, or an empty optional if not found.
    */
   public Optional<Player> getPlayerByLogin(String login) {
-    return playerRepository.getPlayerByLogin(login);
+    return findPlayer(login, playerRepository::getPlayerByLogin);
+  }
+
+  /**
+   * Retrieves a player for display purposes, such as showing the balance. The lookup may be served
+   * by a read replica, so the returned player must not be used to update the balance.
+   *
+   * @param login The login of the player to retrieve.
+   * @return An optional containing the player if found, or an empty optional if not found.
+   */
+  public Optional<Player> getPlayerSnapshotByLogin(String login) {
+    return findPlayer(login, playerRepository::getPlayerSnapshotByLogin);
+  }
+
+  /**
+   * Retrieves the ledger version of a player, which changes whenever the balance or the
+   * transactions of the player change.
+   *
+   * @param login The login of the player.
+   * @return The ledger version, or an empty optional if the player is not found.
+   */
+  public OptionalLong getLedgerVersion(String login) {
+    boolean known = loginIndex.mightContain(login);
+    var ledgerVersion = playerRepository.getLedgerVersion(login);
+    record(login, known, ledgerVersion.isPresent());
+    return ledgerVersion;
+  }
+
+  private Optional<Player> findPlayer(String login, Function<String, Optional<Player>> lookup) {
+    boolean known = loginIndex.mightContain(login);
+    var player = lookup.apply(login);
+    record(login, known, player.isPresent());
+    return player;
+  }
+
+  /**
+   * Records a lookup whose answer differs from the {@link LoginIndex}: a login registered on
+   * another instance or loaded in bulk since the last refresh, or a possible positive.
+   */
+  private void record(String login, boolean known, boolean exists) {
+    if (!known && exists) {
+      loginIndex.recordStaleNegative(login);
+    } else if (known && !exists) {
+      loginIndex.recordFalsePositive();
+    }
   }
 }
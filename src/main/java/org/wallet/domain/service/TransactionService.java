@@ -1,12 +1,24 @@
 package org.wallet.domain.service;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.wallet.domain.model.Ledger;
+import org.wallet.domain.model.LedgerBalance;
+import org.wallet.domain.model.LedgerEvent;
+import org.wallet.domain.model.LedgerPage;
 import org.wallet.domain.model.Player;
 import org.wallet.domain.model.Transaction;
-import org.wallet.domain.model.TransactionType;
+import org.wallet.domain.model.Transfer;
+import org.wallet.domain.repository.transaction.BalanceCheckpoints;
+import org.wallet.domain.repository.transaction.TransactionArchive;
+import org.wallet.domain.repository.transaction.TransactionIdIndex;
 import org.wallet.domain.repository.transaction.TransactionRepository;
 import org.wallet.exception.InsufficientMoneyException;
 import org.wallet.exception.TransactionAlreadyExistException;
@@ -19,77 +31,226 @@ import org.wallet.exception.TransactionAlreadyExistException;
 @RequiredArgsConstructor
 public class TransactionService {
 
+  /** Prefix of the cursors of pages read from the archive. */
+  private static final String ARCHIVE_CURSOR_PREFIX = "a";
+
   /** The repository for managing transactions. */
   private final TransactionRepository transactionRepository;
 
+  /** The in-memory index answering most existence checks without a database query. */
+  private final TransactionIdIndex transactionIdIndex;
+
+  /** The cold archive holding transactions moved out of the database. */
+  private final TransactionArchive transactionArchive;
+
+  /** The periodic balances the balance at a past time is computed from. */
+  private final BalanceCheckpoints balanceCheckpoints;
+
+  /** The bus the applied transactions are published to. */
+  private final LedgerEventBus ledgerEventBus;
+
   /**
-   * Checks if a transaction with the given transaction ID exists.
+   * Checks if a transaction with the given transaction ID exists. The check is answered by the
+   * {@link TransactionIdIndex} and only reaches the database for possible positives.
    *
    * @param transactionId The ID of the transaction to check.
    * @return `true` if the transaction exists, `false` otherwise.
    */
   public boolean isTransactionExist(String transactionId) {
-    return transactionRepository.isTransactionExist(transactionId);
+    return transactionIdIndex.contains(transactionId);
   }
 
   /**
-   * Processes a credit transaction by adding the specified amount to the player's balance.
+   * Retrieves a stored transaction by its ID. The transaction is read from the primary, so it is
+   * found as soon as the request that registered it has committed.
    *
-   * @param player The player associated with the transaction.
-   * @param transaction The credit transaction to process.
+   * @param transactionId The ID of the transaction.
+   * @return The transaction, or an empty optional if no transaction with the ID is stored.
    */
-  private void processCreditTransaction(Player player, Transaction transaction) {
-    BigDecimal amount = transaction.amount();
-    player.credit(amount);
+  public Optional<Transaction> getTransactionById(String transactionId) {
+    return transactionRepository.getTransactionById(transactionId);
   }
 
   /**
-   * Processes a debit transaction by deducting the specified amount from the player's balance. If
-   * the player does not have sufficient funds, an `InsufficientMoneyException` is thrown.
+   * Registers a transaction for the player. If a transaction with the same ID already exists, a
+   * `TransactionAlreadyExistException` is thrown. The transaction is added and the stored balance
+   * of the player changed by its amount in one database transaction, relative to the locked
+   * balance, so concurrent transfers and payouts are never overwritten; the player is given the
+   * resulting balance and ledger version. The transaction has then to be passed to {@link
+   * #publishTransaction(Player, Transaction)}.
    *
    * @param player The player associated with the transaction.
-   * @param transaction The debit transaction to process.
-   * @throws InsufficientMoneyException If the player does not have sufficient funds for the debit
-   *     transaction.
+   * @param transaction The transaction to register.
+   * @throws TransactionAlreadyExistException If a transaction with the same ID already exists.
+   * @throws InsufficientMoneyException If the player does not have sufficient funds for a debit.
    */
-  private void processDebitTransaction(Player player, Transaction transaction) {
-    BigDecimal amount = transaction.amount();
-    if (player.canDebit(amount)) {
-      player.debit(amount);
-    } else {
-      throw new InsufficientMoneyException();
+  public void registerTransaction(Player player, Transaction transaction) {
+    if (isTransactionExist(transaction.transactionId())) {
+      throw new TransactionAlreadyExistException();
     }
+    LedgerBalance ledgerBalance = transactionRepository.applyTransaction(transaction);
+    player.setBalance(ledgerBalance.balance());
+    player.setLedgerVersion(ledgerBalance.ledgerVersion());
+    transactionIdIndex.add(transaction.transactionId());
   }
 
   /**
-   * Registers a transaction for the player. If a transaction with the same ID already exists, a
-   * `TransactionAlreadyExistException` is thrown. The type of transaction (credit or debit)
-   * determines whether the player's balance is updated accordingly.
+   * Publishes a transaction registered by {@link #registerTransaction(Player, Transaction)} to the
+   * {@link LedgerEventBus} with the new balance and ledger version.
    *
-   * @param player The player associated with the transaction.
-   * @param transaction The transaction to register.
-   * @throws TransactionAlreadyExistException If a transaction with the same ID already exists.
+   * @param player The player associated with the transaction, with its new balance and ledger
+   *     version.
+   * @param transaction The registered transaction.
    */
-  public void registerTransaction(Player player, Transaction transaction) {
-    if (isTransactionExist(transaction.transactionId())) {
+  public void publishTransaction(Player player, Transaction transaction) {
+    ledgerEventBus.publish(
+        new LedgerEvent(transaction, player.getBalance(), player.getLedgerVersion()));
+  }
+
+  /**
+   * Transfers money from one player to another. Both legs are written and both balances updated in
+   * a single database transaction, so no other request sees only one of them. Once committed, both
+   * legs are published to the {@link LedgerEventBus} with the balances and ledger versions they
+   * produced.
+   *
+   * @param transfer The transfer to apply.
+   * @return The balance of the sender after the transfer.
+   * @throws IllegalArgumentException If the sender and the recipient are the same player.
+   * @throws TransactionAlreadyExistException If a transfer with the same ID already exists.
+   * @throws InsufficientMoneyException If the sender does not have sufficient funds.
+   */
+  public BigDecimal transfer(Transfer transfer) {
+    if (transfer.senderLogin().equals(transfer.recipientLogin())) {
+      throw new IllegalArgumentException("A player cannot transfer money to itself.");
+    }
+    String debitId = transfer.debit().transactionId();
+    String creditId = transfer.credit().transactionId();
+    if (isTransactionExist(debitId) || isTransactionExist(creditId)) {
       throw new TransactionAlreadyExistException();
-    } else {
-      if (transaction.type() == TransactionType.CREDIT) {
-        processCreditTransaction(player, transaction);
-      } else if (transaction.type() == TransactionType.DEBIT) {
-        processDebitTransaction(player, transaction);
-      }
-      transactionRepository.addTransaction(transaction);
     }
+    List<LedgerBalance> balances = transactionRepository.transfer(transfer);
+    transactionIdIndex.add(debitId);
+    transactionIdIndex.add(creditId);
+    ledgerEventBus.publish(new LedgerEvent(transfer.debit(), balances.get(0)));
+    ledgerEventBus.publish(new LedgerEvent(transfer.credit(), balances.get(1)));
+    return balances.get(0).balance();
   }
 
   /**
-   * Retrieves a list of transactions associated with a player based on their login.
+   * Retrieves a list of transactions associated with a player based on their login. Transactions
+   * moved to the archive come first, followed by those still in the database. A transaction found
+   * in both places while a month is being archived or restored is returned once.
    *
    * @param player The player for whom to retrieve transactions.
    * @return A list of transactions associated with the player.
    */
   public List<Transaction> getTransactionsByPlayer(Player player) {
-    return transactionRepository.getTransactionsByPlayerLogin(player.getLogin());
+    return withArchived(
+        player.getLogin(), transactionRepository.getTransactionsByPlayerLogin(player.getLogin()));
+  }
+
+  /**
+   * Retrieves the transactions of a player, including the archived ones, like {@link
+   * #getTransactionsByPlayer(Player)}, together with the ledger version they were read at. Archiving
+   * does not change the transactions returned, so it does not change the version.
+   *
+   * @param player The player for whom to retrieve the ledger.
+   * @return The ledger of the player.
+   */
+  public Ledger getLedgerByPlayer(Player player) {
+    Ledger ledger = transactionRepository.getLedgerByPlayerLogin(player.getLogin());
+    return new Ledger(ledger.version(), withArchived(player.getLogin(), ledger.transactions()));
+  }
+
+  /**
+   * Retrieves a page of the transactions of a player, walking the history back from the most
+   * recent transactions. Pages are read from the database by row ID, and the archive is only read
+   * once a page reaches past the oldest transaction in the database; from then on the cursor is
+   * the number of archived transactions preceding the page. Archived transactions still found in
+   * the database while a month is being archived or restored are skipped, so such a page may hold
+   * fewer than {@code limit} transactions. Pages read only from the archive carry no version, as
+   * archived transactions never change.
+   *
+   * @param player The player for whom to retrieve transactions.
+   * @param cursor The cursor returned with the following page, or {@code null} for the most recent
+   *     transactions.
+   * @param limit The maximum number of transactions of the page.
+   * @return The page of transactions.
+   * @throws IllegalArgumentException If the cursor is malformed or the limit is not positive.
+   */
+  public LedgerPage getLedgerPageByPlayer(Player player, String cursor, int limit) {
+    if (limit <= 0) {
+      throw new IllegalArgumentException("Invalid page limit: " + limit);
+    }
+    String login = player.getLogin();
+    if (cursor != null && cursor.startsWith(ARCHIVE_CURSOR_PREFIX)) {
+      return archivedPage(login, parseCursor(cursor.substring(1)), limit, -1, List.of());
+    }
+    long beforeId = cursor == null ? Long.MAX_VALUE : parseCursor(cursor);
+    LedgerPage page = transactionRepository.getLedgerPageByPlayerLogin(login, beforeId, limit);
+    if (page.nextCursor() != null) {
+      return page;
+    }
+    int remaining = limit - page.transactions().size();
+    return archivedPage(login, Long.MAX_VALUE, remaining, page.version(), page.transactions());
+  }
+
+  /**
+   * Computes the balance of a player at a past time, starting from the nearest checkpoint before
+   * it and applying only the transactions created after that checkpoint.
+   *
+   * @param login The login of the player.
+   * @param timestamp The time to compute the balance at, inclusive.
+   * @return The balance of the player, or an empty optional if the player does not exist.
+   */
+  public Optional<BigDecimal> getBalanceAt(String login, LocalDateTime timestamp) {
+    return balanceCheckpoints.getBalanceAt(login, timestamp);
+  }
+
+  private List<Transaction> withArchived(String login, List<Transaction> transactions) {
+    List<Transaction> archived = transactionArchive.getTransactionsByPlayerLogin(login);
+    if (archived.isEmpty()) {
+      return transactions;
+    }
+    List<Transaction> history = new ArrayList<>(archived);
+    Set<String> archivedIds = new HashSet<>();
+    archived.forEach(transaction -> archivedIds.add(transaction.transactionId()));
+    transactions.stream()
+        .filter(transaction -> !archivedIds.contains(transaction.transactionId()))
+        .forEach(history::add);
+    return history;
+  }
+
+  /**
+   * Completes a page with the archived transactions preceding the given number of them, dropping
+   * the ones still in the database.
+   */
+  private LedgerPage archivedPage(
+      String login, long end, int limit, long version, List<Transaction> following) {
+    List<Transaction> archived = transactionArchive.getTransactionsByPlayerLogin(login);
+    int to = (int) Math.min(end, archived.size());
+    int from = Math.max(to - limit, 0);
+    List<Transaction> window = archived.subList(from, to);
+    Set<String> stored =
+        transactionRepository.getStoredTransactionIds(
+            login, window.stream().map(Transaction::transactionId).toList());
+    List<Transaction> transactions = new ArrayList<>();
+    window.stream()
+        .filter(transaction -> !stored.contains(transaction.transactionId()))
+        .forEach(transactions::add);
+    transactions.addAll(following);
+    return new LedgerPage(version, transactions, from > 0 ? ARCHIVE_CURSOR_PREFIX + from : null);
+  }
+
+  private static long parseCursor(String cursor) {
+    try {
+      long value = Long.parseLong(cursor);
+      if (value >= 0) {
+        return value;
+      }
+    } catch (NumberFormatException e) {
+      // Reported below.
+    }
+    throw new IllegalArgumentException("Invalid cursor: " + cursor);
   }
 }
@@ -0,0 +1,20 @@
+package org.wallet.exception;
+
+import java.io.Serial;
+
+/**
+ * The {@code CrossShardTransferException} is an exception that is thrown when the sender and the
+ * recipient of a transfer are stored on different shards, so the transfer cannot be applied in a
+ * single database transaction.
+ */
+public class CrossShardTransferException extends IllegalStateException {
+  @Serial private static final long serialVersionUID = -4316882021357725590L;
+
+  /**
+   * Creates a new instance of the {@code CrossShardTransferException} class with a default error
+   * message.
+   */
+  public CrossShardTransferException() {
+    super("Transfers between players on different shards are not supported.");
+  }
+}
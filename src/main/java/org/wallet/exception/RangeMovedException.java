@@ -0,0 +1,32 @@
+package org.wallet.exception;
+
+import java.io.Serial;
+import lombok.Getter;
+
+/**
+ * The {@code RangeMovedException} is an exception that is thrown when a write reaches a shard that
+ * no longer owns the hash range of one of its players, because the range was moved or split after
+ * the write was routed. The router reloads the ownership of the ranges and retries the write.
+ */
+@Getter
+public class RangeMovedException extends IllegalStateException {
+  @Serial private static final long serialVersionUID = 7203685541247390163L;
+
+  /** The token of the range as stored on the shard. */
+  private final long token;
+
+  /** The index of the shard owning the range according to the shard. */
+  private final int owner;
+
+  /**
+   * Creates a new instance of the {@code RangeMovedException} class.
+   *
+   * @param token The token of the range as stored on the shard.
+   * @param owner The index of the shard owning the range according to the shard.
+   */
+  public RangeMovedException(long token, int owner) {
+    super("Hash range " + token + " is owned by shard " + owner + ".");
+    this.token = token;
+    this.owner = owner;
+  }
+}
@@ -0,0 +1,71 @@
+package org.wallet.in.codec;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The {@code MappedList} class is a response body holding the records read from a repository
+ * together with the mapping to their DTOs. The {@link WalletHttpMessageConverter} writes the
+ * records directly in the shape of the DTOs, in JSON or in a binary format, so no list of DTOs is
+ * built for the response. Any other converter serializes the list of DTOs returned by {@link
+ * #toDtos()}.
+ *
+ * @param <S> The type of the records.
+ * @param <D> The type of the DTOs.
+ */
+public final class MappedList<S, D> {
+
+  private final Class<S> sourceType;
+  private final List<S> source;
+  private final Function<S, D> mapper;
+
+  private MappedList(Class<S> sourceType, List<S> source, Function<S, D> mapper) {
+    this.sourceType = sourceType;
+    this.source = source;
+    this.mapper = mapper;
+  }
+
+  /**
+   * Creates a response body of the given records.
+   *
+   * @param sourceType The type of the records.
+   * @param source The records.
+   * @param mapper The mapping of a record to its DTO.
+   * @param <S> The type of the records.
+   * @param <D> The type of the DTOs.
+   * @return The response body.
+   */
+  public static <S, D> MappedList<S, D> of(
+      Class<S> sourceType, List<S> source, Function<S, D> mapper) {
+    return new MappedList<>(sourceType, source, mapper);
+  }
+
+  /**
+   * Returns the type of the records.
+   *
+   * @return The type of the records.
+   */
+  public Class<S> getSourceType() {
+    return sourceType;
+  }
+
+  /**
+   * Returns the records.
+   *
+   * @return The records, in the order of the response.
+   */
+  public List<S> getSource() {
+    return source;
+  }
+
+  /**
+   * Maps every record to its DTO.
+   *
+   * @return The DTOs, in the order of the records.
+   */
+  @JsonValue
+  public List<D> toDtos() {
+    return source.stream().map(mapper).toList();
+  }
+}
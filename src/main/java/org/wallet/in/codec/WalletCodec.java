@@ -0,0 +1,352 @@
+package org.wallet.in.codec;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.core.NativeDetector;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.wallet.domain.dto.request.JwtTokenResponseDto;
+import org.wallet.domain.dto.request.PlayerRequestDto;
+import org.wallet.domain.dto.request.TransactionRequestDto;
+import org.wallet.domain.dto.request.TransferRequestDto;
+import org.wallet.domain.dto.response.ActionCountResponseDto;
+import org.wallet.domain.dto.response.BalanceResponseDto;
+import org.wallet.domain.dto.response.ErrorResponce;
+import org.wallet.domain.dto.response.LogResponseDto;
+import org.wallet.domain.dto.response.TransactionOutcomeResponseDto;
+import org.wallet.domain.dto.response.TransactionResponseDto;
+import org.wallet.domain.model.Log;
+import org.wallet.domain.model.Transaction;
+
+/**
+ * The {@code WalletCodec} class encodes and decodes the DTOs of the API. It holds an {@link
+ * ObjectReader} for every request DTO and an {@link ObjectWriter} for every response DTO, built
+ * once instead of once per request, and writes lists of transactions and audit entries straight
+ * from the repository records in the shape of their DTOs, without building the DTOs.
+ *
+ * <p>The object mapper of the codec registers the {@link BlackbirdModule}, which replaces the
+ * reflective access to the properties of the DTOs by generated lambdas, and hand-written
+ * serializers for amounts and timestamps. Amounts that fit in a long are written from their digits
+ * without going through their string form, and timestamps are formatted into a reused buffer.
+ *
+ * <p>The codec is not tied to JSON: the same readers, writers and streaming apply to the binary
+ * formats CBOR and Smile, where amounts are written as binary decimals.
+ */
+public final class WalletCodec {
+
+  /** Largest scale of an amount written by the fast path; larger scales use the string form. */
+  private static final int MAX_FAST_SCALE = 18;
+
+  private static final SerializableString AMOUNT = new SerializedString("amount");
+  private static final SerializableString TRANSACTION_ID = new SerializedString("transactionId");
+  private static final SerializableString TYPE = new SerializedString("type");
+  private static final SerializableString ACTION = new SerializedString("action");
+  private static final SerializableString TIMESTAMP = new SerializedString("timestamp");
+  private static final SerializableString USERNAME = new SerializedString("username");
+  private static final SerializableString DETAILS = new SerializedString("details");
+
+  private static final List<Class<?>> REQUEST_TYPES =
+      List.of(
+          JwtTokenResponseDto.class,
+          PlayerRequestDto.class,
+          TransactionRequestDto.class,
+          TransferRequestDto.class);
+
+  private static final List<Class<?>> RESPONSE_TYPES =
+      List.of(
+          ActionCountResponseDto.class,
+          BalanceResponseDto.class,
+          ErrorResponce.class,
+          JwtTokenResponseDto.class,
+          LogResponseDto.class,
+          TransactionOutcomeResponseDto.class,
+          TransactionResponseDto.class);
+
+  /** Buffer the digits of amounts and timestamps are formatted into. */
+  private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[64]);
+
+  private final ObjectMapper objectMapper;
+  private final Map<Class<?>, ObjectReader> readers = new HashMap<>();
+  private final Map<Class<?>, ObjectWriter> writers = new HashMap<>();
+
+  /**
+   * Creates a codec on the given object mapper, which may use any format supported by Jackson.
+   *
+   * @param objectMapper The object mapper, configured with {@link #configure(ObjectMapper)}.
+   */
+  public WalletCodec(ObjectMapper objectMapper) {
+    this.objectMapper = objectMapper;
+    REQUEST_TYPES.forEach(type -> readers.put(type, objectMapper.readerFor(type)));
+    RESPONSE_TYPES.forEach(type -> writers.put(type, objectMapper.writerFor(type)));
+  }
+
+  /**
+   * Creates the JSON codec, configured like the default JSON converter of Spring MVC.
+   *
+   * @return The JSON codec.
+   */
+  public static WalletCodec json() {
+    return new WalletCodec(configure(Jackson2ObjectMapperBuilder.json().build()));
+  }
+
+  /**
+   * Creates the CBOR codec, configured like the default CBOR converter of Spring MVC.
+   *
+   * @return The CBOR codec.
+   */
+  public static WalletCodec cbor() {
+    return new WalletCodec(configure(Jackson2ObjectMapperBuilder.cbor().build()));
+  }
+
+  /**
+   * Creates the Smile codec, configured like the default Smile converter of Spring MVC.
+   *
+   * @return The Smile codec.
+   */
+  public static WalletCodec smile() {
+    return new WalletCodec(configure(Jackson2ObjectMapperBuilder.smile().build()));
+  }
+
+  /**
+   * Registers the accessor module and the serializers of the codec with an object mapper. The
+   * accessor module is left out in a native image, where classes cannot be generated at runtime.
+   *
+   * @param objectMapper The object mapper to configure.
+   * @return The object mapper.
+   */
+  public static ObjectMapper configure(ObjectMapper objectMapper) {
+    if (!NativeDetector.inNativeImage()) {
+      objectMapper.registerModule(new BlackbirdModule());
+    }
+    SimpleModule serializers = new SimpleModule("wallet-codec");
+    serializers.addSerializer(BigDecimal.class, new AmountSerializer());
+    serializers.addSerializer(LocalDateTime.class, new TimestampSerializer());
+    return objectMapper.registerModule(serializers);
+  }
+
+  /**
+   * Returns the object mapper of the codec.
+   *
+   * @return The object mapper.
+   */
+  public ObjectMapper getObjectMapper() {
+    return objectMapper;
+  }
+
+  /**
+   * Returns the pre-built reader of a request DTO.
+   *
+   * @param type The type of the DTO.
+   * @return The reader, or {@code null} if the type is not a request DTO.
+   */
+  public ObjectReader reader(Class<?> type) {
+    return readers.get(type);
+  }
+
+  /**
+   * Returns the pre-built writer of a response DTO.
+   *
+   * @param type The type of the DTO.
+   * @return The writer, or {@code null} if the type is not a response DTO.
+   */
+  public ObjectWriter writer(Class<?> type) {
+    return writers.get(type);
+  }
+
+  /**
+   * Returns whether the records of a response body are written directly by the codec.
+   *
+   * @param body The response body.
+   * @return {@code true} for lists of transactions and audit entries.
+   */
+  public boolean canStream(MappedList<?, ?> body) {
+    return body.getSourceType() == Transaction.class || body.getSourceType() == Log.class;
+  }
+
+  /**
+   * Writes the records of a response body as an array of their DTOs.
+   *
+   * @param body The response body, which {@link #canStream(MappedList)} accepts.
+   * @param generator The generator to write to.
+   * @throws IOException if the output cannot be written.
+   */
+  public void stream(MappedList<?, ?> body, JsonGenerator generator) throws IOException {
+    List<?> source = body.getSource();
+    generator.writeStartArray(source, source.size());
+    if (body.getSourceType() == Transaction.class) {
+      for (Object transaction : source) {
+        writeTransaction((Transaction) transaction, generator);
+      }
+    } else {
+      for (Object log : source) {
+        writeLog((Log) log, generator);
+      }
+    }
+    generator.writeEndArray();
+  }
+
+  /** Writes a transaction in the shape of {@link TransactionResponseDto}. */
+  private static void writeTransaction(Transaction transaction, JsonGenerator generator)
+      throws IOException {
+    generator.writeStartObject();
+    generator.writeFieldName(AMOUNT);
+    writeAmount(transaction.amount(), generator);
+    generator.writeFieldName(TRANSACTION_ID);
+    generator.writeString(transaction.transactionId());
+    generator.writeFieldName(TYPE);
+    if (transaction.type() == null) {
+      generator.writeNull();
+    } else {
+      generator.writeString(transaction.type().name());
+    }
+    generator.writeEndObject();
+  }
+
+  /** Writes an audit entry in the shape of {@link LogResponseDto}. */
+  private static void writeLog(Log log, JsonGenerator generator) throws IOException {
+    generator.writeStartObject();
+    generator.writeFieldName(ACTION);
+    if (log.getAction() == null) {
+      generator.writeNull();
+    } else {
+      generator.writeString(log.getAction().name());
+    }
+    generator.writeFieldName(TIMESTAMP);
+    writeTimestamp(log.getTimestamp(), generator);
+    generator.writeFieldName(USERNAME);
+    generator.writeString(log.getUsername());
+    generator.writeFieldName(DETAILS);
+    generator.writeString(log.getDetails());
+    generator.writeEndObject();
+  }
+
+  /**
+   * Writes an amount as a plain number. Amounts whose unscaled value fits in a long are formatted
+   * digit by digit into a reused buffer; binary formats and larger amounts are handed to the
+   * generator.
+   */
+  private static void writeAmount(BigDecimal amount, JsonGenerator generator) throws IOException {
+    if (amount == null) {
+      generator.writeNull();
+      return;
+    }
+    int scale = amount.scale();
+    if (!generator.canWriteFormattedNumbers() || scale < 0 || scale > MAX_FAST_SCALE) {
+      generator.writeNumber(amount);
+      return;
+    }
+    BigInteger unscaled = amount.unscaledValue();
+    if (unscaled.bitLength() >= Long.SIZE) {
+      generator.writeNumber(amount.toPlainString());
+      return;
+    }
+    char[] buffer = BUFFER.get();
+    long value = unscaled.longValue();
+    boolean negative = value < 0;
+    int position = buffer.length;
+    int digits = 0;
+    do {
+      buffer[--position] = (char) ('0' + Math.abs(value % 10));
+      value /= 10;
+      if (++digits == scale) {
+        buffer[--position] = '.';
+      }
+    } while (value != 0 || digits < scale);
+    if (digits == scale) {
+      buffer[--position] = '0';
+    }
+    if (negative) {
+      buffer[--position] = '-';
+    }
+    generator.writeRawValue(buffer, position, buffer.length - position);
+  }
+
+  /**
+   * Writes a timestamp in the ISO local date-time format, with seconds and without trailing zeros
+   * in the fraction, as {@link java.time.format.DateTimeFormatter#ISO_LOCAL_DATE_TIME} does.
+   */
+  private static void writeTimestamp(LocalDateTime timestamp, JsonGenerator generator)
+      throws IOException {
+    if (timestamp == null) {
+      generator.writeNull();
+      return;
+    }
+    if (timestamp.getYear() < 0 || timestamp.getYear() > 9999) {
+      generator.writeString(timestamp.toString());
+      return;
+    }
+    char[] buffer = BUFFER.get();
+    int length = 0;
+    length = writeDigits(buffer, length, timestamp.getYear(), 4);
+    buffer[length++] = '-';
+    length = writeDigits(buffer, length, timestamp.getMonthValue(), 2);
+    buffer[length++] = '-';
+    length = writeDigits(buffer, length, timestamp.getDayOfMonth(), 2);
+    buffer[length++] = 'T';
+    length = writeDigits(buffer, length, timestamp.getHour(), 2);
+    buffer[length++] = ':';
+    length = writeDigits(buffer, length, timestamp.getMinute(), 2);
+    buffer[length++] = ':';
+    length = writeDigits(buffer, length, timestamp.getSecond(), 2);
+    int nano = timestamp.getNano();
+    if (nano > 0) {
+      buffer[length++] = '.';
+      length = writeDigits(buffer, length, nano, 9);
+      while (buffer[length - 1] == '0') {
+        length--;
+      }
+    }
+    generator.writeString(buffer, 0, length);
+  }
+
+  private static int writeDigits(char[] buffer, int offset, int value, int width) {
+    for (int i = offset + width - 1; i >= offset; i--) {
+      buffer[i] = (char) ('0' + value % 10);
+      value /= 10;
+    }
+    return offset + width;
+  }
+
+  /** Serializes amounts through the fast path of the codec. */
+  private static final class AmountSerializer extends StdSerializer<BigDecimal> {
+
+    private AmountSerializer() {
+      super(BigDecimal.class);
+    }
+
+    @Override
+    public void serialize(BigDecimal value, JsonGenerator generator, SerializerProvider provider)
+        throws IOException {
+      writeAmount(value, generator);
+    }
+  }
+
+  /** Serializes timestamps through the fast path of the codec. */
+  private static final class TimestampSerializer extends StdSerializer<LocalDateTime> {
+
+    private TimestampSerializer() {
+      super(LocalDateTime.class);
+    }
+
+    @Override
+    public void serialize(
+        LocalDateTime value, JsonGenerator generator, SerializerProvider provider)
+        throws IOException {
+      writeTimestamp(value, generator);
+    }
+  }
+}
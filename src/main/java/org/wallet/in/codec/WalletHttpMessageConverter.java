@@ -0,0 +1,109 @@
+package org.wallet.in.codec;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.util.StreamUtils;
+
+/**
+ * The {@code WalletHttpMessageConverter} class reads and writes request and response bodies with a
+ * {@link WalletCodec}, in the format of the object mapper of the codec. The DTOs of the API go
+ * through the pre-built readers and writers of the codec and lists of repository records are
+ * streamed by the codec; any other body is handled like by the default Jackson converters.
+ */
+public class WalletHttpMessageConverter extends AbstractJackson2HttpMessageConverter {
+
+  /** The media type of Smile, the binary JSON format of Jackson, as a string. */
+  public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+  /** The media type of Smile, the binary JSON format of Jackson. */
+  public static final MediaType APPLICATION_SMILE = MediaType.valueOf(APPLICATION_SMILE_VALUE);
+
+  private final WalletCodec codec;
+
+  /**
+   * Creates a converter using the given codec for the given media types.
+   *
+   * @param codec The codec.
+   * @param supportedMediaTypes The media types of the format of the codec.
+   */
+  public WalletHttpMessageConverter(WalletCodec codec, MediaType... supportedMediaTypes) {
+    super(codec.getObjectMapper(), supportedMediaTypes);
+    this.codec = codec;
+  }
+
+  /**
+   * Creates the JSON converter.
+   *
+   * @param codec The JSON codec.
+   * @return The converter of {@code application/json} and {@code application/*+json}.
+   */
+  public static WalletHttpMessageConverter json(WalletCodec codec) {
+    return new WalletHttpMessageConverter(
+        codec, MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+  }
+
+  /**
+   * Creates the CBOR converter.
+   *
+   * @param codec The CBOR codec.
+   * @return The converter of {@code application/cbor}.
+   */
+  public static WalletHttpMessageConverter cbor(WalletCodec codec) {
+    return new WalletHttpMessageConverter(codec, MediaType.APPLICATION_CBOR);
+  }
+
+  /**
+   * Creates the Smile converter.
+   *
+   * @param codec The Smile codec.
+   * @return The converter of {@code application/x-jackson-smile}.
+   */
+  public static WalletHttpMessageConverter smile(WalletCodec codec) {
+    return new WalletHttpMessageConverter(codec, APPLICATION_SMILE);
+  }
+
+  @Override
+  public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage)
+      throws IOException, HttpMessageNotReadableException {
+    ObjectReader reader = type instanceof Class<?> clazz ? codec.reader(clazz) : null;
+    if (reader == null) {
+      return super.read(type, contextClass, inputMessage);
+    }
+    try {
+      return reader.readValue(inputMessage.getBody());
+    } catch (IOException e) {
+      throw new HttpMessageNotReadableException(
+          "Body parse error: " + e.getMessage(), e, inputMessage);
+    }
+  }
+
+  @Override
+  protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+      throws IOException, HttpMessageNotWritableException {
+    OutputStream body = StreamUtils.nonClosing(outputMessage.getBody());
+    if (object instanceof MappedList<?, ?> list && codec.canStream(list)) {
+      try (JsonGenerator generator =
+          codec.getObjectMapper().getFactory().createGenerator(body, JsonEncoding.UTF8)) {
+        codec.stream(list, generator);
+      }
+      return;
+    }
+    ObjectWriter writer = object == null ? null : codec.writer(object.getClass());
+    if (writer == null) {
+      super.writeInternal(object, type, outputMessage);
+      return;
+    }
+    writer.writeValue(body, object);
+  }
+}
@@ -0,0 +1,174 @@
+package org.wallet.in.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * The {@code LedgerETags} class answers conditional requests for the balance and the transactions
+ * of a player with the ledger version of the player, so a client polling an unchanged ledger gets
+ * {@code 304 Not Modified} without the balance or the transactions being read or serialized.
+ *
+ * <p>The version is stored with the player and incremented by every write changing its ledger, so
+ * all instances agree on it. A request is first checked against the version alone. The ETag of a
+ * response is taken from the version read together with the data sent, so it never describes newer
+ * data than the response, even when the version alone was read from a more recent replica.
+ *
+ * <p>The ETag is weak, since the same ledger is sent as JSON, CBOR or Smile, and combines the hash
+ * of the login with the version, as every player starts at version 0. The requests are counted by
+ * resource and result as the {@code wallet.etag.requests} counters, and the share of conditional
+ * requests answered with {@code 304} is exposed as the {@code wallet.etag.hit.ratio} gauge.
+ */
+@Component
+public class LedgerETags implements MeterBinder {
+
+  /** The resources answered with ledger ETags. */
+  public enum Resource {
+    BALANCE,
+    TRANSACTIONS
+  }
+
+  private final Counts[] counts = new Counts[Resource.values().length];
+
+  /** Creates the ETags with no request counted. */
+  public LedgerETags() {
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = new Counts();
+    }
+  }
+
+  /**
+   * Returns the ETag of the ledger of a player at a version.
+   *
+   * @param login The login of the player.
+   * @param version The ledger version of the player.
+   * @return The weak ETag.
+   */
+  public static String eTag(String login, long version) {
+    return "W/\"" + Integer.toHexString(login.hashCode()) + '-' + Long.toHexString(version) + '"';
+  }
+
+  /**
+   * Checks whether the client already has the ledger of a player at its current version, before the
+   * ledger is read. If so, the ETag is set on the response and the status to {@code 304}, and the
+   * handler must return without a body; otherwise the response is left untouched.
+   *
+   * @param resource The requested resource.
+   * @param login The login of the player.
+   * @param version The current ledger version of the player, if the player exists.
+   * @param webRequest The request.
+   * @return Whether the request is answered with {@code 304}.
+   */
+  public boolean isNotModified(
+      Resource resource, String login, OptionalLong version, WebRequest webRequest) {
+    String ifNoneMatch = webRequest.getHeader(HttpHeaders.IF_NONE_MATCH);
+    if (ifNoneMatch == null
+        || version.isEmpty()
+        || !matches(ifNoneMatch, eTag(login, version.getAsLong()))) {
+      return false;
+    }
+    if (!webRequest.checkNotModified(eTag(login, version.getAsLong()))) {
+      return false;
+    }
+    counts[resource.ordinal()].notModified.increment();
+    return true;
+  }
+
+  /**
+   * Checks whether the client already has the ledger of a player at the version it was read at. The
+   * ETag is set on the response either way, and the status is set to {@code 304} if the {@code
+   * If-None-Match} header of the request matches it, in which case the handler must return without
+   * a body.
+   *
+   * @param resource The requested resource.
+   * @param login The login of the player.
+   * @param version The ledger version read together with the ledger, or a negative value if it is
+   *     not known, in which case no ETag is set.
+   * @param webRequest The request.
+   * @return Whether the request is answered with {@code 304}.
+   */
+  public boolean checkNotModified(
+      Resource resource, String login, long version, WebRequest webRequest) {
+    Counts count = counts[resource.ordinal()];
+    if (version < 0) {
+      count.unconditional.increment();
+      return false;
+    }
+    if (webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) == null) {
+      count.unconditional.increment();
+      webRequest.checkNotModified(eTag(login, version));
+      return false;
+    }
+    if (webRequest.checkNotModified(eTag(login, version))) {
+      count.notModified.increment();
+      return true;
+    }
+    count.modified.increment();
+    return false;
+  }
+
+  /**
+   * Returns the number of requests for a resource answered with {@code 304}.
+   *
+   * @param resource The resource.
+   * @return The number of requests.
+   */
+  public long getNotModifiedCount(Resource resource) {
+    return counts[resource.ordinal()].notModified.sum();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    for (Resource resource : Resource.values()) {
+      Counts count = counts[resource.ordinal()];
+      String name = resource.name().toLowerCase();
+      counter(registry, name, "not_modified", count.notModified);
+      counter(registry, name, "modified", count.modified);
+      counter(registry, name, "unconditional", count.unconditional);
+      Gauge.builder("wallet.etag.hit.ratio", count, Counts::hitRatio)
+          .tag("resource", name)
+          .register(registry);
+    }
+  }
+
+  /** Compares the entity tags of an {@code If-None-Match} header weakly with an ETag. */
+  private static boolean matches(String ifNoneMatch, String eTag) {
+    String opaqueTag = eTag.substring(2);
+    for (String candidate : ifNoneMatch.split(",")) {
+      String tag = candidate.trim();
+      if (tag.equals("*") || (tag.startsWith("W/") ? tag.substring(2) : tag).equals(opaqueTag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static void counter(
+      MeterRegistry registry, String resource, String result, LongAdder adder) {
+    FunctionCounter.builder("wallet.etag.requests", adder, LongAdder::sum)
+        .tag("resource", resource)
+        .tag("result", result)
+        .register(registry);
+  }
+
+  /** The requests counted for a resource. */
+  private static final class Counts {
+
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder modified = new LongAdder();
+    private final LongAdder unconditional = new LongAdder();
+
+    /** Returns the share of conditional requests answered with {@code 304}. */
+    double hitRatio() {
+      long hits = notModified.sum();
+      long conditional = hits + modified.sum();
+      return conditional == 0 ? 0 : (double) hits / conditional;
+    }
+  }
+}
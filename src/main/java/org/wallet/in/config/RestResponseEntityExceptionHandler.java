@@ -8,6 +8,7 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 import org.wallet.domain.dto.response.ErrorResponce;
+import org.wallet.exception.CrossShardTransferException;
 import org.wallet.exception.PlayerAlreadyExistException;
 import org.wallet.exception.PlayerNotFoundException;
 import org.wallet.exception.TransactionAlreadyExistException;
@@ -39,6 +40,8 @@ public class RestResponseEntityExceptionHandler extends ResponseEntityExceptionH
     } else if (ex instanceof PlayerAlreadyExistException
         || ex instanceof TransactionAlreadyExistException) {
       status = HttpStatus.FORBIDDEN;
+    } else if (ex instanceof CrossShardTransferException) {
+      status = HttpStatus.CONFLICT;
     }
 
     var bodyOfResponse = new ErrorResponce(status, ex.getMessage());
@@ -0,0 +1,208 @@
+package org.wallet.in.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.lang.management.ManagementFactory;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline.TimelineEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.wallet.utils.WalletProperties;
+
+/**
+ * The {@code StartupTimeline} class reports where the startup time of the application goes. Once
+ * the application is ready, it prints the time spent before Spring started, in the context, and in
+ * the beans that took the longest to create on their own, excluding the beans they depend on, and
+ * in the phases recorded by the application such as the warm-up. The time from the JVM start to
+ * the completion of the first request is recorded as well and compared with the target from the
+ * application configuration. The phases are exposed as the {@code wallet.startup.phase} gauges and
+ * the bean timings in detail by the {@code startup} actuator endpoint.
+ */
+@Slf4j
+@Component
+public class StartupTimeline implements MeterBinder, HandlerInterceptor {
+
+  /** Capacity of the buffer of startup steps, enough for every bean of the application. */
+  public static final int STEP_CAPACITY = 10_000;
+
+  /** Number of the slowest beans reported. */
+  private static final int REPORTED_BEANS = 5;
+
+  private static final String BEAN_STEP = "spring.beans.instantiate";
+
+  private static final long FIRST_REQUEST_TARGET_MILLIS;
+
+  static {
+    FIRST_REQUEST_TARGET_MILLIS =
+        WalletProperties.get(WalletProperties.Startup.class).firstRequestTargetMillis();
+  }
+
+  private final ApplicationStartup applicationStartup;
+  private final Map<String, Long> phases = new LinkedHashMap<>();
+  private final AtomicLong firstRequestMillis = new AtomicLong(-1);
+
+  /**
+   * Creates the timeline of the given startup.
+   *
+   * @param applicationStartup The startup of the application, buffered if its steps are reported.
+   */
+  public StartupTimeline(ApplicationStartup applicationStartup) {
+    this.applicationStartup = applicationStartup;
+  }
+
+  /**
+   * Records and prints the startup phases once the application is ready to serve requests.
+   *
+   * @param event The event published when the application is ready.
+   */
+  @EventListener
+  public void onReady(ApplicationReadyEvent event) {
+    long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+    long context = event.getTimeTaken().toMillis();
+    synchronized (phases) {
+      phases.put("launch", uptime - context);
+      phases.put("context", context);
+      if (applicationStartup instanceof BufferingApplicationStartup buffering) {
+        slowestBeans(buffering.getBufferedTimeline().getEvents())
+            .forEach((bean, millis) -> phases.put("bean:" + bean, millis));
+      }
+      phases.put("ready", uptime);
+    }
+    log.info("Startup timeline: {}", format(getPhases()));
+  }
+
+  /**
+   * Records a phase run by the application itself before it is ready, such as the warm-up.
+   *
+   * @param phase The name of the phase.
+   * @param millis The duration of the phase in milliseconds.
+   */
+  public void recordPhase(String phase, long millis) {
+    synchronized (phases) {
+      phases.put(phase, millis);
+    }
+  }
+
+  /**
+   * Records the time to the first request on the completion of the first handled request.
+   *
+   * @param request The request.
+   * @param response The response.
+   * @param handler The handler of the request.
+   * @param ex The exception thrown by the handler, if any.
+   */
+  @Override
+  public void afterCompletion(
+      HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+    if (firstRequestMillis.get() >= 0) {
+      return;
+    }
+    long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+    if (firstRequestMillis.compareAndSet(-1, uptime)) {
+      log.info(
+          "Time to first request: {} ms, target {} ms{}",
+          uptime,
+          FIRST_REQUEST_TARGET_MILLIS,
+          uptime > FIRST_REQUEST_TARGET_MILLIS ? " (missed)" : "");
+    }
+  }
+
+  /**
+   * Returns the recorded startup phases in milliseconds.
+   *
+   * @return The phases in the order they were recorded, with the time to the first request last
+   *     once it is known.
+   */
+  public Map<String, Long> getPhases() {
+    Map<String, Long> result;
+    synchronized (phases) {
+      result = new LinkedHashMap<>(phases);
+    }
+    if (firstRequestMillis.get() >= 0) {
+      result.put("first-request", firstRequestMillis.get());
+    }
+    return result;
+  }
+
+  /**
+   * Binds the phase durations and the time to the first request to the given meter registry.
+   *
+   * @param registry The registry to bind the meters to.
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    for (String phase : List.of("launch", "context", "warm-up", "ready", "first-request")) {
+      TimeGauge.builder(
+              "wallet.startup.phase",
+              this,
+              TimeUnit.MILLISECONDS,
+              timeline -> timeline.getPhases().getOrDefault(phase, 0L))
+          .tag("phase", phase)
+          .register(registry);
+    }
+    TimeGauge.builder(
+            "wallet.startup.first.request.target",
+            this,
+            TimeUnit.MILLISECONDS,
+            timeline -> FIRST_REQUEST_TARGET_MILLIS)
+        .register(registry);
+  }
+
+  /**
+   * Returns the beans that took the longest to create, by the time spent in their own creation
+   * excluding the nested creation of their dependencies.
+   */
+  private static Map<String, Long> slowestBeans(List<TimelineEvent> events) {
+    Map<Long, Long> nestedMillis = new HashMap<>();
+    for (TimelineEvent event : events) {
+      Long parentId = event.getStartupStep().getParentId();
+      if (parentId != null && BEAN_STEP.equals(event.getStartupStep().getName())) {
+        nestedMillis.merge(parentId, event.getDuration().toMillis(), Long::sum);
+      }
+    }
+    Map<String, Long> beans = new LinkedHashMap<>();
+    events.stream()
+        .filter(event -> BEAN_STEP.equals(event.getStartupStep().getName()))
+        .map(
+            event ->
+                Map.entry(
+                    beanName(event.getStartupStep()),
+                    event.getDuration().toMillis()
+                        - nestedMillis.getOrDefault(event.getStartupStep().getId(), 0L)))
+        .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+        .limit(REPORTED_BEANS)
+        .forEach(entry -> beans.put(entry.getKey(), entry.getValue()));
+    return beans;
+  }
+
+  private static String beanName(StartupStep step) {
+    for (StartupStep.Tag tag : step.getTags()) {
+      if ("beanName".equals(tag.getKey())) {
+        return tag.getValue();
+      }
+    }
+    return "unknown";
+  }
+
+  private static String format(Map<String, Long> phases) {
+    StringJoiner joiner = new StringJoiner(", ");
+    phases.forEach((phase, millis) -> joiner.add(phase + " " + millis + " ms"));
+    return joiner.toString();
+  }
+}
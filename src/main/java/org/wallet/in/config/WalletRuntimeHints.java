@@ -0,0 +1,99 @@
+package org.wallet.in.config;
+
+import com.danchuo.starterannotations.aop.aspects.CustomTimedAspect;
+import java.util.List;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.wallet.aop.aspects.AuthAspect;
+import org.wallet.aop.aspects.LoggableAspect;
+import org.wallet.application.WalletApplication;
+import org.wallet.domain.dto.mapper.LogMapper;
+import org.wallet.domain.dto.mapper.TransactionMapper;
+import org.wallet.domain.dto.request.JwtTokenResponseDto;
+import org.wallet.domain.dto.request.PlayerRequestDto;
+import org.wallet.domain.dto.request.TransactionRequestDto;
+import org.wallet.domain.dto.request.TransferRequestDto;
+import org.wallet.domain.dto.response.ActionCountResponseDto;
+import org.wallet.domain.dto.response.BalanceResponseDto;
+import org.wallet.domain.dto.response.ErrorResponce;
+import org.wallet.domain.dto.response.LogResponseDto;
+import org.wallet.domain.dto.response.TransactionOutcomeResponseDto;
+import org.wallet.domain.dto.response.TransactionResponseDto;
+import org.wallet.in.codec.MappedList;
+import org.wallet.in.controller.AuditController;
+import org.wallet.in.controller.PlayerController;
+import org.wallet.in.controller.TransactionController;
+import org.wallet.utils.JwtTokenUtility;
+
+/**
+ * The {@code WalletRuntimeHints} class registers the reflection and resources the application uses
+ * beyond what the ahead-of-time processing of the Spring context discovers, so that the native
+ * executable built with the {@code native} profile behaves like the JVM build:
+ *
+ * <ul>
+ *   <li>the DTOs bound by Jackson, including the JWT header and payload;
+ *   <li>the {@code jwtToken} field of the request DTOs, read reflectively by {@link AuthAspect};
+ *   <li>the MapStruct implementations, loaded by name by {@code Mappers.getMapper};
+ *   <li>the methods of the classes woven with {@link LoggableAspect} and {@link CustomTimedAspect},
+ *       which the AspectJ runtime looks up to build the signatures of the join points;
+ *   <li>the application configuration and the Liquibase change logs.
+ * </ul>
+ */
+public class WalletRuntimeHints implements RuntimeHintsRegistrar {
+
+  private static final List<Class<?>> JSON_TYPES =
+      List.of(
+          JwtTokenResponseDto.class,
+          PlayerRequestDto.class,
+          TransactionRequestDto.class,
+          TransferRequestDto.class,
+          ActionCountResponseDto.class,
+          BalanceResponseDto.class,
+          ErrorResponce.class,
+          LogResponseDto.class,
+          TransactionOutcomeResponseDto.class,
+          TransactionResponseDto.class,
+          JwtTokenUtility.Header.class,
+          JwtTokenUtility.Payload.class,
+          MappedList.class);
+
+  private static final List<Class<?>> WOVEN_TYPES =
+      List.of(
+          WalletApplication.class,
+          AuditController.class,
+          PlayerController.class,
+          TransactionController.class,
+          AuthAspect.class,
+          LoggableAspect.class,
+          CustomTimedAspect.class);
+
+  private static final List<Class<?>> MAPPER_TYPES =
+      List.of(LogMapper.class, TransactionMapper.class);
+
+  @Override
+  public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+    new BindingReflectionHintsRegistrar()
+        .registerReflectionHints(hints.reflection(), JSON_TYPES.toArray(Class<?>[]::new));
+    for (Class<?> type : JSON_TYPES) {
+      hints.reflection().registerType(type, MemberCategory.DECLARED_FIELDS);
+    }
+    for (Class<?> type : WOVEN_TYPES) {
+      hints
+          .reflection()
+          .registerType(
+              type, MemberCategory.INTROSPECT_DECLARED_METHODS, MemberCategory.DECLARED_FIELDS);
+    }
+    for (Class<?> type : MAPPER_TYPES) {
+      hints
+          .reflection()
+          .registerType(
+              TypeReference.of(type.getName() + "Impl"),
+              MemberCategory.INVOKE_DECLARED_CONSTRUCTORS);
+    }
+    hints.resources().registerPattern("application.yml");
+    hints.resources().registerPattern("db/changelog/*");
+  }
+}
@@ -0,0 +1,473 @@
+package org.wallet.in.config;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+import org.wallet.domain.dto.mapper.LogMapper;
+import org.wallet.domain.dto.mapper.TransactionMapper;
+import org.wallet.domain.dto.request.JwtTokenResponseDto;
+import org.wallet.domain.dto.request.TransactionRequestDto;
+import org.wallet.domain.dto.response.BalanceResponseDto;
+import org.wallet.domain.dto.response.TransactionOutcomeResponseDto;
+import org.wallet.domain.model.Log;
+import org.wallet.domain.model.LogAction;
+import org.wallet.domain.model.Player;
+import org.wallet.domain.model.RollupInterval;
+import org.wallet.domain.model.Transaction;
+import org.wallet.domain.model.TransactionOutcome;
+import org.wallet.domain.model.Transfer;
+import org.wallet.domain.repository.DatabaseConnection;
+import org.wallet.domain.repository.LiquibaseManager;
+import org.wallet.domain.repository.PartitionMaintenance;
+import org.wallet.domain.repository.log.AuditRollups;
+import org.wallet.domain.repository.log.LogQuery;
+import org.wallet.domain.repository.player.LoginIndex;
+import org.wallet.domain.repository.shard.ShardRouter;
+import org.wallet.domain.repository.shard.ShardedLogRepository;
+import org.wallet.domain.repository.shard.ShardedPlayerRepository;
+import org.wallet.domain.repository.shard.ShardedTransactionRepository;
+import org.wallet.domain.repository.transaction.BalanceCheckpoints;
+import org.wallet.domain.repository.transaction.TransactionArchive;
+import org.wallet.domain.repository.transaction.TransactionIdIndex;
+import org.wallet.domain.service.AuditFeed;
+import org.wallet.domain.service.AuditService;
+import org.wallet.domain.service.LedgerEventBus;
+import org.wallet.domain.service.PlayerService;
+import org.wallet.domain.service.TransactionService;
+import org.wallet.in.codec.MappedList;
+import org.wallet.in.codec.WalletCodec;
+import org.wallet.utils.JwtTokenUtility;
+import org.wallet.utils.WalletProperties;
+
+/**
+ * The {@code WarmUp} class exercises the hot paths of the application before it reports that it is
+ * ready, so the first requests after a deploy do not pay for class loading and interpretation while
+ * the JIT compiler catches up. Application runners complete before the readiness state changes to
+ * accepting traffic, so the readiness probe only passes once the warm-up is over.
+ *
+ * <p>Every iteration creates and verifies a JWT, binds a transaction request and writes the
+ * responses with the JSON codec of the web layer, maps them with the MapStruct mappers, and
+ * registers the transaction, reads the history and writes the audit entry through the services and
+ * repositories of the application. The services are wired to a scratch database on the server given
+ * by the {@code warmup.url} setting. Its name is the one of the URL suffixed with the host name and
+ * the process ID, so every instance warms up on a database of its own. The database is created and
+ * dropped through the {@code postgres} database of the same server, never through the wallet
+ * database, and migrated before every warm-up. Without a scratch database only the paths that need
+ * no database are exercised.
+ *
+ * <p>The warm-up is off unless the {@code warmup.enabled} setting is {@code true}. A failing
+ * warm-up is logged and the application starts cold. The iterations run in rounds until the time of
+ * a round stays within {@value #STEADY_TOLERANCE_PERCENT}% of the previous one, which is reported as
+ * the time to steady state. With the {@code warmup.exit} setting the application exits after the
+ * warm-up, as used by the class-data-sharing training run of the {@code cds} build profile, with a
+ * non-zero status if the warm-up failed.
+ */
+@Slf4j
+@Component
+public class WarmUp implements ApplicationRunner {
+
+  /** Variation between two consecutive rounds below which the paths are considered warm. */
+  private static final int STEADY_TOLERANCE_PERCENT = 10;
+
+  /** Number of consecutive steady rounds ending the warm-up. */
+  private static final int STEADY_ROUNDS = 3;
+
+  /** SQLSTATE reported when a created database already exists. */
+  private static final String DUPLICATE_DATABASE_SQL_STATE = "42P04";
+
+  /** Database every PostgreSQL server has, used to create and drop the scratch database. */
+  private static final String MAINTENANCE_DATABASE = "postgres";
+
+  /** Maximum length of a PostgreSQL identifier. */
+  private static final int MAX_IDENTIFIER_LENGTH = 63;
+
+  private static final String[] SCRATCH_TABLES = {
+    "wallet.transactions",
+    "wallet.transaction_keys",
+    "wallet.players",
+    "wallet.logs",
+    "wallet.audit_rollups",
+    "wallet.balance_checkpoints"
+  };
+
+  private final WalletCodec codec;
+  private final StartupTimeline startupTimeline;
+  private final ApplicationContext applicationContext;
+  private final boolean enabled;
+  private final String warmupUrl;
+  private final int roundIterations;
+  private final int maxRounds;
+  private final boolean exitAfterWarmUp;
+
+  /**
+   * Creates the warm-up with the settings of the application.
+   *
+   * @param codec The JSON codec of the web layer.
+   * @param startupTimeline The timeline the warm-up phase is reported to.
+   * @param applicationContext The context closed after a training run.
+   * @param warmup The settings of the warm-up.
+   */
+  @Autowired
+  public WarmUp(
+      WalletCodec codec,
+      StartupTimeline startupTimeline,
+      ApplicationContext applicationContext,
+      WalletProperties.Warmup warmup) {
+    this(
+        codec,
+        startupTimeline,
+        applicationContext,
+        warmup.enabled(),
+        warmup.url(),
+        warmup.roundIterations(),
+        warmup.maxRounds(),
+        warmup.exit());
+  }
+
+  /**
+   * Creates the warm-up with the given settings.
+   *
+   * @param codec The JSON codec of the web layer.
+   * @param startupTimeline The timeline the warm-up phase is reported to.
+   * @param applicationContext The context closed after a training run.
+   * @param enabled Whether the warm-up runs at all.
+   * @param warmupUrl The URL naming the server and the base name of the scratch database, or an
+   *     empty string to warm up without a database.
+   * @param roundIterations The number of iterations of a round.
+   * @param maxRounds The maximum number of rounds.
+   * @param exitAfterWarmUp Whether the application exits after the warm-up.
+   */
+  public WarmUp(
+      WalletCodec codec,
+      StartupTimeline startupTimeline,
+      ApplicationContext applicationContext,
+      boolean enabled,
+      String warmupUrl,
+      int roundIterations,
+      int maxRounds,
+      boolean exitAfterWarmUp) {
+    this.codec = codec;
+    this.startupTimeline = startupTimeline;
+    this.applicationContext = applicationContext;
+    this.enabled = enabled;
+    this.warmupUrl = warmupUrl;
+    this.roundIterations = roundIterations;
+    this.maxRounds = maxRounds;
+    this.exitAfterWarmUp = exitAfterWarmUp;
+  }
+
+  /**
+   * Runs the warm-up rounds and reports the time to steady state. A failure is logged and does not
+   * stop the application from starting, except in a training run.
+   *
+   * @param args The arguments of the application.
+   */
+  @Override
+  public void run(ApplicationArguments args) {
+    if (!enabled || maxRounds <= 0 || roundIterations <= 0) {
+      return;
+    }
+    boolean warmedUp;
+    try {
+      warmUp();
+      warmedUp = true;
+    } catch (Exception e) {
+      log.warn("Warm-up failed, starting without it", e);
+      warmedUp = false;
+    }
+    if (exitAfterWarmUp) {
+      int status = SpringApplication.exit(applicationContext);
+      System.exit(warmedUp ? status : 1);
+    }
+  }
+
+  private void warmUp() throws SQLException, IOException {
+    long start = System.nanoTime();
+    try (Scratch scratch =
+        warmupUrl.isBlank() ? null : Scratch.open(warmupUrl, instanceName())) {
+      List<Long> rounds = new ArrayList<>();
+      int steady = 0;
+      while (rounds.size() < maxRounds && steady < STEADY_ROUNDS) {
+        long roundStart = System.nanoTime();
+        runRound(scratch, rounds.size());
+        long roundNanos = System.nanoTime() - roundStart;
+        if (!rounds.isEmpty()
+            && Math.abs(roundNanos - rounds.get(rounds.size() - 1))
+                <= rounds.get(rounds.size() - 1) * STEADY_TOLERANCE_PERCENT / 100) {
+          steady++;
+        } else {
+          steady = 0;
+        }
+        rounds.add(roundNanos);
+      }
+      long millis = (System.nanoTime() - start) / 1_000_000;
+      startupTimeline.recordPhase("warm-up", millis);
+      log.info(
+          "Warm-up {} after {} ms and {} rounds: {} us per iteration in the first round,"
+              + " {} us in the last{}",
+          steady >= STEADY_ROUNDS ? "steady" : "stopped",
+          millis,
+          rounds.size(),
+          rounds.get(0) / 1_000 / roundIterations,
+          rounds.get(rounds.size() - 1) / 1_000 / roundIterations,
+          scratch == null ? ", without a scratch database" : "");
+    }
+  }
+
+  /**
+   * Returns the name of the scratch database of this instance: the database name of a URL suffixed
+   * with an instance name, reduced to lower-case letters, digits and underscores and cut to the
+   * length of a PostgreSQL identifier.
+   *
+   * @param url The URL of the warm-up server and base database name.
+   * @param instance The name of the instance.
+   * @return The database name.
+   */
+  static String scratchDatabaseName(String url, String instance) {
+    String name =
+        (databaseName(url) + "_" + instance).toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9_]", "_");
+    return name.length() > MAX_IDENTIFIER_LENGTH ? name.substring(0, MAX_IDENTIFIER_LENGTH) : name;
+  }
+
+  /**
+   * Returns a URL with its database name replaced.
+   *
+   * @param url The URL.
+   * @param database The database name.
+   * @return The URL naming the database.
+   */
+  static String withDatabase(String url, String database) {
+    int end = url.indexOf('?') < 0 ? url.length() : url.indexOf('?');
+    return url.substring(0, url.lastIndexOf('/', end) + 1) + database + url.substring(end);
+  }
+
+  private static String databaseName(String url) {
+    int end = url.indexOf('?') < 0 ? url.length() : url.indexOf('?');
+    return url.substring(url.lastIndexOf('/', end) + 1, end);
+  }
+
+  /** Returns the host name and the process ID, which tell apart the instances on a server. */
+  private static String instanceName() {
+    String host;
+    try {
+      host = InetAddress.getLocalHost().getHostName();
+    } catch (UnknownHostException e) {
+      host = "localhost";
+    }
+    return host + "_" + ProcessHandle.current().pid();
+  }
+
+  private void runRound(Scratch scratch, int round) throws IOException {
+    String login = "warmup-" + round;
+    String recipient = login + "-recipient";
+    if (scratch != null) {
+      scratch.playerService.registerPlayer(login, login);
+      scratch.playerService.registerPlayer(recipient, recipient);
+    }
+    for (int i = 0; i < roundIterations; i++) {
+      String token = JwtTokenUtility.createJwtToken(login);
+      TransactionRequestDto request = new TransactionRequestDto();
+      request.setJwtToken(token);
+      request.setTransactionId(login + "-" + i);
+      request.setTransactionType("CREDIT");
+      request.setAmount(BigDecimal.TEN);
+      request =
+          codec
+              .reader(TransactionRequestDto.class)
+              .readValue(codec.getObjectMapper().writeValueAsBytes(request));
+      if (!JwtTokenUtility.isValid(request.getJwtToken()) || !request.isValid()) {
+        throw new IllegalStateException("The warm-up request is invalid.");
+      }
+      Transaction transaction =
+          TransactionMapper.INSTANCE.transactionRequestDtoToTransaction(request);
+      TransactionOutcome outcome;
+      List<Transaction> history;
+      if (scratch != null) {
+        Player player =
+            scratch.playerService.getPlayerByLogin(transaction.playerLogin()).orElseThrow();
+        scratch.transactionService.registerTransaction(player, transaction);
+        scratch.auditService.log(LogAction.TRANSACTION, player.getLogin(), "warm-up");
+        outcome = TransactionOutcome.applied(transaction, player.getBalance());
+        history =
+            i % 10 == 0
+                ? scratch.transactionService.getTransactionsByPlayer(player)
+                : List.of(transaction);
+      } else {
+        outcome = TransactionOutcome.applied(transaction, transaction.amount());
+        history = List.of(transaction);
+      }
+      TransactionOutcomeResponseDto outcomeDto =
+          TransactionMapper.INSTANCE.transactionOutcomeToTransactionOutcomeResponseDto(outcome);
+      codec.writer(TransactionOutcomeResponseDto.class).writeValueAsBytes(outcomeDto);
+      stream(
+          MappedList.of(
+              Transaction.class,
+              history,
+              TransactionMapper.INSTANCE::transactionToTransactionResponseDto));
+      codec
+          .writer(BalanceResponseDto.class)
+          .writeValueAsBytes(new BalanceResponseDto(outcome.balance()));
+      codec
+          .reader(JwtTokenResponseDto.class)
+          .readValue(
+              codec
+                  .writer(JwtTokenResponseDto.class)
+                  .writeValueAsBytes(new JwtTokenResponseDto(token)));
+    }
+    if (scratch != null) {
+      LocalDateTime now = LocalDateTime.now();
+      scratch.transactionService.transfer(
+          new Transfer(login + "-transfer", login, recipient, BigDecimal.ONE));
+      scratch.transactionService.getBalanceAt(login, now);
+      scratch.playerService.getPlayerSnapshotByLogin(login);
+      stream(
+          MappedList.of(
+              Log.class,
+              scratch.auditService.getLogMessages(new LogQuery(null, null, login, 0, 50)),
+              LogMapper.INSTANCE::logToLogDto));
+      codec
+          .getObjectMapper()
+          .writeValueAsBytes(
+              scratch.auditService
+                  .getActionCounts(now.minusHours(1), now.plusHours(1), RollupInterval.HOUR)
+                  .stream()
+                  .map(LogMapper.INSTANCE::actionCountToActionCountDto)
+                  .toList());
+    }
+  }
+
+  /** Writes a list of records the way the JSON converter writes a response body. */
+  private void stream(MappedList<?, ?> body) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (JsonGenerator generator =
+        codec.getObjectMapper().getFactory().createGenerator(output, JsonEncoding.UTF8)) {
+      codec.stream(body, generator);
+    }
+  }
+
+  /**
+   * The services of the application wired to the scratch database, built the same way as the ones
+   * managed by Spring so the warmed-up code is the code that serves requests.
+   */
+  private static final class Scratch implements AutoCloseable {
+    private final ShardRouter shardRouter;
+    private final AuditRollups auditRollups;
+    private final Path archiveDirectory;
+    private final String maintenanceUrl;
+    private final String databaseName;
+    private final PlayerService playerService;
+    private final TransactionService transactionService;
+    private final AuditService auditService;
+
+    private Scratch(
+        DatabaseConnection database,
+        Path archiveDirectory,
+        String maintenanceUrl,
+        String databaseName) {
+      this.archiveDirectory = archiveDirectory;
+      this.maintenanceUrl = maintenanceUrl;
+      this.databaseName = databaseName;
+      shardRouter = new ShardRouter(List.of(database));
+      shardRouter.init();
+      PartitionMaintenance partitionMaintenance =
+          new PartitionMaintenance(shardRouter, WalletProperties.get(WalletProperties.Audit.class));
+      partitionMaintenance.init();
+      TransactionArchive transactionArchive =
+          new TransactionArchive(
+              shardRouter,
+              partitionMaintenance,
+              Clock.systemDefaultZone(),
+              archiveDirectory,
+              Integer.MAX_VALUE);
+      transactionArchive.init();
+      ShardedPlayerRepository playerRepository = new ShardedPlayerRepository(shardRouter);
+      ShardedTransactionRepository transactionRepository =
+          new ShardedTransactionRepository(shardRouter);
+      LoginIndex loginIndex = new LoginIndex(playerRepository);
+      TransactionIdIndex transactionIdIndex = new TransactionIdIndex(transactionRepository);
+      transactionIdIndex.load();
+      auditRollups = new AuditRollups(database);
+      playerService = new PlayerService(playerRepository, loginIndex);
+      transactionService =
+          new TransactionService(
+              transactionRepository,
+              transactionIdIndex,
+              transactionArchive,
+              new BalanceCheckpoints(
+                  shardRouter, WalletProperties.get(WalletProperties.Transactions.class)),
+              new LedgerEventBus());
+      ShardedLogRepository logRepository = new ShardedLogRepository(shardRouter);
+      auditService = new AuditService(logRepository, auditRollups, new AuditFeed(logRepository));
+    }
+
+    /**
+     * Creates and migrates the scratch database of an instance and empties it, in case a previous
+     * run of the same instance did not drop it.
+     */
+    private static Scratch open(String url, String instance) throws SQLException, IOException {
+      String databaseName = scratchDatabaseName(url, instance);
+      String maintenanceUrl = withDatabase(url, MAINTENANCE_DATABASE);
+      try (Connection connection = new DatabaseConnection(maintenanceUrl).getConnection();
+          Statement statement = connection.createStatement()) {
+        statement.execute("CREATE DATABASE \"" + databaseName + "\"");
+      } catch (SQLException e) {
+        if (!DUPLICATE_DATABASE_SQL_STATE.equals(e.getSQLState())) {
+          throw e;
+        }
+      }
+      DatabaseConnection database = new DatabaseConnection(withDatabase(url, databaseName));
+      try (Connection connection = database.getConnection();
+          Statement statement = connection.createStatement()) {
+        statement.execute("CREATE SCHEMA IF NOT EXISTS wallet");
+        statement.execute("CREATE SCHEMA IF NOT EXISTS wallet_log");
+      }
+      new LiquibaseManager(database).migrate();
+      try (Connection connection = database.getConnection();
+          Statement statement = connection.createStatement()) {
+        statement.execute("TRUNCATE " + String.join(", ", SCRATCH_TABLES));
+      }
+      return new Scratch(
+          database, Files.createTempDirectory("warmup-archive"), maintenanceUrl, databaseName);
+    }
+
+    @Override
+    public void close() throws IOException {
+      auditRollups.close();
+      shardRouter.shutdown();
+      try (Connection connection = new DatabaseConnection(maintenanceUrl).getConnection();
+          Statement statement = connection.createStatement()) {
+        statement.execute("DROP DATABASE IF EXISTS \"" + databaseName + "\"");
+      } catch (SQLException e) {
+        log.warn("Could not drop the warm-up database {}", databaseName, e);
+      }
+      try (Stream<Path> paths = Files.walk(archiveDirectory)) {
+        for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+          Files.delete(path);
+        }
+      }
+    }
+  }
+}
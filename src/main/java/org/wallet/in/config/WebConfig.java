@@ -1,19 +1,65 @@
 package org.wallet.in.config;
 
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
 import org.springframework.context.annotation.aspectj.EnableSpringConfigured;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.wallet.in.codec.WalletCodec;
+import org.wallet.in.codec.WalletHttpMessageConverter;
 
 /**
  * The `WebConfig` class is a configuration class for setting up the web environment in a Spring
- * application. It is responsible for configuring web-related settings.
+ * application. It is responsible for configuring web-related settings, including the interceptor
+ * that records the time to the first request and the JSON, CBOR and Smile converters backed by
+ * the {@link WalletCodec}.
  */
 @EnableWebMvc
 @Configuration
 @ComponentScan(basePackages = {"org.wallet", "com.danchuo.starterannotations.aop"})
 @EnableAspectJAutoProxy
 @EnableSpringConfigured
-public class WebConfig implements WebMvcConfigurer {}
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+  private final StartupTimeline startupTimeline;
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addInterceptor(startupTimeline);
+  }
+
+  /**
+   * Creates the JSON codec of the API.
+   *
+   * @return The JSON codec.
+   */
+  @Bean
+  public WalletCodec walletCodec() {
+    return WalletCodec.json();
+  }
+
+  /** Replaces the default Jackson converters by ones using the pre-built codecs. */
+  @Override
+  public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+    for (int i = 0; i < converters.size(); i++) {
+      HttpMessageConverter<?> converter = converters.get(i);
+      if (converter instanceof MappingJackson2HttpMessageConverter) {
+        converters.set(i, WalletHttpMessageConverter.json(walletCodec()));
+      } else if (converter instanceof MappingJackson2CborHttpMessageConverter) {
+        converters.set(i, WalletHttpMessageConverter.cbor(WalletCodec.cbor()));
+      } else if (converter instanceof MappingJackson2SmileHttpMessageConverter) {
+        converters.set(i, WalletHttpMessageConverter.smile(WalletCodec.smile()));
+      }
+    }
+  }
+}
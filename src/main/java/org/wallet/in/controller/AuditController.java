@@ -1,20 +1,35 @@
 package org.wallet.in.controller;
 
 import com.danchuo.starterannotations.aop.annotations.Timed;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.wallet.application.WalletApplication;
 import org.wallet.domain.dto.mapper.LogMapper;
+import org.wallet.domain.dto.response.ActionCountResponseDto;
 import org.wallet.domain.dto.response.LogResponseDto;
 import org.wallet.domain.model.Log;
+import org.wallet.domain.model.LogAction;
+import org.wallet.domain.model.RollupInterval;
+import org.wallet.domain.repository.log.LogQuery;
+import org.wallet.in.codec.MappedList;
+import org.wallet.in.codec.WalletHttpMessageConverter;
+import org.wallet.in.push.AuditStream;
 
 /**
  * The `AuditController` class is a Spring MVC controller responsible for handling HTTP requests
- * related to audit logs. It exposes an endpoint for retrieving audit logs in JSON format.
+ * related to audit logs. It exposes endpoints for retrieving audit logs and audit activity counts
+ * in JSON format, and a stream of the audit logs as they are recorded.
  */
 @Timed
 @RestController
@@ -22,15 +37,91 @@ import org.wallet.domain.model.Log;
 public class AuditController {
   private final WalletApplication walletApplication;
 
+  private final AuditStream auditStream;
+
   /**
-   * Retrieves a list of audit logs and maps them to LogResponseDto objects.
+   * Retrieves a list of audit logs and maps them to LogResponseDto objects. When a time range is
+   * given, only the logs written in it are read. When a username or a page is given, only the
+   * matching page of logs is read, newest first. The logs are written in the shape of
+   * LogResponseDto objects without building the DTOs. The response is JSON, CBOR or Smile, as
+   * requested by the Accept header.
    *
-   * @return A list of LogResponseDto objects containing audit log information.
+   * @param from The start of the time range, inclusive; optional.
+   * @param to The end of the time range, exclusive; optional.
+   * @param username The user whose logs are read; optional.
+   * @param offset The number of matching logs to skip; optional.
+   * @param limit The maximum number of logs to return; optional.
+   * @return The audit logs, serialized as a list of LogResponseDto objects.
    */
-  @GetMapping(value = "/logs", produces = MediaType.APPLICATION_JSON_VALUE)
-  public List<LogResponseDto> getLogs() {
-    List<Log> logs = walletApplication.getLogMessages();
+  @GetMapping(
+      value = "/logs",
+      produces = {
+        MediaType.APPLICATION_JSON_VALUE,
+        MediaType.APPLICATION_CBOR_VALUE,
+        WalletHttpMessageConverter.APPLICATION_SMILE_VALUE
+      })
+  public MappedList<Log, LogResponseDto> getLogs(
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime from,
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime to,
+      @RequestParam(required = false) String username,
+      @RequestParam(required = false) Integer offset,
+      @RequestParam(required = false) Integer limit) {
+    List<Log> logs;
+    if (username != null || offset != null || limit != null) {
+      logs =
+          walletApplication.getLogMessages(
+              new LogQuery(
+                  from,
+                  to,
+                  username,
+                  offset != null ? offset : 0,
+                  limit != null ? limit : LogQuery.UNLIMITED));
+    } else if (from != null || to != null) {
+      logs = walletApplication.getLogMessages(from, to);
+    } else {
+      logs = walletApplication.getLogMessages();
+    }
+
+    return MappedList.of(Log.class, logs, LogMapper.INSTANCE::logToLogDto);
+  }
 
-    return logs.stream().map(LogMapper.INSTANCE::logToLogDto).collect(Collectors.toList());
+  /**
+   * Opens a Server-Sent Events stream of the audit logs recorded from now on, filtered by user and
+   * actions. Every log is sent as a {@code log} event whose ID is its position in the audit store;
+   * a client reconnecting with the {@code Last-Event-ID} header, or passing the ID as {@code
+   * after}, first receives the logs stored after it, on any instance or before a restart.
+   *
+   * @param lastEventId The ID of the last event received, sent by reconnecting event sources.
+   * @param after The ID of the last event received; used if the header is absent; optional.
+   * @param username The user whose logs are streamed; optional.
+   * @param actions The actions of the streamed logs; optional, may be repeated.
+   * @return The emitter of the stream.
+   */
+  @GetMapping(value = "/logs/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamLogs(
+      @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId,
+      @RequestParam(required = false) Long after,
+      @RequestParam(required = false) String username,
+      @RequestParam(name = "action", required = false) Set<LogAction> actions) {
+    return auditStream.subscribe(lastEventId != null ? lastEventId : after, username, actions);
+  }
+
+  /**
+   * Retrieves the number of audit logs per interval and action written in a time range. The counts
+   * are read from the audit rollups, so the audit logs themselves are not scanned.
+   *
+   * @param from The start of the time range, inclusive.
+   * @param to The end of the time range, exclusive.
+   * @param interval The length of the intervals to count by; hourly by default.
+   * @return A list of ActionCountResponseDto objects ordered by interval and action.
+   */
+  @GetMapping(value = "/analytics", produces = MediaType.APPLICATION_JSON_VALUE)
+  public List<ActionCountResponseDto> getActionCounts(
+      @RequestParam @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime from,
+      @RequestParam @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime to,
+      @RequestParam(defaultValue = "HOUR") RollupInterval interval) {
+    return walletApplication.getActionCounts(from, to, interval).stream()
+        .map(LogMapper.INSTANCE::actionCountToActionCountDto)
+        .collect(Collectors.toList());
   }
 }
@@ -1,20 +1,29 @@
 package org.wallet.in.controller;
 
 import com.danchuo.starterannotations.aop.annotations.Timed;
+import java.time.LocalDateTime;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.wallet.aop.annotations.Authorized;
 import org.wallet.application.WalletApplication;
 import org.wallet.domain.dto.request.JwtTokenResponseDto;
 import org.wallet.domain.dto.request.PlayerRequestDto;
 import org.wallet.domain.dto.response.BalanceResponseDto;
 import org.wallet.exception.InvalidRequestException;
+import org.wallet.in.config.LedgerETags;
+import org.wallet.in.push.BalanceStream;
 import org.wallet.utils.JwtTokenUtility;
 
 /**
@@ -28,6 +37,10 @@ public class PlayerController {
 
   private final WalletApplication walletApplication;
 
+  private final BalanceStream balanceStream;
+
+  private final LedgerETags ledgerETags;
+
   /**
    * Registers a new player with the provided request data.
    *
@@ -63,18 +76,66 @@ public class PlayerController {
   }
 
   /**
-   * Retrieves the balance of an authenticated player.
+   * Retrieves the balance of an authenticated player. The response carries the ETag of the ledger
+   * version the balance was read at, and a request whose {@code If-None-Match} header matches the
+   * current version is answered with {@code 304 Not Modified} without reading the balance.
    *
    * @param request The JWT token response data to authenticate the player.
-   * @return A balance response containing the player's balance.
+   * @param webRequest The request, checked for the ETag known to the client.
+   * @return A balance response containing the player's balance, or {@code null} if not modified.
    */
   @Authorized
   @GetMapping(value = "/balance", produces = MediaType.APPLICATION_JSON_VALUE)
-  public BalanceResponseDto getBalance(@RequestBody JwtTokenResponseDto request) {
+  public BalanceResponseDto getBalance(
+      @RequestBody JwtTokenResponseDto request, WebRequest webRequest) {
     var login = JwtTokenUtility.getLogin(request.getJwtToken());
 
-    var balance = walletApplication.getBalanceOfPlayer(login);
+    var version = walletApplication.getLedgerVersion(login);
+    if (ledgerETags.isNotModified(LedgerETags.Resource.BALANCE, login, version, webRequest)) {
+      return null;
+    }
+
+    var player = walletApplication.getPlayerSnapshotByLogin(login);
+    if (ledgerETags.checkNotModified(
+        LedgerETags.Resource.BALANCE, login, player.getLedgerVersion(), webRequest)) {
+      return null;
+    }
+
+    return new BalanceResponseDto(player.getBalance());
+  }
+
+  /**
+   * Retrieves the balance an authenticated player had at a past time. The balance is computed from
+   * the nearest balance checkpoint before that time, so only the transactions after it are read.
+   *
+   * @param request The JWT token response data to authenticate the player.
+   * @param timestamp The time to retrieve the balance at, inclusive.
+   * @return A balance response containing the player's balance at that time.
+   */
+  @Authorized
+  @GetMapping(value = "/balance/at", produces = MediaType.APPLICATION_JSON_VALUE)
+  public BalanceResponseDto getBalanceAt(
+      @RequestBody JwtTokenResponseDto request,
+      @RequestParam @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime timestamp) {
+    var login = JwtTokenUtility.getLogin(request.getJwtToken());
+
+    return new BalanceResponseDto(walletApplication.getBalanceAt(login, timestamp));
+  }
+
+  /**
+   * Opens a Server-Sent Events stream of the balance and the new transactions of an authenticated
+   * player. The current balance is sent first, followed by the transactions as they are applied and
+   * the balance after them. The token is passed as the {@code jwtToken} query parameter, since
+   * browsers cannot send a body or headers with an event source.
+   *
+   * @param request The JWT token response data to authenticate the player.
+   * @return The emitter of the stream.
+   */
+  @Authorized
+  @GetMapping(value = "/balance/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamBalance(@ModelAttribute JwtTokenResponseDto request) {
+    var login = JwtTokenUtility.getLogin(request.getJwtToken());
 
-    return new BalanceResponseDto(balance);
+    return balanceStream.subscribe(login);
   }
 }
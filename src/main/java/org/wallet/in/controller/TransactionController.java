@@ -1,24 +1,37 @@
 package org.wallet.in.controller;
 
 import com.danchuo.starterannotations.aop.annotations.Timed;
+import jakarta.servlet.http.HttpServletResponse;
 import java.util.List;
-import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import org.wallet.aop.annotations.Authorized;
 import org.wallet.application.WalletApplication;
 import org.wallet.domain.dto.mapper.TransactionMapper;
 import org.wallet.domain.dto.request.JwtTokenResponseDto;
 import org.wallet.domain.dto.request.TransactionRequestDto;
+import org.wallet.domain.dto.request.TransferRequestDto;
+import org.wallet.domain.dto.response.TransactionOutcomeResponseDto;
 import org.wallet.domain.dto.response.TransactionResponseDto;
+import org.wallet.domain.model.Ledger;
+import org.wallet.domain.model.LedgerPage;
 import org.wallet.domain.model.Transaction;
+import org.wallet.domain.model.TransactionOutcome;
+import org.wallet.domain.model.Transfer;
 import org.wallet.exception.InvalidRequestException;
+import org.wallet.in.codec.MappedList;
+import org.wallet.in.codec.WalletHttpMessageConverter;
+import org.wallet.in.config.LedgerETags;
 import org.wallet.utils.JwtTokenUtility;
 
 /**
@@ -30,17 +43,25 @@ import org.wallet.utils.JwtTokenUtility;
 @RequiredArgsConstructor
 public class TransactionController {
 
+  /** Number of transactions of a page when a cursor is given without a limit. */
+  private static final int DEFAULT_PAGE_SIZE = 100;
+
   private final WalletApplication walletApplication;
 
+  private final LedgerETags ledgerETags;
+
   /**
-   * Creates a new transaction based on the provided request data.
+   * Creates a new transaction based on the provided request data. A retry of an already registered
+   * request returns the original outcome instead of failing.
    *
    * @param requestDto The transaction request data.
+   * @return The outcome of the transaction, including the resulting balance.
    */
   @Authorized
   @PostMapping(value = "/transaction", produces = MediaType.APPLICATION_JSON_VALUE)
   @ResponseStatus(HttpStatus.CREATED)
-  public void createTransaction(@RequestBody TransactionRequestDto requestDto) {
+  public TransactionOutcomeResponseDto createTransaction(
+      @RequestBody TransactionRequestDto requestDto) {
     var login = JwtTokenUtility.getLogin(requestDto.getJwtToken());
 
     if (!requestDto.isValid()) {
@@ -49,24 +70,107 @@ public class TransactionController {
 
     Transaction transaction =
         TransactionMapper.INSTANCE.transactionRequestDtoToTransaction(requestDto);
-    walletApplication.registerTransaction(transaction);
+    TransactionOutcome outcome =
+        walletApplication
+            .replayTransaction(transaction)
+            .orElseGet(() -> walletApplication.registerTransaction(transaction));
+
+    return TransactionMapper.INSTANCE.transactionOutcomeToTransactionOutcomeResponseDto(outcome);
   }
 
   /**
-   * Retrieves all transactions of the authenticated player.
+   * Transfers money from the authenticated player to another player. The debit of the sender and
+   * the credit of the recipient are applied together or not at all. A retry of an already applied
+   * transfer returns the original outcome instead of failing; a transfer ID reused with different
+   * parameters is answered with {@code 403 Forbidden}. A transfer between players stored on
+   * different shards cannot be applied atomically and is answered with {@code 409 Conflict}.
+   *
+   * @param requestDto The transfer request data.
+   * @return The outcome of the debit of the sender, including the resulting balance.
+   */
+  @Authorized
+  @PostMapping(value = "/transfer", produces = MediaType.APPLICATION_JSON_VALUE)
+  @ResponseStatus(HttpStatus.CREATED)
+  public TransactionOutcomeResponseDto createTransfer(@RequestBody TransferRequestDto requestDto) {
+    if (!requestDto.isValid()) {
+      throw new InvalidRequestException();
+    }
+
+    Transfer transfer = TransactionMapper.INSTANCE.transferRequestDtoToTransfer(requestDto);
+    TransactionOutcome outcome = walletApplication.transfer(transfer);
+
+    return TransactionMapper.INSTANCE.transactionOutcomeToTransactionOutcomeResponseDto(outcome);
+  }
+
+  /**
+   * Retrieves the transactions of the authenticated player: all of them, or a page when a cursor
+   * or a limit is given. Pages walk the history back from the most recent transactions, so the
+   * archive is only read for pages reaching past the transactions still in the database; the
+   * cursor of the preceding page is sent in a {@code Link} header with {@code rel="next"}. The
+   * transactions are written in the shape of transaction response DTOs without building the DTOs.
+   * The response is JSON, CBOR or Smile, as requested by the Accept header. The response carries
+   * the ETag of the ledger version the transactions were read at, and a request whose {@code
+   * If-None-Match} header matches the current version is answered with {@code 304 Not Modified}
+   * without reading the transactions.
    *
    * @param request The JWT token response data for player authentication.
-   * @return A list of transaction response DTOs.
+   * @param before The cursor of the page to read, from the {@code Link} header of the following
+   *     page; optional.
+   * @param limit The maximum number of transactions of a page; optional.
+   * @param webRequest The request, checked for the ETag known to the client.
+   * @param response The response, given the {@code Link} header of the preceding page.
+   * @return The transactions, serialized as a list of transaction response DTOs, or {@code null}
+   *     if not modified.
    */
   @Authorized
-  @GetMapping(value = "/transactions", produces = MediaType.APPLICATION_JSON_VALUE)
-  public List<TransactionResponseDto> getAllTransactions(@RequestBody JwtTokenResponseDto request) {
+  @GetMapping(
+      value = "/transactions",
+      produces = {
+        MediaType.APPLICATION_JSON_VALUE,
+        MediaType.APPLICATION_CBOR_VALUE,
+        WalletHttpMessageConverter.APPLICATION_SMILE_VALUE
+      })
+  public MappedList<Transaction, TransactionResponseDto> getAllTransactions(
+      @RequestBody JwtTokenResponseDto request,
+      @RequestParam(required = false) String before,
+      @RequestParam(required = false) Integer limit,
+      WebRequest webRequest,
+      HttpServletResponse response) {
     var login = JwtTokenUtility.getLogin(request.getJwtToken());
 
-    List<Transaction> transactions = walletApplication.getTransactionsOfPlayer(login);
+    var version = walletApplication.getLedgerVersion(login);
+    if (ledgerETags.isNotModified(LedgerETags.Resource.TRANSACTIONS, login, version, webRequest)) {
+      return null;
+    }
+
+    List<Transaction> transactions;
+    long readVersion;
+    if (before != null || limit != null) {
+      LedgerPage page =
+          walletApplication.getLedgerPageOfPlayer(
+              login, before, limit != null ? limit : DEFAULT_PAGE_SIZE);
+      if (page.nextCursor() != null) {
+        String next =
+            ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("before", page.nextCursor())
+                .toUriString();
+        response.setHeader(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+      }
+      transactions = page.transactions();
+      readVersion = page.version();
+    } else {
+      Ledger ledger = walletApplication.getLedgerOfPlayer(login);
+      transactions = ledger.transactions();
+      readVersion = ledger.version();
+    }
+    if (ledgerETags.checkNotModified(
+        LedgerETags.Resource.TRANSACTIONS, login, readVersion, webRequest)) {
+      return null;
+    }
 
-    return transactions.stream()
-        .map(TransactionMapper.INSTANCE::transactionToTransactionResponseDto)
-        .collect(Collectors.toList());
+    return MappedList.of(
+        Transaction.class,
+        transactions,
+        TransactionMapper.INSTANCE::transactionToTransactionResponseDto);
   }
 }
@@ -0,0 +1,166 @@
+package org.wallet.in.ingest;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import org.wallet.domain.model.TransactionType;
+import org.wallet.in.ingest.IngestProtocol.Ack;
+import org.wallet.in.ingest.IngestProtocol.Frame;
+import org.wallet.in.ingest.IngestProtocol.Hello;
+import org.wallet.in.ingest.IngestProtocol.Submit;
+
+/**
+ * The {@code IngestClient} class is a client of the {@link IngestServer} for game servers and load
+ * tests. Frames are sent without waiting for the acks of earlier frames, up to a window of frames
+ * in flight; a thread of the client reads the acks and completes the futures of their frames.
+ * The client is safe for use by multiple threads.
+ */
+public class IngestClient implements AutoCloseable {
+
+  /** A frame waiting for its ack. */
+  private record Pending(long correlationId, CompletableFuture<Ack> ack) {}
+
+  private final SocketChannel channel;
+  private final Semaphore window;
+  private final Queue<Pending> pending = new ConcurrentLinkedQueue<>();
+  private final ByteBuffer output =
+      ByteBuffer.allocate(Integer.BYTES + IngestProtocol.MAX_FRAME_BYTES);
+  private final Thread reader;
+  private long nextCorrelationId;
+  private volatile IOException failure;
+
+  private IngestClient(SocketChannel channel, int window) {
+    this.channel = channel;
+    this.window = new Semaphore(window);
+    this.reader = new Thread(this::readAcks, "ingest-client-reader");
+    reader.setDaemon(true);
+    reader.start();
+  }
+
+  /**
+   * Opens a session with an ingest listener.
+   *
+   * @param host The host of the listener.
+   * @param port The port of the listener.
+   * @param window The largest number of frames sent and not acknowledged yet.
+   * @return The client.
+   * @throws IOException if the connection could not be opened.
+   */
+  public static IngestClient connect(String host, int port, int window) throws IOException {
+    SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port));
+    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+    return new IngestClient(channel, window);
+  }
+
+  /**
+   * Authenticates a player for the rest of the session.
+   *
+   * @param token The JWT token of the player.
+   * @return A future completed with the ack, of status {@link IngestStatus#ACCEPTED} if the token
+   *     is valid.
+   * @throws IOException if the session has failed.
+   * @throws InterruptedException if interrupted while waiting for the window.
+   */
+  public CompletableFuture<Ack> hello(String token) throws IOException, InterruptedException {
+    return send(correlationId -> new Hello(correlationId, token));
+  }
+
+  /**
+   * Submits a transaction of a player authenticated by {@link #hello(String)}.
+   *
+   * @param login The login of the player.
+   * @param transactionId The unique identifier of the transaction.
+   * @param type The type of the transaction.
+   * @param amount The amount of the transaction.
+   * @return A future completed with the ack, carrying the status and the resulting balance.
+   * @throws IOException if the session has failed.
+   * @throws InterruptedException if interrupted while waiting for the window.
+   */
+  public CompletableFuture<Ack> submit(
+      String login, String transactionId, TransactionType type, BigDecimal amount)
+      throws IOException, InterruptedException {
+    return send(correlationId -> new Submit(correlationId, login, transactionId, type, amount));
+  }
+
+  /** Closes the session; the frames still waiting for their acks fail. */
+  @Override
+  public void close() throws IOException {
+    channel.close();
+    try {
+      reader.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** Creates a frame with the correlation ID given to it. */
+  private interface FrameFactory {
+    Frame create(long correlationId);
+  }
+
+  private CompletableFuture<Ack> send(FrameFactory factory)
+      throws IOException, InterruptedException {
+    window.acquire();
+    CompletableFuture<Ack> ack = new CompletableFuture<>();
+    try {
+      synchronized (output) {
+        if (failure != null) {
+          throw failure;
+        }
+        long correlationId = ++nextCorrelationId;
+        output.clear();
+        IngestProtocol.write(factory.create(correlationId), output);
+        output.flip();
+        pending.add(new Pending(correlationId, ack));
+        while (output.hasRemaining()) {
+          channel.write(output);
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      window.release();
+      throw e;
+    }
+    return ack;
+  }
+
+  private void readAcks() {
+    ByteBuffer input = ByteBuffer.allocate(64 * 1024);
+    try {
+      while (true) {
+        if (channel.read(input) < 0) {
+          throw new EOFException("The ingest listener closed the session");
+        }
+        input.flip();
+        Frame frame;
+        while ((frame = IngestProtocol.read(input)) != null) {
+          Pending head = pending.poll();
+          if (!(frame instanceof Ack ack)
+              || head == null
+              || head.correlationId() != ack.correlationId()) {
+            throw new IOException("Unexpected frame " + frame);
+          }
+          window.release();
+          head.ack().complete(ack);
+        }
+        input.compact();
+      }
+    } catch (IOException e) {
+      synchronized (output) {
+        failure = e;
+      }
+      Pending head;
+      while ((head = pending.poll()) != null) {
+        window.release();
+        head.ack().completeExceptionally(e);
+      }
+    }
+  }
+}
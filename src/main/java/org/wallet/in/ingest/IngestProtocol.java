@@ -0,0 +1,226 @@
+package org.wallet.in.ingest;
+
+import java.math.BigDecimal;
+import java.net.ProtocolException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.wallet.domain.model.TransactionType;
+
+/**
+ * The {@code IngestProtocol} class encodes and decodes the frames of the binary ingest protocol,
+ * which game servers use to submit transactions over long-lived TCP sessions instead of one HTTP
+ * request per transaction.
+ *
+ * <p>Every frame starts with its length as a 4-byte big-endian integer, not counting the length
+ * itself, followed by the kind of the frame and a correlation ID chosen by the client:
+ *
+ * <pre>
+ * frame  = length:int32 kind:int8 correlationId:int64 body
+ * hello  = token:string                                            (kind 1, client to server)
+ * submit = login:string transactionId:string type:int8 amount      (kind 2, client to server)
+ * ack    = status:int8 balance                                     (kind 3, server to client)
+ * amount = unscaledValue:int64 scale:int8
+ * string = byteLength:uint16 utf8Bytes
+ * </pre>
+ *
+ * <p>A hello frame authenticates a player for the rest of the session with the same JWT token as
+ * the REST API; submit frames then carry the login instead of a token. The type of a submitted
+ * transaction is the code of its {@link TransactionType}. Every frame is answered by an ack frame
+ * with the same correlation ID and an {@link IngestStatus}; the ack of a submitted transaction
+ * carries the resulting balance of the player, other acks carry no balance, sent as the scale
+ * {@value #NO_AMOUNT_SCALE}. Clients may send frames without waiting for their acks, which are
+ * returned in the order of the frames.
+ */
+public final class IngestProtocol {
+
+  /** Largest length of a frame, without its length field. */
+  public static final int MAX_FRAME_BYTES = 4096;
+
+  /** The kind of a hello frame. */
+  public static final byte HELLO = 1;
+
+  /** The kind of a submit frame. */
+  public static final byte SUBMIT = 2;
+
+  /** The kind of an ack frame. */
+  public static final byte ACK = 3;
+
+  /** Scale sent in place of an absent amount. */
+  public static final byte NO_AMOUNT_SCALE = Byte.MIN_VALUE;
+
+  /** Length of the kind and the correlation ID of a frame. */
+  private static final int HEADER_BYTES = Byte.BYTES + Long.BYTES;
+
+  private IngestProtocol() {}
+
+  /** A frame of the ingest protocol. */
+  public interface Frame {
+
+    /**
+     * Returns the correlation ID of the frame.
+     *
+     * @return The correlation ID chosen by the client.
+     */
+    long correlationId();
+  }
+
+  /**
+   * Authenticates a player for the rest of the session.
+   *
+   * @param correlationId The correlation ID of the frame.
+   * @param token The JWT token of the player.
+   */
+  public record Hello(long correlationId, String token) implements Frame {}
+
+  /**
+   * Submits a transaction of an authenticated player.
+   *
+   * @param correlationId The correlation ID of the frame.
+   * @param login The login of the player.
+   * @param transactionId The unique identifier of the transaction.
+   * @param type The type of the transaction, or {@code null} if its code is unknown.
+   * @param amount The amount of the transaction.
+   */
+  public record Submit(
+      long correlationId,
+      String login,
+      String transactionId,
+      TransactionType type,
+      BigDecimal amount)
+      implements Frame {}
+
+  /**
+   * Acknowledges a frame.
+   *
+   * @param correlationId The correlation ID of the acknowledged frame.
+   * @param status The result of the frame.
+   * @param balance The balance of the player after the transaction, or {@code null}.
+   */
+  public record Ack(long correlationId, IngestStatus status, BigDecimal balance)
+      implements Frame {}
+
+  /**
+   * Appends a frame to a buffer.
+   *
+   * @param frame The frame.
+   * @param buffer The buffer, in write mode.
+   * @throws IllegalArgumentException if the frame is longer than {@link #MAX_FRAME_BYTES}.
+   * @throws ArithmeticException if an amount does not fit in the protocol.
+   * @throws java.nio.BufferOverflowException if the buffer is full.
+   *     <p>The buffer is left unchanged if the frame cannot be written.
+   */
+  public static void write(Frame frame, ByteBuffer buffer) {
+    int start = buffer.position();
+    try {
+      buffer.putInt(0);
+      if (frame instanceof Hello hello) {
+        buffer.put(HELLO).putLong(hello.correlationId());
+        putString(buffer, hello.token());
+      } else if (frame instanceof Submit submit) {
+        buffer.put(SUBMIT).putLong(submit.correlationId());
+        putString(buffer, submit.login());
+        putString(buffer, submit.transactionId());
+        buffer.put((byte) submit.type().getCode());
+        putAmount(buffer, submit.amount());
+      } else if (frame instanceof Ack ack) {
+        buffer.put(ACK).putLong(ack.correlationId()).put(ack.status().getCode());
+        putAmount(buffer, ack.balance());
+      } else {
+        throw new IllegalArgumentException("Unknown frame " + frame);
+      }
+      int length = buffer.position() - start - Integer.BYTES;
+      if (length > MAX_FRAME_BYTES) {
+        throw new IllegalArgumentException(
+            "The frame is longer than " + MAX_FRAME_BYTES + " bytes");
+      }
+      buffer.putInt(start, length);
+    } catch (RuntimeException e) {
+      buffer.position(start);
+      throw e;
+    }
+  }
+
+  /**
+   * Reads the next frame from a buffer.
+   *
+   * @param buffer The buffer, in read mode.
+   * @return The frame, or {@code null} if the buffer does not hold a complete frame yet, in which
+   *     case the position of the buffer is left unchanged.
+   * @throws ProtocolException if the frame is malformed.
+   */
+  public static Frame read(ByteBuffer buffer) throws ProtocolException {
+    if (buffer.remaining() < Integer.BYTES) {
+      return null;
+    }
+    int length = buffer.getInt(buffer.position());
+    if (length < HEADER_BYTES || length > MAX_FRAME_BYTES) {
+      throw new ProtocolException("Invalid frame length " + length);
+    }
+    if (buffer.remaining() < Integer.BYTES + length) {
+      return null;
+    }
+    ByteBuffer body = buffer.slice(buffer.position() + Integer.BYTES, length);
+    buffer.position(buffer.position() + Integer.BYTES + length);
+    try {
+      byte kind = body.get();
+      long correlationId = body.getLong();
+      Frame frame =
+          switch (kind) {
+            case HELLO -> new Hello(correlationId, getString(body));
+            case SUBMIT -> new Submit(
+                correlationId, getString(body), getString(body), getType(body), getAmount(body));
+            case ACK -> new Ack(correlationId, IngestStatus.fromCode(body.get()), getAmount(body));
+            default -> throw new ProtocolException("Unknown frame kind " + kind);
+          };
+      if (body.hasRemaining()) {
+        throw new ProtocolException("Trailing bytes in a frame of kind " + kind);
+      }
+      return frame;
+    } catch (BufferUnderflowException | IllegalArgumentException e) {
+      throw new ProtocolException("Malformed frame: " + e.getMessage());
+    }
+  }
+
+  private static void putString(ByteBuffer buffer, String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > 0xFFFF) {
+      throw new IllegalArgumentException("The string is longer than 65535 bytes");
+    }
+    buffer.putShort((short) bytes.length).put(bytes);
+  }
+
+  private static String getString(ByteBuffer buffer) {
+    byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void putAmount(ByteBuffer buffer, BigDecimal amount) {
+    if (amount == null) {
+      buffer.putLong(0).put(NO_AMOUNT_SCALE);
+      return;
+    }
+    int scale = amount.scale();
+    if (scale <= NO_AMOUNT_SCALE || scale > Byte.MAX_VALUE) {
+      throw new ArithmeticException("The scale of " + amount + " does not fit in a byte");
+    }
+    buffer.putLong(amount.unscaledValue().longValueExact()).put((byte) scale);
+  }
+
+  private static BigDecimal getAmount(ByteBuffer buffer) {
+    long unscaledValue = buffer.getLong();
+    byte scale = buffer.get();
+    return scale == NO_AMOUNT_SCALE ? null : BigDecimal.valueOf(unscaledValue, scale);
+  }
+
+  private static TransactionType getType(ByteBuffer buffer) {
+    byte code = buffer.get();
+    for (TransactionType type : TransactionType.values()) {
+      if (type.getCode() == code) {
+        return type;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,397 @@
+package org.wallet.in.ingest;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.wallet.application.WalletApplication;
+import org.wallet.domain.model.Transaction;
+import org.wallet.domain.model.TransactionOutcome;
+import org.wallet.domain.model.TransactionStatus;
+import org.wallet.exception.InsufficientMoneyException;
+import org.wallet.exception.PlayerNotFoundException;
+import org.wallet.exception.TransactionAlreadyExistException;
+import org.wallet.in.ingest.IngestProtocol.Ack;
+import org.wallet.in.ingest.IngestProtocol.Frame;
+import org.wallet.in.ingest.IngestProtocol.Hello;
+import org.wallet.in.ingest.IngestProtocol.Submit;
+import org.wallet.utils.JwtTokenUtility;
+import org.wallet.utils.WalletProperties;
+
+/**
+ * The {@code IngestServer} class accepts transactions from game servers over the binary {@link
+ * IngestProtocol}, next to the REST API. It is enabled with {@code ingest.ingest-enabled: true}
+ * and listens on {@code ingest.port}.
+ *
+ * <p>A single thread multiplexes the sessions with a selector. Every read decodes all complete
+ * frames buffered for a session, up to {@code ingest.max-batch}, and hands them as one batch to a
+ * pool of {@code ingest.workers} threads, which apply them with the same semantics as {@code POST
+ * /transaction} and encode their acks into one buffer. A session is not read while its batch is
+ * processed or its acks are not fully written, so a client sending faster than its transactions
+ * are applied, or not reading its acks, is slowed down by TCP flow control and its acks stay in
+ * the order of its frames.
+ */
+@Slf4j
+@Component
+@Lazy(false)
+@ConditionalOnProperty(name = "ingest.enabled", havingValue = "true")
+public class IngestServer implements MeterBinder {
+
+  /** Port the listener binds to; {@code 0} picks a free port. */
+  private static final int PORT;
+
+  /** Number of threads applying the batches. */
+  private static final int WORKERS;
+
+  /** Largest number of frames of a session applied as one batch. */
+  private static final int MAX_BATCH;
+
+  /** Size of the read buffer of a session. */
+  private static final int INPUT_BYTES = 64 * 1024;
+
+  /** Length of an encoded ack frame. */
+  private static final int ACK_BYTES =
+      Integer.BYTES + Byte.BYTES + Long.BYTES + Byte.BYTES + Long.BYTES + Byte.BYTES;
+
+  static {
+    WalletProperties.Ingest ingest = WalletProperties.get(WalletProperties.Ingest.class);
+    PORT = ingest.port();
+    WORKERS = ingest.workers();
+    MAX_BATCH = ingest.maxBatch();
+  }
+
+  private final WalletApplication walletApplication;
+  private final Queue<Session> processed = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger sessions = new AtomicInteger();
+  private final LongAdder frames = new LongAdder();
+  private final LongAdder batches = new LongAdder();
+  private final LongAdder protocolErrors = new LongAdder();
+
+  private Selector selector;
+  private ServerSocketChannel serverChannel;
+  private ExecutorService workers;
+  private Thread loop;
+  private volatile boolean running;
+
+  /**
+   * Creates the listener.
+   *
+   * @param walletApplication The application the transactions are registered with.
+   */
+  public IngestServer(WalletApplication walletApplication) {
+    this.walletApplication = walletApplication;
+  }
+
+  /**
+   * Binds the listener and starts the selector thread.
+   *
+   * @throws IllegalStateException if the port could not be bound.
+   */
+  @PostConstruct
+  public void start() {
+    try {
+      selector = Selector.open();
+      serverChannel = ServerSocketChannel.open();
+      serverChannel.bind(new InetSocketAddress(PORT));
+      serverChannel.configureBlocking(false);
+      serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not open the ingest listener on port " + PORT, e);
+    }
+    AtomicInteger workerCount = new AtomicInteger();
+    workers =
+        Executors.newFixedThreadPool(
+            WORKERS,
+            runnable -> {
+              Thread thread =
+                  new Thread(runnable, "ingest-worker-" + workerCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+    running = true;
+    loop = new Thread(this::loop, "ingest-selector");
+    loop.setDaemon(true);
+    loop.start();
+    log.info("Ingest listener started on port {}", getPort());
+  }
+
+  /** Stops accepting frames, waits for the batches being applied and closes the sessions. */
+  @PreDestroy
+  public void close() {
+    running = false;
+    selector.wakeup();
+    try {
+      loop.join(TimeUnit.SECONDS.toMillis(10));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    workers.shutdown();
+    try {
+      workers.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    for (SelectionKey key : selector.keys()) {
+      try {
+        key.channel().close();
+      } catch (IOException e) {
+        log.warn("Could not close an ingest connection", e);
+      }
+    }
+    try {
+      selector.close();
+    } catch (IOException e) {
+      log.warn("Could not close the ingest selector", e);
+    }
+  }
+
+  /**
+   * Returns the port the listener is bound to.
+   *
+   * @return The local port.
+   */
+  public int getPort() {
+    return serverChannel.socket().getLocalPort();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("wallet.ingest.sessions", sessions, AtomicInteger::get).register(registry);
+    FunctionCounter.builder("wallet.ingest.frames", frames, LongAdder::sum).register(registry);
+    FunctionCounter.builder("wallet.ingest.batches", batches, LongAdder::sum).register(registry);
+    FunctionCounter.builder("wallet.ingest.protocol.errors", protocolErrors, LongAdder::sum)
+        .register(registry);
+  }
+
+  private void loop() {
+    while (running) {
+      try {
+        selector.select();
+      } catch (IOException e) {
+        log.error("Ingest selector failed", e);
+        continue;
+      }
+      Session session;
+      while ((session = processed.poll()) != null) {
+        if (!session.closed) {
+          handle(session, SelectionKey.OP_WRITE);
+        }
+      }
+      Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+      while (keys.hasNext()) {
+        SelectionKey key = keys.next();
+        keys.remove();
+        if (!key.isValid()) {
+          continue;
+        }
+        if (key.isAcceptable()) {
+          accept();
+        } else {
+          handle((Session) key.attachment(), key.readyOps());
+        }
+      }
+    }
+  }
+
+  private void accept() {
+    try {
+      SocketChannel channel = serverChannel.accept();
+      if (channel == null) {
+        return;
+      }
+      channel.configureBlocking(false);
+      channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+      Session session = new Session(channel);
+      session.key = channel.register(selector, SelectionKey.OP_READ, session);
+      sessions.incrementAndGet();
+    } catch (IOException e) {
+      log.warn("Could not accept an ingest connection", e);
+    }
+  }
+
+  /** Reads from or writes to a session, closing it if it fails or sends a malformed frame. */
+  private void handle(Session session, int readyOps) {
+    try {
+      if ((readyOps & SelectionKey.OP_READ) != 0 && session.channel.read(session.input) < 0) {
+        close(session);
+        return;
+      }
+      if (session.output != null) {
+        session.channel.write(session.output);
+        if (session.output.hasRemaining()) {
+          session.key.interestOps(SelectionKey.OP_WRITE);
+          return;
+        }
+        session.output = null;
+      }
+      dispatch(session);
+    } catch (ProtocolException e) {
+      protocolErrors.increment();
+      close(session);
+    } catch (IOException | CancelledKeyException e) {
+      close(session);
+    }
+  }
+
+  /** Hands the complete frames buffered for a session to a worker, or waits for more bytes. */
+  private void dispatch(Session session) throws ProtocolException {
+    if (session.busy) {
+      return;
+    }
+    List<Frame> batch = new ArrayList<>();
+    session.input.flip();
+    try {
+      Frame frame;
+      while (batch.size() < MAX_BATCH && (frame = IngestProtocol.read(session.input)) != null) {
+        batch.add(frame);
+      }
+    } finally {
+      session.input.compact();
+    }
+    if (batch.isEmpty()) {
+      session.key.interestOps(SelectionKey.OP_READ);
+      return;
+    }
+    session.busy = true;
+    session.key.interestOps(0);
+    workers.execute(() -> process(session, batch));
+  }
+
+  /**
+   * Applies a batch of frames and queues their acks for the selector thread. A frame that fails is
+   * acked with an error; an ack that cannot be encoded keeps its status and drops the balance, so a
+   * transaction that was applied is never reported as failed.
+   */
+  private void process(Session session, List<Frame> batch) {
+    ByteBuffer output = ByteBuffer.allocate(batch.size() * ACK_BYTES);
+    for (Frame frame : batch) {
+      Ack ack;
+      try {
+        ack = apply(session, frame);
+      } catch (RuntimeException e) {
+        log.error("Could not apply ingest frame {}", frame.correlationId(), e);
+        ack = new Ack(frame.correlationId(), IngestStatus.ERROR, null);
+      }
+      try {
+        IngestProtocol.write(ack, output);
+      } catch (RuntimeException e) {
+        log.warn("Could not encode the ack of ingest frame {}", ack.correlationId(), e);
+        IngestProtocol.write(new Ack(ack.correlationId(), ack.status(), null), output);
+      }
+    }
+    frames.add(batch.size());
+    batches.increment();
+    session.output = output.flip();
+    session.busy = false;
+    processed.add(session);
+    selector.wakeup();
+  }
+
+  private Ack apply(Session session, Frame frame) {
+    long correlationId = frame.correlationId();
+    if (frame instanceof Hello hello) {
+      String token = hello.token();
+      String login = JwtTokenUtility.isValid(token) ? JwtTokenUtility.getLogin(token) : null;
+      long expiresAt = login == null ? 0 : JwtTokenUtility.getExpiration(token);
+      if (expiresAt <= System.currentTimeMillis()) {
+        return new Ack(correlationId, IngestStatus.UNAUTHORIZED, null);
+      }
+      session.logins.put(login, expiresAt);
+      return new Ack(correlationId, IngestStatus.ACCEPTED, null);
+    }
+    if (!(frame instanceof Submit submit)) {
+      return new Ack(correlationId, IngestStatus.INVALID, null);
+    }
+    Long expiresAt = session.logins.get(submit.login());
+    if (expiresAt == null || expiresAt <= System.currentTimeMillis()) {
+      return new Ack(correlationId, IngestStatus.UNAUTHORIZED, null);
+    }
+    if (submit.transactionId().isBlank()
+        || submit.type() == null
+        || submit.amount() == null
+        || submit.amount().compareTo(BigDecimal.ZERO) <= 0) {
+      return new Ack(correlationId, IngestStatus.INVALID, null);
+    }
+    Transaction transaction =
+        new Transaction(submit.login(), submit.transactionId(), submit.type(), submit.amount());
+    try {
+      TransactionOutcome outcome =
+          walletApplication
+              .replayTransaction(transaction)
+              .orElseGet(() -> walletApplication.registerTransaction(transaction));
+      IngestStatus status =
+          outcome.status() == TransactionStatus.REPLAYED
+              ? IngestStatus.REPLAYED
+              : IngestStatus.APPLIED;
+      return new Ack(correlationId, status, outcome.balance());
+    } catch (PlayerNotFoundException e) {
+      return new Ack(correlationId, IngestStatus.PLAYER_NOT_FOUND, null);
+    } catch (TransactionAlreadyExistException e) {
+      return new Ack(correlationId, IngestStatus.DUPLICATE, null);
+    } catch (InsufficientMoneyException e) {
+      return new Ack(correlationId, IngestStatus.INSUFFICIENT_FUNDS, null);
+    }
+  }
+
+  private void close(Session session) {
+    if (session.closed) {
+      return;
+    }
+    session.closed = true;
+    sessions.decrementAndGet();
+    session.key.cancel();
+    try {
+      session.channel.close();
+    } catch (IOException e) {
+      log.warn("Could not close an ingest connection", e);
+    }
+  }
+
+  /**
+   * The state of a connection. The buffers and the key are used by the selector thread; the logins
+   * authenticated by the session, with the expiration of their tokens, are used by the worker
+   * applying its current batch.
+   */
+  private static final class Session {
+    private final SocketChannel channel;
+    private final ByteBuffer input = ByteBuffer.allocate(INPUT_BYTES);
+    private final Map<String, Long> logins = new HashMap<>();
+    private SelectionKey key;
+    private volatile ByteBuffer output;
+    private volatile boolean busy;
+    private boolean closed;
+
+    private Session(SocketChannel channel) {
+      this.channel = channel;
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package org.wallet.in.ingest;
+
+import lombok.Getter;
+
+/**
+ * The {@code IngestStatus} enumeration represents the result of a frame of the ingest protocol, as
+ * reported in its acknowledgement.
+ */
+@Getter
+public enum IngestStatus {
+  /** The token of a hello frame was accepted and its player may submit transactions. */
+  ACCEPTED((byte) 0),
+
+  /** The transaction was applied to the player's balance by this frame. */
+  APPLIED((byte) 1),
+
+  /** The transaction was a retry and is answered with the outcome of its original execution. */
+  REPLAYED((byte) 2),
+
+  /**
+   * The token is invalid or expired, or the player of the transaction has not been authenticated
+   * or its token has expired since.
+   */
+  UNAUTHORIZED((byte) 3),
+
+  /** The transaction ID is blank or the amount is not positive. */
+  INVALID((byte) 4),
+
+  /** The player does not exist. */
+  PLAYER_NOT_FOUND((byte) 5),
+
+  /** A different transaction with the same ID already exists. */
+  DUPLICATE((byte) 6),
+
+  /** The balance of the player is too low for the debit. */
+  INSUFFICIENT_FUNDS((byte) 7),
+
+  /** The transaction failed for another reason. */
+  ERROR((byte) 8);
+
+  /** Code under which the status is sent. */
+  private final byte code;
+
+  IngestStatus(byte code) {
+    this.code = code;
+  }
+
+  /**
+   * Returns the status sent under the given code.
+   *
+   * @param code The code of the status.
+   * @return The status.
+   * @throws IllegalArgumentException if no status has the given code.
+   */
+  public static IngestStatus fromCode(int code) {
+    for (IngestStatus status : values()) {
+      if (status.code == code) {
+        return status;
+      }
+    }
+    throw new IllegalArgumentException("Unknown ingest status code: " + code);
+  }
+}
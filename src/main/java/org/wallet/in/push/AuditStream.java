@@ -0,0 +1,324 @@
+package org.wallet.in.push;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.wallet.domain.dto.mapper.LogMapper;
+import org.wallet.domain.model.Log;
+import org.wallet.domain.model.LogAction;
+import org.wallet.domain.model.LogEntry;
+import org.wallet.domain.service.AuditFeed;
+import org.wallet.domain.service.AuditFeed.Replay;
+import org.wallet.utils.WalletProperties;
+
+/**
+ * The {@code AuditStream} class streams the audit log entries recorded by the {@link
+ * org.wallet.domain.service.AuditService} to Server-Sent Events connections, so security tooling
+ * does not have to re-read {@code GET /logs}.
+ *
+ * <p>Every entry is sent as a {@value #LOG_EVENT} event whose ID is its position in the audit
+ * store. A connection opened with the ID of the last entry it has seen, as the {@code
+ * Last-Event-ID} header sent by reconnecting event sources, first receives the entries stored after
+ * it, also by other instances or before a restart. If there are more than {@code
+ * audit.stream.history} of them, only the latest are sent, preceded by a {@value #RESET_EVENT}
+ * event carrying the time up to which the missing entries have to be read with {@code GET /logs}.
+ * The entries recorded from then on are streamed by the instance that recorded them.
+ *
+ * <p>Entries not matching the user and actions of a connection are dropped on the recording
+ * thread; the others are added to the buffer of the connection and written by one of {@code
+ * audit.stream.senders} threads. A connection whose buffer reaches {@code audit.stream.buffer}
+ * unsent entries is evicted, so a slow consumer never blocks the recording of entries; it can
+ * reconnect and resume after the last entry it has received.
+ */
+@Component
+public class AuditStream implements MeterBinder {
+
+  /** Name of the events carrying an audit log entry. */
+  public static final String LOG_EVENT = "log";
+
+  /** Name of the events announcing that entries after the last one seen are not replayed. */
+  public static final String RESET_EVENT = "reset";
+
+  /** Largest number of unsent entries of a connection before it is evicted. */
+  private static final int BUFFER_SIZE;
+
+  /** Time after which a connection is completed and the client has to reconnect. */
+  private static final long TIMEOUT_MILLIS;
+
+  /** Number of threads writing the entries. */
+  private static final int SENDERS;
+
+  static {
+    WalletProperties.Audit.Stream stream =
+        WalletProperties.get(WalletProperties.Audit.class).stream();
+    BUFFER_SIZE = stream.buffer();
+    TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(stream.timeoutMinutes());
+    SENDERS = stream.senders();
+  }
+
+  private final AuditFeed auditFeed;
+  private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+  private final LongAdder sent = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  private ExecutorService senders;
+
+  /**
+   * Creates the stream.
+   *
+   * @param auditFeed The feed the entries are received from.
+   */
+  public AuditStream(AuditFeed auditFeed) {
+    this.auditFeed = auditFeed;
+  }
+
+  /** Starts the sender threads. */
+  @PostConstruct
+  public void start() {
+    AtomicInteger senderCount = new AtomicInteger();
+    senders =
+        Executors.newFixedThreadPool(
+            SENDERS,
+            runnable -> {
+              Thread thread = new Thread(runnable, "audit-sender-" + senderCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /** Completes the open connections and stops the sender threads. */
+  @PreDestroy
+  public void close() {
+    for (Subscriber subscriber : subscribers) {
+      subscriber.close();
+      subscriber.emitter.complete();
+    }
+    senders.shutdownNow();
+  }
+
+  /**
+   * Opens a connection streaming the matching entries.
+   *
+   * @param lastSeenId The ID of the last entry seen by the client, or {@code null} to receive only
+   *     the entries recorded from now on.
+   * @param username The user whose entries are streamed, or {@code null} for every user.
+   * @param actions The actions of the streamed entries, or {@code null} or empty for every action.
+   * @return The emitter of the connection.
+   */
+  public SseEmitter subscribe(Long lastSeenId, String username, Set<LogAction> actions) {
+    return attach(lastSeenId, username, actions, new SseEmitter(TIMEOUT_MILLIS));
+  }
+
+  /**
+   * Subscribes an emitter to the feed and schedules the first flush, which sends the replayed
+   * entries before the ones recorded after the subscription.
+   *
+   * @param lastSeenId The ID of the last entry seen by the client, or {@code null}.
+   * @param username The user whose entries are streamed, or {@code null}.
+   * @param actions The actions of the streamed entries, or {@code null}.
+   * @param emitter The emitter of the connection.
+   * @return The emitter.
+   */
+  SseEmitter attach(Long lastSeenId, String username, Set<LogAction> actions, SseEmitter emitter) {
+    Subscriber subscriber =
+        new Subscriber(emitter, username, actions == null ? Set.of() : Set.copyOf(actions));
+    emitter.onCompletion(subscriber::close);
+    emitter.onTimeout(subscriber::close);
+    emitter.onError(error -> subscriber.close());
+    subscribers.add(subscriber);
+    if (lastSeenId == null) {
+      auditFeed.subscribe(subscriber);
+    } else {
+      subscriber.replay(auditFeed.subscribe(lastSeenId, subscriber));
+    }
+    senders.execute(subscriber::flush);
+    return emitter;
+  }
+
+  /**
+   * Returns the number of open connections.
+   *
+   * @return The number of connections.
+   */
+  public int getSubscriberCount() {
+    return subscribers.size();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("wallet.audit.stream.subscribers", subscribers, Set::size).register(registry);
+    FunctionCounter.builder("wallet.audit.stream.sent", sent, LongAdder::sum).register(registry);
+    FunctionCounter.builder("wallet.audit.stream.evictions", evictions, LongAdder::sum)
+        .register(registry);
+  }
+
+  /** An open connection; its state is guarded by the subscriber itself. */
+  private final class Subscriber implements Consumer<LogEntry> {
+
+    private final SseEmitter emitter;
+    private final String username;
+    private final Set<LogAction> actions;
+    private final Queue<LogEntry> entries = new ArrayDeque<>();
+    private Replay replay;
+
+    /** IDs of the replayed entries that may still be delivered by the feed. */
+    private final Set<Long> replayedIds = new HashSet<>();
+
+    /** Whether a flush is scheduled or running; the first one is scheduled on subscription. */
+    private boolean flushing = true;
+
+    private boolean closed;
+
+    Subscriber(SseEmitter emitter, String username, Set<LogAction> actions) {
+      this.emitter = emitter;
+      this.username = username;
+      this.actions = actions;
+    }
+
+    /**
+     * Keeps the entries to send before the buffered ones, and drops the buffered entries that are
+     * replayed.
+     */
+    synchronized void replay(Replay replay) {
+      this.replay = replay;
+      for (LogEntry entry : replay.entries()) {
+        if (matches(entry.log())) {
+          replayedIds.add(entry.id());
+        }
+      }
+      entries.removeIf(entry -> replayedIds.remove(entry.id()));
+    }
+
+    /** Buffers an entry if it matches and was not replayed; called on the recording thread. */
+    @Override
+    public void accept(LogEntry entry) {
+      if (!matches(entry.log())) {
+        return;
+      }
+      boolean schedule = false;
+      boolean evict = false;
+      synchronized (this) {
+        if (closed || replayedIds.remove(entry.id())) {
+          return;
+        }
+        if (entries.size() < BUFFER_SIZE) {
+          entries.add(entry);
+          schedule = !flushing;
+          flushing = true;
+        } else {
+          evict = true;
+          closed = true;
+          entries.clear();
+        }
+      }
+      if (evict) {
+        evictions.increment();
+        unsubscribe();
+        senders.execute(emitter::complete);
+      } else if (schedule) {
+        senders.execute(this::flush);
+      }
+    }
+
+    /** Writes the replayed and buffered entries, then schedules the next flush if needed. */
+    void flush() {
+      Replay pending;
+      List<LogEntry> batch;
+      synchronized (this) {
+        if (closed) {
+          return;
+        }
+        pending = replay;
+        replay = null;
+        batch = new ArrayList<>(entries);
+        entries.clear();
+      }
+      try {
+        if (pending != null) {
+          if (pending.gap()) {
+            LocalDateTime until =
+                pending.entries().isEmpty()
+                    ? LocalDateTime.now()
+                    : pending.entries().get(0).log().getTimestamp();
+            emitter.send(SseEmitter.event().name(RESET_EVENT).data(until.toString()));
+          }
+          for (LogEntry entry : pending.entries()) {
+            if (matches(entry.log())) {
+              send(entry);
+            }
+          }
+        }
+        for (LogEntry entry : batch) {
+          send(entry);
+        }
+      } catch (IOException e) {
+        close();
+        return;
+      } catch (RuntimeException e) {
+        e.printStackTrace();
+        close();
+        emitter.completeWithError(e);
+        return;
+      }
+      boolean again;
+      synchronized (this) {
+        again = !closed && !entries.isEmpty();
+        flushing = again;
+      }
+      if (again) {
+        senders.execute(this::flush);
+      }
+    }
+
+    /** Stops the delivery of entries; closing a subscriber twice has no effect. */
+    void close() {
+      synchronized (this) {
+        closed = true;
+        entries.clear();
+        replay = null;
+        replayedIds.clear();
+      }
+      unsubscribe();
+    }
+
+    private boolean matches(Log log) {
+      return (username == null || username.equals(log.getUsername()))
+          && (actions.isEmpty() || actions.contains(log.getAction()));
+    }
+
+    private void send(LogEntry entry) throws IOException {
+      emitter.send(
+          SseEmitter.event()
+              .id(Long.toString(entry.id()))
+              .name(LOG_EVENT)
+              .data(LogMapper.INSTANCE.logToLogDto(entry.log())));
+      sent.increment();
+    }
+
+    private void unsubscribe() {
+      if (subscribers.remove(this)) {
+        auditFeed.unsubscribe(this);
+      }
+    }
+  }
+}
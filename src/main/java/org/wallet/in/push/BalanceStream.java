@@ -0,0 +1,432 @@
+package org.wallet.in.push;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.wallet.application.WalletApplication;
+import org.wallet.domain.dto.mapper.TransactionMapper;
+import org.wallet.domain.dto.response.BalanceResponseDto;
+import org.wallet.domain.dto.response.TransactionResponseDto;
+import org.wallet.domain.model.LedgerEvent;
+import org.wallet.domain.model.Player;
+import org.wallet.domain.service.LedgerEventBus;
+import org.wallet.utils.WalletProperties;
+
+/**
+ * The {@code BalanceStream} class pushes the balance and the new transactions of a player to the
+ * Server-Sent Events connections the player has opened, so clients do not have to poll {@code GET
+ * /balance}.
+ *
+ * <p>Every connection subscribes to the {@link LedgerEventBus}. An event only appends its
+ * transaction to the buffer of the connection and schedules a flush {@code push.coalesce-millis}
+ * later, so a burst of transactions is written as one batch of {@value #TRANSACTION_EVENT} events
+ * followed by a single {@value #BALANCE_EVENT} event. Flushes run on {@code push.senders} threads
+ * and the next flush of a connection is only scheduled once the previous one is written, so idle
+ * connections hold no thread and the events of a connection stay in order.
+ *
+ * <p>Events are published after their change is committed, so two changes of a player may reach a
+ * connection in the opposite order. A connection keeps the balance with the highest ledger version
+ * it has seen and ignores the balances of older events; the transactions of a batch are written in
+ * the order of their ledger versions. The first balance of a connection is always read from the
+ * application together with its ledger version, so events it already includes are ignored too.
+ *
+ * <p>A connection whose buffer reaches {@code push.buffer-size} unsent transactions, because its
+ * client does not read as fast as its transactions are applied, is evicted: it is unsubscribed and
+ * completed, and the client reconnects and receives its current balance.
+ *
+ * <p>A flush whose writes block on a client for longer than {@code push.write-timeout-millis} is
+ * evicted as well, and the sender pool gets an extra thread until the blocked write returns, which
+ * happens when the servlet container gives up on the client. A client that stops reading therefore
+ * never holds one of the {@code push.senders} threads the other connections are written by.
+ */
+@Component
+public class BalanceStream implements MeterBinder {
+
+  /** Name of the events carrying the balance of the player. */
+  public static final String BALANCE_EVENT = "balance";
+
+  /** Name of the events carrying a new transaction of the player. */
+  public static final String TRANSACTION_EVENT = "transaction";
+
+  /** Largest number of unsent transactions of a connection before it is evicted. */
+  private static final int BUFFER_SIZE;
+
+  /** Delay between the first of a burst of events and the flush writing them. */
+  private static final long COALESCE_MILLIS;
+
+  /** Time after which a connection is completed and the client has to reconnect. */
+  private static final long TIMEOUT_MILLIS;
+
+  /** Number of threads writing the events. */
+  private static final int SENDERS;
+
+  /** Time the writes of a flush may block on a client before the connection is evicted. */
+  private static final long WRITE_TIMEOUT_MILLIS;
+
+  static {
+    WalletProperties.Push push = WalletProperties.get(WalletProperties.Push.class);
+    BUFFER_SIZE = push.bufferSize();
+    COALESCE_MILLIS = push.coalesceMillis();
+    TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(push.timeoutMinutes());
+    SENDERS = push.senders();
+    WRITE_TIMEOUT_MILLIS = push.writeTimeoutMillis();
+  }
+
+  private final LedgerEventBus ledgerEventBus;
+  private final WalletApplication walletApplication;
+  private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+  private final LongAdder received = new LongAdder();
+  private final LongAdder sent = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder writeTimeouts = new LongAdder();
+  private final long writeTimeoutMillis;
+
+  private ScheduledThreadPoolExecutor senders;
+  private ScheduledExecutorService watchdog;
+
+  /**
+   * Creates the stream with the write timeout from the application configuration.
+   *
+   * @param ledgerEventBus The bus the transactions are received from.
+   * @param walletApplication The application the balances are read from when they are not known
+   *     from the events.
+   */
+  @Autowired
+  public BalanceStream(LedgerEventBus ledgerEventBus, WalletApplication walletApplication) {
+    this(ledgerEventBus, walletApplication, WRITE_TIMEOUT_MILLIS);
+  }
+
+  /**
+   * Creates the stream with the given write timeout.
+   *
+   * @param ledgerEventBus The bus the transactions are received from.
+   * @param walletApplication The application the balances are read from when they are not known
+   *     from the events.
+   * @param writeTimeoutMillis The time the writes of a flush may block before the connection is
+   *     evicted.
+   */
+  public BalanceStream(
+      LedgerEventBus ledgerEventBus, WalletApplication walletApplication, long writeTimeoutMillis) {
+    if (writeTimeoutMillis <= 0) {
+      throw new IllegalArgumentException("Write timeout must be positive.");
+    }
+    this.ledgerEventBus = ledgerEventBus;
+    this.walletApplication = walletApplication;
+    this.writeTimeoutMillis = writeTimeoutMillis;
+  }
+
+  /** Starts the sender threads and the thread timing out blocked writes. */
+  @PostConstruct
+  public void start() {
+    AtomicInteger senderCount = new AtomicInteger();
+    senders =
+        new ScheduledThreadPoolExecutor(
+            SENDERS,
+            runnable -> {
+              Thread thread = new Thread(runnable, "push-sender-" + senderCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+    watchdog =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "push-watchdog");
+              thread.setDaemon(true);
+              return thread;
+            });
+    long period = Math.max(1, writeTimeoutMillis / 2);
+    watchdog.scheduleAtFixedRate(this::expireWrites, period, period, TimeUnit.MILLISECONDS);
+  }
+
+  /** Completes the open connections and stops the sender threads. */
+  @PreDestroy
+  public void close() {
+    watchdog.shutdownNow();
+    for (Subscriber subscriber : subscribers) {
+      subscriber.close();
+      subscriber.emitter.complete();
+    }
+    senders.shutdownNow();
+  }
+
+  /**
+   * Opens a connection of a player. The current balance of the player is sent as soon as the
+   * connection is open.
+   *
+   * @param login The login of the authenticated player.
+   * @return The emitter of the connection.
+   */
+  public SseEmitter subscribe(String login) {
+    return attach(login, new SseEmitter(TIMEOUT_MILLIS));
+  }
+
+  /**
+   * Subscribes an emitter to the events of a player and schedules the first flush, which sends
+   * the current balance. The subscription happens before the balance is read, so no transaction
+   * applied in between is missed.
+   *
+   * @param login The login of the player.
+   * @param emitter The emitter of the connection.
+   * @return The emitter.
+   */
+  SseEmitter attach(String login, SseEmitter emitter) {
+    Subscriber subscriber = new Subscriber(login, emitter);
+    emitter.onCompletion(subscriber::close);
+    emitter.onTimeout(subscriber::close);
+    emitter.onError(error -> subscriber.close());
+    subscribers.add(subscriber);
+    ledgerEventBus.subscribe(login, subscriber);
+    senders.execute(subscriber::flush);
+    return emitter;
+  }
+
+  /**
+   * Returns the number of open connections.
+   *
+   * @return The number of connections.
+   */
+  public int getSubscriberCount() {
+    return subscribers.size();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("wallet.push.subscribers", subscribers, Set::size).register(registry);
+    FunctionCounter.builder("wallet.push.received", received, LongAdder::sum).register(registry);
+    FunctionCounter.builder("wallet.push.sent", sent, LongAdder::sum).register(registry);
+    FunctionCounter.builder("wallet.push.evictions", evictions, LongAdder::sum).register(registry);
+    FunctionCounter.builder("wallet.push.write.timeouts", writeTimeouts, LongAdder::sum)
+        .register(registry);
+  }
+
+  /** Evicts the connections whose current flush has been blocked for longer than the timeout. */
+  private void expireWrites() {
+    long deadline = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(writeTimeoutMillis);
+    for (Subscriber subscriber : subscribers) {
+      if (subscriber.expire(deadline)) {
+        writeTimeouts.increment();
+        evictions.increment();
+        resizeSenders(1);
+      }
+    }
+  }
+
+  /** Adds a sender replacing one blocked by an expired write, or removes it once it returns. */
+  private synchronized void resizeSenders(int delta) {
+    senders.setCorePoolSize(senders.getCorePoolSize() + delta);
+  }
+
+  /** An open connection of a player; its state is guarded by the subscriber itself. */
+  private final class Subscriber implements Consumer<LedgerEvent> {
+
+    private final String login;
+    private final SseEmitter emitter;
+    private final Queue<LedgerEvent> transactions = new ArrayDeque<>();
+    private BigDecimal balance;
+
+    /** The ledger version of the balance, or {@code -1} before the first balance is known. */
+    private long ledgerVersion = -1;
+
+    private boolean balanceChanged = true;
+
+    /** Whether the balance has been read from the application, which the first flush does. */
+    private boolean balanceRead;
+
+    /** Whether a flush is scheduled or running; the first one is scheduled on subscription. */
+    private boolean flushing = true;
+
+    private boolean closed;
+
+    /** Whether a flush is writing, and since when; set while holding the subscriber. */
+    private volatile boolean writing;
+
+    private volatile long writeStartedAt;
+
+    /** Whether the current write has expired and a sender was added in its place. */
+    private boolean expired;
+
+    Subscriber(String login, SseEmitter emitter) {
+      this.login = login;
+      this.emitter = emitter;
+    }
+
+    /** Buffers an event; called on the thread that applied the transaction. */
+    @Override
+    public void accept(LedgerEvent event) {
+      received.increment();
+      boolean schedule = false;
+      boolean evict = false;
+      synchronized (this) {
+        if (closed) {
+          return;
+        }
+        if (transactions.size() < BUFFER_SIZE) {
+          if (event.transaction() != null) {
+            transactions.add(event);
+          }
+          if (event.ledgerVersion() > ledgerVersion) {
+            ledgerVersion = event.ledgerVersion();
+            balance = event.balance();
+            balanceChanged = true;
+          }
+          schedule = !flushing && (balanceChanged || !transactions.isEmpty());
+          flushing |= schedule;
+        } else {
+          evict = true;
+          closed = true;
+          transactions.clear();
+        }
+      }
+      if (evict) {
+        evictions.increment();
+        unsubscribe();
+        senders.execute(emitter::complete);
+      } else if (schedule) {
+        senders.schedule(this::flush, COALESCE_MILLIS, TimeUnit.MILLISECONDS);
+      }
+    }
+
+    /** Writes the buffered transactions and the latest balance, then schedules the next flush. */
+    void flush() {
+      List<LedgerEvent> batch;
+      BigDecimal latest;
+      boolean sendBalance;
+      boolean read;
+      synchronized (this) {
+        if (closed) {
+          return;
+        }
+        batch = new ArrayList<>(transactions);
+        transactions.clear();
+        latest = balance;
+        sendBalance = balanceChanged;
+        read = latest == null || !balanceRead;
+        balanceRead = true;
+        balanceChanged = false;
+        writeStartedAt = System.nanoTime();
+        writing = true;
+      }
+      batch.sort(Comparator.comparingLong(LedgerEvent::ledgerVersion));
+      try {
+        for (LedgerEvent event : batch) {
+          TransactionResponseDto dto =
+              TransactionMapper.INSTANCE.transactionToTransactionResponseDto(event.transaction());
+          emitter.send(SseEmitter.event().name(TRANSACTION_EVENT).data(dto));
+        }
+        if (sendBalance) {
+          if (read) {
+            latest = readBalance();
+          }
+          emitter.send(SseEmitter.event().name(BALANCE_EVENT).data(new BalanceResponseDto(latest)));
+        }
+        sent.add(batch.size() + (sendBalance ? 1 : 0));
+      } catch (IOException e) {
+        close();
+        return;
+      } catch (RuntimeException e) {
+        e.printStackTrace();
+        close();
+        emitter.completeWithError(e);
+        return;
+      } finally {
+        endWrite();
+      }
+      boolean again;
+      synchronized (this) {
+        again = !closed && (balanceChanged || !transactions.isEmpty());
+        flushing = again;
+      }
+      if (again) {
+        senders.schedule(this::flush, COALESCE_MILLIS, TimeUnit.MILLISECONDS);
+      }
+    }
+
+    /**
+     * Reads the balance of the player from the application together with its ledger version.
+     * Unless a newer event has been received in the meantime, the balance read becomes the balance
+     * of the connection, so the events it includes are ignored.
+     */
+    private BigDecimal readBalance() {
+      Player player = walletApplication.getPlayerSnapshotByLogin(login);
+      synchronized (this) {
+        if (player.getLedgerVersion() >= ledgerVersion) {
+          ledgerVersion = player.getLedgerVersion();
+          balance = player.getBalance();
+          balanceChanged = false;
+        }
+      }
+      return player.getBalance();
+    }
+
+    /**
+     * Evicts the connection if its current flush started writing before the deadline. The blocked
+     * write is left to the servlet container, since the emitter cannot be completed while it
+     * writes.
+     */
+    boolean expire(long deadline) {
+      if (!writing || writeStartedAt - deadline > 0) {
+        return false;
+      }
+      synchronized (this) {
+        if (!writing || expired || writeStartedAt - deadline > 0) {
+          return false;
+        }
+        expired = true;
+        closed = true;
+        transactions.clear();
+      }
+      unsubscribe();
+      return true;
+    }
+
+    /** Ends a write, removing the sender added in its place if it had expired. */
+    private void endWrite() {
+      boolean replaced;
+      synchronized (this) {
+        writing = false;
+        replaced = expired;
+        expired = false;
+      }
+      if (replaced) {
+        resizeSenders(-1);
+      }
+    }
+
+    /** Stops the delivery of events; closing a subscriber twice has no effect. */
+    void close() {
+      synchronized (this) {
+        closed = true;
+        transactions.clear();
+      }
+      unsubscribe();
+    }
+
+    private void unsubscribe() {
+      if (subscribers.remove(this)) {
+        ledgerEventBus.unsubscribe(login, this);
+      }
+    }
+  }
+}
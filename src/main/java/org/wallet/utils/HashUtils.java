@@ -0,0 +1,27 @@
+package org.wallet.utils;
+
+/** Fast non-cryptographic 64-bit hashing of strings, shared by bloom filters and shard routing. */
+public final class HashUtils {
+
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private HashUtils() {}
+
+  public static long hash64(String value, long seed) {
+    long hash = seed;
+    for (int i = 0; i < value.length(); i++) {
+      hash ^= value.charAt(i);
+      hash *= FNV_PRIME;
+    }
+    return mix(hash ^ value.length());
+  }
+
+  private static long mix(long hash) {
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
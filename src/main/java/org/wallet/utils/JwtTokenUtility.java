@@ -2,13 +2,9 @@ package org.wallet.utils;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
-import java.io.IOException;
-import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 import java.util.Date;
-import java.util.Objects;
-import java.util.Properties;
 import java.util.TimeZone;
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
@@ -26,7 +22,7 @@ public final class JwtTokenUtility {
   private static final String SECRET_KEY;
 
   static {
-    SECRET_KEY = loadSecretKeyFromProperties();
+    SECRET_KEY = WalletProperties.get(WalletProperties.Jwt.class).secretKey();
     OBJECT_MAPPER = new ObjectMapper();
     OBJECT_MAPPER.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
   }
@@ -114,15 +110,23 @@ public final class JwtTokenUtility {
     }
   }
 
-  private static String loadSecretKeyFromProperties() {
+  /**
+   * Extracts the expiration time from a JWT token.
+   *
+   * @param jwtToken The JWT token to extract the expiration time from.
+   * @return The expiration time in epoch milliseconds, or 0 if extraction fails.
+   */
+  public static long getExpiration(String jwtToken) {
+    String[] parts = jwtToken.split("\\.");
+    if (parts.length != 3) {
+      return 0;
+    }
+
     try {
-      Properties properties = new Properties();
-      ClassLoader classLoader = JwtTokenUtility.class.getClassLoader();
-      InputStream inputStream = classLoader.getResourceAsStream("application.yml");
-      properties.load(Objects.requireNonNull(inputStream));
-      return properties.getProperty("secret-key");
-    } catch (IOException ignored) {
-      return "secretKeyJwt";
+      return OBJECT_MAPPER.readValue(decodeBase64URL(parts[1]), Payload.class).exp();
+    } catch (Exception e) {
+      e.printStackTrace();
+      return 0;
     }
   }
 
@@ -0,0 +1,166 @@
+package org.wallet.utils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The {@code ScalableBloomFilter} class is a thread-safe probabilistic set of strings. It never
+ * reports a false negative: if {@link #mightContain(String)} returns {@code false}, the value was
+ * definitely never added. A positive answer may be a false positive.
+ *
+ * <p>The filter grows by appending stages: once a stage reaches its capacity, a new stage with
+ * twice the capacity and half the false positive probability is added, so the compound false
+ * positive probability stays below the configured target however many values are inserted.
+ */
+public final class ScalableBloomFilter {
+
+  private static final int GROWTH_FACTOR = 2;
+  private static final double TIGHTENING_RATIO = 0.5;
+  private static final long FIRST_SEED = 0xcbf29ce484222325L;
+  private static final long SECOND_SEED = 0x9e3779b97f4a7c15L;
+
+  private final List<Stage> stages = new CopyOnWriteArrayList<>();
+
+  /**
+   * Creates a filter sized for the given number of values.
+   *
+   * @param initialCapacity The number of values the first stage is sized for.
+   * @param falsePositiveProbability The target compound false positive probability.
+   */
+  public ScalableBloomFilter(long initialCapacity, double falsePositiveProbability) {
+    if (initialCapacity <= 0 || falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+      throw new IllegalArgumentException("Invalid bloom filter parameters.");
+    }
+    stages.add(new Stage(initialCapacity, falsePositiveProbability * (1 - TIGHTENING_RATIO)));
+  }
+
+  /**
+   * Adds a value to the filter.
+   *
+   * @param value The value to add.
+   */
+  public void add(String value) {
+    long first = HashUtils.hash64(value, FIRST_SEED);
+    long second = HashUtils.hash64(value, SECOND_SEED);
+    currentStage().add(first, second);
+  }
+
+  /**
+   * Checks whether the value might have been added to the filter.
+   *
+   * @param value The value to check.
+   * @return {@code false} if the value was definitely never added, {@code true} otherwise.
+   */
+  public boolean mightContain(String value) {
+    long first = HashUtils.hash64(value, FIRST_SEED);
+    long second = HashUtils.hash64(value, SECOND_SEED);
+    for (Stage stage : stages) {
+      if (stage.mightContain(first, second)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the number of values added to the filter.
+   *
+   * @return The number of insertions.
+   */
+  public long size() {
+    return stages.stream().mapToLong(stage -> stage.count.get()).sum();
+  }
+
+  /**
+   * Returns the memory used by the filter bit sets.
+   *
+   * @return The size of all stages in bytes.
+   */
+  public long memoryBytes() {
+    return stages.stream().mapToLong(stage -> stage.bits.length() * (long) Long.BYTES).sum();
+  }
+
+  /**
+   * Estimates the current false positive probability from the fill ratio of every stage.
+   *
+   * @return The expected probability that an absent value is reported as present.
+   */
+  public double expectedFalsePositiveProbability() {
+    double allNegative = 1;
+    for (Stage stage : stages) {
+      allNegative *= 1 - stage.expectedFalsePositiveProbability();
+    }
+    return 1 - allNegative;
+  }
+
+  private Stage currentStage() {
+    Stage stage = stages.get(stages.size() - 1);
+    if (stage.count.get() < stage.capacity) {
+      return stage;
+    }
+    synchronized (stages) {
+      stage = stages.get(stages.size() - 1);
+      if (stage.count.get() >= stage.capacity) {
+        stage =
+            new Stage(
+                stage.capacity * GROWTH_FACTOR, stage.falsePositiveProbability * TIGHTENING_RATIO);
+        stages.add(stage);
+      }
+      return stage;
+    }
+  }
+
+  /** A single fixed-size bloom filter used as one stage of the scalable filter. */
+  private static final class Stage {
+    private final long capacity;
+    private final double falsePositiveProbability;
+    private final int hashCount;
+    private final long bitCount;
+    private final AtomicLongArray bits;
+    private final AtomicLong count = new AtomicLong();
+
+    private Stage(long capacity, double falsePositiveProbability) {
+      this.capacity = capacity;
+      this.falsePositiveProbability = falsePositiveProbability;
+      long words =
+          (long)
+                  Math.ceil(
+                      -capacity * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)))
+              / Long.SIZE
+              + 1;
+      this.bits = new AtomicLongArray(Math.toIntExact(words));
+      this.bitCount = words * Long.SIZE;
+      this.hashCount =
+          Math.max(1, (int) Math.ceil(-Math.log(falsePositiveProbability) / Math.log(2)));
+    }
+
+    private void add(long first, long second) {
+      for (int i = 0; i < hashCount; i++) {
+        long bit = Math.floorMod(first + i * second, bitCount);
+        int word = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        long current = bits.get(word);
+        while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+          current = bits.get(word);
+        }
+      }
+      count.incrementAndGet();
+    }
+
+    private boolean mightContain(long first, long second) {
+      for (int i = 0; i < hashCount; i++) {
+        long bit = Math.floorMod(first + i * second, bitCount);
+        if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private double expectedFalsePositiveProbability() {
+      return Math.pow(1 - Math.exp(-(double) hashCount * count.get() / bitCount), hashCount);
+    }
+  }
+}
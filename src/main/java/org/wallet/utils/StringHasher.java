@@ -8,6 +8,8 @@ public final class StringHasher {
 
   public static final int CAPACITY = 64;
 
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
   private StringHasher() {}
 
   public static String hashString(String input) {
@@ -17,7 +19,7 @@ public final class StringHasher {
 
       StringBuilder stringBuilder = new StringBuilder(CAPACITY);
       for (byte b : hashedBytes) {
-        stringBuilder.append(String.format("%02x", b));
+        stringBuilder.append(HEX_DIGITS[(b >> 4) & 0xf]).append(HEX_DIGITS[b & 0xf]);
       }
 
       return stringBuilder.toString();
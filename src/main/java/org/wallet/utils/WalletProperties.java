@@ -0,0 +1,225 @@
+package org.wallet.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.ClassPathResource;
+
+/**
+ * The {@code WalletProperties} class holds the settings of the application as {@code
+ * ConfigurationProperties} records, one per section of {@code application.yml}, each bound to the
+ * full path of its section. The records are beans of the application context, and the beans that
+ * can also be created with explicit settings take their record from it.
+ *
+ * <p>Code that runs before the context exists or outside it, such as static initializers and the
+ * one-shot {@code LiquibaseManager} main, binds a record with {@link #get(Class)} instead. It uses
+ * the binder of Spring Boot over the system properties, the environment variables and {@code
+ * application.yml}, in that order, so a setting has the same name and value in both cases; profiles
+ * and command-line arguments are only seen by the context.
+ */
+public final class WalletProperties {
+
+  private static final Binder BINDER = binder();
+
+  private WalletProperties() {}
+
+  /**
+   * Binds a settings record outside the application context.
+   *
+   * @param type The record, annotated with {@code ConfigurationProperties}.
+   * @param <T> The type of the record.
+   * @return The bound record, with the defaults of the settings that are missing.
+   */
+  public static <T> T get(Class<T> type) {
+    ConfigurationProperties properties = type.getAnnotation(ConfigurationProperties.class);
+    if (properties == null) {
+      throw new IllegalArgumentException(type.getName() + " is not a settings record.");
+    }
+    return BINDER.bindOrCreate(properties.prefix(), type);
+  }
+
+  private static Binder binder() {
+    StandardEnvironment environment = new StandardEnvironment();
+    ClassPathResource resource = new ClassPathResource("application.yml");
+    if (resource.exists()) {
+      try {
+        for (PropertySource<?> source :
+            new YamlPropertySourceLoader().load("application.yml", resource)) {
+          environment.getPropertySources().addLast(source);
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    return Binder.get(environment);
+  }
+
+  /**
+   * The connection to the primary database and its replicas.
+   *
+   * @param url The JDBC URL of the primary database.
+   * @param username The user of the databases.
+   * @param password The password of the user.
+   * @param replicaUrls The comma-separated JDBC URLs of the read replicas.
+   * @param shardUrls The comma-separated JDBC URLs of the shards after the primary one.
+   */
+  @ConfigurationProperties("spring.datasource")
+  public record Datasource(
+      String url,
+      String username,
+      String password,
+      @DefaultValue("") String replicaUrls,
+      @DefaultValue("") String shardUrls) {}
+
+  /**
+   * The migrations of the schema.
+   *
+   * @param changelogFile The root change log.
+   * @param defaultSchema The schema the changes apply to.
+   * @param liquibaseSchema The schema of the tables of Liquibase.
+   * @param migrationMode When the migrations run at startup: always, checksum or off.
+   */
+  @ConfigurationProperties("spring.liquibase")
+  public record Liquibase(
+      String changelogFile,
+      String defaultSchema,
+      String liquibaseSchema,
+      @DefaultValue("checksum") String migrationMode) {}
+
+  /**
+   * The signing of the JWT tokens.
+   *
+   * @param secretKey The HMAC key of the tokens.
+   */
+  @ConfigurationProperties("spring.security.jwt")
+  public record Jwt(@DefaultValue("secretKeyJwt") String secretKey) {}
+
+  /**
+   * The startup report.
+   *
+   * @param firstRequestTargetMillis The target time from the start of the JVM to the first request.
+   */
+  @ConfigurationProperties("startup")
+  public record Startup(@DefaultValue("10000") long firstRequestTargetMillis) {}
+
+  /**
+   * The warm-up before the application takes traffic.
+   *
+   * @param enabled Whether the application is warmed up.
+   * @param url The JDBC URL naming the server and the base name of the scratch databases.
+   * @param roundIterations The requests of each kind sent in a round.
+   * @param maxRounds The rounds after which the warm-up stops even if not steady.
+   * @param exit Whether the application exits after the warm-up, as in a CDS training run.
+   */
+  @ConfigurationProperties("warmup")
+  public record Warmup(
+      @DefaultValue("false") boolean enabled,
+      @DefaultValue("") String url,
+      @DefaultValue("200") int roundIterations,
+      @DefaultValue("50") int maxRounds,
+      @DefaultValue("false") boolean exit) {}
+
+  /**
+   * The balance streams.
+   *
+   * @param bufferSize The events buffered for a subscriber before it is dropped.
+   * @param coalesceMillis The time balance events of a player are coalesced for.
+   * @param timeoutMinutes The time after which a stream is closed.
+   * @param senders The threads sending the events.
+   * @param writeTimeoutMillis The time a write may block on a client before it is evicted.
+   */
+  @ConfigurationProperties("push")
+  public record Push(
+      @DefaultValue("64") int bufferSize,
+      @DefaultValue("250") int coalesceMillis,
+      @DefaultValue("30") int timeoutMinutes,
+      @DefaultValue("4") int senders,
+      @DefaultValue("5000") long writeTimeoutMillis) {}
+
+  /**
+   * The binary ingest endpoint.
+   *
+   * @param enabled Whether the endpoint is started.
+   * @param port The TCP port of the endpoint.
+   * @param workers The threads applying the frames.
+   * @param maxBatch The frames applied together at most.
+   */
+  @ConfigurationProperties("ingest")
+  public record Ingest(
+      @DefaultValue("false") boolean enabled,
+      @DefaultValue("8087") int port,
+      @DefaultValue("8") int workers,
+      @DefaultValue("256") int maxBatch) {}
+
+  /**
+   * The audit log.
+   *
+   * @param store Where the log is stored: jdbc or segments.
+   * @param retentionMonths The months the log is kept in the database.
+   * @param retentionPolicy What happens to older months: archive or drop.
+   * @param segmentDir The directory of the segments.
+   * @param segmentMegabytes The size after which a segment is sealed.
+   * @param stream The audit stream.
+   */
+  @ConfigurationProperties("audit")
+  public record Audit(
+      @DefaultValue("jdbc") String store,
+      @DefaultValue("12") int retentionMonths,
+      @DefaultValue("archive") String retentionPolicy,
+      @DefaultValue("audit") String segmentDir,
+      @DefaultValue("32") int segmentMegabytes,
+      @DefaultValue Stream stream) {
+
+    /**
+     * The audit stream.
+     *
+     * @param history The entries kept for delivery and replayed to a resuming subscriber.
+     * @param buffer The entries buffered for a subscriber before it is dropped.
+     * @param senders The threads sending the entries.
+     * @param timeoutMinutes The time after which a stream is closed.
+     */
+    public record Stream(
+        @DefaultValue("10000") int history,
+        @DefaultValue("1000") int buffer,
+        @DefaultValue("2") int senders,
+        @DefaultValue("30") int timeoutMinutes) {}
+  }
+
+  /**
+   * The history of the transactions.
+   *
+   * @param archiveDir The directory of the archive, shared by all instances.
+   * @param archiveAfterMonths The months after which transactions are archived.
+   * @param checkpointMinutes The interval between balance checkpoints.
+   */
+  @ConfigurationProperties("transactions")
+  public record Transactions(
+      @DefaultValue("archive") String archiveDir,
+      @DefaultValue("24") int archiveAfterMonths,
+      @DefaultValue("60") int checkpointMinutes) {}
+
+  /**
+   * The nightly reconciliation of the ledger.
+   *
+   * @param parallelism The chunks reconciled at the same time.
+   * @param chunkPlayers The players of a chunk.
+   */
+  @ConfigurationProperties("reconciliation")
+  public record Reconciliation(
+      @DefaultValue("4") int parallelism, @DefaultValue("1000") int chunkPlayers) {}
+
+  /**
+   * The mass payouts.
+   *
+   * @param parallelism The chunks paid at the same time.
+   * @param chunkPlayers The players of a chunk.
+   */
+  @ConfigurationProperties("payouts")
+  public record Payouts(
+      @DefaultValue("4") int parallelism, @DefaultValue("500") int chunkPlayers) {}
+}
@@ -0,0 +1,112 @@
+package org.wallet.application;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.wallet.domain.model.Transaction;
+import org.wallet.domain.model.TransactionOutcome;
+import org.wallet.domain.model.TransactionStatus;
+import org.wallet.domain.model.TransactionType;
+import org.wallet.exception.TransactionAlreadyExistException;
+
+public class TransactionOutcomeCacheTest {
+
+  private static final int CAPACITY = 3;
+
+  private MutableClock clock;
+  private TransactionOutcomeCache cache;
+
+  @BeforeEach
+  public void setUp() {
+    clock = new MutableClock();
+    cache = new TransactionOutcomeCache(clock, CAPACITY);
+  }
+
+  @Test
+  @DisplayName("Identical retry should return the original outcome marked as replayed")
+  public void replay_identicalRequest_returnsOriginalOutcome() {
+    var transaction = transaction("player", "id1", "10.00");
+    cache.put(transaction, TransactionOutcome.applied(transaction, new BigDecimal("110.00")));
+
+    var replay = cache.replay(transaction("player", "id1", "10.0"));
+
+    assertThat(replay).isPresent();
+    assertThat(replay.get().status()).isEqualTo(TransactionStatus.REPLAYED);
+    assertThat(replay.get().balance()).isEqualByComparingTo("110.00");
+  }
+
+  @Test
+  @DisplayName("Reuse of a transaction ID with different parameters should be rejected")
+  public void replay_conflictingRequest_throwsException() {
+    var transaction = transaction("player", "id1", "10.00");
+    cache.put(transaction, TransactionOutcome.applied(transaction, BigDecimal.TEN));
+
+    assertThatThrownBy(() -> cache.replay(transaction("player", "id1", "20.00")))
+        .isInstanceOf(TransactionAlreadyExistException.class);
+    assertThatThrownBy(() -> cache.replay(transaction("other", "id1", "10.00")))
+        .isInstanceOf(TransactionAlreadyExistException.class);
+  }
+
+  @Test
+  @DisplayName("Oldest outcomes should be evicted once the capacity is exceeded")
+  public void put_beyondCapacity_evictsOldest() {
+    for (int i = 0; i <= CAPACITY; i++) {
+      var transaction = transaction("player", "id" + i, "1");
+      cache.put(transaction, TransactionOutcome.applied(transaction, BigDecimal.ONE));
+    }
+
+    assertThat(cache.size()).isEqualTo(CAPACITY);
+    assertThat(cache.replay(transaction("player", "id0", "1"))).isEmpty();
+    assertThat(cache.replay(transaction("player", "id" + CAPACITY, "1"))).isPresent();
+  }
+
+  @Test
+  @DisplayName("Outcomes should expire after the time to live")
+  public void replay_afterTimeToLive_returnsEmpty() {
+    var expired = transaction("player", "id1", "1");
+    cache.put(expired, TransactionOutcome.applied(expired, BigDecimal.ONE));
+
+    clock.advance(Duration.ofMinutes(11));
+
+    assertThat(cache.replay(expired)).isEmpty();
+
+    var fresh = transaction("player", "id2", "1");
+    cache.put(fresh, TransactionOutcome.applied(fresh, BigDecimal.ONE));
+    assertThat(cache.size()).isEqualTo(1);
+  }
+
+  private static Transaction transaction(String login, String id, String amount) {
+    return new Transaction(login, id, TransactionType.CREDIT, new BigDecimal(amount));
+  }
+
+  private static final class MutableClock extends Clock {
+    private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+    private void advance(Duration duration) {
+      now = now.plus(duration);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return now;
+    }
+  }
+}
@@ -0,0 +1,110 @@
+package org.wallet.application;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.wallet.domain.model.Player;
+import org.wallet.domain.model.Transaction;
+import org.wallet.domain.model.TransactionOutcome;
+import org.wallet.domain.model.TransactionStatus;
+import org.wallet.domain.model.TransactionType;
+import org.wallet.domain.service.AuditService;
+import org.wallet.domain.service.PlayerService;
+import org.wallet.domain.service.TransactionService;
+
+public class TransactionRetryStormTest {
+
+  private static final int TRANSACTIONS = 1_000;
+  private static final int CLIENTS = 16;
+  private static final int RETRIES_PER_CLIENT = 50;
+
+  @Test
+  @DisplayName("Retry storm should be answered from the outcome cache without service calls")
+  public void retryStorm_replaysOriginalOutcomes() throws Exception {
+    var playerService = mock(PlayerService.class);
+    var transactionService = mock(TransactionService.class);
+    var player = new Player("storm", "password");
+    when(playerService.getPlayerByLogin("storm")).thenReturn(Optional.of(player));
+    doAnswer(
+            invocation -> {
+              player.credit(invocation.<Transaction>getArgument(1).amount());
+              return null;
+            })
+        .when(transactionService)
+        .registerTransaction(any(), any());
+    var walletApplication =
+        new WalletApplication(
+            transactionService,
+            playerService,
+            mock(AuditService.class),
+            new TransactionOutcomeCache());
+
+    List<Transaction> transactions = new ArrayList<>();
+    Map<String, BigDecimal> balances = new ConcurrentHashMap<>();
+    for (int i = 0; i < TRANSACTIONS; i++) {
+      var transaction =
+          new Transaction("storm", "storm-" + i, TransactionType.CREDIT, BigDecimal.ONE);
+      transactions.add(transaction);
+      balances.put(
+          transaction.transactionId(), walletApplication.registerTransaction(transaction).balance());
+    }
+
+    var replays = new LongAdder();
+    ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+    long start = System.nanoTime();
+    try {
+      List<Future<?>> clients = new ArrayList<>();
+      for (int client = 0; client < CLIENTS; client++) {
+        clients.add(
+            executor.submit(
+                () -> {
+                  for (int retry = 0; retry < RETRIES_PER_CLIENT; retry++) {
+                    for (Transaction transaction : transactions) {
+                      TransactionOutcome outcome =
+                          walletApplication
+                              .replayTransaction(transaction)
+                              .orElseGet(() -> walletApplication.registerTransaction(transaction));
+                      assertThat(outcome.status()).isEqualTo(TransactionStatus.REPLAYED);
+                      assertThat(outcome.balance())
+                          .isEqualTo(balances.get(transaction.transactionId()));
+                      replays.increment();
+                    }
+                  }
+                }));
+      }
+      for (Future<?> client : clients) {
+        client.get();
+      }
+    } finally {
+      executor.shutdown();
+      executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+    long elapsedNanos = System.nanoTime() - start;
+
+    verify(transactionService, times(TRANSACTIONS)).registerTransaction(any(), any());
+    verify(playerService, times(TRANSACTIONS)).getPlayerByLogin("storm");
+    verify(playerService, never()).updatePlayer(player);
+    assertThat(player.getBalance()).isEqualByComparingTo(BigDecimal.valueOf(TRANSACTIONS));
+    assertThat(replays.sum()).isEqualTo((long) TRANSACTIONS * CLIENTS * RETRIES_PER_CLIENT);
+    System.out.printf(
+        "Retry storm: %d replays by %d clients in %d ms (%.0f replays/s)%n",
+        replays.sum(),
+        CLIENTS,
+        TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+        replays.sum() * 1e9 / elapsedNanos);
+  }
+}
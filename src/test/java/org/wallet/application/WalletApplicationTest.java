@@ -3,6 +3,7 @@ package org.wallet.application;
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
+import java.math.BigDecimal;
 import java.util.Optional;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -10,10 +11,17 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.wallet.domain.model.Player;
+import org.wallet.domain.model.Transaction;
+import org.wallet.domain.model.TransactionOutcome;
+import org.wallet.domain.model.TransactionStatus;
+import org.wallet.domain.model.TransactionType;
+import org.wallet.domain.model.Transfer;
 import org.wallet.domain.service.AuditService;
 import org.wallet.domain.service.PlayerService;
 import org.wallet.domain.service.TransactionService;
 import org.wallet.exception.PlayerNotFoundException;
+import org.wallet.exception.TransactionAlreadyExistException;
 
 @ExtendWith(MockitoExtension.class)
 public class WalletApplicationTest {
@@ -24,6 +32,7 @@ public class WalletApplicationTest {
   @Mock private TransactionService transactionService;
   @Mock private PlayerService playerService;
   @Mock private AuditService auditService;
+  @Mock private TransactionOutcomeCache transactionOutcomeCache;
 
   @Test
   @DisplayName("Register Player should succeed")
@@ -65,4 +74,108 @@ public class WalletApplicationTest {
 
     verify(transactionService, times(2)).isTransactionExist(anyString());
   }
+
+  @Test
+  @DisplayName("Register Transaction should cache the outcome with the resulting balance")
+  public void registerTransaction_shouldCacheOutcome() {
+    var player = new Player(TEST_USER, TEST_PASSWORD);
+    player.setBalance(BigDecimal.TEN);
+    var transaction = new Transaction(TEST_USER, "id", TransactionType.CREDIT, BigDecimal.ONE);
+    when(playerService.getPlayerByLogin(TEST_USER)).thenReturn(Optional.of(player));
+
+    var outcome = walletApplication.registerTransaction(transaction);
+
+    assertThat(outcome.status()).isEqualTo(TransactionStatus.APPLIED);
+    var inOrder = inOrder(transactionService);
+    inOrder.verify(transactionService).registerTransaction(player, transaction);
+    inOrder.verify(transactionService).publishTransaction(player, transaction);
+    verify(playerService, never()).updatePlayer(any());
+    verify(transactionOutcomeCache).put(transaction, outcome);
+  }
+
+  @Test
+  @DisplayName("Register Transaction should replay the outcome of a concurrent identical request")
+  public void registerTransaction_shouldReplayConcurrentDuplicate() {
+    var transaction = new Transaction(TEST_USER, "id", TransactionType.CREDIT, BigDecimal.ONE);
+    var replay = TransactionOutcome.applied(transaction, BigDecimal.ONE).asReplay();
+    when(playerService.getPlayerByLogin(TEST_USER))
+        .thenReturn(Optional.of(new Player(TEST_USER, TEST_PASSWORD)));
+    doThrow(new TransactionAlreadyExistException())
+        .when(transactionService)
+        .registerTransaction(any(), eq(transaction));
+    when(transactionOutcomeCache.replay(transaction)).thenReturn(Optional.of(replay));
+
+    assertThat(walletApplication.registerTransaction(transaction)).isEqualTo(replay);
+    verify(playerService, never()).updatePlayer(any());
+    verify(transactionService, never()).publishTransaction(any(), any());
+  }
+
+  @Test
+  @DisplayName("Register Transaction should replay a stored identical transaction not in the cache")
+  public void registerTransaction_shouldReplayStoredDuplicate() {
+    var transaction = new Transaction(TEST_USER, "id", TransactionType.CREDIT, BigDecimal.ONE);
+    when(playerService.getPlayerByLogin(TEST_USER))
+        .thenReturn(Optional.of(new Player(TEST_USER, TEST_PASSWORD)));
+    doThrow(new TransactionAlreadyExistException())
+        .when(transactionService)
+        .registerTransaction(any(), eq(transaction));
+    when(transactionOutcomeCache.replay(transaction)).thenReturn(Optional.empty());
+    when(transactionService.getTransactionById("id")).thenReturn(Optional.of(transaction));
+
+    var outcome = walletApplication.registerTransaction(transaction);
+
+    assertThat(outcome.status()).isEqualTo(TransactionStatus.REPLAYED);
+    assertThat(outcome.balance()).isNull();
+    verify(transactionService, never()).publishTransaction(any(), any());
+  }
+
+  @Test
+  @DisplayName("Register Transaction should reject a stored transaction with other parameters")
+  public void registerTransaction_shouldRejectStoredConflict() {
+    var transaction = new Transaction(TEST_USER, "id", TransactionType.CREDIT, BigDecimal.ONE);
+    when(playerService.getPlayerByLogin(TEST_USER))
+        .thenReturn(Optional.of(new Player(TEST_USER, TEST_PASSWORD)));
+    doThrow(new TransactionAlreadyExistException())
+        .when(transactionService)
+        .registerTransaction(any(), eq(transaction));
+    when(transactionOutcomeCache.replay(transaction)).thenReturn(Optional.empty());
+    when(transactionService.getTransactionById("id"))
+        .thenReturn(
+            Optional.of(new Transaction(TEST_USER, "id", TransactionType.DEBIT, BigDecimal.ONE)));
+
+    assertThatThrownBy(() -> walletApplication.registerTransaction(transaction))
+        .isInstanceOf(TransactionAlreadyExistException.class);
+  }
+
+  @Test
+  @DisplayName("Transfer should replay a stored identical transfer")
+  public void transfer_storedDuplicate_shouldReplay() {
+    var transfer = new Transfer("id", TEST_USER, "recipient", BigDecimal.ONE);
+    when(transactionService.transfer(transfer)).thenThrow(new TransactionAlreadyExistException());
+    when(transactionService.getTransactionById("id:debit"))
+        .thenReturn(Optional.of(transfer.debit()));
+    when(transactionService.getTransactionById("id:credit"))
+        .thenReturn(Optional.of(transfer.credit()));
+    when(transactionOutcomeCache.replay(transfer.debit())).thenReturn(Optional.empty());
+
+    var outcome = walletApplication.transfer(transfer);
+
+    assertThat(outcome.transactionId()).isEqualTo("id");
+    assertThat(outcome.status()).isEqualTo(TransactionStatus.REPLAYED);
+  }
+
+  @Test
+  @DisplayName("Transfer should reject a stored transfer to another recipient")
+  public void transfer_storedToOtherRecipient_shouldThrow() {
+    var transfer = new Transfer("id", TEST_USER, "recipient", BigDecimal.ONE);
+    var stored = new Transfer("id", TEST_USER, "other", BigDecimal.ONE);
+    when(transactionService.transfer(transfer)).thenThrow(new TransactionAlreadyExistException());
+    when(transactionService.getTransactionById("id:debit")).thenReturn(Optional.of(stored.debit()));
+    when(transactionService.getTransactionById("id:credit"))
+        .thenReturn(Optional.of(stored.credit()));
+
+    assertThatThrownBy(() -> walletApplication.transfer(transfer))
+        .isInstanceOf(TransactionAlreadyExistException.class);
+    verify(transactionOutcomeCache, never()).replay(any());
+  }
 }
@@ -0,0 +1,171 @@
+package org.wallet.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.testcontainers.containers.DockerComposeContainer;
+import org.wallet.domain.model.Log;
+import org.wallet.domain.model.LogAction;
+import org.wallet.domain.repository.DatabaseConnection;
+import org.wallet.domain.repository.LiquibaseManager;
+import org.wallet.domain.repository.log.JdbcLogRepository;
+import org.wallet.domain.repository.log.LogQuery;
+import org.wallet.domain.repository.log.LogRepository;
+import org.wallet.domain.repository.log.SegmentedLogRepository;
+
+/**
+ * Compares the audit stores: appending an entry to {@code wallet.logs} through the {@link
+ * JdbcLogRepository} and to the memory-mapped segments of the {@link SegmentedLogRepository}, and
+ * reading the latest page of a user's entries from both after {@value #PRELOADED} entries. The
+ * appends are measured on one and on eight threads.
+ *
+ * <p>The benchmarks are tagged {@code benchmark} and only run with {@code mvn test -Pbenchmark}.
+ * The database runs in the container of {@code docker-compose-test.yml}. The throughput per
+ * thread count is written to {@code target/benchmark-reports/audit-<threads>.json}.
+ */
+@Tag("benchmark")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class AuditStoreBenchmark {
+
+  private static final Path REPORT_DIRECTORY = Path.of("target", "benchmark-reports");
+  private static final String URL_PROPERTY = "audit.benchmark.url";
+  private static final int POSTGRES_PORT = 5432;
+  private static final int SEGMENT_BYTES = 32 << 20;
+  private static final int PRELOADED = 100_000;
+  private static final int USERS = 1_000;
+
+  /** Adds the preloaded entries to {@code wallet.logs} in one statement. */
+  private static final String PRELOAD_SQL =
+      "INSERT INTO wallet.logs (timestamp, action_code, username, details)"
+          + " SELECT LOCALTIMESTAMP, ?, 'player-' || (g % ?), 'details'"
+          + " FROM generate_series(1, ?) g";
+
+  @Param({"jdbc", "segments"})
+  public String store;
+
+  private LogRepository logRepository;
+  private Path directory;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException, SQLException {
+    if ("jdbc".equals(store)) {
+      DatabaseConnection database = new DatabaseConnection(System.getProperty(URL_PROPERTY));
+      try (Connection connection = database.getConnection();
+          Statement delete = connection.createStatement();
+          PreparedStatement preload = connection.prepareStatement(PRELOAD_SQL)) {
+        delete.executeUpdate("DELETE FROM wallet.logs");
+        preload.setShort(1, LogAction.TRANSACTION.getCode());
+        preload.setInt(2, USERS);
+        preload.setInt(3, PRELOADED);
+        preload.executeUpdate();
+      }
+      logRepository = new JdbcLogRepository(database);
+    } else {
+      directory = Files.createTempDirectory("audit-benchmark");
+      SegmentedLogRepository segments = new SegmentedLogRepository(directory, SEGMENT_BYTES);
+      segments.init();
+      for (int i = 0; i < PRELOADED; i++) {
+        segments.addLog(log(i % USERS));
+      }
+      logRepository = segments;
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    if (logRepository instanceof SegmentedLogRepository segments) {
+      segments.close();
+      try (Stream<Path> files = Files.walk(directory)) {
+        for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+          Files.delete(path);
+        }
+      }
+    }
+  }
+
+  @Benchmark
+  public long addLog() {
+    return logRepository.addLog(log(ThreadLocalRandom.current().nextInt(USERS)));
+  }
+
+  @Benchmark
+  public int latestPageOfUser() {
+    String username = "player-" + ThreadLocalRandom.current().nextInt(USERS);
+    return logRepository.getLogs(new LogQuery(null, null, username, 0, 50)).size();
+  }
+
+  @Test
+  @DisplayName("Append throughput and latest-page reads of the database and segment audit stores")
+  public void run() throws Exception {
+    Files.createDirectories(REPORT_DIRECTORY);
+    DockerComposeContainer<?> database =
+        new DockerComposeContainer<>(new File("src/test/java/resources/docker-compose-test.yml"))
+            .withExposedService("postgres", POSTGRES_PORT)
+            .withLocalCompose(true)
+            .withOptions("--compatibility");
+    database.start();
+    try {
+      String url =
+          "jdbc:postgresql://"
+              + database.getServiceHost("postgres", POSTGRES_PORT)
+              + ":"
+              + database.getServicePort("postgres", POSTGRES_PORT)
+              + "/wallet";
+      new LiquibaseManager(new DatabaseConnection(url)).migrate();
+      for (int threads : new int[] {1, 8}) {
+        Path report = REPORT_DIRECTORY.resolve("audit-" + threads + ".json");
+        Options options =
+            new OptionsBuilder()
+                .include(AuditStoreBenchmark.class.getName() + "\\.")
+                .jvmArgsAppend("-D" + URL_PROPERTY + "=" + url)
+                .threads(threads)
+                .forks(1)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(2))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(2))
+                .resultFormat(ResultFormatType.JSON)
+                .result(report.toString())
+                .build();
+        new Runner(options).run();
+      }
+    } finally {
+      database.stop();
+    }
+    System.out.println("Benchmark reports written to " + REPORT_DIRECTORY.toAbsolutePath());
+  }
+
+  private static Log log(int user) {
+    return new Log(LocalDateTime.now(), LogAction.TRANSACTION, "player-" + user, "details");
+  }
+}
@@ -0,0 +1,167 @@
+package org.wallet.benchmark;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.wallet.domain.dto.mapper.LogMapper;
+import org.wallet.domain.dto.mapper.TransactionMapper;
+import org.wallet.domain.dto.request.TransactionRequestDto;
+import org.wallet.domain.model.Log;
+import org.wallet.domain.model.LogAction;
+import org.wallet.domain.model.Transaction;
+import org.wallet.domain.model.TransactionType;
+import org.wallet.in.codec.MappedList;
+import org.wallet.in.codec.WalletCodec;
+
+/**
+ * Compares the JSON serialization of the API before and after the {@link WalletCodec}: the
+ * default object mapper of Spring MVC writing a list of DTOs against the codec streaming the
+ * repository records, and reading a request body with a reader resolved per call against the
+ * pre-built reader of the codec.
+ *
+ * <p>The benchmarks are tagged {@code benchmark} and only run with {@code mvn test -Pbenchmark}.
+ * They run with the GC profiler, so the report in {@code target/benchmark-reports} holds the bytes
+ * allocated per operation next to the time per operation.
+ */
+@Tag("benchmark")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WalletCodecBenchmark {
+
+  private static final Path REPORT_DIRECTORY = Path.of("target", "benchmark-reports");
+
+  @Param({"100", "10000"})
+  public int size;
+
+  private ObjectMapper defaultMapper;
+  private WalletCodec codec;
+  private List<Transaction> transactions;
+  private List<Log> logs;
+  private byte[] request;
+  private ByteArrayOutputStream output;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    defaultMapper = Jackson2ObjectMapperBuilder.json().build();
+    codec = WalletCodec.json();
+    transactions = new ArrayList<>(size);
+    logs = new ArrayList<>(size);
+    LocalDateTime timestamp = LocalDateTime.of(2023, 11, 1, 12, 0, 0, 123_000_000);
+    for (int i = 0; i < size; i++) {
+      transactions.add(
+          new Transaction(
+              "player",
+              "transaction-" + i,
+              i % 2 == 0 ? TransactionType.CREDIT : TransactionType.DEBIT,
+              BigDecimal.valueOf(i * 101L, 2)));
+      logs.add(
+          new Log(timestamp.plusSeconds(i), LogAction.TRANSACTION, "player", "details " + i));
+    }
+    TransactionRequestDto requestDto = new TransactionRequestDto();
+    requestDto.setJwtToken("header.payload.signature");
+    requestDto.setTransactionId("transaction");
+    requestDto.setTransactionType("CREDIT");
+    requestDto.setAmount(new BigDecimal("10.50"));
+    request = defaultMapper.writeValueAsBytes(requestDto);
+    output = new ByteArrayOutputStream(size * 128);
+  }
+
+  @Benchmark
+  public byte[] transactionsDefault() throws IOException {
+    return defaultMapper.writeValueAsBytes(
+        transactions.stream()
+            .map(TransactionMapper.INSTANCE::transactionToTransactionResponseDto)
+            .toList());
+  }
+
+  @Benchmark
+  public int transactionsStreamed() throws IOException {
+    return stream(
+        MappedList.of(
+            Transaction.class,
+            transactions,
+            TransactionMapper.INSTANCE::transactionToTransactionResponseDto));
+  }
+
+  @Benchmark
+  public byte[] logsDefault() throws IOException {
+    return defaultMapper.writeValueAsBytes(
+        logs.stream().map(LogMapper.INSTANCE::logToLogDto).toList());
+  }
+
+  @Benchmark
+  public int logsStreamed() throws IOException {
+    return stream(MappedList.of(Log.class, logs, LogMapper.INSTANCE::logToLogDto));
+  }
+
+  @Benchmark
+  public TransactionRequestDto requestDefault() throws IOException {
+    return defaultMapper.readValue(request, TransactionRequestDto.class);
+  }
+
+  @Benchmark
+  public TransactionRequestDto requestPrebuilt() throws IOException {
+    ObjectReader reader = codec.reader(TransactionRequestDto.class);
+    return reader.readValue(request);
+  }
+
+  @Test
+  @DisplayName("Serialization cost and allocation of the JSON codec")
+  public void run() throws Exception {
+    Files.createDirectories(REPORT_DIRECTORY);
+    Path report = REPORT_DIRECTORY.resolve("codec.json");
+    Options options =
+        new OptionsBuilder()
+            .include(WalletCodecBenchmark.class.getName() + "\\.")
+            .addProfiler(GCProfiler.class)
+            .forks(1)
+            .warmupIterations(3)
+            .warmupTime(TimeValue.seconds(2))
+            .measurementIterations(5)
+            .measurementTime(TimeValue.seconds(2))
+            .resultFormat(ResultFormatType.JSON)
+            .result(report.toString())
+            .build();
+    new Runner(options).run();
+    System.out.println("Benchmark report written to " + report.toAbsolutePath());
+  }
+
+  private int stream(MappedList<?, ?> body) throws IOException {
+    output.reset();
+    try (JsonGenerator generator =
+        codec.getObjectMapper().getFactory().createGenerator(output, JsonEncoding.UTF8)) {
+      codec.stream(body, generator);
+    }
+    return output.size();
+  }
+}
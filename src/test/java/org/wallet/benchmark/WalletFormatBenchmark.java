@@ -0,0 +1,214 @@
+package org.wallet.benchmark;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.wallet.domain.dto.mapper.LogMapper;
+import org.wallet.domain.dto.mapper.TransactionMapper;
+import org.wallet.domain.dto.response.LogResponseDto;
+import org.wallet.domain.dto.response.TransactionResponseDto;
+import org.wallet.domain.model.Log;
+import org.wallet.domain.model.LogAction;
+import org.wallet.domain.model.Transaction;
+import org.wallet.domain.model.TransactionType;
+import org.wallet.in.codec.MappedList;
+import org.wallet.in.codec.WalletCodec;
+
+/**
+ * Compares the formats /transactions and /logs can be requested in: JSON, CBOR and Smile. For
+ * every format a page of 10k records is streamed by the {@link WalletCodec} and read back into
+ * DTOs, as the consuming services do.
+ *
+ * <p>The benchmarks are tagged {@code benchmark} and only run with {@code mvn test -Pbenchmark}.
+ * The time and allocation per page are written to {@code target/benchmark-reports/formats.json}
+ * and the size of a page in every format, plain and gzip-compressed as sent with response
+ * compression, to {@code target/benchmark-reports/formats-size.json}.
+ */
+@Tag("benchmark")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WalletFormatBenchmark {
+
+  private static final Path REPORT_DIRECTORY = Path.of("target", "benchmark-reports");
+  private static final int RECORDS = 10_000;
+
+  @Param({"json", "cbor", "smile"})
+  public String format;
+
+  private WalletCodec codec;
+  private MappedList<Transaction, TransactionResponseDto> transactions;
+  private MappedList<Log, LogResponseDto> logs;
+  private ObjectReader transactionsReader;
+  private ObjectReader logsReader;
+  private byte[] transactionsBody;
+  private byte[] logsBody;
+  private ByteArrayOutputStream output;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    codec = codec(format);
+    transactions = transactions();
+    logs = logs();
+    transactionsReader = codec.getObjectMapper().readerForListOf(TransactionResponseDto.class);
+    logsReader = codec.getObjectMapper().readerForListOf(LogResponseDto.class);
+    output = new ByteArrayOutputStream(RECORDS * 128);
+    transactionsBody = encode(codec, transactions);
+    logsBody = encode(codec, logs);
+  }
+
+  @Benchmark
+  public int writeTransactions() throws IOException {
+    return stream(transactions);
+  }
+
+  @Benchmark
+  public int writeLogs() throws IOException {
+    return stream(logs);
+  }
+
+  @Benchmark
+  public List<TransactionResponseDto> readTransactions() throws IOException {
+    return transactionsReader.readValue(transactionsBody);
+  }
+
+  @Benchmark
+  public List<LogResponseDto> readLogs() throws IOException {
+    return logsReader.readValue(logsBody);
+  }
+
+  @Test
+  @DisplayName("Payload size and serialization cost of JSON, CBOR and Smile")
+  public void run() throws Exception {
+    Files.createDirectories(REPORT_DIRECTORY);
+    Map<String, Object> sizes = new LinkedHashMap<>();
+    for (String name : List.of("json", "cbor", "smile")) {
+      WalletCodec formatCodec = codec(name);
+      Map<String, Object> size = new LinkedHashMap<>();
+      byte[] transactionsPage = encode(formatCodec, transactions());
+      byte[] logsPage = encode(formatCodec, logs());
+      size.put("transactionsBytes", transactionsPage.length);
+      size.put("transactionsGzipBytes", gzip(transactionsPage).length);
+      size.put("logsBytes", logsPage.length);
+      size.put("logsGzipBytes", gzip(logsPage).length);
+      sizes.put(name, size);
+      System.out.printf(
+          "%-6s transactions %8d B (%7d B gzip), logs %8d B (%7d B gzip) per %d records%n",
+          name,
+          transactionsPage.length,
+          size.get("transactionsGzipBytes"),
+          logsPage.length,
+          size.get("logsGzipBytes"),
+          RECORDS);
+    }
+    Path sizeReport = REPORT_DIRECTORY.resolve("formats-size.json");
+    new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(sizeReport.toFile(), sizes);
+
+    Path report = REPORT_DIRECTORY.resolve("formats.json");
+    Options options =
+        new OptionsBuilder()
+            .include(WalletFormatBenchmark.class.getName() + "\\.")
+            .addProfiler(GCProfiler.class)
+            .forks(1)
+            .warmupIterations(3)
+            .warmupTime(TimeValue.seconds(2))
+            .measurementIterations(5)
+            .measurementTime(TimeValue.seconds(2))
+            .resultFormat(ResultFormatType.JSON)
+            .result(report.toString())
+            .build();
+    new Runner(options).run();
+    System.out.println("Benchmark reports written to " + REPORT_DIRECTORY.toAbsolutePath());
+  }
+
+  private static WalletCodec codec(String format) {
+    return switch (format) {
+      case "cbor" -> WalletCodec.cbor();
+      case "smile" -> WalletCodec.smile();
+      default -> WalletCodec.json();
+    };
+  }
+
+  private static MappedList<Transaction, TransactionResponseDto> transactions() {
+    List<Transaction> transactions = new ArrayList<>(RECORDS);
+    for (int i = 0; i < RECORDS; i++) {
+      transactions.add(
+          new Transaction(
+              "player",
+              "transaction-" + i,
+              i % 2 == 0 ? TransactionType.CREDIT : TransactionType.DEBIT,
+              BigDecimal.valueOf(i * 101L, 2)));
+    }
+    return MappedList.of(
+        Transaction.class,
+        transactions,
+        TransactionMapper.INSTANCE::transactionToTransactionResponseDto);
+  }
+
+  private static MappedList<Log, LogResponseDto> logs() {
+    List<Log> logs = new ArrayList<>(RECORDS);
+    LocalDateTime timestamp = LocalDateTime.of(2023, 11, 1, 12, 0, 0, 123_000_000);
+    for (int i = 0; i < RECORDS; i++) {
+      logs.add(
+          new Log(timestamp.plusSeconds(i), LogAction.TRANSACTION, "player", "details " + i));
+    }
+    return MappedList.of(Log.class, logs, LogMapper.INSTANCE::logToLogDto);
+  }
+
+  private static byte[] encode(WalletCodec codec, MappedList<?, ?> body) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (JsonGenerator generator =
+        codec.getObjectMapper().getFactory().createGenerator(output, JsonEncoding.UTF8)) {
+      codec.stream(body, generator);
+    }
+    return output.toByteArray();
+  }
+
+  private static byte[] gzip(byte[] body) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+      gzip.write(body);
+    }
+    return output.toByteArray();
+  }
+
+  private int stream(MappedList<?, ?> body) throws IOException {
+    output.reset();
+    try (JsonGenerator generator =
+        codec.getObjectMapper().getFactory().createGenerator(output, JsonEncoding.UTF8)) {
+      codec.stream(body, generator);
+    }
+    return output.size();
+  }
+}
@@ -0,0 +1,91 @@
+package org.wallet.in.codec;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.wallet.domain.dto.mapper.LogMapper;
+import org.wallet.domain.dto.mapper.TransactionMapper;
+import org.wallet.domain.dto.request.TransactionRequestDto;
+import org.wallet.domain.dto.response.BalanceResponseDto;
+import org.wallet.domain.model.Log;
+import org.wallet.domain.model.LogAction;
+import org.wallet.domain.model.Transaction;
+import org.wallet.domain.model.TransactionType;
+
+public class WalletCodecTest {
+
+  private final ObjectMapper defaultMapper = Jackson2ObjectMapperBuilder.json().build();
+  private final WalletCodec codec = WalletCodec.json();
+
+  @Test
+  @DisplayName("Streamed transactions are written like the list of their DTOs")
+  void streamTransactions() throws IOException {
+    List<Transaction> transactions =
+        List.of(
+            new Transaction("player", "t1", TransactionType.CREDIT, new BigDecimal("100.50")),
+            new Transaction("player", "t2", TransactionType.DEBIT, new BigDecimal("0.05")),
+            new Transaction("player", "t3", TransactionType.DEBIT, new BigDecimal("-12")),
+            new Transaction("player", "t4", null, new BigDecimal("123456789012345678901.5")),
+            new Transaction("player", "t5", TransactionType.CREDIT, null));
+    MappedList<Transaction, ?> body =
+        MappedList.of(
+            Transaction.class,
+            transactions,
+            TransactionMapper.INSTANCE::transactionToTransactionResponseDto);
+
+    assertThat(codec.canStream(body)).isTrue();
+    assertThat(stream(body)).isEqualTo(defaultMapper.writeValueAsString(body.toDtos()));
+  }
+
+  @Test
+  @DisplayName("Streamed audit logs are written like the list of their DTOs")
+  void streamLogs() throws IOException {
+    List<Log> logs =
+        List.of(
+            new Log(LocalDateTime.of(2023, 11, 1, 12, 0), LogAction.TRANSACTION, "a", "d"),
+            new Log(
+                LocalDateTime.of(2023, 11, 1, 12, 0, 5, 120_000_000),
+                LogAction.AUTHORIZATION,
+                "b",
+                "\"quoted\""),
+            new Log(LocalDateTime.of(2023, 1, 2, 3, 4, 5, 6), LogAction.REGISTRATION, "c", null));
+    MappedList<Log, ?> body = MappedList.of(Log.class, logs, LogMapper.INSTANCE::logToLogDto);
+
+    assertThat(codec.canStream(body)).isTrue();
+    assertThat(stream(body)).isEqualTo(defaultMapper.writeValueAsString(body.toDtos()));
+  }
+
+  @Test
+  @DisplayName("Pre-built readers and writers match the default object mapper")
+  void prebuiltReadersAndWriters() throws IOException {
+    String request =
+        "{\"jwtToken\":\"token\",\"transactionId\":\"t1\","
+            + "\"transactionType\":\"CREDIT\",\"amount\":10.50}";
+    BalanceResponseDto balance = new BalanceResponseDto(new BigDecimal("10.50"));
+
+    assertThat(codec.reader(TransactionRequestDto.class).<Object>readValue(request))
+        .isEqualTo(defaultMapper.readValue(request, TransactionRequestDto.class));
+    assertThat(codec.writer(BalanceResponseDto.class).writeValueAsString(balance))
+        .isEqualTo(defaultMapper.writeValueAsString(balance));
+    assertThat(codec.reader(String.class)).isNull();
+  }
+
+  private String stream(MappedList<?, ?> body) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (JsonGenerator generator =
+        codec.getObjectMapper().getFactory().createGenerator(output, JsonEncoding.UTF8)) {
+      codec.stream(body, generator);
+    }
+    return output.toString();
+  }
+}
@@ -0,0 +1,94 @@
+package org.wallet.in.config;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+
+public class StartupTimelineTest {
+
+  @Test
+  @DisplayName("The ready phases should report the slowest beans without their dependencies")
+  public void onReady_bufferedStartup_reportsOwnBeanTimes() throws InterruptedException {
+    BufferingApplicationStartup applicationStartup = new BufferingApplicationStartup(100);
+    StartupTimeline startupTimeline = new StartupTimeline(applicationStartup);
+    StartupStep outer = beanStep(applicationStartup, "outer");
+    StartupStep inner = beanStep(applicationStartup, "inner");
+    Thread.sleep(100);
+    inner.end();
+    outer.end();
+
+    startupTimeline.onReady(readyEvent(Duration.ofMillis(300)));
+
+    assertThat(startupTimeline.getPhases())
+        .containsKeys("launch", "bean:outer", "bean:inner", "ready")
+        .containsEntry("context", 300L);
+    assertThat(startupTimeline.getPhases().get("bean:inner")).isGreaterThanOrEqualTo(100L);
+    assertThat(startupTimeline.getPhases().get("bean:outer")).isLessThan(100L);
+  }
+
+  @Test
+  @DisplayName("The phases should keep their order and end with the time to the first request")
+  public void getPhases_firstRequest_recordedOnceAndLast() {
+    StartupTimeline startupTimeline = new StartupTimeline(ApplicationStartup.DEFAULT);
+    startupTimeline.recordPhase("warm-up", 40);
+
+    startupTimeline.afterCompletion(null, null, null, null);
+    long firstRequest = startupTimeline.getPhases().get("first-request");
+    startupTimeline.recordPhase("late", 1);
+    startupTimeline.afterCompletion(null, null, null, null);
+
+    assertThat(startupTimeline.getPhases())
+        .containsExactly(
+            entry("warm-up", 40L), entry("late", 1L), entry("first-request", firstRequest));
+  }
+
+  @Test
+  @DisplayName("The phases should be exposed as gauges, with zero for phases not reached yet")
+  public void bindTo_registry_exposesPhases() {
+    StartupTimeline startupTimeline = new StartupTimeline(ApplicationStartup.DEFAULT);
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    startupTimeline.bindTo(registry);
+
+    startupTimeline.recordPhase("warm-up", 40);
+
+    assertThat(phaseMillis(registry, "warm-up")).isEqualTo(40);
+    assertThat(phaseMillis(registry, "first-request")).isZero();
+    assertThat(
+            registry
+                .get("wallet.startup.first.request.target")
+                .timeGauge()
+                .value(TimeUnit.MILLISECONDS))
+        .isEqualTo(10_000);
+  }
+
+  private static StartupStep beanStep(ApplicationStartup applicationStartup, String beanName) {
+    return applicationStartup.start("spring.beans.instantiate").tag("beanName", beanName);
+  }
+
+  private static ApplicationReadyEvent readyEvent(Duration timeTaken) {
+    return new ApplicationReadyEvent(
+        mock(SpringApplication.class),
+        new String[0],
+        mock(ConfigurableApplicationContext.class),
+        timeTaken);
+  }
+
+  private static double phaseMillis(SimpleMeterRegistry registry, String phase) {
+    return registry
+        .get("wallet.startup.phase")
+        .tag("phase", phase)
+        .timeGauge()
+        .value(TimeUnit.MILLISECONDS);
+  }
+}
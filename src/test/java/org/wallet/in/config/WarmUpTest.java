@@ -0,0 +1,128 @@
+package org.wallet.in.config;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.testcontainers.containers.DockerComposeContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.wallet.domain.repository.DatabaseConnection;
+import org.wallet.in.codec.WalletCodec;
+
+@Testcontainers
+public class WarmUpTest {
+
+  private static final int POSTGRES_PORT = 5432;
+
+  @Container
+  private static final DockerComposeContainer DOCKER_COMPOSE_CONTAINER =
+      new DockerComposeContainer(new File("src/test/java/resources/docker-compose-test.yml"))
+          .withExposedService("postgres", POSTGRES_PORT)
+          .withLocalCompose(true)
+          .withOptions("--compatibility");
+
+  private static String serverUrl;
+
+  private StartupTimeline startupTimeline;
+
+  @BeforeAll
+  public static void setUp() {
+    serverUrl =
+        "jdbc:postgresql://"
+            + DOCKER_COMPOSE_CONTAINER.getServiceHost("postgres", POSTGRES_PORT)
+            + ":"
+            + DOCKER_COMPOSE_CONTAINER.getServicePort("postgres", POSTGRES_PORT)
+            + "/";
+  }
+
+  @BeforeEach
+  public void setUpBeforeEach() {
+    startupTimeline = new StartupTimeline(ApplicationStartup.DEFAULT);
+  }
+
+  @Test
+  @DisplayName("Should not warm up unless enabled")
+  public void run_disabled_doesNothing() {
+    warmUp(false, serverUrl + "wallet_warmup").run(null);
+
+    assertThat(startupTimeline.getPhases()).doesNotContainKey("warm-up");
+    assertThat(databasesLike("wallet_warmup%")).isZero();
+  }
+
+  @Test
+  @DisplayName("Should warm up the paths that need no database without a warm-up URL")
+  public void run_withoutUrl_recordsPhase() {
+    warmUp(true, "").run(null);
+
+    assertThat(startupTimeline.getPhases()).containsKey("warm-up");
+  }
+
+  @Test
+  @DisplayName("Should warm up on a scratch database of its own and drop it afterwards")
+  public void run_withUrl_dropsScratchDatabase() {
+    warmUp(true, serverUrl + "wallet_warmup").run(null);
+
+    assertThat(startupTimeline.getPhases()).containsKey("warm-up");
+    assertThat(databasesLike("wallet_warmup%")).isZero();
+    assertThat(databasesLike("wallet")).isOne();
+  }
+
+  @Test
+  @DisplayName("Should log a failing warm-up and let the application start")
+  public void run_unreachableServer_returns() {
+    WarmUp warmUp = warmUp(true, "jdbc:postgresql://localhost:1/wallet_warmup");
+
+    assertThatCode(() -> warmUp.run(null)).doesNotThrowAnyException();
+    assertThat(startupTimeline.getPhases()).doesNotContainKey("warm-up");
+  }
+
+  @Test
+  @DisplayName("Should name the scratch database after the instance within the identifier limit")
+  public void scratchDatabaseName_sanitizedAndTruncated() {
+    String url = "jdbc:postgresql://localhost:5432/wallet_warmup?ssl=false";
+
+    assertThat(WarmUp.scratchDatabaseName(url, "Pod-A.example_42"))
+        .isEqualTo("wallet_warmup_pod_a_example_42");
+    assertThat(WarmUp.scratchDatabaseName(url, "x".repeat(100))).hasSize(63);
+    assertThat(WarmUp.withDatabase(url, "postgres"))
+        .isEqualTo("jdbc:postgresql://localhost:5432/postgres?ssl=false");
+  }
+
+  private WarmUp warmUp(boolean enabled, String url) {
+    return new WarmUp(
+        WalletCodec.json(),
+        startupTimeline,
+        mock(ApplicationContext.class),
+        enabled,
+        url,
+        10,
+        3,
+        false);
+  }
+
+  private static int databasesLike(String pattern) {
+    try (Connection connection =
+            new DatabaseConnection(serverUrl + "postgres").getConnection();
+        PreparedStatement statement =
+            connection.prepareStatement("SELECT count(*) FROM pg_database WHERE datname LIKE ?")) {
+      statement.setString(1, pattern);
+      try (ResultSet resultSet = statement.executeQuery()) {
+        resultSet.next();
+        return resultSet.getInt(1);
+      }
+    } catch (SQLException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
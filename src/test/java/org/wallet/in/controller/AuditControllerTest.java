@@ -19,14 +19,20 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.wallet.application.WalletApplication;
+import org.wallet.domain.model.ActionCount;
 import org.wallet.domain.model.Log;
 import org.wallet.domain.model.LogAction;
+import org.wallet.domain.model.RollupInterval;
+import org.wallet.domain.repository.log.LogQuery;
 import org.wallet.in.config.RestResponseEntityExceptionHandler;
+import org.wallet.in.push.AuditStream;
 
 public class AuditControllerTest {
 
   @Mock private WalletApplication walletApplication;
 
+  @Mock private AuditStream auditStream;
+
   @InjectMocks private AuditController auditController;
 
   private MockMvc mockMvc;
@@ -59,4 +65,66 @@ public class AuditControllerTest {
         .andExpect(jsonPath("$[1].action").value("AUTHORIZATION"))
         .andExpect(jsonPath("$[1].username").value("test2"));
   }
+
+  @Test
+  @DisplayName("Retrieve the audit logs of the requested time range")
+  void getLogs_timeRange() throws Exception {
+    LocalDateTime from = LocalDateTime.of(2023, 11, 1, 0, 0);
+    LocalDateTime to = LocalDateTime.of(2023, 12, 1, 0, 0);
+    Log log = new Log(from.plusDays(3), LogAction.REGISTRATION, "test1", "test");
+
+    when(walletApplication.getLogMessages(from, to)).thenReturn(List.of(log));
+
+    mockMvc
+        .perform(
+            get("/logs")
+                .param("from", "2023-11-01T00:00:00")
+                .param("to", "2023-12-01T00:00:00")
+                .contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(1))
+        .andExpect(jsonPath("$[0].action").value("REGISTRATION"))
+        .andExpect(jsonPath("$[0].username").value("test1"));
+  }
+
+  @Test
+  @DisplayName("Retrieve a page of the audit logs of a user")
+  void getLogs_userPage() throws Exception {
+    Log log = new Log(LocalDateTime.now(), LogAction.TRANSACTION, "test1", "test");
+
+    when(walletApplication.getLogMessages(new LogQuery(null, null, "test1", 10, 5)))
+        .thenReturn(List.of(log));
+
+    mockMvc
+        .perform(
+            get("/logs")
+                .param("username", "test1")
+                .param("offset", "10")
+                .param("limit", "5")
+                .contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(1))
+        .andExpect(jsonPath("$[0].username").value("test1"));
+  }
+
+  @Test
+  @DisplayName("Retrieve the number of audit logs per interval and action")
+  void getActionCounts() throws Exception {
+    LocalDateTime from = LocalDateTime.of(2023, 11, 1, 0, 0);
+    LocalDateTime to = LocalDateTime.of(2023, 11, 2, 0, 0);
+
+    when(walletApplication.getActionCounts(from, to, RollupInterval.HOUR))
+        .thenReturn(List.of(new ActionCount(from, LogAction.AUTHORIZATION, 42)));
+
+    mockMvc
+        .perform(
+            get("/analytics")
+                .param("from", "2023-11-01T00:00:00")
+                .param("to", "2023-11-02T00:00:00")
+                .contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[0].bucket").value("2023-11-01T00:00:00"))
+        .andExpect(jsonPath("$[0].action").value("AUTHORIZATION"))
+        .andExpect(jsonPath("$[0].count").value(42));
+  }
 }
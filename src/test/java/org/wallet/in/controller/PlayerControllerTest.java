@@ -1,26 +1,40 @@
 package org.wallet.in.controller;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.OptionalLong;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.wallet.application.WalletApplication;
 import org.wallet.domain.dto.request.JwtTokenResponseDto;
 import org.wallet.domain.dto.request.PlayerRequestDto;
+import org.wallet.domain.model.Player;
+import org.wallet.exception.PlayerNotFoundException;
+import org.wallet.in.config.LedgerETags;
 import org.wallet.in.config.RestResponseEntityExceptionHandler;
+import org.wallet.in.push.BalanceStream;
 import org.wallet.utils.JwtTokenUtility;
 
 public class PlayerControllerTest {
@@ -28,6 +42,8 @@ public class PlayerControllerTest {
   @InjectMocks private PlayerController playerController;
 
   @Mock private WalletApplication walletApplication;
+  @Mock private BalanceStream balanceStream;
+  @Spy private LedgerETags ledgerETags = new LedgerETags();
   private MockMvc mockMvc;
   private PlayerRequestDto playerRequestDto;
 
@@ -72,7 +88,11 @@ public class PlayerControllerTest {
     JwtTokenResponseDto jwtTokenResponseDto =
         new JwtTokenResponseDto(JwtTokenUtility.createJwtToken("testLogin"));
 
-    when(walletApplication.getBalanceOfPlayer("testLogin")).thenReturn(BigDecimal.valueOf(100.00));
+    when(walletApplication.getLedgerVersion("testLogin")).thenReturn(OptionalLong.of(7));
+    Player player = new Player("testLogin", "password");
+    player.credit(BigDecimal.valueOf(100.00));
+    player.setLedgerVersion(7);
+    when(walletApplication.getPlayerSnapshotByLogin("testLogin")).thenReturn(player);
 
     mockMvc
         .perform(
@@ -80,6 +100,82 @@ public class PlayerControllerTest {
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(new ObjectMapper().writeValueAsString(jwtTokenResponseDto)))
         .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.ETAG, LedgerETags.eTag("testLogin", 7)))
         .andExpect(jsonPath("$.balance").value(100.00));
   }
+
+  @Test
+  @DisplayName("A balance request with the current ETag is answered without reading the balance")
+  public void testGetBalance_notModified() throws Exception {
+    JwtTokenResponseDto jwtTokenResponseDto =
+        new JwtTokenResponseDto(JwtTokenUtility.createJwtToken("testLogin"));
+
+    when(walletApplication.getLedgerVersion("testLogin")).thenReturn(OptionalLong.of(7));
+
+    mockMvc
+        .perform(
+            get("/balance")
+                .header(HttpHeaders.IF_NONE_MATCH, LedgerETags.eTag("testLogin", 7))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsString(jwtTokenResponseDto)))
+        .andExpect(status().isNotModified())
+        .andExpect(content().string(""));
+
+    verify(walletApplication, never()).getPlayerSnapshotByLogin("testLogin");
+    assertEquals(1, ledgerETags.getNotModifiedCount(LedgerETags.Resource.BALANCE));
+  }
+
+  @Test
+  @DisplayName("Retrieve the balance of an authenticated player at a past time")
+  public void testGetBalanceAt() throws Exception {
+    JwtTokenResponseDto jwtTokenResponseDto =
+        new JwtTokenResponseDto(JwtTokenUtility.createJwtToken("testLogin"));
+    LocalDateTime timestamp = LocalDateTime.of(2023, 11, 1, 14, 5);
+
+    when(walletApplication.getBalanceAt("testLogin", timestamp))
+        .thenReturn(BigDecimal.valueOf(150.5));
+
+    mockMvc
+        .perform(
+            get("/balance/at")
+                .param("timestamp", "2023-11-01T14:05:00")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsString(jwtTokenResponseDto)))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.balance").value(150.5));
+  }
+
+  @Test
+  @DisplayName("Retrieving a past balance without a valid token should return 401")
+  public void testGetBalanceAt_invalidToken() throws Exception {
+    mockMvc
+        .perform(
+            get("/balance/at")
+                .param("timestamp", "2023-11-01T14:05:00")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(
+                    new ObjectMapper().writeValueAsString(new JwtTokenResponseDto("invalid"))))
+        .andExpect(status().isUnauthorized());
+
+    verify(walletApplication, never()).getBalanceAt(any(), any());
+  }
+
+  @Test
+  @DisplayName("Retrieving the past balance of an unknown player should return 404")
+  public void testGetBalanceAt_unknownPlayer() throws Exception {
+    JwtTokenResponseDto jwtTokenResponseDto =
+        new JwtTokenResponseDto(JwtTokenUtility.createJwtToken("unknown"));
+    LocalDateTime timestamp = LocalDateTime.of(2023, 11, 1, 14, 5);
+
+    when(walletApplication.getBalanceAt("unknown", timestamp))
+        .thenThrow(new PlayerNotFoundException());
+
+    mockMvc
+        .perform(
+            get("/balance/at")
+                .param("timestamp", "2023-11-01T14:05:00")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsString(jwtTokenResponseDto)))
+        .andExpect(status().isNotFound());
+  }
 }
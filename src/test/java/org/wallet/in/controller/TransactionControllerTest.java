@@ -1,21 +1,31 @@
 package org.wallet.in.controller;
 
-import static org.mockito.Mockito.doNothing;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import java.math.BigDecimal;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
@@ -23,8 +33,18 @@ import org.wallet.application.WalletApplication;
 import org.wallet.domain.dto.mapper.TransactionMapper;
 import org.wallet.domain.dto.request.JwtTokenResponseDto;
 import org.wallet.domain.dto.request.TransactionRequestDto;
+import org.wallet.domain.dto.request.TransferRequestDto;
+import org.wallet.domain.dto.response.TransactionResponseDto;
+import org.wallet.domain.model.Ledger;
+import org.wallet.domain.model.LedgerPage;
 import org.wallet.domain.model.Transaction;
+import org.wallet.domain.model.TransactionOutcome;
+import org.wallet.domain.model.TransactionStatus;
 import org.wallet.domain.model.TransactionType;
+import org.wallet.domain.model.Transfer;
+import org.wallet.in.codec.WalletCodec;
+import org.wallet.in.codec.WalletHttpMessageConverter;
+import org.wallet.in.config.LedgerETags;
 import org.wallet.in.config.RestResponseEntityExceptionHandler;
 import org.wallet.utils.JwtTokenUtility;
 
@@ -32,6 +52,8 @@ class TransactionControllerTest {
 
   @Mock private WalletApplication walletApplication;
 
+  @Spy private LedgerETags ledgerETags = new LedgerETags();
+
   @InjectMocks private TransactionController transactionController;
 
   private MockMvc mockMvc;
@@ -58,14 +80,95 @@ class TransactionControllerTest {
     Transaction transaction =
         TransactionMapper.INSTANCE.transactionRequestDtoToTransaction(requestDto);
 
-    doNothing().when(walletApplication).registerTransaction(transaction);
+    var outcome = TransactionOutcome.applied(transaction, BigDecimal.TEN);
+
+    when(walletApplication.replayTransaction(transaction)).thenReturn(Optional.empty());
+    when(walletApplication.registerTransaction(transaction)).thenReturn(outcome);
 
     mockMvc
         .perform(
             post("/transaction")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(new ObjectMapper().writeValueAsBytes(requestDto)))
-        .andExpect(status().isCreated());
+        .andExpect(status().isCreated())
+        .andExpect(
+            content()
+                .json(
+                    new ObjectMapper()
+                        .writeValueAsString(
+                            TransactionMapper.INSTANCE
+                                .transactionOutcomeToTransactionOutcomeResponseDto(outcome))));
+  }
+
+  @Test
+  @DisplayName("Retry of a registered transaction returns the original outcome")
+  void createTransaction_retry_returnsReplayedOutcome() throws Exception {
+    TransactionRequestDto requestDto = new TransactionRequestDto();
+    requestDto.setTransactionId("1L");
+    requestDto.setTransactionType("CREDIT");
+    requestDto.setAmount(BigDecimal.TEN);
+    requestDto.setJwtToken(JwtTokenUtility.createJwtToken("test"));
+
+    Transaction transaction =
+        TransactionMapper.INSTANCE.transactionRequestDtoToTransaction(requestDto);
+    var outcome = TransactionOutcome.applied(transaction, BigDecimal.TEN).asReplay();
+
+    when(walletApplication.replayTransaction(transaction)).thenReturn(Optional.of(outcome));
+
+    mockMvc
+        .perform(
+            post("/transaction")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsBytes(requestDto)))
+        .andExpect(status().isCreated())
+        .andExpect(content().json("{\"status\":\"REPLAYED\",\"balance\":10}"));
+
+    verify(walletApplication, never()).registerTransaction(transaction);
+  }
+
+  @Test
+  @DisplayName("Transfer money from the authenticated player to another player")
+  void createTransfer() throws Exception {
+    TransferRequestDto requestDto = new TransferRequestDto();
+    requestDto.setTransferId("t1");
+    requestDto.setRecipientLogin("recipient");
+    requestDto.setAmount(BigDecimal.TEN);
+    requestDto.setJwtToken(JwtTokenUtility.createJwtToken("test"));
+
+    Transfer transfer = new Transfer("t1", "test", "recipient", BigDecimal.TEN);
+    var outcome =
+        new TransactionOutcome(
+            "t1",
+            TransactionType.DEBIT,
+            BigDecimal.TEN,
+            new BigDecimal("90"),
+            TransactionStatus.APPLIED);
+
+    when(walletApplication.transfer(transfer)).thenReturn(outcome);
+
+    mockMvc
+        .perform(
+            post("/transfer")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsBytes(requestDto)))
+        .andExpect(status().isCreated())
+        .andExpect(content().json("{\"status\":\"APPLIED\",\"balance\":90}"));
+  }
+
+  @Test
+  @DisplayName("Transfer without a recipient is rejected")
+  void createTransfer_withoutRecipient_returnsBadRequest() throws Exception {
+    TransferRequestDto requestDto = new TransferRequestDto();
+    requestDto.setTransferId("t1");
+    requestDto.setAmount(BigDecimal.TEN);
+    requestDto.setJwtToken(JwtTokenUtility.createJwtToken("test"));
+
+    mockMvc
+        .perform(
+            post("/transfer")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsBytes(requestDto)))
+        .andExpect(status().isBadRequest());
   }
 
   @Test
@@ -80,7 +183,7 @@ class TransactionControllerTest {
             new Transaction(login, "id1", TransactionType.CREDIT, new BigDecimal("100.00")),
             new Transaction(login, "id2", TransactionType.DEBIT, new BigDecimal("50.00")));
 
-    when(walletApplication.getTransactionsOfPlayer(login)).thenReturn(transactions);
+    when(walletApplication.getLedgerOfPlayer(login)).thenReturn(new Ledger(2, transactions));
 
     var answer =
         transactions.stream()
@@ -95,4 +198,139 @@ class TransactionControllerTest {
         .andExpect(status().isOk())
         .andExpect(content().json(new ObjectMapper().writeValueAsString(answer)));
   }
+
+  @Test
+  @DisplayName("A page of transactions links to the page preceding it")
+  void getAllTransactions_page() throws Exception {
+    var login = "test";
+    JwtTokenResponseDto request = new JwtTokenResponseDto(JwtTokenUtility.createJwtToken(login));
+    var transactions =
+        List.of(new Transaction(login, "id2", TransactionType.DEBIT, new BigDecimal("50.00")));
+
+    when(walletApplication.getLedgerPageOfPlayer(login, "17", 1))
+        .thenReturn(new LedgerPage(2, transactions, "12"));
+
+    mockMvc
+        .perform(
+            get("/transactions")
+                .param("before", "17")
+                .param("limit", "1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsBytes(request)))
+        .andExpect(status().isOk())
+        .andExpect(
+            header()
+                .string(
+                    HttpHeaders.LINK,
+                    "<http://localhost/transactions?before=12&limit=1>; rel=\"next\""))
+        .andExpect(header().string(HttpHeaders.ETAG, LedgerETags.eTag(login, 2)))
+        .andExpect(content().json("[{\"transactionId\":\"id2\"}]"));
+
+    verify(walletApplication, never()).getLedgerOfPlayer(login);
+  }
+
+  @Test
+  @DisplayName("A changed ledger is sent again to a client holding an older ETag")
+  void getAllTransactions_staleETag() throws Exception {
+    var login = "test";
+    JwtTokenResponseDto request = new JwtTokenResponseDto(JwtTokenUtility.createJwtToken(login));
+    var transactions =
+        List.of(new Transaction(login, "id1", TransactionType.CREDIT, new BigDecimal("100.00")));
+
+    when(walletApplication.getLedgerVersion(login)).thenReturn(OptionalLong.of(2));
+    when(walletApplication.getLedgerOfPlayer(login)).thenReturn(new Ledger(2, transactions));
+
+    mockMvc
+        .perform(
+            get("/transactions")
+                .header(HttpHeaders.IF_NONE_MATCH, LedgerETags.eTag(login, 1))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsBytes(request)))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.ETAG, LedgerETags.eTag(login, 2)))
+        .andExpect(content().json("[{\"transactionId\":\"id1\"}]"));
+  }
+
+  @Test
+  @DisplayName("The ETag of a response is the version the transactions were read at")
+  void getAllTransactions_versionAheadOfTransactions() throws Exception {
+    var login = "test";
+    JwtTokenResponseDto request = new JwtTokenResponseDto(JwtTokenUtility.createJwtToken(login));
+    var transactions =
+        List.of(new Transaction(login, "id1", TransactionType.CREDIT, new BigDecimal("100.00")));
+
+    when(walletApplication.getLedgerVersion(login)).thenReturn(OptionalLong.of(3));
+    when(walletApplication.getLedgerOfPlayer(login)).thenReturn(new Ledger(2, transactions));
+
+    mockMvc
+        .perform(
+            get("/transactions")
+                .header(HttpHeaders.IF_NONE_MATCH, LedgerETags.eTag(login, 1))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsBytes(request)))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.ETAG, LedgerETags.eTag(login, 2)));
+  }
+
+  @Test
+  @DisplayName("A transactions request with the current ETag is answered without a query")
+  void getAllTransactions_notModified() throws Exception {
+    var login = "test";
+    JwtTokenResponseDto request = new JwtTokenResponseDto(JwtTokenUtility.createJwtToken(login));
+
+    when(walletApplication.getLedgerVersion(login)).thenReturn(OptionalLong.of(2));
+
+    mockMvc
+        .perform(
+            get("/transactions")
+                .header(HttpHeaders.IF_NONE_MATCH, LedgerETags.eTag(login, 2))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsBytes(request)))
+        .andExpect(status().isNotModified())
+        .andExpect(content().string(""));
+
+    verify(walletApplication, never()).getLedgerOfPlayer(login);
+    assertEquals(1, ledgerETags.getNotModifiedCount(LedgerETags.Resource.TRANSACTIONS));
+  }
+
+  @Test
+  @DisplayName("Retrieve all transactions encoded as CBOR when the client accepts it")
+  void getAllTransactions_cbor() throws Exception {
+    var login = "test";
+    JwtTokenResponseDto request = new JwtTokenResponseDto(JwtTokenUtility.createJwtToken(login));
+    var transactions =
+        Arrays.asList(
+            new Transaction(login, "id1", TransactionType.CREDIT, new BigDecimal("100.00")),
+            new Transaction(login, "id2", TransactionType.DEBIT, new BigDecimal("50.00")));
+
+    when(walletApplication.getLedgerOfPlayer(login)).thenReturn(new Ledger(2, transactions));
+
+    MockMvc binaryMockMvc =
+        MockMvcBuilders.standaloneSetup(transactionController)
+            .setMessageConverters(
+                WalletHttpMessageConverter.json(WalletCodec.json()),
+                WalletHttpMessageConverter.cbor(WalletCodec.cbor()))
+            .build();
+
+    byte[] body =
+        binaryMockMvc
+            .perform(
+                get("/transactions")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .accept(MediaType.APPLICATION_CBOR)
+                    .content(new ObjectMapper().writeValueAsBytes(request)))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+            .andReturn()
+            .getResponse()
+            .getContentAsByteArray();
+
+    List<TransactionResponseDto> answer =
+        new CBORMapper().readValue(body, new TypeReference<List<TransactionResponseDto>>() {});
+    assertEquals(
+        transactions.stream()
+            .map(TransactionMapper.INSTANCE::transactionToTransactionResponseDto)
+            .toList(),
+        answer);
+  }
 }
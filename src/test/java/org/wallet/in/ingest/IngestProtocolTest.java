@@ -0,0 +1,83 @@
+package org.wallet.in.ingest;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.wallet.domain.model.TransactionType;
+import org.wallet.in.ingest.IngestProtocol.Ack;
+import org.wallet.in.ingest.IngestProtocol.Frame;
+import org.wallet.in.ingest.IngestProtocol.Hello;
+import org.wallet.in.ingest.IngestProtocol.Submit;
+
+public class IngestProtocolTest {
+
+  @Test
+  @DisplayName("Frames are read back as written, in order")
+  void roundTrip() throws ProtocolException {
+    Frame[] frames = {
+      new Hello(1, "header.payload.signature"),
+      new Submit(2, "игрок", "tx-1", TransactionType.CREDIT, new BigDecimal("100.50")),
+      new Ack(2, IngestStatus.APPLIED, new BigDecimal("-0.01")),
+      new Ack(3, IngestStatus.UNAUTHORIZED, null)
+    };
+    ByteBuffer buffer = ByteBuffer.allocate(1024);
+    for (Frame frame : frames) {
+      IngestProtocol.write(frame, buffer);
+    }
+    buffer.flip();
+
+    for (Frame frame : frames) {
+      assertThat(IngestProtocol.read(buffer)).isEqualTo(frame);
+    }
+    assertThat(IngestProtocol.read(buffer)).isNull();
+  }
+
+  @Test
+  @DisplayName("An incomplete frame is left in the buffer until the rest arrives")
+  void incompleteFrame() throws ProtocolException {
+    ByteBuffer frame = ByteBuffer.allocate(1024);
+    IngestProtocol.write(new Hello(1, "token"), frame);
+    frame.flip();
+    ByteBuffer buffer = ByteBuffer.allocate(1024);
+    buffer.put(frame.array(), 0, frame.limit() - 1).flip();
+
+    assertThat(IngestProtocol.read(buffer)).isNull();
+    assertThat(buffer.position()).isZero();
+
+    buffer.compact().put(frame.array()[frame.limit() - 1]).flip();
+    assertThat(IngestProtocol.read(buffer)).isEqualTo(new Hello(1, "token"));
+  }
+
+  @Test
+  @DisplayName("Malformed frames are rejected")
+  void malformedFrames() {
+    ByteBuffer tooLong = ByteBuffer.allocate(8).putInt(IngestProtocol.MAX_FRAME_BYTES + 1).flip();
+    ByteBuffer unknownKind = ByteBuffer.allocate(32).putInt(9).put((byte) 9).putLong(1).flip();
+    ByteBuffer truncatedString =
+        ByteBuffer.allocate(32).putInt(11).put(IngestProtocol.HELLO).putLong(1).putShort((short) 5);
+    truncatedString.flip();
+
+    assertThatThrownBy(() -> IngestProtocol.read(tooLong)).isInstanceOf(ProtocolException.class);
+    assertThatThrownBy(() -> IngestProtocol.read(unknownKind))
+        .isInstanceOf(ProtocolException.class);
+    assertThatThrownBy(() -> IngestProtocol.read(truncatedString))
+        .isInstanceOf(ProtocolException.class);
+  }
+
+  @Test
+  @DisplayName("An amount that does not fit leaves the buffer unchanged")
+  void amountOutOfRange() {
+    ByteBuffer buffer = ByteBuffer.allocate(1024);
+
+    assertThatThrownBy(
+            () ->
+                IngestProtocol.write(
+                    new Ack(1, IngestStatus.APPLIED, new BigDecimal("1e30").setScale(2)), buffer))
+        .isInstanceOf(ArithmeticException.class);
+    assertThat(buffer.position()).isZero();
+  }
+}
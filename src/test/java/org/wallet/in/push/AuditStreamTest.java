@@ -0,0 +1,277 @@
+package org.wallet.in.push;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.wallet.domain.dto.response.LogResponseDto;
+import org.wallet.domain.model.Log;
+import org.wallet.domain.model.LogAction;
+import org.wallet.domain.repository.log.SegmentedLogRepository;
+import org.wallet.domain.service.AuditFeed;
+import org.wallet.utils.WalletProperties;
+
+public class AuditStreamTest {
+
+  private static final int HISTORY =
+      WalletProperties.get(WalletProperties.Audit.class).stream().history();
+
+  @TempDir Path directory;
+
+  private SegmentedLogRepository logRepository;
+  private AuditFeed auditFeed;
+  private AuditStream auditStream;
+
+  @BeforeEach
+  void setUp() {
+    open();
+  }
+
+  @AfterEach
+  void tearDown() {
+    close();
+  }
+
+  @Test
+  @DisplayName("Only the entries of the requested user and actions are streamed, in order")
+  void filters() throws InterruptedException {
+    RecordingEmitter emitter = new RecordingEmitter();
+    auditStream.attach(null, "alice", Set.of(LogAction.TRANSACTION), emitter);
+
+    long first = append(LogAction.TRANSACTION, "alice");
+    append(LogAction.AUTHORIZATION, "alice");
+    append(LogAction.TRANSACTION, "bob");
+    long last = append(LogAction.TRANSACTION, "alice");
+    await(() -> emitter.events().size() == 2);
+
+    assertThat(emitter.events())
+        .extracting(Event::id)
+        .containsExactly(Long.toString(first), Long.toString(last));
+    assertThat(emitter.events())
+        .allMatch(event -> event.name().equals(AuditStream.LOG_EVENT))
+        .allMatch(event -> ((LogResponseDto) event.data()).getUsername().equals("alice"));
+  }
+
+  @Test
+  @DisplayName("A reconnecting client receives the entries after the last one it has seen")
+  void resume() throws InterruptedException {
+    RecordingEmitter emitter = new RecordingEmitter();
+    auditStream.attach(null, null, null, emitter);
+    append(LogAction.REGISTRATION, "alice");
+    long lastSeen = append(LogAction.AUTHORIZATION, "alice");
+    await(() -> emitter.events().size() == 2);
+
+    List<Long> missed = new ArrayList<>();
+    missed.add(append(LogAction.TRANSACTION, "alice"));
+    missed.add(append(LogAction.TRANSACTION, "bob"));
+    RecordingEmitter resumed = new RecordingEmitter();
+    auditStream.attach(lastSeen, null, null, resumed);
+    missed.add(append(LogAction.TRANSACTION, "alice"));
+    await(() -> resumed.events().size() == 3);
+
+    assertThat(resumed.events())
+        .extracting(Event::id)
+        .containsExactlyElementsOf(missed.stream().map(Object::toString).toList());
+  }
+
+  @Test
+  @DisplayName("A client resuming after a restart receives the entries stored after its last one")
+  void resumeAfterRestart() throws InterruptedException {
+    append(LogAction.REGISTRATION, "alice");
+    long lastSeen = append(LogAction.AUTHORIZATION, "alice");
+    long missed = append(LogAction.TRANSACTION, "alice");
+    close();
+    open();
+
+    RecordingEmitter emitter = new RecordingEmitter();
+    auditStream.attach(lastSeen, null, null, emitter);
+    long recorded = append(LogAction.TRANSACTION, "bob");
+    await(() -> emitter.events().size() == 2);
+
+    assertThat(emitter.events())
+        .extracting(Event::id)
+        .containsExactly(Long.toString(missed), Long.toString(recorded));
+  }
+
+  @Test
+  @DisplayName("Resuming after more entries than are replayed starts with a reset event")
+  void resumeAfterGap() throws InterruptedException {
+    long lastSeen = append(LogAction.REGISTRATION, "alice");
+    append(LogAction.TRANSACTION, "alice");
+    List<Long> replayed = new ArrayList<>();
+    for (int i = 0; i < HISTORY; i++) {
+      replayed.add(append(LogAction.TRANSACTION, "bob"));
+    }
+    RecordingEmitter emitter = new RecordingEmitter();
+    auditStream.attach(lastSeen, null, null, emitter);
+    await(() -> emitter.events().size() == HISTORY + 1);
+
+    assertThat(emitter.events().get(0).name()).isEqualTo(AuditStream.RESET_EVENT);
+    assertThat(LocalDateTime.parse((String) emitter.events().get(0).data())).isNotNull();
+    assertThat(emitter.events().subList(1, HISTORY + 1))
+        .extracting(Event::id)
+        .containsExactlyElementsOf(replayed.stream().map(Object::toString).toList());
+  }
+
+  @Test
+  @DisplayName("Entries recorded concurrently are delivered once each")
+  void concurrentRecording() throws InterruptedException {
+    List<Long> delivered = new ArrayList<>();
+    auditFeed.subscribe(
+        entry -> {
+          synchronized (delivered) {
+            delivered.add(entry.id());
+          }
+        });
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      Thread thread =
+          new Thread(
+              () -> {
+                for (int j = 0; j < 1_000; j++) {
+                  append(LogAction.TRANSACTION, "alice");
+                }
+              });
+      thread.start();
+      threads.add(thread);
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    synchronized (delivered) {
+      assertThat(delivered).hasSize(4_000).doesNotHaveDuplicates();
+    }
+  }
+
+  @Test
+  @DisplayName("A subscriber that does not keep up is evicted without blocking the recording")
+  void slowConsumerEviction() throws InterruptedException {
+    CountDownLatch release = new CountDownLatch(1);
+    RecordingEmitter slow = new RecordingEmitter(release);
+    RecordingEmitter fast = new RecordingEmitter();
+    auditStream.attach(null, null, null, slow);
+    auditStream.attach(null, null, null, fast);
+
+    for (int round = 1; round <= 5; round++) {
+      long start = System.nanoTime();
+      for (int i = 0; i < 500; i++) {
+        append(LogAction.TRANSACTION, "player-" + i);
+      }
+      assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1_000);
+      int sent = round * 500;
+      await(() -> fast.events().size() == sent);
+    }
+
+    await(() -> slow.completed);
+    assertThat(auditStream.getSubscriberCount()).isEqualTo(1);
+    assertThat(fast.completed).isFalse();
+    release.countDown();
+  }
+
+  private void open() {
+    logRepository = new SegmentedLogRepository(directory, 1 << 20);
+    logRepository.init();
+    auditFeed = new AuditFeed(logRepository);
+    auditStream = new AuditStream(auditFeed);
+    auditStream.start();
+  }
+
+  private void close() {
+    auditStream.close();
+    logRepository.close();
+  }
+
+  /** Records an entry the way the audit service does. */
+  private long append(LogAction action, String username) {
+    Log log = new Log(action, username, action.getDetails());
+    long id = logRepository.addLog(log);
+    auditFeed.append(id, log);
+    return id;
+  }
+
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+    while (!condition.getAsBoolean()) {
+      assertThat(System.nanoTime()).as("Timed out waiting").isLessThan(deadline);
+      Thread.sleep(10);
+    }
+  }
+
+  /** An event sent to a connection. */
+  private record Event(String id, String name, Object data) {}
+
+  /** An emitter keeping the events sent to it, optionally blocking until released. */
+  private static class RecordingEmitter extends SseEmitter {
+
+    private final List<Event> events = new ArrayList<>();
+    private final CountDownLatch release;
+    private volatile boolean completed;
+
+    RecordingEmitter() {
+      this(null);
+    }
+
+    RecordingEmitter(CountDownLatch release) {
+      this.release = release;
+    }
+
+    @Override
+    public void send(SseEventBuilder builder) {
+      String id = null;
+      String name = null;
+      Object data = null;
+      boolean dataNext = false;
+      for (DataWithMediaType item : builder.build()) {
+        if (dataNext) {
+          data = item.getData();
+          dataNext = false;
+          continue;
+        }
+        String text = (String) item.getData();
+        for (String line : text.split("\n")) {
+          if (line.startsWith("id:")) {
+            id = line.substring(3);
+          } else if (line.startsWith("event:")) {
+            name = line.substring(6);
+          }
+        }
+        dataNext = text.endsWith("data:");
+      }
+      synchronized (events) {
+        events.add(new Event(id, name, data));
+      }
+      if (release != null) {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+
+    @Override
+    public void complete() {
+      completed = true;
+    }
+
+    List<Event> events() {
+      synchronized (events) {
+        return new ArrayList<>(events);
+      }
+    }
+  }
+}
@@ -0,0 +1,278 @@
+package org.wallet.in.push;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.wallet.application.WalletApplication;
+import org.wallet.domain.dto.response.BalanceResponseDto;
+import org.wallet.domain.dto.response.TransactionResponseDto;
+import org.wallet.domain.model.LedgerEvent;
+import org.wallet.domain.model.Player;
+import org.wallet.domain.model.Transaction;
+import org.wallet.domain.model.TransactionType;
+import org.wallet.domain.service.LedgerEventBus;
+
+public class BalanceStreamTest {
+
+  private static final BigDecimal INITIAL_BALANCE = new BigDecimal("100.00");
+
+  private static final AtomicLong LEDGER_VERSIONS = new AtomicLong();
+
+  private LedgerEventBus ledgerEventBus;
+  private WalletApplication walletApplication;
+  private BalanceStream balanceStream;
+
+  @BeforeEach
+  void setUp() {
+    walletApplication = mock(WalletApplication.class, withSettings().stubOnly());
+    Player player = new Player("player", "password");
+    player.setBalance(INITIAL_BALANCE);
+    when(walletApplication.getPlayerSnapshotByLogin(anyString())).thenReturn(player);
+    ledgerEventBus = new LedgerEventBus();
+    balanceStream = new BalanceStream(ledgerEventBus, walletApplication);
+    balanceStream.start();
+  }
+
+  @AfterEach
+  void tearDown() {
+    balanceStream.close();
+  }
+
+  @Test
+  @DisplayName("Tens of thousands of idle subscribers hold no thread and do not delay the others")
+  void idleSubscribers() throws InterruptedException {
+    int idle = 50_000;
+    int threads = Thread.activeCount();
+    CountingEmitter[] emitters = new CountingEmitter[idle];
+    for (int i = 0; i < idle; i++) {
+      emitters[i] = new CountingEmitter();
+      balanceStream.attach("player-" + i, emitters[i]);
+    }
+    await(() -> sum(emitters) == idle);
+    assertThat(balanceStream.getSubscriberCount()).isEqualTo(idle);
+    assertThat(Thread.activeCount() - threads).isLessThanOrEqualTo(4);
+
+    RecordingEmitter active = new RecordingEmitter();
+    balanceStream.attach("active", active);
+    long start = System.nanoTime();
+    for (int i = 0; i < 10; i++) {
+      ledgerEventBus.publish(event("active", "tx-" + i, BigDecimal.valueOf(101 + i)));
+    }
+    await(() -> active.balances().contains(BigDecimal.valueOf(110)));
+
+    assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(5_000);
+    assertThat(active.transactions()).hasSize(10);
+    assertThat(sum(emitters)).isEqualTo(idle);
+    assertThat(Thread.activeCount() - threads).isLessThanOrEqualTo(4);
+  }
+
+  @Test
+  @DisplayName("A burst of transactions is sent with a single balance after it")
+  void coalescing() throws InterruptedException {
+    RecordingEmitter emitter = new RecordingEmitter();
+    balanceStream.attach("player", emitter);
+    await(() -> emitter.balances().size() == 1);
+
+    for (int i = 0; i < 20; i++) {
+      ledgerEventBus.publish(event("player", "tx-" + i, BigDecimal.valueOf(101 + i)));
+    }
+    ledgerEventBus.publish(event("other", "tx-other", BigDecimal.ONE));
+    await(() -> emitter.transactions().size() == 20);
+    await(() -> emitter.balances().contains(BigDecimal.valueOf(120)));
+
+    assertThat(emitter.transactions())
+        .extracting(TransactionResponseDto::getTransactionId)
+        .containsExactly(
+            "tx-0", "tx-1", "tx-2", "tx-3", "tx-4", "tx-5", "tx-6", "tx-7", "tx-8", "tx-9",
+            "tx-10", "tx-11", "tx-12", "tx-13", "tx-14", "tx-15", "tx-16", "tx-17", "tx-18",
+            "tx-19");
+    assertThat(emitter.balances()).hasSizeLessThanOrEqualTo(3).first().isEqualTo(INITIAL_BALANCE);
+  }
+
+  @Test
+  @DisplayName("A transaction without a balance sends the balance read from the application")
+  void unknownBalance() throws InterruptedException {
+    RecordingEmitter emitter = new RecordingEmitter();
+    balanceStream.attach("recipient", emitter);
+    await(() -> emitter.balances().size() == 1);
+
+    ledgerEventBus.publish(event("recipient", "transfer:credit", null));
+    await(() -> emitter.balances().size() == 2);
+
+    assertThat(emitter.balances()).containsExactly(INITIAL_BALANCE, INITIAL_BALANCE);
+  }
+
+  @Test
+  @DisplayName("An event older than the last balance sends its transaction but not its balance")
+  void outOfOrderEvents() throws InterruptedException {
+    RecordingEmitter emitter = new RecordingEmitter();
+    balanceStream.attach("player", emitter);
+    await(() -> emitter.balances().size() == 1);
+
+    long version = LEDGER_VERSIONS.addAndGet(2);
+    ledgerEventBus.publish(event("player", "tx-new", BigDecimal.valueOf(130), version));
+    ledgerEventBus.publish(event("player", "tx-old", BigDecimal.valueOf(120), version - 1));
+    await(() -> emitter.transactions().size() == 2 && emitter.balances().size() == 2);
+
+    assertThat(emitter.balances()).containsExactly(INITIAL_BALANCE, BigDecimal.valueOf(130));
+  }
+
+  @Test
+  @DisplayName("A subscriber that does not keep up is evicted without slowing down the publisher")
+  void slowConsumerEviction() throws InterruptedException {
+    CountDownLatch release = new CountDownLatch(1);
+    RecordingEmitter slow = new RecordingEmitter(release);
+    RecordingEmitter fast = new RecordingEmitter();
+    balanceStream.attach("player", slow);
+    balanceStream.attach("player", fast);
+    await(() -> fast.balances().size() == 1);
+
+    for (int round = 1; round <= 5; round++) {
+      long start = System.nanoTime();
+      for (int i = 0; i < 30; i++) {
+        ledgerEventBus.publish(event("player", round + "-" + i, BigDecimal.valueOf(i)));
+      }
+      assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1_000);
+      int sent = round * 30;
+      await(() -> fast.transactions().size() == sent);
+    }
+
+    await(() -> slow.completed);
+    assertThat(balanceStream.getSubscriberCount()).isEqualTo(1);
+    assertThat(fast.completed).isFalse();
+    release.countDown();
+  }
+
+  @Test
+  @DisplayName("Writes blocked on clients that stopped reading time out without starving the rest")
+  void writeTimeout() throws InterruptedException {
+    balanceStream.close();
+    balanceStream = new BalanceStream(ledgerEventBus, walletApplication, 200);
+    balanceStream.start();
+    CountDownLatch release = new CountDownLatch(1);
+    for (int i = 0; i < 8; i++) {
+      balanceStream.attach("stalled-" + i, new RecordingEmitter(release));
+    }
+    await(() -> balanceStream.getSubscriberCount() == 0);
+
+    RecordingEmitter fast = new RecordingEmitter();
+    balanceStream.attach("fast", fast);
+    ledgerEventBus.publish(event("fast", "tx-fast", BigDecimal.TEN));
+    await(() -> fast.balances().contains(BigDecimal.TEN));
+
+    assertThat(fast.transactions()).hasSize(1);
+    assertThat(balanceStream.getSubscriberCount()).isEqualTo(1);
+    release.countDown();
+  }
+
+  private static LedgerEvent event(String login, String transactionId, BigDecimal balance) {
+    return event(login, transactionId, balance, LEDGER_VERSIONS.incrementAndGet());
+  }
+
+  private static LedgerEvent event(
+      String login, String transactionId, BigDecimal balance, long ledgerVersion) {
+    return new LedgerEvent(
+        new Transaction(login, transactionId, TransactionType.CREDIT, BigDecimal.ONE),
+        balance,
+        ledgerVersion);
+  }
+
+  private static long sum(CountingEmitter[] emitters) {
+    long sum = 0;
+    for (CountingEmitter emitter : emitters) {
+      sum += emitter.count.get();
+    }
+    return sum;
+  }
+
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+    while (!condition.getAsBoolean()) {
+      assertThat(System.nanoTime()).as("Timed out waiting").isLessThan(deadline);
+      Thread.sleep(10);
+    }
+  }
+
+  /** An emitter of an idle connection, counting the events sent to it. */
+  private static class CountingEmitter extends SseEmitter {
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public void send(SseEventBuilder builder) {
+      count.incrementAndGet();
+    }
+  }
+
+  /** An emitter keeping the data of the events sent to it, optionally blocking until released. */
+  private static class RecordingEmitter extends SseEmitter {
+
+    private final List<Object> data = new ArrayList<>();
+    private final CountDownLatch release;
+    private volatile boolean completed;
+
+    RecordingEmitter() {
+      this(null);
+    }
+
+    RecordingEmitter(CountDownLatch release) {
+      this.release = release;
+    }
+
+    @Override
+    public void send(SseEventBuilder builder) {
+      synchronized (data) {
+        for (DataWithMediaType item : builder.build()) {
+          if (!(item.getData() instanceof String)) {
+            data.add(item.getData());
+          }
+        }
+      }
+      if (release != null) {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+
+    @Override
+    public void complete() {
+      completed = true;
+    }
+
+    List<TransactionResponseDto> transactions() {
+      synchronized (data) {
+        return data.stream()
+            .filter(TransactionResponseDto.class::isInstance)
+            .map(TransactionResponseDto.class::cast)
+            .toList();
+      }
+    }
+
+    List<BigDecimal> balances() {
+      synchronized (data) {
+        return data.stream()
+            .filter(BalanceResponseDto.class::isInstance)
+            .map(item -> ((BalanceResponseDto) item).getBalance())
+            .toList();
+      }
+    }
+  }
+}
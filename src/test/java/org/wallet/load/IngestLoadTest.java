@@ -0,0 +1,262 @@
+package org.wallet.load;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.DockerComposeContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.wallet.WallerSpringApplication;
+import org.wallet.domain.model.TransactionType;
+import org.wallet.domain.repository.SyntheticDataLoader;
+import org.wallet.in.ingest.IngestClient;
+import org.wallet.in.ingest.IngestProtocol.Ack;
+import org.wallet.in.ingest.IngestServer;
+import org.wallet.in.ingest.IngestStatus;
+import org.wallet.utils.JwtTokenUtility;
+
+/**
+ * Drives the binary ingest listener with the bundled {@link IngestClient}, the way game servers
+ * submit transactions: a few long-lived sessions, every seeded player authenticated once per
+ * session, and pipelined submit frames. The application is started in-process against a
+ * disposable Postgres like in {@link LoadTest}, and the report is written to {@code
+ * target/load-reports} next to the reports of the HTTP scenarios.
+ *
+ * <p>The test is tagged {@code load} and only runs with {@code mvn test -Pload}. The arrival rate
+ * is multiplied by {@code load.scale}, the scenarios last {@code load.seconds} seconds and the
+ * report is named after {@code load.label}.
+ */
+@Tag("load")
+@Testcontainers
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class IngestLoadTest {
+
+  private static final double SCALE = Double.parseDouble(System.getProperty("load.scale", "1"));
+  private static final Duration DURATION =
+      Duration.ofSeconds(Long.parseLong(System.getProperty("load.seconds", "20")));
+  private static final String LABEL = System.getProperty("load.label", "local");
+
+  private static final int PLAYERS = 2_000;
+  private static final double SKEW = 1.1;
+
+  /** The number of sessions, like the number of game servers. */
+  private static final int SESSIONS = 4;
+
+  /** The largest number of frames in flight per session. */
+  private static final int WINDOW = 1_024;
+
+  @Container
+  private static final DockerComposeContainer DOCKER_COMPOSE_CONTAINER =
+      new DockerComposeContainer(new File("src/test/java/resources/docker-compose-load.yml"))
+          .withLocalCompose(true)
+          .withOptions("--compatibility");
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+  private static final List<Map<String, Object>> RESULTS = new ArrayList<>();
+
+  private static ConfigurableApplicationContext application;
+  private static IngestClient[] clients;
+  private static String prefix;
+  private static double[] cumulativeWeights;
+
+  @BeforeAll
+  public static void setUp() throws Exception {
+    prefix = "ingest" + System.currentTimeMillis();
+    SyntheticDataLoader.main(
+        "--prefix=" + prefix,
+        "--players=" + PLAYERS,
+        "--transactions=" + PLAYERS * 20L,
+        "--skew=" + SKEW,
+        "--days=30",
+        "--threads=2");
+    cumulativeWeights = new double[PLAYERS];
+    double sum = 0;
+    for (int i = 0; i < PLAYERS; i++) {
+      sum += Math.pow(i + 1, -SKEW);
+      cumulativeWeights[i] = sum;
+    }
+
+    System.setProperty("ingest.port", "0");
+    application =
+        SpringApplication.run(
+            WallerSpringApplication.class, "--server.port=0", "--ingest.enabled=true");
+    int port = application.getBean(IngestServer.class).getPort();
+    clients = new IngestClient[SESSIONS];
+    for (int i = 0; i < SESSIONS; i++) {
+      clients[i] = IngestClient.connect("localhost", port, WINDOW);
+      List<CompletableFuture<Ack>> hellos = new ArrayList<>();
+      for (int player = 0; player < PLAYERS; player++) {
+        hellos.add(clients[i].hello(JwtTokenUtility.createJwtToken(prefix + "-" + player)));
+      }
+      for (CompletableFuture<Ack> hello : hellos) {
+        assertThat(hello.get(1, TimeUnit.MINUTES).status()).isEqualTo(IngestStatus.ACCEPTED);
+      }
+    }
+  }
+
+  @AfterAll
+  public static void tearDown() throws IOException {
+    if (clients != null) {
+      for (IngestClient client : clients) {
+        client.close();
+      }
+    }
+    Path directory = Path.of("target", "load-reports");
+    Files.createDirectories(directory);
+    Map<String, Object> report = new LinkedHashMap<>();
+    report.put("label", LABEL);
+    report.put("startedAt", LocalDateTime.now().toString());
+    report.put("scale", SCALE);
+    report.put("scenarioSeconds", DURATION.toSeconds());
+    report.put("players", PLAYERS);
+    report.put("sessions", SESSIONS);
+    report.put("scenarios", RESULTS);
+    Path file =
+        directory.resolve(
+            "ingest-"
+                + LABEL
+                + "-"
+                + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"))
+                + ".json");
+    OBJECT_MAPPER.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), report);
+    System.out.println("Load report written to " + file.toAbsolutePath());
+    if (application != null) {
+      application.close();
+    }
+  }
+
+  @Test
+  @Order(1)
+  @DisplayName("Mixed credits and debits of hot players at a fixed rate")
+  public void steadyRate() throws Exception {
+    OpenModelLoad load = new OpenModelLoad("ingest-transactions");
+    SplittableRandom random = new SplittableRandom(7);
+    Map<String, Object> result =
+        load.run(
+            500 * SCALE,
+            DURATION,
+            (index, dueNanos) ->
+                load.track(
+                    "SUBMIT",
+                    submit(clients[(int) (index % SESSIONS)], "steady-" + index, random),
+                    ack -> ack.status().name(),
+                    dueNanos));
+    record(result);
+  }
+
+  @Test
+  @Order(2)
+  @DisplayName("Saturation: every session keeps its window of frames in flight")
+  public void saturation() throws Exception {
+    Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+    long start = System.nanoTime();
+    long end = start + DURATION.toNanos();
+    List<Thread> senders = new ArrayList<>();
+    for (int i = 0; i < SESSIONS; i++) {
+      IngestClient client = clients[i];
+      SplittableRandom random = new SplittableRandom(100 + i);
+      String session = "burst-" + i + "-";
+      Thread sender =
+          new Thread(
+              () -> {
+                List<CompletableFuture<Ack>> acks = new ArrayList<>();
+                for (long n = 0; System.nanoTime() < end; n++) {
+                  acks.add(
+                      submit(client, session + n, random)
+                          .whenComplete(
+                              (ack, error) ->
+                                  outcomes
+                                      .computeIfAbsent(
+                                          error == null
+                                              ? ack.status().name()
+                                              : error.getClass().getSimpleName(),
+                                          key -> new LongAdder())
+                                      .increment()));
+                }
+                CompletableFuture.allOf(acks.toArray(CompletableFuture[]::new))
+                    .exceptionally(error -> null)
+                    .join();
+              });
+      sender.start();
+      senders.add(sender);
+    }
+    for (Thread sender : senders) {
+      sender.join();
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    long frames = outcomes.values().stream().mapToLong(LongAdder::sum).sum();
+
+    Map<String, Object> outcomeCounts = new LinkedHashMap<>();
+    outcomes.forEach((outcome, count) -> outcomeCounts.put(outcome, count.sum()));
+    Map<String, Object> endpoint = new LinkedHashMap<>();
+    endpoint.put("endpoint", "SUBMIT");
+    endpoint.put("requests", frames);
+    endpoint.put("throughputPerSecond", Math.round(frames / seconds * 100) / 100.0);
+    endpoint.put("outcomes", outcomeCounts);
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("scenario", "ingest-saturation");
+    result.put("seconds", Math.round(seconds * 100) / 100.0);
+    result.put("endpoints", List.of(endpoint));
+    record(result);
+  }
+
+  /** Keeps the result for the report and fails on errors, rejected frames and failed sessions. */
+  @SuppressWarnings("unchecked")
+  private static void record(Map<String, Object> result) {
+    RESULTS.add(result);
+    for (Map<String, Object> endpoint : (List<Map<String, Object>>) result.get("endpoints")) {
+      Map<String, Long> outcomes = (Map<String, Long>) endpoint.get("outcomes");
+      assertThat(outcomes.keySet())
+          .as("Outcomes of %s", endpoint.get("endpoint"))
+          .allMatch(outcome -> outcome.matches("APPLIED|REPLAYED|INSUFFICIENT_FUNDS"));
+    }
+  }
+
+  private static CompletableFuture<Ack> submit(
+      IngestClient client, String id, SplittableRandom random) {
+    try {
+      return client.submit(
+          hotPlayer(random),
+          prefix + "-" + id,
+          random.nextInt(3) == 0 ? TransactionType.DEBIT : TransactionType.CREDIT,
+          BigDecimal.valueOf(1 + random.nextInt(100)));
+    } catch (IOException | InterruptedException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  /** Picks a seeded player, the first ones being the most frequent like with the loader. */
+  private static String hotPlayer(SplittableRandom random) {
+    double target = random.nextDouble() * cumulativeWeights[PLAYERS - 1];
+    int index = Arrays.binarySearch(cumulativeWeights, target);
+    return prefix + "-" + (index >= 0 ? index : -index - 1);
+  }
+}
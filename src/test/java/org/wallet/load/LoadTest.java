@@ -0,0 +1,268 @@
+package org.wallet.load;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.DockerComposeContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.wallet.WallerSpringApplication;
+import org.wallet.domain.repository.SyntheticDataLoader;
+import org.wallet.utils.JwtTokenUtility;
+
+/**
+ * Drives the HTTP endpoints of the application under concurrent load. The application is started
+ * in-process against a disposable Postgres published on the port of the application
+ * configuration, and seeded with players by the {@link SyntheticDataLoader}. Every scenario starts
+ * its arrivals at a fixed rate with {@link OpenModelLoad}, and the throughput, outcomes and latency
+ * percentiles of every endpoint are written to {@code target/load-reports} as JSON.
+ *
+ * <p>The test is tagged {@code load} and only runs with {@code mvn test -Pload}. The arrival rates
+ * are multiplied by the {@code load.scale} system property, every scenario lasts {@code
+ * load.seconds} seconds, and the report is named after {@code load.label}, e.g. a build number.
+ */
+@Tag("load")
+@Testcontainers
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class LoadTest {
+
+  private static final double SCALE = Double.parseDouble(System.getProperty("load.scale", "1"));
+  private static final Duration DURATION =
+      Duration.ofSeconds(Long.parseLong(System.getProperty("load.seconds", "20")));
+  private static final String LABEL = System.getProperty("load.label", "local");
+
+  /** The number of seeded players and the skew of the Zipf distribution choosing among them. */
+  private static final int PLAYERS = 2_000;
+
+  private static final double SKEW = 1.1;
+
+  @Container
+  private static final DockerComposeContainer DOCKER_COMPOSE_CONTAINER =
+      new DockerComposeContainer(new File("src/test/java/resources/docker-compose-load.yml"))
+          .withLocalCompose(true)
+          .withOptions("--compatibility");
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+  private static final List<Map<String, Object>> RESULTS = new ArrayList<>();
+
+  private static ConfigurableApplicationContext application;
+  private static HttpClient client;
+  private static URI baseUri;
+  private static String prefix;
+  private static double[] cumulativeWeights;
+
+  @BeforeAll
+  public static void setUp() {
+    // The players are loaded first, since the indexes of the application are filled on startup.
+    prefix = "load" + System.currentTimeMillis();
+    SyntheticDataLoader.main(
+        "--prefix=" + prefix,
+        "--players=" + PLAYERS,
+        "--transactions=" + PLAYERS * 20L,
+        "--skew=" + SKEW,
+        "--days=30",
+        "--threads=2");
+    cumulativeWeights = new double[PLAYERS];
+    double sum = 0;
+    for (int i = 0; i < PLAYERS; i++) {
+      sum += Math.pow(i + 1, -SKEW);
+      cumulativeWeights[i] = sum;
+    }
+
+    application = SpringApplication.run(WallerSpringApplication.class, "--server.port=0");
+    int port = ((ServletWebServerApplicationContext) application).getWebServer().getPort();
+    baseUri = URI.create("http://localhost:" + port);
+    client =
+        HttpClient.newBuilder()
+            .executor(Executors.newFixedThreadPool(8))
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+  }
+
+  @AfterAll
+  public static void tearDown() throws IOException {
+    Path directory = Path.of("target", "load-reports");
+    Files.createDirectories(directory);
+    Map<String, Object> report = new LinkedHashMap<>();
+    report.put("label", LABEL);
+    report.put("startedAt", LocalDateTime.now().toString());
+    report.put("scale", SCALE);
+    report.put("scenarioSeconds", DURATION.toSeconds());
+    report.put("players", PLAYERS);
+    report.put("scenarios", RESULTS);
+    Path file =
+        directory.resolve(
+            LABEL
+                + "-"
+                + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"))
+                + ".json");
+    OBJECT_MAPPER.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), report);
+    System.out.println("Load report written to " + file.toAbsolutePath());
+    if (application != null) {
+      application.close();
+    }
+  }
+
+  @Test
+  @Order(1)
+  @DisplayName("Storm of new players registering and logging in")
+  public void registerAndLogin() throws Exception {
+    OpenModelLoad load = new OpenModelLoad(client, "register-login");
+    Map<String, Object> result =
+        load.run(
+            20 * SCALE,
+            DURATION,
+            (index, dueNanos) -> {
+              String body = credentials(prefix + "-new-" + index);
+              return load.send("POST /register", post("/register", body), dueNanos)
+                  .thenCompose(
+                      response ->
+                          load.send("POST /login", post("/login", body), System.nanoTime()));
+            });
+    record(result);
+  }
+
+  @Test
+  @Order(2)
+  @DisplayName("Mixed credits and debits concentrated on hot players")
+  public void mixedTransactions() throws Exception {
+    OpenModelLoad load = new OpenModelLoad(client, "transactions");
+    SplittableRandom random = new SplittableRandom(2);
+    Map<String, Object> result =
+        load.run(
+            50 * SCALE,
+            DURATION,
+            (index, dueNanos) -> {
+              Map<String, Object> body = new LinkedHashMap<>();
+              body.put("jwtToken", JwtTokenUtility.createJwtToken(hotPlayer(random)));
+              body.put("transactionId", prefix + "-tx-" + index);
+              body.put("transactionType", random.nextInt(3) == 0 ? "DEBIT" : "CREDIT");
+              body.put("amount", BigDecimal.valueOf(1 + random.nextInt(100)));
+              return load.send("POST /transaction", post("/transaction", json(body)), dueNanos);
+            });
+    record(result);
+  }
+
+  @Test
+  @Order(3)
+  @DisplayName("Balance and history reads of hot players")
+  public void historyReads() throws Exception {
+    OpenModelLoad load = new OpenModelLoad(client, "history");
+    SplittableRandom random = new SplittableRandom(3);
+    Map<String, Object> result =
+        load.run(
+            50 * SCALE,
+            DURATION,
+            (index, dueNanos) -> {
+              String body =
+                  json(Map.of("jwtToken", JwtTokenUtility.createJwtToken(hotPlayer(random))));
+              return index % 2 == 0
+                  ? load.send("GET /transactions", get("/transactions", body), dueNanos)
+                  : load.send("GET /balance", get("/balance", body), dueNanos);
+            });
+    record(result);
+  }
+
+  @Test
+  @Order(4)
+  @DisplayName("Audit page and analytics reads")
+  public void auditReads() throws Exception {
+    OpenModelLoad load = new OpenModelLoad(client, "audit");
+    SplittableRandom random = new SplittableRandom(4);
+    LocalDateTime now = LocalDateTime.now();
+    Map<String, Object> result =
+        load.run(
+            20 * SCALE,
+            DURATION,
+            (index, dueNanos) ->
+                index % 2 == 0
+                    ? load.send(
+                        "GET /logs",
+                        get("/logs?limit=50&username=" + hotPlayer(random), null),
+                        dueNanos)
+                    : load.send(
+                        "GET /analytics",
+                        get("/analytics?from=" + now.minusDays(7) + "&to=" + now, null),
+                        dueNanos));
+    record(result);
+  }
+
+  /** Keeps the result for the report and fails on server errors and failed requests. */
+  @SuppressWarnings("unchecked")
+  private static void record(Map<String, Object> result) {
+    RESULTS.add(result);
+    for (Map<String, Object> endpoint : (List<Map<String, Object>>) result.get("endpoints")) {
+      Map<String, Long> outcomes = (Map<String, Long>) endpoint.get("outcomes");
+      assertThat(outcomes.keySet())
+          .as("Outcomes of %s", endpoint.get("endpoint"))
+          .allMatch(outcome -> outcome.matches("[1-4]\\d\\d"));
+    }
+  }
+
+  /** Picks a seeded player, the first ones being the most frequent like with the loader. */
+  private static String hotPlayer(SplittableRandom random) {
+    double target = random.nextDouble() * cumulativeWeights[PLAYERS - 1];
+    int index = Arrays.binarySearch(cumulativeWeights, target);
+    return prefix + "-" + (index >= 0 ? index : -index - 1);
+  }
+
+  private static String credentials(String login) {
+    return json(Map.of("login", login, "password", login));
+  }
+
+  private static String json(Object body) {
+    try {
+      return OBJECT_MAPPER.writeValueAsString(body);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static HttpRequest post(String path, String body) {
+    return HttpRequest.newBuilder(baseUri.resolve(path))
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString(body))
+        .build();
+  }
+
+  /** The API reads the token of GET requests from their body. */
+  private static HttpRequest get(String path, String body) {
+    return HttpRequest.newBuilder(baseUri.resolve(path))
+        .header("Content-Type", "application/json")
+        .method(
+            "GET",
+            body == null
+                ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofString(body))
+        .build();
+  }
+}
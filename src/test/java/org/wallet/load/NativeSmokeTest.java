@@ -0,0 +1,294 @@
+package org.wallet.load;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.testcontainers.containers.DockerComposeContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Smoke tests the packaged application as a separate process, by default the native executable
+ * built with {@code mvn -Pnative package}. Every endpoint is exercised once over HTTP, which fails
+ * on reflection or resources missing from the native image, and the startup time, the resident
+ * memory and the steady-state throughput of the process are written to {@code
+ * target/smoke-reports} as JSON. The reports of earlier runs are printed next to the new one, so
+ * running the suite against the native executable and against the JVM build compares them.
+ *
+ * <p>The test is tagged {@code smoke} and only runs with {@code mvn test -Psmoke}. The process is
+ * launched with the {@code smoke.command} system property, e.g. {@code java -jar
+ * target/yLabProject-1.0-SNAPSHOT.war} for the JVM build, the report is named after {@code
+ * smoke.label}, and the steady-state load lasts {@code smoke.seconds} seconds at {@code smoke.rate}
+ * arrivals per second.
+ */
+@Tag("smoke")
+@Testcontainers
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class NativeSmokeTest {
+
+  private static final String COMMAND = System.getProperty("smoke.command", "target/yLabProject");
+  private static final String LABEL = System.getProperty("smoke.label", "native");
+  private static final Duration DURATION =
+      Duration.ofSeconds(Long.parseLong(System.getProperty("smoke.seconds", "30")));
+  private static final double RATE = Double.parseDouble(System.getProperty("smoke.rate", "200"));
+
+  private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(120);
+  private static final Path REPORT_DIRECTORY = Path.of("target", "smoke-reports");
+
+  @Container
+  private static final DockerComposeContainer DOCKER_COMPOSE_CONTAINER =
+      new DockerComposeContainer(new File("src/test/java/resources/docker-compose-load.yml"))
+          .withLocalCompose(true)
+          .withOptions("--compatibility");
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+  private static final Map<String, Object> REPORT = new LinkedHashMap<>();
+
+  private static Process process;
+  private static HttpClient client;
+  private static URI baseUri;
+  private static String login;
+  private static String jwtToken;
+
+  @BeforeAll
+  public static void setUp() throws Exception {
+    Files.createDirectories(REPORT_DIRECTORY);
+    int port;
+    try (ServerSocket socket = new ServerSocket(0)) {
+      port = socket.getLocalPort();
+    }
+    baseUri = URI.create("http://localhost:" + port);
+    client =
+        HttpClient.newBuilder()
+            .executor(Executors.newFixedThreadPool(8))
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    List<String> command = new ArrayList<>(Arrays.asList(COMMAND.trim().split("\\s+")));
+    command.add("--server.port=" + port);
+    long start = System.nanoTime();
+    process =
+        new ProcessBuilder(command)
+            .redirectErrorStream(true)
+            .redirectOutput(REPORT_DIRECTORY.resolve(LABEL + ".log").toFile())
+            .start();
+    awaitHealthy();
+    REPORT.put("label", LABEL);
+    REPORT.put("command", COMMAND);
+    REPORT.put("startupMillis", (System.nanoTime() - start) / 1_000_000);
+    REPORT.put("startupRssKilobytes", residentKilobytes());
+    login = "smoke" + System.currentTimeMillis();
+  }
+
+  @AfterAll
+  public static void tearDown() throws IOException {
+    if (process != null) {
+      process.destroy();
+    }
+    Path file = REPORT_DIRECTORY.resolve(LABEL + ".json");
+    OBJECT_MAPPER.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), REPORT);
+    System.out.println("Smoke report written to " + file.toAbsolutePath());
+    try (DirectoryStream<Path> reports = Files.newDirectoryStream(REPORT_DIRECTORY, "*.json")) {
+      for (Path report : reports) {
+        JsonNode node = OBJECT_MAPPER.readTree(report.toFile());
+        System.out.printf(
+            "%-10s startup %6d ms, RSS %8d KB at start, %8d KB loaded, %8.1f requests/s%n",
+            node.path("label").asText(),
+            node.path("startupMillis").asLong(),
+            node.path("startupRssKilobytes").asLong(),
+            node.path("loadedRssKilobytes").asLong(),
+            node.path("throughputPerSecond").asDouble());
+      }
+    }
+  }
+
+  @Test
+  @Order(1)
+  @DisplayName("Registration and login issue a token")
+  public void registerAndLogin() throws Exception {
+    String credentials = json(Map.of("login", login, "password", login));
+
+    assertThat(send(post("/register", credentials)).statusCode()).isEqualTo(201);
+    HttpResponse<String> response = send(post("/login", credentials));
+
+    assertThat(response.statusCode()).isEqualTo(200);
+    jwtToken = OBJECT_MAPPER.readTree(response.body()).path("jwtToken").asText();
+    assertThat(jwtToken).isNotBlank();
+  }
+
+  @Test
+  @Order(2)
+  @DisplayName("Transactions change the balance and are listed")
+  public void transactions() throws Exception {
+    assertThat(send(post("/transaction", transaction("credit", "CREDIT", 100))).statusCode())
+        .isEqualTo(201);
+    assertThat(send(post("/transaction", transaction("debit", "DEBIT", 40))).statusCode())
+        .isEqualTo(201);
+    assertThat(send(post("/transaction", transaction("overdraft", "DEBIT", 1000))).statusCode())
+        .isEqualTo(400);
+
+    HttpResponse<String> balance = send(get("/balance", token()));
+    HttpResponse<String> transactions = send(get("/transactions", token()));
+
+    assertThat(balance.statusCode()).isEqualTo(200);
+    assertThat(OBJECT_MAPPER.readTree(balance.body()).path("balance").decimalValue())
+        .isEqualByComparingTo(BigDecimal.valueOf(60));
+    assertThat(transactions.statusCode()).isEqualTo(200);
+    assertThat(OBJECT_MAPPER.readTree(transactions.body()).size()).isGreaterThanOrEqualTo(2);
+  }
+
+  @Test
+  @Order(3)
+  @DisplayName("Requests without a valid token are rejected by the aspect")
+  public void unauthorized() throws Exception {
+    HttpResponse<String> response =
+        send(get("/balance", json(Map.of("jwtToken", "not.a.token"))));
+
+    assertThat(response.statusCode()).isEqualTo(401);
+  }
+
+  @Test
+  @Order(4)
+  @DisplayName("Audit log and analytics are served")
+  public void audit() throws Exception {
+    assertThat(send(get("/logs?limit=10&username=" + login, null)).statusCode()).isEqualTo(200);
+    LocalDateTime now = LocalDateTime.now();
+    assertThat(
+            send(get("/analytics?from=" + now.minusDays(1) + "&to=" + now.plusDays(1), null))
+                .statusCode())
+        .isEqualTo(200);
+  }
+
+  @Test
+  @Order(5)
+  @DisplayName("Steady-state throughput of credits and balance reads")
+  public void steadyState() throws Exception {
+    OpenModelLoad load = new OpenModelLoad(client, "steady-state");
+    SplittableRandom random = new SplittableRandom(5);
+    Map<String, Object> result =
+        load.run(
+            RATE,
+            DURATION,
+            (index, dueNanos) ->
+                random.nextBoolean()
+                    ? load.send(
+                        "POST /transaction",
+                        post("/transaction", transaction("load-" + index, "CREDIT", 1)),
+                        dueNanos)
+                    : load.send("GET /balance", get("/balance", token()), dueNanos));
+    REPORT.put("loadedRssKilobytes", residentKilobytes());
+    REPORT.put("steadyState", result);
+    double throughput = 0;
+    for (Object endpoint : (List<?>) result.get("endpoints")) {
+      throughput += (Double) ((Map<?, ?>) endpoint).get("throughputPerSecond");
+    }
+    REPORT.put("throughputPerSecond", throughput);
+
+    assertThat(result.get("drained")).isEqualTo(true);
+  }
+
+  /** Polls the readiness probe until the application reports that it is up. */
+  private static void awaitHealthy() throws Exception {
+    long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+    while (System.nanoTime() < deadline) {
+      if (!process.isAlive()) {
+        fail("The application exited with %d, see %s.log", process.exitValue(), LABEL);
+      }
+      try {
+        if (send(get("/readyz", null)).statusCode() == 200) {
+          return;
+        }
+      } catch (IOException ignored) {
+      }
+      Thread.sleep(10);
+    }
+    fail("The application did not start within %s", STARTUP_TIMEOUT);
+  }
+
+  /** Returns the resident set size of the process, or -1 where /proc is not available. */
+  private static long residentKilobytes() throws IOException {
+    Path status = Path.of("/proc", String.valueOf(process.pid()), "status");
+    if (!Files.exists(status)) {
+      return -1;
+    }
+    for (String line : Files.readAllLines(status)) {
+      if (line.startsWith("VmRSS:")) {
+        return Long.parseLong(line.replaceAll("\\D", ""));
+      }
+    }
+    return -1;
+  }
+
+  private static String transaction(String id, String type, int amount) {
+    Map<String, Object> body = new LinkedHashMap<>();
+    body.put("jwtToken", jwtToken);
+    body.put("transactionId", login + "-" + id);
+    body.put("transactionType", type);
+    body.put("amount", BigDecimal.valueOf(amount));
+    return json(body);
+  }
+
+  private static String token() {
+    return json(Map.of("jwtToken", jwtToken));
+  }
+
+  private static String json(Object body) {
+    try {
+      return OBJECT_MAPPER.writeValueAsString(body);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static HttpResponse<String> send(HttpRequest request) throws Exception {
+    return client.send(request, HttpResponse.BodyHandlers.ofString());
+  }
+
+  private static HttpRequest post(String path, String body) {
+    return HttpRequest.newBuilder(baseUri.resolve(path))
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString(body))
+        .build();
+  }
+
+  /** The API reads the token of GET requests from their body. */
+  private static HttpRequest get(String path, String body) {
+    return HttpRequest.newBuilder(baseUri.resolve(path))
+        .header("Content-Type", "application/json")
+        .method(
+            "GET",
+            body == null
+                ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofString(body))
+        .build();
+  }
+}
@@ -0,0 +1,217 @@
+package org.wallet.load;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Drives a scenario with an open workload model: arrivals are started at a fixed rate whether or
+ * not the earlier ones have been answered, so a slow server faces a growing queue instead of a
+ * slower client. The latency of the first request of an arrival is measured from the time it was
+ * due, not from the time it was sent, so a client falling behind its schedule does not hide the
+ * delay. Outcomes and latencies are recorded per endpoint.
+ */
+final class OpenModelLoad {
+
+  /** The maximum number of arrivals in flight; later arrivals are dropped and counted. */
+  private static final int MAX_IN_FLIGHT = 2_000;
+
+  /** How long the arrivals in flight are awaited after the last one was started. */
+  private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(60);
+
+  /** An arrival of the scenario, started at its due time. */
+  interface Arrival {
+
+    /**
+     * Sends the requests of an arrival.
+     *
+     * @param index The sequence number of the arrival.
+     * @param dueNanos The {@link System#nanoTime()} the arrival was due at.
+     * @return A future completed once the last request of the arrival is answered.
+     */
+    CompletableFuture<?> start(long index, long dueNanos);
+  }
+
+  private final HttpClient client;
+  private final String scenario;
+  private final Map<String, Endpoint> endpoints = new ConcurrentSkipListMap<>();
+  private final Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+  private final LongAdder dropped = new LongAdder();
+
+  /**
+   * Creates the load of a scenario.
+   *
+   * @param client The client sending the requests.
+   * @param scenario The name of the scenario.
+   */
+  OpenModelLoad(HttpClient client, String scenario) {
+    this.client = client;
+    this.scenario = scenario;
+  }
+
+  /**
+   * Creates the load of a scenario whose requests are sent by another client with {@link
+   * #track(String, CompletableFuture, Function, long)}.
+   *
+   * @param scenario The name of the scenario.
+   */
+  OpenModelLoad(String scenario) {
+    this(null, scenario);
+  }
+
+  /**
+   * Sends a request and records its outcome and latency under the given endpoint.
+   *
+   * @param endpoint The name the request is recorded under.
+   * @param request The request.
+   * @param startNanos The {@link System#nanoTime()} the latency is measured from.
+   * @return A future completed with the response.
+   */
+  CompletableFuture<HttpResponse<String>> send(
+      String endpoint, HttpRequest request, long startNanos) {
+    return track(
+        endpoint,
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofString()),
+        response -> String.valueOf(response.statusCode()),
+        startNanos);
+  }
+
+  /**
+   * Records the outcome and latency of a request under the given endpoint.
+   *
+   * @param endpoint The name the request is recorded under.
+   * @param request A future completed with the response of the request.
+   * @param outcome The outcome of a response.
+   * @param startNanos The {@link System#nanoTime()} the latency is measured from.
+   * @param <T> The type of the response.
+   * @return The future of the response.
+   */
+  <T> CompletableFuture<T> track(
+      String endpoint, CompletableFuture<T> request, Function<T, String> outcome, long startNanos) {
+    Endpoint stats = endpoints.computeIfAbsent(endpoint, key -> new Endpoint());
+    return request.whenComplete(
+        (response, error) ->
+            stats.record(
+                error == null ? outcome.apply(response) : unwrap(error).getClass().getSimpleName(),
+                System.nanoTime() - startNanos));
+  }
+
+  /**
+   * Starts arrivals at the given rate for the given duration and waits for them to complete.
+   *
+   * @param ratePerSecond The number of arrivals started per second.
+   * @param duration How long arrivals are started for.
+   * @param arrival The arrival to start.
+   * @return The result of the scenario, with the outcome and latency percentiles per endpoint.
+   */
+  Map<String, Object> run(double ratePerSecond, Duration duration, Arrival arrival)
+      throws InterruptedException {
+    long intervalNanos = (long) (1_000_000_000L / ratePerSecond);
+    long start = System.nanoTime();
+    long end = start + duration.toNanos();
+    long arrivals = 0;
+    for (long due = start; due < end; due = start + ++arrivals * intervalNanos) {
+      long wait = due - System.nanoTime();
+      if (wait > 0) {
+        LockSupport.parkNanos(wait);
+      }
+      if (!inFlight.tryAcquire()) {
+        dropped.increment();
+        continue;
+      }
+      try {
+        arrival.start(arrivals, due).whenComplete((result, error) -> inFlight.release());
+      } catch (RuntimeException e) {
+        inFlight.release();
+        throw e;
+      }
+    }
+    boolean drained =
+        inFlight.tryAcquire(MAX_IN_FLIGHT, DRAIN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+    double seconds = (System.nanoTime() - start) / 1e9;
+
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("scenario", scenario);
+    result.put("targetArrivalsPerSecond", ratePerSecond);
+    result.put("arrivals", arrivals);
+    result.put("dropped", dropped.sum());
+    result.put("drained", drained);
+    result.put("seconds", round(seconds));
+    List<Map<String, Object>> endpointResults = new ArrayList<>();
+    endpoints.forEach((name, stats) -> endpointResults.add(stats.summary(name, seconds)));
+    result.put("endpoints", endpointResults);
+    return result;
+  }
+
+  private static Throwable unwrap(Throwable error) {
+    return error instanceof CompletionException && error.getCause() != null
+        ? error.getCause()
+        : error;
+  }
+
+  private static double round(double value) {
+    return Math.round(value * 100) / 100.0;
+  }
+
+  /** The outcomes and latencies recorded for an endpoint. */
+  private static final class Endpoint {
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+    private long[] latencies = new long[1024];
+    private int count;
+
+    private void record(String outcome, long latencyNanos) {
+      outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+      synchronized (this) {
+        if (count == latencies.length) {
+          latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = latencyNanos;
+      }
+    }
+
+    private synchronized Map<String, Object> summary(String name, double seconds) {
+      long[] sorted = Arrays.copyOf(latencies, count);
+      Arrays.sort(sorted);
+      Map<String, Object> summary = new LinkedHashMap<>();
+      summary.put("endpoint", name);
+      summary.put("requests", count);
+      summary.put("throughputPerSecond", round(count / seconds));
+      Map<String, Long> outcomeCounts = new TreeMap<>();
+      outcomes.forEach((outcome, adder) -> outcomeCounts.put(outcome, adder.sum()));
+      summary.put("outcomes", outcomeCounts);
+      Map<String, Object> latency = new LinkedHashMap<>();
+      latency.put("p50", percentile(sorted, 0.50));
+      latency.put("p90", percentile(sorted, 0.90));
+      latency.put("p99", percentile(sorted, 0.99));
+      latency.put("p999", percentile(sorted, 0.999));
+      latency.put("max", sorted.length == 0 ? 0.0 : round(sorted[sorted.length - 1] / 1e6));
+      latency.put("mean", round(Arrays.stream(sorted).average().orElse(0) / 1e6));
+      summary.put("latencyMillis", latency);
+      return summary;
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+      if (sorted.length == 0) {
+        return 0.0;
+      }
+      int index = (int) Math.ceil(percentile * sorted.length) - 1;
+      return round(sorted[Math.max(0, index)] / 1e6);
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package org.wallet.repository;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.wallet.domain.model.Transaction;
+import org.wallet.domain.model.TransactionType;
+import org.wallet.domain.repository.transaction.ArchiveFile;
+import org.wallet.domain.repository.transaction.ArchivedTransaction;
+
+public class ArchiveFileTest {
+
+  private static final int PLAYERS = 20;
+  private static final int TRANSACTIONS_PER_PLAYER = 1_000;
+  private static final LocalDateTime START = LocalDateTime.of(2021, 3, 1, 0, 0, 0, 123_000);
+
+  @TempDir Path directory;
+
+  @Test
+  @DisplayName("An archive file should report the number of rows and the time range it holds")
+  public void open_writtenFile_readsFooter() throws IOException {
+    ArchiveFile file = write(directory.resolve("stats.wtx"));
+
+    assertThat(file.getRowCount()).isEqualTo(PLAYERS * TRANSACTIONS_PER_PLAYER);
+    assertThat(file.getMinCreatedAt()).isEqualTo(START);
+    assertThat(file.getMaxCreatedAt()).isEqualTo(START.plusMinutes(TRANSACTIONS_PER_PLAYER - 1));
+    assertThat(file.getSize()).isPositive();
+  }
+
+  @Test
+  @DisplayName("Reading a player spanning several row groups should return all of its rows in order")
+  public void read_playerAcrossRowGroups_returnsOnlyThePlayersRows() throws IOException {
+    ArchiveFile file = write(directory.resolve("player.wtx"));
+
+    List<ArchivedTransaction> archived = file.read(login(4));
+
+    assertThat(archived).hasSize(TRANSACTIONS_PER_PLAYER);
+    assertThat(archived.get(0)).isEqualTo(row(4, 0));
+    assertThat(archived.get(TRANSACTIONS_PER_PLAYER - 1))
+        .isEqualTo(row(4, TRANSACTIONS_PER_PLAYER - 1));
+    assertThat(archived)
+        .extracting(ArchivedTransaction::createdAt)
+        .isSorted()
+        .doesNotHaveDuplicates();
+  }
+
+  @Test
+  @DisplayName("A login outside the range of the file should not be found")
+  public void read_unknownLogin_returnsEmptyList() throws IOException {
+    ArchiveFile file = write(directory.resolve("unknown.wtx"));
+
+    assertThat(file.mayContain("aaa")).isFalse();
+    assertThat(file.read("zzz")).isEmpty();
+    assertThat(file.read(login(4) + "-missing")).isEmpty();
+  }
+
+  @Test
+  @DisplayName("Streaming a file should return every row exactly as it was written")
+  public void forEach_writtenFile_returnsEveryRow() throws IOException {
+    ArchiveFile file = write(directory.resolve("all.wtx"));
+    List<ArchivedTransaction> archived = new ArrayList<>();
+
+    file.forEach(archived::add);
+
+    assertThat(archived).hasSize(PLAYERS * TRANSACTIONS_PER_PLAYER);
+    assertThat(archived.get(PLAYERS * TRANSACTIONS_PER_PLAYER - 1))
+        .isEqualTo(row(PLAYERS - 1, TRANSACTIONS_PER_PLAYER - 1));
+  }
+
+  @Test
+  @DisplayName("Rows appended out of login order should be rejected")
+  public void append_unsortedLogins_throwsIllegalArgumentException() throws IOException {
+    try (ArchiveFile.Writer writer = ArchiveFile.create(directory.resolve("unsorted.wtx"))) {
+      writer.append(row(2, 0));
+
+      assertThatThrownBy(() -> writer.append(row(1, 0)))
+          .isInstanceOf(IllegalArgumentException.class);
+    }
+  }
+
+  private static ArchiveFile write(Path path) throws IOException {
+    try (ArchiveFile.Writer writer = ArchiveFile.create(path)) {
+      for (int player = 0; player < PLAYERS; player++) {
+        for (int i = 0; i < TRANSACTIONS_PER_PLAYER; i++) {
+          writer.append(row(player, i));
+        }
+      }
+    }
+    return ArchiveFile.open(path);
+  }
+
+  private static ArchivedTransaction row(int player, int i) {
+    Transaction transaction =
+        new Transaction(
+            login(player),
+            "tx-" + player + "-" + i,
+            i % 3 == 0 ? TransactionType.DEBIT : TransactionType.CREDIT,
+            new BigDecimal(i + ".25"));
+    return new ArchivedTransaction(transaction, START.plusMinutes(i));
+  }
+
+  private static String login(int player) {
+    return String.format("player-%03d", player);
+  }
+}
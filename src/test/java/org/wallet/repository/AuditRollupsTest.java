@@ -0,0 +1,123 @@
+package org.wallet.repository;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.DockerComposeContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.wallet.domain.model.ActionCount;
+import org.wallet.domain.model.LogAction;
+import org.wallet.domain.model.RollupInterval;
+import org.wallet.domain.repository.DatabaseConnection;
+import org.wallet.domain.repository.LiquibaseManager;
+import org.wallet.domain.repository.log.AuditRollups;
+
+@Testcontainers
+public class AuditRollupsTest {
+
+  private static final int POSTGRES_PORT = 5432;
+
+  @Container
+  private static final DockerComposeContainer DOCKER_COMPOSE_CONTAINER =
+      new DockerComposeContainer(new File("src/test/java/resources/docker-compose-test.yml"))
+          .withExposedService("postgres", POSTGRES_PORT)
+          .withLocalCompose(true)
+          .withOptions("--compatibility");
+
+  private static DatabaseConnection connection;
+
+  private final LocalDateTime hour = LocalDateTime.now().withMinute(0).withSecond(0).withNano(0);
+
+  @BeforeAll
+  public static void setUp() {
+    String url =
+        "jdbc:postgresql://"
+            + DOCKER_COMPOSE_CONTAINER.getServiceHost("postgres", POSTGRES_PORT)
+            + ":"
+            + DOCKER_COMPOSE_CONTAINER.getServicePort("postgres", POSTGRES_PORT)
+            + "/wallet";
+    connection = new DatabaseConnection(url);
+    new LiquibaseManager(connection).migrate();
+  }
+
+  @BeforeEach
+  public void setUpBeforeEach() throws SQLException {
+    try (Connection local = connection.getConnection();
+        Statement statement = local.createStatement()) {
+      statement.executeUpdate("DELETE FROM wallet.audit_rollups");
+    }
+  }
+
+  @Test
+  @DisplayName("Counts should be aggregated by interval and action from the flushed rollups")
+  public void getCounts_flushedRollups_returnsCountsPerInterval() {
+    AuditRollups rollups = new AuditRollups(connection);
+    rollups.record(LogAction.AUTHORIZATION, hour.plusMinutes(1));
+    rollups.record(LogAction.AUTHORIZATION, hour.plusMinutes(59).plusSeconds(59));
+    rollups.record(LogAction.REGISTRATION, hour.plusMinutes(2));
+    rollups.record(LogAction.TRANSACTION, hour.plusHours(1).plusMinutes(5));
+
+    rollups.flush();
+
+    assertThat(rollups.getCounts(hour, hour.plusHours(2), RollupInterval.HOUR))
+        .containsExactly(
+            new ActionCount(hour, LogAction.REGISTRATION, 1),
+            new ActionCount(hour, LogAction.AUTHORIZATION, 2),
+            new ActionCount(hour.plusHours(1), LogAction.TRANSACTION, 1));
+    assertThat(rollups.getCounts(hour, hour.plusMinutes(2), RollupInterval.MINUTE))
+        .containsExactly(new ActionCount(hour.plusMinutes(1), LogAction.AUTHORIZATION, 1));
+  }
+
+  @Test
+  @DisplayName("Counts not flushed yet should be included exactly once")
+  public void getCounts_pendingAndFlushedCounts_countsEachEntryOnce() {
+    AuditRollups rollups = new AuditRollups(connection);
+    rollups.record(LogAction.AUTHORIZATION, hour);
+    rollups.flush();
+    rollups.record(LogAction.AUTHORIZATION, hour);
+
+    List<ActionCount> pending = rollups.getCounts(hour, hour.plusDays(1), RollupInterval.DAY);
+    rollups.flush();
+    List<ActionCount> flushed = rollups.getCounts(hour, hour.plusDays(1), RollupInterval.DAY);
+
+    ActionCount expected =
+        new ActionCount(hour.toLocalDate().atStartOfDay(), LogAction.AUTHORIZATION, 2);
+    assertThat(pending).containsExactly(expected);
+    assertThat(flushed).containsExactly(expected);
+  }
+
+  @Test
+  @DisplayName("Entries recorded concurrently for minutes sharing a slot should all be counted")
+  public void record_concurrentWriters_countsEveryEntry() {
+    AuditRollups rollups = new AuditRollups(connection);
+    List<CompletableFuture<Void>> writers = new ArrayList<>();
+    for (int writer = 0; writer < 8; writer++) {
+      writers.add(
+          CompletableFuture.runAsync(
+              () -> {
+                for (int i = 0; i < 10_000; i++) {
+                  rollups.record(LogAction.TRANSACTION, hour.plusMinutes(i % 3 * 120));
+                }
+              }));
+    }
+    writers.forEach(CompletableFuture::join);
+
+    rollups.flush();
+
+    assertThat(rollups.getCounts(hour, hour.plusDays(1), RollupInterval.MINUTE))
+        .extracting(ActionCount::count)
+        .containsExactly(26_672L, 26_664L, 26_664L);
+  }
+}
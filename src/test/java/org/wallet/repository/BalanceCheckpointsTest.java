@@ -0,0 +1,237 @@
+package org.wallet.repository;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.DockerComposeContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.wallet.domain.model.TransactionType;
+import org.wallet.domain.repository.DatabaseConnection;
+import org.wallet.domain.repository.LiquibaseManager;
+import org.wallet.domain.repository.transaction.BalanceCheckpoints;
+import org.wallet.domain.repository.shard.ShardRouter;
+
+@Testcontainers
+public class BalanceCheckpointsTest {
+
+  private static final int POSTGRES_PORT = 5432;
+
+  /** The start of the current month, whose partition always exists. */
+  private static final LocalDateTime START = YearMonth.now().atDay(1).atStartOfDay();
+
+  @Container
+  private static final DockerComposeContainer DOCKER_COMPOSE_CONTAINER =
+      new DockerComposeContainer(new File("src/test/java/resources/docker-compose-test.yml"))
+          .withExposedService("postgres", POSTGRES_PORT)
+          .withLocalCompose(true)
+          .withOptions("--compatibility");
+
+  private static DatabaseConnection connection;
+  private static ShardRouter shardRouter;
+
+  private BalanceCheckpoints balanceCheckpoints;
+
+  @BeforeAll
+  public static void setUp() throws SQLException {
+    String url =
+        "jdbc:postgresql://"
+            + DOCKER_COMPOSE_CONTAINER.getServiceHost("postgres", POSTGRES_PORT)
+            + ":"
+            + DOCKER_COMPOSE_CONTAINER.getServicePort("postgres", POSTGRES_PORT)
+            + "/wallet";
+    connection = new DatabaseConnection(url);
+    new LiquibaseManager(connection).migrate();
+    execute("DELETE FROM wallet.shard_ranges");
+    shardRouter = new ShardRouter(List.of(connection));
+    shardRouter.init();
+  }
+
+  @AfterAll
+  public static void tearDown() {
+    shardRouter.shutdown();
+  }
+
+  @BeforeEach
+  public void setUpBeforeEach() throws SQLException {
+    execute(
+        "DELETE FROM wallet.balance_checkpoints",
+        "DELETE FROM wallet.transactions WHERE transaction_id LIKE 'checkpoint-%'",
+        "DELETE FROM wallet.players WHERE login LIKE 'checkpoint-%'",
+        "INSERT INTO wallet.players (login, balance, password)"
+            + " VALUES ('checkpoint-1', 0, 'password'), ('checkpoint-2', 0, 'password')");
+    balanceCheckpoints =
+        new BalanceCheckpoints(shardRouter, Clock.systemDefaultZone(), 60);
+  }
+
+  @Test
+  @DisplayName("Balances at past times should match the transactions created up to them")
+  public void getBalanceAt_pastTimes_returnsBalanceAtThatTime() throws SQLException {
+    addTransaction("checkpoint-1", TransactionType.CREDIT, "100", START.plusMinutes(10));
+    balanceCheckpoints.checkpoint(START.plusHours(1));
+    addTransaction("checkpoint-1", TransactionType.DEBIT, "30", START.plusMinutes(70));
+    balanceCheckpoints.checkpoint(START.plusHours(2));
+    addTransaction("checkpoint-1", TransactionType.CREDIT, "5", START.plusMinutes(130));
+    balanceCheckpoints.checkpoint(START.plusHours(3));
+
+    assertThat(checkpoints("checkpoint-1"))
+        .containsExactly(new BigDecimal("100"), new BigDecimal("70"), new BigDecimal("75"));
+    assertThat(balanceCheckpoints.getBalanceAt("checkpoint-1", START.plusMinutes(5)))
+        .contains(BigDecimal.ZERO);
+    assertThat(balanceCheckpoints.getBalanceAt("checkpoint-1", START.plusMinutes(10)))
+        .contains(new BigDecimal("100"));
+    assertThat(balanceCheckpoints.getBalanceAt("checkpoint-1", START.plusMinutes(90)))
+        .contains(new BigDecimal("70"));
+    assertThat(balanceCheckpoints.getBalanceAt("checkpoint-1", START.plusMinutes(200)))
+        .contains(new BigDecimal("75"));
+    assertThat(balanceCheckpoints.getBalanceAt("checkpoint-2", START.plusMinutes(200)))
+        .contains(BigDecimal.ZERO);
+  }
+
+  @Test
+  @DisplayName("Checkpoints should only be added for players whose ledger changed")
+  public void checkpoint_unchangedLedger_addsNoCheckpoint() throws SQLException {
+    addTransaction("checkpoint-1", TransactionType.CREDIT, "100", START.plusMinutes(10));
+    balanceCheckpoints.checkpoint(START.plusHours(1));
+    addTransaction("checkpoint-1", TransactionType.DEBIT, "40", START.plusMinutes(70));
+
+    balanceCheckpoints.checkpoint(START.plusHours(2));
+    balanceCheckpoints.checkpoint(START.plusHours(2));
+
+    assertThat(checkpoints("checkpoint-1"))
+        .containsExactly(new BigDecimal("100"), new BigDecimal("60"));
+    assertThat(checkpoints("checkpoint-2")).containsExactly(BigDecimal.ZERO);
+    assertThat(balanceCheckpoints.getBalanceAt("checkpoint-1", START.plusHours(3)))
+        .contains(new BigDecimal("60"));
+  }
+
+  @Test
+  @DisplayName("A first checkpoint should include the history moved to the archive")
+  public void checkpoint_archivedHistory_startsFromBalance() throws SQLException {
+    // The transactions of past months are no longer in the database, only in the balance.
+    execute("UPDATE wallet.players SET balance = 500 WHERE login = 'checkpoint-1'");
+    addTransaction("checkpoint-1", TransactionType.CREDIT, "10", START.plusMinutes(10));
+    addTransaction("checkpoint-1", TransactionType.DEBIT, "20", START.plusMinutes(70));
+
+    balanceCheckpoints.checkpoint(START.plusHours(1));
+
+    assertThat(checkpoints("checkpoint-1")).containsExactly(new BigDecimal("510"));
+    assertThat(balanceCheckpoints.getBalanceAt("checkpoint-1", START.plusMinutes(90)))
+        .contains(new BigDecimal("490"));
+  }
+
+  @Test
+  @DisplayName("A write committed after the checkpoint of its time should reach the next one")
+  public void checkpoint_lateCommit_includedInNextCheckpoint() throws SQLException {
+    addTransaction("checkpoint-1", TransactionType.CREDIT, "100", START.plusMinutes(10));
+    balanceCheckpoints.checkpoint(START.plusHours(1));
+    addTransaction("checkpoint-1", TransactionType.CREDIT, "7", START.plusMinutes(50));
+
+    balanceCheckpoints.checkpoint(START.plusHours(2));
+
+    assertThat(checkpoints("checkpoint-1"))
+        .containsExactly(new BigDecimal("100"), new BigDecimal("107"));
+    assertThat(balanceCheckpoints.getBalanceAt("checkpoint-1", START.plusHours(3)))
+        .contains(new BigDecimal("107"));
+  }
+
+  @Test
+  @DisplayName("A player without checkpoints should start from its balance")
+  public void checkpoint_playerWithoutCheckpoint_startsFromBalance() throws SQLException {
+    addTransaction("checkpoint-1", TransactionType.CREDIT, "10", START.plusMinutes(10));
+    addTransaction("checkpoint-2", TransactionType.CREDIT, "50", START.plusMinutes(10));
+    addTransaction("checkpoint-2", TransactionType.CREDIT, "20", START.plusMinutes(70));
+    balanceCheckpoints.checkpoint(START.plusHours(1));
+    // The checkpoints of a player are removed when it is moved to another shard.
+    execute(
+        "DELETE FROM wallet.balance_checkpoints WHERE player_id ="
+            + " (SELECT id FROM wallet.players WHERE login = 'checkpoint-2')");
+    addTransaction("checkpoint-2", TransactionType.DEBIT, "5", START.plusMinutes(130));
+
+    Clock clock =
+        Clock.fixed(
+            START.plusMinutes(181).plusSeconds(30).atZone(ZoneId.systemDefault()).toInstant(),
+            ZoneId.systemDefault());
+    new BalanceCheckpoints(shardRouter, clock, 60).checkpoint();
+
+    assertThat(checkpoints("checkpoint-1")).containsExactly(BigDecimal.TEN);
+    assertThat(checkpoints("checkpoint-2")).containsExactly(new BigDecimal("65"));
+    assertThat(balanceCheckpoints.getBalanceAt("checkpoint-2", START.plusHours(4)))
+        .contains(new BigDecimal("65"));
+  }
+
+  @Test
+  @DisplayName("The balance of an unknown player should be empty")
+  public void getBalanceAt_unknownPlayer_returnsEmpty() {
+    assertThat(balanceCheckpoints.getBalanceAt("checkpoint-unknown", START)).isEmpty();
+  }
+
+  /** Adds a transaction and applies it to the balance and the ledger version of its player. */
+  private static void addTransaction(
+      String login, TransactionType type, String amount, LocalDateTime createdAt)
+      throws SQLException {
+    BigDecimal signedAmount =
+        type == TransactionType.CREDIT ? new BigDecimal(amount) : new BigDecimal(amount).negate();
+    try (Connection local = connection.getConnection();
+        PreparedStatement preparedStatement =
+            local.prepareStatement(
+                "WITH p AS (UPDATE wallet.players SET balance = balance + ?,"
+                    + " ledger_version = ledger_version + 1 WHERE login = ? RETURNING id)"
+                    + " INSERT INTO wallet.transactions (player_id, transaction_id, type_code,"
+                    + " amount, created_at) SELECT id, ? || '-' || (SELECT COUNT(*)"
+                    + " FROM wallet.transactions t WHERE t.player_id = p.id), ?, ?, ? FROM p")) {
+      preparedStatement.setBigDecimal(1, signedAmount);
+      preparedStatement.setString(2, login);
+      preparedStatement.setString(3, login);
+      preparedStatement.setShort(4, type.getCode());
+      preparedStatement.setBigDecimal(5, new BigDecimal(amount));
+      preparedStatement.setTimestamp(6, Timestamp.valueOf(createdAt));
+      preparedStatement.executeUpdate();
+    }
+  }
+
+  private static List<BigDecimal> checkpoints(String login) throws SQLException {
+    List<BigDecimal> balances = new ArrayList<>();
+    try (Connection local = connection.getConnection();
+        PreparedStatement preparedStatement =
+            local.prepareStatement(
+                "SELECT c.balance FROM wallet.balance_checkpoints c"
+                    + " JOIN wallet.players p ON p.id = c.player_id WHERE p.login = ?"
+                    + " ORDER BY c.checkpoint_at")) {
+      preparedStatement.setString(1, login);
+      try (ResultSet resultSet = preparedStatement.executeQuery()) {
+        while (resultSet.next()) {
+          balances.add(resultSet.getBigDecimal(1));
+        }
+      }
+    }
+    return balances;
+  }
+
+  private static void execute(String... statements) throws SQLException {
+    try (Connection local = connection.getConnection();
+        Statement statement = local.createStatement()) {
+      for (String sql : statements) {
+        statement.executeUpdate(sql);
+      }
+    }
+  }
+}
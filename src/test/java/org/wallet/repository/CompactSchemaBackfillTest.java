@@ -0,0 +1,153 @@
+package org.wallet.repository;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.wallet.utils.BigDecimalUtils.fromLong;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.DockerComposeContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.wallet.domain.model.Log;
+import org.wallet.domain.model.LogAction;
+import org.wallet.domain.model.Transaction;
+import org.wallet.domain.model.TransactionType;
+import org.wallet.domain.repository.CompactSchemaBackfill;
+import org.wallet.domain.repository.DatabaseConnection;
+import org.wallet.domain.repository.LiquibaseManager;
+import org.wallet.domain.repository.log.JdbcLogRepository;
+import org.wallet.domain.repository.shard.ShardRouter;
+import org.wallet.domain.repository.transaction.JdbcTransactionRepository;
+
+@Testcontainers
+public class CompactSchemaBackfillTest {
+
+  private static final int POSTGRES_PORT = 5432;
+  private static final int LEGACY_ROWS = 12_000;
+
+  @Container
+  private static final DockerComposeContainer DOCKER_COMPOSE_CONTAINER =
+      new DockerComposeContainer(new File("src/test/java/resources/docker-compose-test.yml"))
+          .withExposedService("postgres", POSTGRES_PORT)
+          .withLocalCompose(true)
+          .withOptions("--compatibility");
+
+  private static DatabaseConnection connection;
+  private static ShardRouter shardRouter;
+  private static CompactSchemaBackfill backfill;
+  private static JdbcTransactionRepository transactionRepository;
+
+  @BeforeAll
+  public static void setUp() throws SQLException {
+    String url =
+        "jdbc:postgresql://"
+            + DOCKER_COMPOSE_CONTAINER.getServiceHost("postgres", POSTGRES_PORT)
+            + ":"
+            + DOCKER_COMPOSE_CONTAINER.getServicePort("postgres", POSTGRES_PORT)
+            + "/wallet";
+    connection = new DatabaseConnection(url);
+    new LiquibaseManager(connection).migrate();
+    execute("DELETE FROM wallet.shard_ranges");
+    shardRouter = new ShardRouter(List.of(connection));
+    shardRouter.init();
+    backfill = new CompactSchemaBackfill(shardRouter);
+    transactionRepository = new JdbcTransactionRepository(connection);
+  }
+
+  @AfterAll
+  public static void tearDown() {
+    shardRouter.shutdown();
+  }
+
+  @BeforeEach
+  public void setUpBeforeEach() throws SQLException {
+    execute(
+        "DELETE FROM wallet.transactions",
+        "DELETE FROM wallet.transaction_keys",
+        "DELETE FROM wallet.players",
+        "DELETE FROM wallet.logs",
+        "INSERT INTO wallet.players (login, balance, password) VALUES ('legacy', 0, 'x')",
+        "INSERT INTO wallet.transactions (player_login, transaction_id, type, amount)"
+            + " SELECT 'legacy', 'legacy-' || i,"
+            + " CASE WHEN i % 2 = 0 THEN 'DEBIT' ELSE 'CREDIT' END,"
+            + " i FROM generate_series(1, "
+            + LEGACY_ROWS
+            + ") i",
+        "INSERT INTO wallet.transactions (player_login, transaction_id, type, amount)"
+            + " VALUES ('orphan', 'orphan-1', 'CREDIT', 1)",
+        "INSERT INTO wallet.transaction_keys (transaction_id, created_at)"
+            + " SELECT transaction_id, created_at FROM wallet.transactions",
+        "INSERT INTO wallet.logs (timestamp, action, username, details)"
+            + " VALUES (NOW(), 'REGISTRATION', 'legacy', 'User registered.')");
+  }
+
+  @Test
+  @DisplayName("Legacy rows should be readable before the backfill")
+  public void getTransactions_beforeBackfill_readsLegacyColumns() {
+    assertThat(transactionRepository.getTransactionsByPlayerLogin("legacy"))
+        .hasSize(LEGACY_ROWS)
+        .first()
+        .isEqualTo(new Transaction("legacy", "legacy-1", TransactionType.CREDIT, fromLong(1)));
+    assertThat(transactionRepository.getTransactionsByPlayerLogin("orphan")).hasSize(1);
+  }
+
+  @Test
+  @DisplayName("Backfill should convert every row of an existing player in batches")
+  public void backfill_legacyRows_convertedToCompactColumns() throws SQLException {
+    backfill.backfill();
+
+    assertThat(count("SELECT COUNT(*) FROM wallet.transactions WHERE player_id IS NULL"))
+        .isEqualTo(1);
+    assertThat(count("SELECT COUNT(*) FROM wallet.transactions WHERE player_login = 'legacy'"))
+        .isZero();
+    assertThat(count("SELECT COUNT(*) FROM wallet.logs WHERE action_code IS NULL")).isZero();
+
+    List<Transaction> transactions = transactionRepository.getTransactionsByPlayerLogin("legacy");
+    assertThat(transactions).hasSize(LEGACY_ROWS);
+    assertThat(transactions.get(0))
+        .isEqualTo(new Transaction("legacy", "legacy-1", TransactionType.CREDIT, fromLong(1)));
+    assertThat(transactions.get(1).type()).isEqualTo(TransactionType.DEBIT);
+    assertThat(transactionRepository.getTransactionById("orphan-1")).isPresent();
+    assertThat(new JdbcLogRepository(connection).getLogs())
+        .extracting(Log::getAction)
+        .containsExactly(LogAction.REGISTRATION);
+  }
+
+  @Test
+  @DisplayName("Running the backfill again should not change anything")
+  public void backfill_repeated_idempotent() throws SQLException {
+    backfill.backfill();
+    backfill.backfill();
+
+    assertThat(count("SELECT COUNT(*) FROM wallet.transactions WHERE type_code IS NULL"))
+        .isEqualTo(1);
+    assertThat(transactionRepository.getTransactions()).hasSize(LEGACY_ROWS + 1);
+  }
+
+  private static long count(String sql) throws SQLException {
+    try (Connection local = connection.getConnection();
+        Statement statement = local.createStatement();
+        ResultSet resultSet = statement.executeQuery(sql)) {
+      resultSet.next();
+      return resultSet.getLong(1);
+    }
+  }
+
+  private static void execute(String... statements) throws SQLException {
+    try (Connection local = connection.getConnection();
+        Statement statement = local.createStatement()) {
+      for (String sql : statements) {
+        statement.executeUpdate(sql);
+      }
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package org.wallet.repository;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.wallet.domain.repository.shard.HashRing;
+
+public class HashRingTest {
+
+  private static final int LOGINS = 100_000;
+  private static final int VIRTUAL_NODES = 64;
+
+  @Test
+  @DisplayName("Logins should be spread evenly over the shards")
+  public void shardOf_manyLogins_balanced() {
+    HashRing ring = HashRing.create(4, VIRTUAL_NODES);
+    int[] counts = new int[4];
+    for (int i = 0; i < LOGINS; i++) {
+      counts[ring.shardOf("player-" + i)]++;
+    }
+
+    for (int count : counts) {
+      assertThat(count).isBetween(LOGINS / 4 * 7 / 10, LOGINS / 4 * 13 / 10);
+    }
+  }
+
+  @Test
+  @DisplayName("Adding a shard should only move the logins taken over by the new shard")
+  public void create_additionalShard_movesOnlyItsShare() {
+    HashRing before = HashRing.create(4, VIRTUAL_NODES);
+    HashRing after = HashRing.create(5, VIRTUAL_NODES);
+
+    int moved = 0;
+    for (int i = 0; i < LOGINS; i++) {
+      String login = "player-" + i;
+      int shard = after.shardOf(login);
+      if (before.shardOf(login) != shard) {
+        assertThat(shard).isEqualTo(4);
+        moved++;
+      }
+    }
+    assertThat(moved).isBetween(LOGINS / 5 * 7 / 10, LOGINS / 5 * 13 / 10);
+  }
+
+  @Test
+  @DisplayName("Splitting a range should not change the owner of any login")
+  public void split_newToken_keepsOwners() {
+    HashRing ring = HashRing.create(2, VIRTUAL_NODES);
+    Map<String, Integer> owners = new HashMap<>();
+    for (int i = 0; i < 10_000; i++) {
+      owners.put("player-" + i, ring.shardOf("player-" + i));
+    }
+
+    HashRing.create(3, VIRTUAL_NODES).tokens().keySet().forEach(ring::split);
+
+    owners.forEach((login, shard) -> assertThat(ring.shardOf(login)).isEqualTo(shard));
+    assertThat(ring.tokens()).hasSize(3 * VIRTUAL_NODES);
+  }
+
+  @Test
+  @DisplayName("Assigning a range should move only the logins inside it")
+  public void assign_singleToken_movesItsLogins() {
+    HashRing ring = HashRing.create(2, VIRTUAL_NODES);
+    long token = ring.tokens().keySet().iterator().next();
+    int owner = ring.ownerOf(token);
+
+    ring.assign(token, 1 - owner);
+
+    for (int i = 0; i < 10_000; i++) {
+      String login = "player-" + i;
+      if (ring.tokenOf(HashRing.hash(login)) == token) {
+        assertThat(ring.shardOf(login)).isEqualTo(1 - owner);
+      }
+    }
+    assertThatThrownBy(() -> ring.assign(token + 1, 0))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
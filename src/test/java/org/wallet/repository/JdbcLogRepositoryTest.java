@@ -5,6 +5,8 @@ import static org.assertj.core.api.Assertions.*;
 import java.io.File;
 import java.sql.Connection;
 import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -15,9 +17,11 @@ import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import org.wallet.domain.repository.DatabaseConnection;
 import org.wallet.domain.repository.log.JdbcLogRepository;
+import org.wallet.domain.repository.log.LogQuery;
 import org.wallet.domain.repository.LiquibaseManager;
 import org.wallet.domain.repository.log.LogRepository;
 import org.wallet.domain.model.LogAction;
+import org.wallet.domain.model.LogEntry;
 import org.wallet.domain.model.Log;
 
 @Testcontainers
@@ -78,4 +82,52 @@ public class JdbcLogRepositoryTest {
     List<Log> logs = logRepository.getLogs();
     assertThat(logs).hasSize(1);
   }
+
+  @Test
+  @DisplayName("Getting logs of a time range should return only the logs written in it")
+  public void getLogsBetween_logsInSeveralMonths_returnsLogsInRange() {
+    LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    Log recent = new Log(now, LogAction.AUTHORIZATION, "Recent User", "Test Details");
+    Log older = new Log(now.minusMinutes(5), LogAction.REGISTRATION, "Older User", "Test Details");
+    Log nextMonth = new Log(now.plusDays(40), LogAction.AUTHORIZATION, "Later User", "Details");
+    logRepository.addLog(recent);
+    logRepository.addLog(nextMonth);
+    logRepository.addLog(older);
+
+    List<Log> logs = logRepository.getLogs(now.minusHours(1), now.plusHours(1));
+
+    assertThat(logs).containsExactly(older, recent);
+    assertThat(logRepository.getLogs()).hasSize(3);
+  }
+
+  @Test
+  @DisplayName("Querying logs by user and page should return only that page of the user's logs")
+  public void getLogsQuery_userAndPage_returnsPageOfUsersLogs() {
+    LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    for (int i = 0; i < 5; i++) {
+      logRepository.addLog(new Log(now.plusSeconds(i), LogAction.TRANSACTION, "alice", "#" + i));
+      logRepository.addLog(new Log(now.plusSeconds(i), LogAction.TRANSACTION, "bob", "#" + i));
+    }
+
+    List<Log> logs = logRepository.getLogs(new LogQuery(null, null, "alice", 1, 2));
+
+    assertThat(logs).extracting(Log::getDetails).containsExactly("#3", "#2");
+    assertThat(logs).extracting(Log::getUsername).containsOnly("alice");
+  }
+
+  @Test
+  @DisplayName("Logs after an ID should be the latest logs added after it, ordered by ID")
+  public void getLogsAfter_logsAdded_returnsLatestLogsAfterId() {
+    long first = logRepository.addLog(new Log(LogAction.REGISTRATION, "alice", "#0"));
+    long second = logRepository.addLog(new Log(LogAction.AUTHORIZATION, "alice", "#1"));
+    long third = logRepository.addLog(new Log(LogAction.TRANSACTION, "alice", "#2"));
+
+    assertThat(logRepository.getLogsAfter(first, 10))
+        .extracting(LogEntry::id)
+        .containsExactly(second, third);
+    assertThat(logRepository.getLogsAfter(0, 1))
+        .extracting(entry -> entry.log().getDetails())
+        .containsExactly("#2");
+    assertThat(logRepository.getLogsAfter(third, 10)).isEmpty();
+  }
 }
@@ -56,6 +56,7 @@ public class JdbcPlayerRepositoryTest {
     try (Connection local = connection.getConnection()) {
       Statement statement = local.createStatement();
 
+      statement.executeUpdate("DELETE FROM wallet.transactions");
       statement.executeUpdate("DELETE FROM wallet.players");
 
     } catch (Exception e) {
@@ -0,0 +1,162 @@
+package org.wallet.repository;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.DockerComposeContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.wallet.domain.model.Player;
+import org.wallet.domain.model.Transaction;
+import org.wallet.domain.model.TransactionType;
+import org.wallet.domain.repository.DatabaseConnection;
+import org.wallet.domain.repository.LiquibaseManager;
+import org.wallet.domain.repository.player.JdbcPlayerRepository;
+import org.wallet.domain.repository.player.PlayerRepository;
+import org.wallet.domain.repository.transaction.JdbcTransactionRepository;
+import org.wallet.domain.repository.transaction.TransactionRepository;
+
+@Testcontainers
+public class JdbcReplicaRoutingTest {
+
+  private static final int POSTGRES_PORT = 5432;
+  private static final String UNREACHABLE_URL = "jdbc:postgresql://localhost:1/wallet";
+
+  @Container
+  private static final DockerComposeContainer DOCKER_COMPOSE_CONTAINER =
+      new DockerComposeContainer(
+              new File("src/test/java/resources/docker-compose-replica-test.yml"))
+          .withExposedService("primary", POSTGRES_PORT)
+          .withExposedService("replica", POSTGRES_PORT)
+          .withLocalCompose(true)
+          .withOptions("--compatibility");
+
+  private static String primaryUrl;
+  private static DatabaseConnection primary;
+  private static DatabaseConnection replica;
+  private static DatabaseConnection connection;
+  private static PlayerRepository playerRepository;
+  private static TransactionRepository transactionRepository;
+
+  @BeforeAll
+  public static void setUp() {
+    primaryUrl =
+        "jdbc:postgresql://"
+            + DOCKER_COMPOSE_CONTAINER.getServiceHost("primary", POSTGRES_PORT)
+            + ":"
+            + DOCKER_COMPOSE_CONTAINER.getServicePort("primary", POSTGRES_PORT)
+            + "/wallet";
+    String replicaUrl =
+        "jdbc:postgresql://"
+            + DOCKER_COMPOSE_CONTAINER.getServiceHost("replica", POSTGRES_PORT)
+            + ":"
+            + DOCKER_COMPOSE_CONTAINER.getServicePort("replica", POSTGRES_PORT)
+            + "/wallet";
+    primary = new DatabaseConnection(primaryUrl);
+    replica = new DatabaseConnection(replicaUrl);
+    new LiquibaseManager(primary).migrate();
+    new LiquibaseManager(replica).migrate();
+
+    connection = new DatabaseConnection(primaryUrl, List.of(replicaUrl));
+    playerRepository = new JdbcPlayerRepository(connection);
+    transactionRepository = new JdbcTransactionRepository(connection);
+  }
+
+  @BeforeEach
+  public void setUpBeforeEach() throws SQLException {
+    for (DatabaseConnection database : List.of(primary, replica)) {
+      execute(
+          database,
+          "DELETE FROM wallet.transactions",
+          "DELETE FROM wallet.transaction_keys",
+          "DELETE FROM wallet.players");
+    }
+  }
+
+  @Test
+  @DisplayName("Balance snapshot should be read from the replica")
+  public void getPlayerSnapshotByLogin_readsReplica() throws SQLException {
+    execute(primary, "INSERT INTO wallet.players (login, balance, password) VALUES ('p', 10, 'x')");
+    execute(replica, "INSERT INTO wallet.players (login, balance, password) VALUES ('p', 5, 'x')");
+
+    assertThat(playerRepository.getPlayerSnapshotByLogin("p"))
+        .map(Player::getBalance)
+        .hasValueSatisfying(balance -> assertThat(balance).isEqualByComparingTo("5"));
+    assertThat(playerRepository.getPlayerByLogin("p"))
+        .map(Player::getBalance)
+        .hasValueSatisfying(balance -> assertThat(balance).isEqualByComparingTo("10"));
+  }
+
+  @Test
+  @DisplayName("Reads of a player who has just written should stay on the primary")
+  public void getPlayerSnapshotByLogin_afterWrite_readsPrimary() {
+    Player player = new Player("writer", "password");
+    playerRepository.addPlayer(player);
+
+    assertThat(playerRepository.getPlayerSnapshotByLogin("writer")).contains(player);
+    assertThat(playerRepository.getPlayerSnapshotByLogin("other")).isEmpty();
+  }
+
+  @Test
+  @DisplayName("Transaction history should be read from the replica until the player writes")
+  public void getTransactionsByPlayerLogin_readsReplicaUntilWrite() throws SQLException {
+    execute(
+        primary, "INSERT INTO wallet.players (login, balance, password) VALUES ('reader', 0, 'x')");
+    execute(
+        replica,
+        "INSERT INTO wallet.transactions (player_login, transaction_id, type, amount)"
+            + " VALUES ('reader', 'replicated', 'CREDIT', 1)");
+
+    assertThat(transactionRepository.getTransactionsByPlayerLogin("reader"))
+        .extracting(Transaction::transactionId)
+        .containsExactly("replicated");
+
+    transactionRepository.addTransaction(
+        new Transaction("reader", "fresh", TransactionType.CREDIT, BigDecimal.ONE));
+
+    assertThat(transactionRepository.getTransactionsByPlayerLogin("reader"))
+        .extracting(Transaction::transactionId)
+        .containsExactly("fresh");
+  }
+
+  @Test
+  @DisplayName("Unreachable replica should be taken out of rotation and reads served by primary")
+  public void executeRead_unreachableReplica_failsOverToPrimary() throws SQLException {
+    execute(primary, "INSERT INTO wallet.players (login, balance, password) VALUES ('p', 10, 'x')");
+    var failingConnection = new DatabaseConnection(primaryUrl, List.of(UNREACHABLE_URL));
+    var repository = new JdbcPlayerRepository(failingConnection);
+
+    assertThat(repository.getPlayerSnapshotByLogin("p")).isPresent();
+    assertThat(failingConnection.getHealthyReplicaCount()).isZero();
+
+    failingConnection.checkReplicas();
+    assertThat(failingConnection.getHealthyReplicaCount()).isZero();
+  }
+
+  @Test
+  @DisplayName("Health check should keep a reachable replica in rotation")
+  public void checkReplicas_reachableReplica_staysHealthy() {
+    connection.checkReplicas();
+
+    assertThat(connection.getHealthyReplicaCount()).isEqualTo(1);
+  }
+
+  private static void execute(DatabaseConnection database, String... statements)
+      throws SQLException {
+    try (Connection local = database.getConnection();
+        Statement statement = local.createStatement()) {
+      for (String sql : statements) {
+        statement.executeUpdate(sql);
+      }
+    }
+  }
+}
@@ -19,7 +19,10 @@ import org.wallet.domain.repository.DatabaseConnection;
 import org.wallet.domain.repository.transaction.JdbcTransactionRepository;
 import org.wallet.domain.repository.LiquibaseManager;
 import org.wallet.domain.repository.transaction.TransactionRepository;
+import org.wallet.exception.PlayerNotFoundException;
 import org.wallet.exception.TransactionAlreadyExistException;
+import org.wallet.domain.model.Ledger;
+import org.wallet.domain.model.LedgerPage;
 import org.wallet.domain.model.Transaction;
 import org.wallet.domain.model.TransactionType;
 
@@ -61,6 +64,11 @@ public class JdbcTransactionRepositoryTest {
       Statement statement = local.createStatement();
 
       statement.executeUpdate("DELETE FROM wallet.transactions");
+      statement.executeUpdate("DELETE FROM wallet.transaction_keys");
+      statement.executeUpdate("DELETE FROM wallet.players");
+      statement.executeUpdate(
+          "INSERT INTO wallet.players (login, balance, password)"
+              + " VALUES ('testPlayer', 0, 'x'), ('otherPlayer', 0, 'x')");
 
     } catch (Exception e) {
       e.printStackTrace();
@@ -91,6 +99,17 @@ public class JdbcTransactionRepositoryTest {
         .isInstanceOf(TransactionAlreadyExistException.class);
   }
 
+  @Test
+  @DisplayName("Adding a transaction of an unknown player should throw PlayerNotFoundException")
+  public void addTransactionUnknownPlayer_throwsPlayerNotFoundException() {
+    var transaction =
+        new Transaction("unknownPlayer", "transaction1", TransactionType.CREDIT, fromLong(10));
+
+    assertThatThrownBy(() -> transactionRepository.addTransaction(transaction))
+        .isInstanceOf(PlayerNotFoundException.class);
+    assertThat(transactionRepository.getTransactions()).isEmpty();
+  }
+
   @Test
   @DisplayName(
       "Getting a transaction by ID, when found, should return an Optional with the transaction")
@@ -147,4 +166,48 @@ public class JdbcTransactionRepositoryTest {
 
     assertThat(playerTransactions).isEmpty();
   }
+
+  @Test
+  @DisplayName("Every stored transaction should increment the ledger version of its player only")
+  public void getLedgerByPlayerLogin_afterTransactions_versionIncremented() {
+    Ledger before = transactionRepository.getLedgerByPlayerLogin("testPlayer");
+
+    transactionRepository.applyTransaction(testTransaction);
+    transactionRepository.addTransaction(
+        new Transaction("testPlayer", "transaction2", TransactionType.CREDIT, fromLong(5)));
+
+    Ledger after = transactionRepository.getLedgerByPlayerLogin("testPlayer");
+    assertThat(after.version()).isEqualTo(before.version() + 2);
+    assertThat(after.transactions()).hasSize(2);
+    assertThat(transactionRepository.getLedgerByPlayerLogin("otherPlayer").version()).isZero();
+    assertThat(transactionRepository.getLedgerByPlayerLogin("unknownPlayer").version()).isNegative();
+  }
+
+  @Test
+  @DisplayName("Pages of a player's transactions should walk the history back from the latest")
+  public void getLedgerPageByPlayerLogin_severalPages_returnsLatestTransactionsFirst() {
+    for (int i = 0; i < 5; i++) {
+      transactionRepository.addTransaction(
+          new Transaction("testPlayer", "transaction" + i, TransactionType.CREDIT, fromLong(i)));
+    }
+
+    LedgerPage latest =
+        transactionRepository.getLedgerPageByPlayerLogin("testPlayer", Long.MAX_VALUE, 3);
+    LedgerPage oldest =
+        transactionRepository.getLedgerPageByPlayerLogin(
+            "testPlayer", Long.parseLong(latest.nextCursor()), 3);
+
+    assertThat(latest.transactions())
+        .extracting(Transaction::transactionId)
+        .containsExactly("transaction2", "transaction3", "transaction4");
+    assertThat(oldest.transactions())
+        .extracting(Transaction::transactionId)
+        .containsExactly("transaction0", "transaction1");
+    assertThat(oldest.nextCursor()).isNull();
+    assertThat(oldest.version()).isEqualTo(latest.version());
+    assertThat(
+            transactionRepository.getStoredTransactionIds(
+                "testPlayer", List.of("transaction1", "archived")))
+        .containsExactly("transaction1");
+  }
 }
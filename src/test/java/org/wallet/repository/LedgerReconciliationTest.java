@@ -0,0 +1,254 @@
+package org.wallet.repository;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.testcontainers.containers.DockerComposeContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.wallet.domain.model.LedgerEvent;
+import org.wallet.domain.model.TransactionType;
+import org.wallet.domain.repository.DatabaseConnection;
+import org.wallet.domain.repository.LedgerReconciliation;
+import org.wallet.domain.repository.LiquibaseManager;
+import org.wallet.domain.repository.PartitionMaintenance;
+import org.wallet.domain.repository.player.JdbcPlayerRepository;
+import org.wallet.domain.repository.shard.ShardRouter;
+import org.wallet.domain.repository.transaction.TransactionArchive;
+import org.wallet.domain.service.LedgerEventBus;
+
+@Testcontainers
+public class LedgerReconciliationTest {
+
+  private static final int POSTGRES_PORT = 5432;
+
+  @Container
+  private static final DockerComposeContainer DOCKER_COMPOSE_CONTAINER =
+      new DockerComposeContainer(new File("src/test/java/resources/docker-compose-test.yml"))
+          .withExposedService("postgres", POSTGRES_PORT)
+          .withLocalCompose(true)
+          .withOptions("--compatibility");
+
+  private static DatabaseConnection connection;
+  private static ShardRouter shardRouter;
+
+  @TempDir Path directory;
+
+  private LedgerEventBus ledgerEventBus;
+  private LedgerReconciliation reconciliation;
+
+  @BeforeAll
+  public static void setUp() throws SQLException {
+    String url =
+        "jdbc:postgresql://"
+            + DOCKER_COMPOSE_CONTAINER.getServiceHost("postgres", POSTGRES_PORT)
+            + ":"
+            + DOCKER_COMPOSE_CONTAINER.getServicePort("postgres", POSTGRES_PORT)
+            + "/wallet";
+    connection = new DatabaseConnection(url);
+    new LiquibaseManager(connection).migrate();
+    execute("DELETE FROM wallet.shard_ranges");
+    shardRouter = new ShardRouter(List.of(connection));
+    shardRouter.init();
+  }
+
+  @AfterAll
+  public static void tearDown() {
+    shardRouter.shutdown();
+  }
+
+  @BeforeEach
+  public void setUpBeforeEach() throws SQLException {
+    execute(
+        "DELETE FROM wallet.reconciliation_runs",
+        "DELETE FROM wallet.transactions WHERE transaction_id LIKE 'reconciliation-%'",
+        "DELETE FROM wallet.players WHERE login LIKE 'reconciliation-%'",
+        "INSERT INTO wallet.players (login, balance, password) VALUES"
+            + " ('reconciliation-1', 70, 'password'), ('reconciliation-2', 0, 'password'),"
+            + " ('reconciliation-3', 0, 'password')");
+    addTransaction("reconciliation-1", TransactionType.CREDIT, "100");
+    addTransaction("reconciliation-1", TransactionType.DEBIT, "30");
+    addTransaction("reconciliation-2", TransactionType.CREDIT, "50");
+    addTransaction("reconciliation-3", TransactionType.CREDIT, "10");
+
+    TransactionArchive archive =
+        new TransactionArchive(
+            shardRouter,
+            new PartitionMaintenance(shardRouter, Clock.systemDefaultZone(), 12, "archive"),
+            Clock.systemDefaultZone(),
+            directory,
+            24);
+    archive.init();
+    ledgerEventBus = new LedgerEventBus();
+    reconciliation = new LedgerReconciliation(shardRouter, archive, ledgerEventBus, 4, 100);
+  }
+
+  @Test
+  @DisplayName("Players whose balance differs from their transactions should be reported")
+  public void reconcile_driftedBalances_reportsMismatchesWithoutRepair() throws SQLException {
+    Map<String, Object> summary = reconciliation.reconcile(false);
+
+    assertThat(mismatches())
+        .containsExactly("reconciliation-2:0:50:false", "reconciliation-3:0:10:false");
+    assertThat(balance("reconciliation-2")).isEqualByComparingTo("0");
+    assertThat((long) summary.get("players")).isGreaterThanOrEqualTo(3);
+    assertThat((long) summary.get("transactions")).isGreaterThanOrEqualTo(4);
+  }
+
+  @Test
+  @DisplayName("A repairing run should set the balances to the sum of their transactions")
+  public void reconcile_repair_correctsBalances() throws SQLException {
+    long version = ledgerVersion("reconciliation-2");
+    long unchangedVersion = ledgerVersion("reconciliation-1");
+    List<LedgerEvent> events = new ArrayList<>();
+    ledgerEventBus.subscribe("reconciliation-2", events::add);
+    reconciliation.reconcile(true);
+
+    assertThat(mismatches())
+        .containsExactly("reconciliation-2:0:50:true", "reconciliation-3:0:10:true");
+    assertThat(balance("reconciliation-1")).isEqualByComparingTo("70");
+    assertThat(balance("reconciliation-2")).isEqualByComparingTo("50");
+    assertThat(balance("reconciliation-3")).isEqualByComparingTo("10");
+    assertThat(ledgerVersion("reconciliation-2")).isGreaterThan(version);
+    assertThat(ledgerVersion("reconciliation-1")).isEqualTo(unchangedVersion);
+    assertThat(events).hasSize(1);
+    assertThat(events.get(0).transaction()).isNull();
+    assertThat(events.get(0).balance()).isEqualByComparingTo("50");
+    assertThat(events.get(0).ledgerVersion()).isEqualTo(ledgerVersion("reconciliation-2"));
+    reconciliation.reconcile(false);
+    assertThat(mismatches()).isEmpty();
+  }
+
+  @Test
+  @DisplayName("An interrupted run should be resumed after its last checked player in its mode")
+  public void reconcile_unfinishedRun_resumesFromCheckpoint() throws SQLException {
+    execute(
+        "INSERT INTO wallet.reconciliation_runs (started_at, repair, last_player_id,"
+            + " max_player_id, players, transactions) SELECT LOCALTIMESTAMP, TRUE,"
+            + " (SELECT id FROM wallet.players WHERE login = 'reconciliation-2'),"
+            + " MAX(id), 0, 0 FROM wallet.players");
+
+    reconciliation.reconcile(false);
+
+    assertThat(mismatches()).containsExactly("reconciliation-3:0:10:true");
+    assertThat(balance("reconciliation-2")).isEqualByComparingTo("0");
+    assertThat(balance("reconciliation-3")).isEqualByComparingTo("10");
+  }
+
+  @Test
+  @DisplayName("A shard being reconciled by another instance should be skipped")
+  public void reconcile_shardLockedElsewhere_skipsShard() throws SQLException {
+    try (Connection other = connection.getConnection();
+        Statement statement = other.createStatement()) {
+      long lock = 0x5245434f4e43494cL;
+      statement.execute("SELECT pg_advisory_lock(" + lock + ")");
+      try {
+        Map<String, Object> summary = reconciliation.reconcile(false);
+
+        assertThat(summary.get("skippedShards")).isEqualTo(List.of(0));
+        assertThat(summary.get("players")).isEqualTo(0L);
+        assertThat(mismatches()).isEmpty();
+      } finally {
+        statement.execute("SELECT pg_advisory_unlock(" + lock + ")");
+      }
+    }
+    assertThat(reconciliation.reconcile(false).get("skippedShards")).isEqualTo(List.of());
+    assertThat(mismatches()).hasSize(2);
+  }
+
+  @Test
+  @DisplayName("The status should list the last run and its mismatches")
+  public void status_finishedRun_listsMismatches() {
+    reconciliation.reconcile(false);
+
+    Map<String, Object> status = reconciliation.status();
+
+    assertThat(status.get("running")).isEqualTo(false);
+    assertThat(status.get("shards").toString())
+        .contains("reconciliation-2", "reconciliation-3")
+        .doesNotContain("reconciliation-1");
+  }
+
+  private static void addTransaction(String login, TransactionType type, String amount)
+      throws SQLException {
+    try (Connection local = connection.getConnection();
+        PreparedStatement preparedStatement =
+            local.prepareStatement(
+                "INSERT INTO wallet.transactions (player_id, transaction_id, type_code, amount)"
+                    + " SELECT id, ? || '-' || (SELECT COUNT(*) FROM wallet.transactions t"
+                    + " WHERE t.player_id = p.id), ?, ? FROM wallet.players p WHERE login = ?")) {
+      preparedStatement.setString(1, login);
+      preparedStatement.setShort(2, type.getCode());
+      preparedStatement.setBigDecimal(3, new BigDecimal(amount));
+      preparedStatement.setString(4, login);
+      preparedStatement.executeUpdate();
+    }
+  }
+
+  private static BigDecimal balance(String login) throws SQLException {
+    try (Connection local = connection.getConnection();
+        PreparedStatement preparedStatement =
+            local.prepareStatement("SELECT balance FROM wallet.players WHERE login = ?")) {
+      preparedStatement.setString(1, login);
+      try (ResultSet resultSet = preparedStatement.executeQuery()) {
+        resultSet.next();
+        return resultSet.getBigDecimal(1);
+      }
+    }
+  }
+
+  private static long ledgerVersion(String login) {
+    return new JdbcPlayerRepository(connection).getLedgerVersion(login).getAsLong();
+  }
+
+  /** Returns the mismatches of the test players found by the last run. */
+  private static List<String> mismatches() throws SQLException {
+    List<String> mismatches = new ArrayList<>();
+    try (Connection local = connection.getConnection();
+        Statement statement = local.createStatement();
+        ResultSet resultSet =
+            statement.executeQuery(
+                "SELECT login, balance, ledger_balance, repaired"
+                    + " FROM wallet.reconciliation_mismatches"
+                    + " WHERE run_id = (SELECT MAX(id) FROM wallet.reconciliation_runs)"
+                    + " AND login LIKE 'reconciliation-%' ORDER BY login")) {
+      while (resultSet.next()) {
+        mismatches.add(
+            resultSet.getString(1)
+                + ":"
+                + resultSet.getBigDecimal(2).stripTrailingZeros().toPlainString()
+                + ":"
+                + resultSet.getBigDecimal(3).stripTrailingZeros().toPlainString()
+                + ":"
+                + resultSet.getBoolean(4));
+      }
+    }
+    return mismatches;
+  }
+
+  private static void execute(String... statements) throws SQLException {
+    try (Connection local = connection.getConnection();
+        Statement statement = local.createStatement()) {
+      for (String sql : statements) {
+        statement.executeUpdate(sql);
+      }
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package org.wallet.repository;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.DockerComposeContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.wallet.domain.repository.DatabaseConnection;
+import org.wallet.domain.repository.LiquibaseManager;
+
+@Testcontainers
+public class LiquibaseManagerTest {
+
+  private static final int POSTGRES_PORT = 5432;
+
+  private static final String SELECT_CHECKSUM_SQL =
+      "SELECT checksum, migrated_at FROM wallet_log.schema_checksum";
+
+  @Container
+  private static final DockerComposeContainer DOCKER_COMPOSE_CONTAINER =
+      new DockerComposeContainer(new File("src/test/java/resources/docker-compose-test.yml"))
+          .withExposedService("postgres", POSTGRES_PORT)
+          .withLocalCompose(true)
+          .withOptions("--compatibility");
+
+  private static DatabaseConnection connection;
+  private static LiquibaseManager liquibaseManager;
+
+  @BeforeAll
+  public static void setUp() {
+    String url =
+        "jdbc:postgresql://"
+            + DOCKER_COMPOSE_CONTAINER.getServiceHost("postgres", POSTGRES_PORT)
+            + ":"
+            + DOCKER_COMPOSE_CONTAINER.getServicePort("postgres", POSTGRES_PORT)
+            + "/wallet";
+    connection = new DatabaseConnection(url);
+    liquibaseManager = new LiquibaseManager(connection);
+    liquibaseManager.migrate();
+  }
+
+  @Test
+  @DisplayName("The first migration should update the schema and store the change log checksum")
+  public void migrate_newDatabase_storesChecksum() throws SQLException {
+    assertThat(storedChecksum().checksum()).hasSize(64);
+    try (Connection conn = connection.getConnection();
+        Statement statement = conn.createStatement();
+        ResultSet resultSet =
+            statement.executeQuery("SELECT to_regclass('wallet.players') IS NOT NULL")) {
+      resultSet.next();
+      assertThat(resultSet.getBoolean(1)).isTrue();
+    }
+  }
+
+  @Test
+  @DisplayName("A start with an unchanged change log should skip the update")
+  public void migrate_unchangedChangeLog_skipsUpdate() throws SQLException {
+    Checksum before = storedChecksum();
+
+    liquibaseManager.migrate();
+
+    assertThat(storedChecksum()).isEqualTo(before);
+  }
+
+  @Test
+  @DisplayName("A start with a changed change log should run the update and store the new checksum")
+  public void migrate_changedChangeLog_runsUpdate() throws SQLException {
+    Checksum current = storedChecksum();
+    execute("UPDATE wallet_log.schema_checksum SET checksum = 'stale'");
+
+    liquibaseManager.migrate();
+
+    Checksum after = storedChecksum();
+    assertThat(after.checksum()).isEqualTo(current.checksum());
+    assertThat(after.migratedAt()).isAfter(current.migratedAt());
+  }
+
+  private static Checksum storedChecksum() throws SQLException {
+    try (Connection conn = connection.getConnection();
+        Statement statement = conn.createStatement();
+        ResultSet resultSet = statement.executeQuery(SELECT_CHECKSUM_SQL)) {
+      assertThat(resultSet.next()).isTrue();
+      return new Checksum(resultSet.getString(1), resultSet.getTimestamp(2));
+    }
+  }
+
+  private static void execute(String sql) throws SQLException {
+    try (Connection conn = connection.getConnection();
+        Statement statement = conn.createStatement()) {
+      statement.execute(sql);
+    }
+  }
+
+  private record Checksum(String checksum, Timestamp migratedAt) {}
+}
@@ -0,0 +1,82 @@
+package org.wallet.repository;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.util.function.Consumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.wallet.domain.repository.player.LoginIndex;
+import org.wallet.domain.repository.player.PlayerRepository;
+
+public class LoginIndexTest {
+
+  private PlayerRepository playerRepository;
+  private LoginIndex loginIndex;
+
+  @BeforeEach
+  public void setUp() {
+    playerRepository = mock(PlayerRepository.class);
+    loginIndex = new LoginIndex(playerRepository);
+  }
+
+  @Test
+  @DisplayName("Logins loaded at startup should be reported as possibly existing")
+  public void mightContain_loadedLogin_returnsTrue() {
+    stubLogins(null, new long[] {1}, "storedLogin");
+
+    loginIndex.load();
+
+    assertThat(loginIndex.mightContain("storedLogin")).isTrue();
+    assertThat(loginIndex.getQueriesAvoided()).isZero();
+  }
+
+  @Test
+  @DisplayName("A refresh should add the logins stored after the last loaded player")
+  public void refresh_newPlayers_addsTheirLogins() {
+    long[] loaded = {1};
+    stubLogins(null, loaded, "storedLogin");
+    stubLogins(loaded, new long[] {2}, "otherInstanceLogin");
+    loginIndex.load();
+    assertThat(loginIndex.mightContain("otherInstanceLogin")).isFalse();
+
+    loginIndex.refresh();
+
+    assertThat(loginIndex.mightContain("otherInstanceLogin")).isTrue();
+  }
+
+  @Test
+  @DisplayName("Unknown logins should be answered by the filter; registrations avoid a query")
+  public void mightContain_unknownLogin_returnsFalse() {
+    loginIndex.add("registeredLogin");
+
+    assertThat(loginIndex.mightContain("unknownLogin")).isFalse();
+    assertThat(loginIndex.mightContain("registeredLogin")).isTrue();
+    assertThat(loginIndex.getQueriesAvoided()).isEqualTo(1);
+    assertThat(loginIndex.getHitRatio()).isEqualTo(0.5);
+  }
+
+  @Test
+  @DisplayName("A stale negative should add the login to the filter")
+  public void recordStaleNegative_login_addsLogin() {
+    loginIndex.recordStaleNegative("otherInstanceLogin");
+
+    assertThat(loginIndex.mightContain("otherInstanceLogin")).isTrue();
+  }
+
+  @SuppressWarnings("unchecked")
+  private void stubLogins(long[] after, long[] positions, String... logins) {
+    doAnswer(
+            invocation -> {
+              for (String login : logins) {
+                ((Consumer<String>) invocation.getArgument(1)).accept(login);
+              }
+              return positions;
+            })
+        .when(playerRepository)
+        .forEachLoginAfter(eq(after), any());
+  }
+}
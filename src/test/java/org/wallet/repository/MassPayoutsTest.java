@@ -0,0 +1,230 @@
+package org.wallet.repository;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.DockerComposeContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.wallet.domain.model.LedgerEvent;
+import org.wallet.domain.model.TransactionType;
+import org.wallet.domain.repository.DatabaseConnection;
+import org.wallet.domain.repository.LiquibaseManager;
+import org.wallet.domain.repository.shard.ShardRouter;
+import org.wallet.domain.repository.shard.ShardedTransactionRepository;
+import org.wallet.domain.repository.transaction.MassPayouts;
+import org.wallet.domain.repository.transaction.TransactionIdIndex;
+import org.wallet.domain.service.LedgerEventBus;
+
+@Testcontainers
+public class MassPayoutsTest {
+
+  private static final int POSTGRES_PORT = 5432;
+
+  @Container
+  private static final DockerComposeContainer DOCKER_COMPOSE_CONTAINER =
+      new DockerComposeContainer(new File("src/test/java/resources/docker-compose-test.yml"))
+          .withExposedService("postgres", POSTGRES_PORT)
+          .withLocalCompose(true)
+          .withOptions("--compatibility");
+
+  private static DatabaseConnection connection;
+  private static ShardRouter shardRouter;
+
+  private TransactionIdIndex transactionIdIndex;
+  private LedgerEventBus ledgerEventBus;
+  private MassPayouts massPayouts;
+
+  @BeforeAll
+  public static void setUp() throws SQLException {
+    String url =
+        "jdbc:postgresql://"
+            + DOCKER_COMPOSE_CONTAINER.getServiceHost("postgres", POSTGRES_PORT)
+            + ":"
+            + DOCKER_COMPOSE_CONTAINER.getServicePort("postgres", POSTGRES_PORT)
+            + "/wallet";
+    connection = new DatabaseConnection(url);
+    new LiquibaseManager(connection).migrate();
+    execute("DELETE FROM wallet.shard_ranges");
+    shardRouter = new ShardRouter(List.of(connection));
+    shardRouter.init();
+  }
+
+  @AfterAll
+  public static void tearDown() {
+    shardRouter.shutdown();
+  }
+
+  @BeforeEach
+  public void setUpBeforeEach() throws SQLException {
+    execute(
+        "DELETE FROM wallet.payout_runs",
+        "DELETE FROM wallet.transactions WHERE transaction_id LIKE 'payout:%'",
+        "DELETE FROM wallet.transaction_keys WHERE transaction_id LIKE 'payout:%'",
+        "DELETE FROM wallet.players WHERE login LIKE 'payout-%'",
+        "INSERT INTO wallet.players (login, balance, password) VALUES"
+            + " ('payout-1', 100, 'password'), ('payout-2', 5, 'password'),"
+            + " ('payout-3', 0, 'password')");
+    transactionIdIndex = new TransactionIdIndex(new ShardedTransactionRepository(shardRouter));
+    ledgerEventBus = new LedgerEventBus();
+    massPayouts = new MassPayouts(shardRouter, transactionIdIndex, ledgerEventBus, 4, 100);
+  }
+
+  @Test
+  @DisplayName("A credit should be applied once to every player matching the pattern")
+  public void pay_creditWithPattern_creditsSelectedPlayers() throws SQLException {
+    Map<String, Object> summary =
+        massPayouts.pay("promo", TransactionType.CREDIT, new BigDecimal("10"), "payout-%", null);
+
+    assertThat(summary).containsEntry("applied", 3L).containsEntry("skipped", 0L);
+    assertThat(balance("payout-1")).isEqualByComparingTo("110");
+    assertThat(balance("payout-2")).isEqualByComparingTo("15");
+    assertThat(balance("payout-3")).isEqualByComparingTo("10");
+    assertThat(transactionIdIndex.contains("payout:promo:payout-2")).isTrue();
+    assertThat(
+            count(
+                "SELECT COUNT(*) FROM wallet.transactions"
+                    + " WHERE transaction_id = 'payout:promo:payout-3' AND type_code = 2"
+                    + " AND amount = 10"))
+        .isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("A payout should publish the transaction and new balance of every paid player")
+  public void pay_credit_publishesEvents() {
+    List<LedgerEvent> events = new ArrayList<>();
+    ledgerEventBus.subscribe("payout-2", events::add);
+
+    massPayouts.pay("event", TransactionType.CREDIT, new BigDecimal("10"), "payout-%", null);
+
+    assertThat(events).hasSize(1);
+    assertThat(events.get(0).transaction().transactionId()).isEqualTo("payout:event:payout-2");
+    assertThat(events.get(0).balance()).isEqualByComparingTo("15");
+    assertThat(events.get(0).ledgerVersion()).isPositive();
+  }
+
+  @Test
+  @DisplayName("A debit should skip the players who cannot cover it")
+  public void pay_debit_skipsInsufficientFunds() throws SQLException {
+    Map<String, Object> summary =
+        massPayouts.pay("fee", TransactionType.DEBIT, new BigDecimal("10"), "payout-%", null);
+
+    assertThat(summary).containsEntry("applied", 1L).containsEntry("skipped", 2L);
+    assertThat(balance("payout-1")).isEqualByComparingTo("90");
+    assertThat(balance("payout-2")).isEqualByComparingTo("5");
+    assertThat(balance("payout-3")).isEqualByComparingTo("0");
+  }
+
+  @Test
+  @DisplayName("Only the players listed in the request should be paid")
+  public void pay_logins_paysListedPlayers() throws Exception {
+    List<String> logins = List.of("payout-1", "", " payout-3 ", "unknown-player");
+
+    Map<String, Object> summary =
+        massPayouts.pay("listed", TransactionType.CREDIT, new BigDecimal("1"), null, logins);
+
+    assertThat(summary).containsEntry("applied", 2L);
+    assertThat(balance("payout-1")).isEqualByComparingTo("101");
+    assertThat(balance("payout-2")).isEqualByComparingTo("5");
+    assertThat(balance("payout-3")).isEqualByComparingTo("1");
+  }
+
+  @Test
+  @DisplayName("An interrupted payout should resume without paying any player twice")
+  public void pay_interruptedPayout_resumesIdempotently() throws SQLException {
+    massPayouts.pay("promo", TransactionType.CREDIT, new BigDecimal("10"), "payout-%", null);
+    // Simulates a payout that stopped after writing its chunks but before saving its progress.
+    execute("UPDATE wallet.payout_runs SET finished_at = NULL, last_player_id = 0");
+    execute("INSERT INTO wallet.players (login, balance, password) VALUES ('payout-4', 0, 'x')");
+
+    Map<String, Object> summary =
+        massPayouts.pay("promo", TransactionType.CREDIT, new BigDecimal("10"), "payout-%", null);
+
+    assertThat(summary).containsEntry("applied", 0L).containsEntry("duplicates", 3L);
+    assertThat(balance("payout-1")).isEqualByComparingTo("110");
+    assertThat(balance("payout-4")).isEqualByComparingTo("0");
+    assertThat(massPayouts.pay("promo", TransactionType.CREDIT, BigDecimal.TEN, "payout-%", null))
+        .containsEntry("applied", 0L)
+        .containsEntry("duplicates", 0L);
+  }
+
+  @Test
+  @DisplayName("A payout started again with a different rule should be rejected")
+  public void pay_differentRule_throwsException() {
+    massPayouts.pay("promo", TransactionType.CREDIT, new BigDecimal("10"), "payout-%", null);
+
+    assertThatThrownBy(
+            () ->
+                massPayouts.pay(
+                    "promo", TransactionType.CREDIT, new BigDecimal("20"), "payout-%", null))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(
+            () -> massPayouts.pay("bad name", TransactionType.CREDIT, BigDecimal.ONE, null, null))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  @DisplayName("A payout failing in the background should be reported by the status")
+  public void start_failingPayout_reportsFailure() throws InterruptedException {
+    massPayouts.pay("promo", TransactionType.CREDIT, new BigDecimal("10"), "payout-%", null);
+
+    massPayouts.start("promo", "CREDIT", new BigDecimal("20"), "payout-%", null);
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (!massPayouts.status().containsKey("failure")
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(20);
+    }
+
+    Map<String, Object> status = massPayouts.status();
+    assertThat(status.get("running")).isNull();
+    assertThat(status.get("failure"))
+        .asInstanceOf(InstanceOfAssertFactories.MAP)
+        .containsEntry("payout", "promo")
+        .containsEntry("error", "IllegalArgumentException");
+  }
+
+  private static BigDecimal balance(String login) throws SQLException {
+    try (Connection local = connection.getConnection();
+        PreparedStatement preparedStatement =
+            local.prepareStatement("SELECT balance FROM wallet.players WHERE login = ?")) {
+      preparedStatement.setString(1, login);
+      try (ResultSet resultSet = preparedStatement.executeQuery()) {
+        resultSet.next();
+        return resultSet.getBigDecimal(1);
+      }
+    }
+  }
+
+  private static long count(String sql) throws SQLException {
+    try (Connection local = connection.getConnection();
+        Statement statement = local.createStatement();
+        ResultSet resultSet = statement.executeQuery(sql)) {
+      resultSet.next();
+      return resultSet.getLong(1);
+    }
+  }
+
+  private static void execute(String... statements) throws SQLException {
+    try (Connection local = connection.getConnection();
+        Statement statement = local.createStatement()) {
+      for (String sql : statements) {
+        statement.executeUpdate(sql);
+      }
+    }
+  }
+}
@@ -0,0 +1,205 @@
+package org.wallet.repository;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.DockerComposeContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.wallet.domain.repository.DatabaseConnection;
+import org.wallet.domain.repository.LiquibaseManager;
+import org.wallet.domain.repository.PartitionMaintenance;
+import org.wallet.domain.repository.shard.ShardRouter;
+
+@Testcontainers
+public class PartitionMaintenanceTest {
+
+  private static final int POSTGRES_PORT = 5432;
+
+  /** A month far enough ahead not to overlap the partitions created by the migration. */
+  private static final ZonedDateTime FUTURE =
+      ZonedDateTime.of(2090, 1, 15, 12, 0, 0, 0, ZoneId.systemDefault());
+
+  @Container
+  private static final DockerComposeContainer DOCKER_COMPOSE_CONTAINER =
+      new DockerComposeContainer(new File("src/test/java/resources/docker-compose-test.yml"))
+          .withExposedService("postgres", POSTGRES_PORT)
+          .withLocalCompose(true)
+          .withOptions("--compatibility");
+
+  private static DatabaseConnection connection;
+  private static ShardRouter shardRouter;
+
+  @BeforeAll
+  public static void setUp() throws SQLException {
+    String url =
+        "jdbc:postgresql://"
+            + DOCKER_COMPOSE_CONTAINER.getServiceHost("postgres", POSTGRES_PORT)
+            + ":"
+            + DOCKER_COMPOSE_CONTAINER.getServicePort("postgres", POSTGRES_PORT)
+            + "/wallet";
+    connection = new DatabaseConnection(url);
+    new LiquibaseManager(connection).migrate();
+    execute("DELETE FROM wallet.shard_ranges");
+    shardRouter = new ShardRouter(List.of(connection));
+    shardRouter.init();
+  }
+
+  @AfterAll
+  public static void tearDown() {
+    shardRouter.shutdown();
+  }
+
+  @AfterEach
+  public void restorePartitions() throws SQLException {
+    List<String> statements = new ArrayList<>();
+    for (String table : tables("wallet", "%_p209%")) {
+      statements.add("DROP TABLE wallet." + table);
+    }
+    for (String table : tables("wallet_archive", "%")) {
+      statements.add("DROP TABLE wallet_archive." + table);
+    }
+    execute(statements.toArray(String[]::new));
+    // The retention runs above also retire the partitions of the present months.
+    new PartitionMaintenance(shardRouter, Clock.systemDefaultZone(), 12, "archive").maintain();
+  }
+
+  @Test
+  @DisplayName("Maintenance should create the partitions of the current and the next months")
+  public void maintain_futureMonth_createsPartitionsAhead() throws SQLException {
+    maintenance(FUTURE, 12, "archive").maintain();
+
+    assertThat(tables("wallet", "transactions_p209%"))
+        .containsExactlyInAnyOrder(
+            "transactions_p209001", "transactions_p209002",
+            "transactions_p209003", "transactions_p209004");
+    assertThat(tables("wallet", "logs_p209%")).hasSize(4);
+
+    execute(
+        "INSERT INTO wallet.logs (timestamp, action_code, username, details)"
+            + " VALUES ('2090-02-10 10:00', 2, 'user', 'details')");
+    assertThat(count("wallet.logs_p209002")).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Expired audit partitions should be moved to the archive schema")
+  public void maintain_archivePolicy_archivesExpiredPartitions() throws SQLException {
+    maintenance(FUTURE, 12, "archive").maintain();
+    insertLog(LocalDateTime.of(2090, 1, 20, 10, 0));
+
+    maintenance(FUTURE.plusMonths(13), 12, "archive").maintain();
+
+    assertThat(tables("wallet", "logs_p209001")).isEmpty();
+    assertThat(tables("wallet_archive", "logs_p209001")).containsExactly("logs_p209001");
+    assertThat(count("wallet_archive.logs_p209001")).isEqualTo(1);
+    assertThat(tables("wallet", "logs_p209002")).containsExactly("logs_p209002");
+    assertThat(tables("wallet", "transactions_p209001")).containsExactly("transactions_p209001");
+  }
+
+  @Test
+  @DisplayName("Expired audit partitions should be dropped with the drop policy")
+  public void maintain_dropPolicy_dropsExpiredPartitions() throws SQLException {
+    maintenance(FUTURE, 1, "drop").maintain();
+    insertLog(LocalDateTime.of(2090, 1, 20, 10, 0));
+
+    maintenance(FUTURE.plusMonths(2), 1, "drop").maintain();
+
+    assertThat(tables("wallet", "logs_p209001")).isEmpty();
+    assertThat(tables("wallet_archive", "logs_p209001")).isEmpty();
+    assertThat(tables("wallet", "logs_p209002")).containsExactly("logs_p209002");
+  }
+
+  @Test
+  @DisplayName("Partitions spanning several months should be retired by their upper bound")
+  public void maintain_partitionWithoutMonthName_retiredByBound() throws SQLException {
+    // Like the legacy partition, covers several months and is not named after one.
+    execute(
+        "CREATE TABLE wallet.logs_p209_legacy PARTITION OF wallet.logs"
+            + " FOR VALUES FROM ('2089-06-01') TO ('2089-12-01')");
+    insertLog(LocalDateTime.of(2089, 7, 20, 10, 0));
+
+    maintenance(FUTURE.plusMonths(9), 12, "archive").maintain();
+
+    assertThat(tables("wallet", "logs_p209_legacy")).containsExactly("logs_p209_legacy");
+
+    maintenance(FUTURE.plusMonths(11), 12, "archive").maintain();
+
+    assertThat(tables("wallet", "logs_p209_legacy")).isEmpty();
+    assertThat(count("wallet_archive.logs_p209_legacy")).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("An unknown retention policy should be rejected")
+  public void constructor_unknownPolicy_throwsIllegalArgumentException() {
+    assertThatThrownBy(() -> maintenance(FUTURE, 12, "truncate"))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static PartitionMaintenance maintenance(
+      ZonedDateTime now, int retentionMonths, String policy) {
+    Clock clock = Clock.fixed(now.toInstant(), now.getZone());
+    return new PartitionMaintenance(shardRouter, clock, retentionMonths, policy);
+  }
+
+  private static void insertLog(LocalDateTime timestamp) throws SQLException {
+    try (Connection local = connection.getConnection();
+        var statement =
+            local.prepareStatement(
+                "INSERT INTO wallet.logs (timestamp, action_code, username, details)"
+                    + " VALUES (?, 2, 'user', 'details')")) {
+      statement.setTimestamp(1, Timestamp.valueOf(timestamp));
+      statement.executeUpdate();
+    }
+  }
+
+  private static List<String> tables(String schema, String pattern) throws SQLException {
+    List<String> tables = new ArrayList<>();
+    try (Connection local = connection.getConnection();
+        var statement =
+            local.prepareStatement(
+                "SELECT tablename FROM pg_tables WHERE schemaname = ? AND tablename LIKE ?")) {
+      statement.setString(1, schema);
+      statement.setString(2, pattern);
+      try (ResultSet resultSet = statement.executeQuery()) {
+        while (resultSet.next()) {
+          tables.add(resultSet.getString(1));
+        }
+      }
+    }
+    return tables;
+  }
+
+  private static long count(String table) throws SQLException {
+    try (Connection local = connection.getConnection();
+        Statement statement = local.createStatement();
+        ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+      resultSet.next();
+      return resultSet.getLong(1);
+    }
+  }
+
+  private static void execute(String... statements) throws SQLException {
+    try (Connection local = connection.getConnection();
+        Statement statement = local.createStatement()) {
+      for (String sql : statements) {
+        statement.executeUpdate(sql);
+      }
+    }
+  }
+}
@@ -0,0 +1,186 @@
+package org.wallet.repository;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.wallet.domain.model.Log;
+import org.wallet.domain.model.LogAction;
+import org.wallet.domain.model.LogEntry;
+import org.wallet.domain.repository.log.LogQuery;
+import org.wallet.domain.repository.log.SegmentedLogRepository;
+
+public class SegmentedLogRepositoryTest {
+
+  private static final int SEGMENT_BYTES = 64 * 1024;
+  private static final LocalDateTime START = LocalDateTime.of(2024, 5, 1, 12, 0, 0, 250_000);
+
+  @TempDir Path directory;
+
+  private SegmentedLogRepository logRepository;
+
+  @BeforeEach
+  public void setUp() {
+    logRepository = open();
+  }
+
+  @AfterEach
+  public void tearDown() {
+    logRepository.close();
+  }
+
+  @Test
+  @DisplayName("GetLogs for an empty store should return an empty list")
+  public void getLogs_emptyStore_returnsEmptyList() {
+    assertThat(logRepository.getLogs()).isEmpty();
+  }
+
+  @Test
+  @DisplayName("Logs spanning several segments should be returned in timestamp order")
+  public void getLogs_severalSegments_returnsEveryLogInOrder() {
+    addLogs(5_000);
+
+    List<Log> logs = logRepository.getLogs();
+
+    assertThat(logs).hasSize(5_000);
+    assertThat(logs.get(0)).isEqualTo(log(0));
+    assertThat(logs.get(4_999)).isEqualTo(log(4_999));
+    assertThat(logs).extracting(Log::getTimestamp).isSorted();
+  }
+
+  @Test
+  @DisplayName("Querying by time range, user and page should return only that page")
+  public void getLogsQuery_rangeUserAndPage_returnsMatchingPage() {
+    addLogs(5_000);
+
+    List<Log> logs =
+        logRepository.getLogs(
+            new LogQuery(START.plusSeconds(1_000), START.plusSeconds(3_000), "user-7", 2, 3));
+
+    assertThat(logs).containsExactly(log(2_977), log(2_967), log(2_957));
+    assertThat(logRepository.getLogs(new LogQuery(null, null, null, 0, 3)))
+        .containsExactly(log(4_999), log(4_998), log(4_997));
+    assertThat(logRepository.getLogs(START.plusSeconds(10), START.plusSeconds(20)))
+        .containsExactly(
+            log(10), log(11), log(12), log(13), log(14), log(15), log(16), log(17), log(18),
+            log(19));
+    assertThat(logRepository.getLogs(new LogQuery(null, null, "nobody", 0, 10))).isEmpty();
+  }
+
+  @Test
+  @DisplayName("Logs should be found again after a restart")
+  public void init_existingSegments_recoversLogs() throws IOException {
+    addLogs(3_000);
+    logRepository.addLog(new Log(START, LogAction.REGISTRATION, null, null));
+    logRepository.close();
+
+    logRepository = open();
+
+    try (Stream<Path> files = Files.list(directory)) {
+      assertThat(files.map(Path::toString))
+          .anyMatch(file -> file.endsWith(".seg"))
+          .anyMatch(file -> file.endsWith(".log"));
+    }
+    assertThat(logRepository.getLogs()).hasSize(3_001);
+    assertThat(logRepository.getLogs(new LogQuery(null, null, "user-3", 0, 1)))
+        .containsExactly(log(2_993));
+  }
+
+  @Test
+  @DisplayName("Recovery should truncate the active segment at the first corrupt entry for good")
+  public void init_corruptEntry_truncatesSegment() throws IOException {
+    addLogs(10);
+    logRepository.close();
+    Path file;
+    try (Stream<Path> files = Files.list(directory)) {
+      file = files.filter(path -> path.toString().endsWith(".log")).findFirst().orElseThrow();
+    }
+    try (FileChannel channel =
+        FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+      int position = 0;
+      for (int i = 0; i < 7; i++) {
+        position += Integer.BYTES + buffer.getInt(position);
+      }
+      int corrupt = position + buffer.getInt(position);
+      buffer.put(corrupt, (byte) (buffer.get(corrupt) ^ 0x5A));
+      buffer.force();
+    }
+
+    logRepository = open();
+    assertThat(logRepository.getLogs()).containsExactly(logs(7));
+    Log next = new Log(START, LogAction.REGISTRATION, null, null);
+    logRepository.addLog(next);
+    logRepository.close();
+
+    logRepository = open();
+    assertThat(logRepository.getLogs()).hasSize(8).endsWith(next);
+  }
+
+  @Test
+  @DisplayName("Logs after a position should be the latest ones, across segments and restarts")
+  public void getLogsAfter_severalSegments_returnsLatestLogsAfterPosition() {
+    addLogs(2_000);
+    long position = logRepository.addLog(log(2_000));
+    addLogs(3_000);
+    logRepository.close();
+
+    logRepository = open();
+    long next = logRepository.addLog(log(3_001));
+    List<LogEntry> entries = logRepository.getLogsAfter(position, 10_000);
+
+    assertThat(entries).hasSize(3_001);
+    assertThat(entries).extracting(LogEntry::id).isSorted().doesNotHaveDuplicates();
+    assertThat(entries.get(0).log()).isEqualTo(log(0));
+    assertThat(entries.get(3_000).id()).isEqualTo(next);
+    assertThat(logRepository.getLogsAfter(position, 2))
+        .extracting(LogEntry::log)
+        .containsExactly(log(2_999), log(3_001));
+    assertThat(logRepository.getLogsAfter(next, 10)).isEmpty();
+  }
+
+  @Test
+  @DisplayName("A log larger than a segment should be rejected")
+  public void addLog_largerThanSegment_throwsIllegalArgumentException() {
+    Log log = new Log(START, LogAction.TRANSACTION, "user-1", "x".repeat(SEGMENT_BYTES));
+
+    assertThatThrownBy(() -> logRepository.addLog(log))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private SegmentedLogRepository open() {
+    SegmentedLogRepository repository = new SegmentedLogRepository(directory, SEGMENT_BYTES);
+    repository.init();
+    return repository;
+  }
+
+  private void addLogs(int count) {
+    for (int i = 0; i < count; i++) {
+      logRepository.addLog(log(i));
+    }
+  }
+
+  private static Log[] logs(int count) {
+    Log[] logs = new Log[count];
+    for (int i = 0; i < count; i++) {
+      logs[i] = log(i);
+    }
+    return logs;
+  }
+
+  private static Log log(int i) {
+    return new Log(START.plusSeconds(i), LogAction.TRANSACTION, "user-" + i % 10, "#" + i);
+  }
+}
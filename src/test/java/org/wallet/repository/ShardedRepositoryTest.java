@@ -0,0 +1,302 @@
+package org.wallet.repository;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.DockerComposeContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.wallet.domain.model.Log;
+import org.wallet.domain.model.LogAction;
+import org.wallet.domain.model.LogEntry;
+import org.wallet.domain.model.Player;
+import org.wallet.domain.model.Transaction;
+import org.wallet.domain.model.TransactionType;
+import org.wallet.domain.repository.DatabaseConnection;
+import org.wallet.domain.repository.LiquibaseManager;
+import org.wallet.domain.repository.shard.HashRing;
+import org.wallet.domain.repository.shard.ShardRebalancer;
+import org.wallet.domain.repository.shard.ShardRouter;
+import org.wallet.domain.repository.shard.ShardedLogRepository;
+import org.wallet.domain.repository.shard.ShardedPlayerRepository;
+import org.wallet.domain.repository.shard.ShardedTransactionRepository;
+
+@Testcontainers
+public class ShardedRepositoryTest {
+
+  private static final int POSTGRES_PORT = 5432;
+  private static final int PLAYERS = 200;
+
+  @Container
+  private static final DockerComposeContainer DOCKER_COMPOSE_CONTAINER =
+      new DockerComposeContainer(new File("src/test/java/resources/docker-compose-shard-test.yml"))
+          .withExposedService("shard0", POSTGRES_PORT)
+          .withExposedService("shard1", POSTGRES_PORT)
+          .withLocalCompose(true)
+          .withOptions("--compatibility");
+
+  private static List<DatabaseConnection> shards;
+
+  private ShardRouter shardRouter;
+  private ShardedPlayerRepository playerRepository;
+  private ShardedTransactionRepository transactionRepository;
+  private ShardRebalancer rebalancer;
+
+  @BeforeAll
+  public static void setUp() {
+    shards = new ArrayList<>();
+    for (String service : List.of("shard0", "shard1")) {
+      shards.add(
+          new DatabaseConnection(
+              "jdbc:postgresql://"
+                  + DOCKER_COMPOSE_CONTAINER.getServiceHost(service, POSTGRES_PORT)
+                  + ":"
+                  + DOCKER_COMPOSE_CONTAINER.getServicePort(service, POSTGRES_PORT)
+                  + "/wallet"));
+    }
+    shards.forEach(shard -> new LiquibaseManager(shard).migrate());
+  }
+
+  @BeforeEach
+  public void setUpBeforeEach() throws SQLException {
+    for (DatabaseConnection shard : shards) {
+      execute(
+          shard,
+          "DELETE FROM wallet.transactions",
+          "DELETE FROM wallet.transaction_keys",
+          "DELETE FROM wallet.players",
+          "DELETE FROM wallet.logs",
+          "DELETE FROM wallet.shard_ranges");
+    }
+    shardRouter = newRouter();
+    playerRepository = new ShardedPlayerRepository(shardRouter);
+    transactionRepository = new ShardedTransactionRepository(shardRouter);
+    rebalancer = new ShardRebalancer(shardRouter);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    shardRouter.shutdown();
+  }
+
+  @Test
+  @DisplayName("A new ring should keep every player on the first shard until it is rebalanced")
+  public void init_newRing_ownedByFirstShard() throws SQLException {
+    addPlayers();
+
+    assertThat(count(shards.get(0), "wallet.players")).isEqualTo(PLAYERS);
+    assertThat(count(shards.get(1), "wallet.players")).isZero();
+    assertThat(rebalancer.status()).containsEntry("misplacedRanges", 64L);
+  }
+
+  @Test
+  @DisplayName("Rebalancing should spread players and keep their transactions on the same shard")
+  public void rebalance_allRanges_spreadsColocatedData() throws SQLException {
+    addPlayers();
+
+    rebalancer.rebalance(null, null);
+
+    long first = count(shards.get(0), "wallet.players");
+    long second = count(shards.get(1), "wallet.players");
+    assertThat(first + second).isEqualTo(PLAYERS);
+    assertThat(second).isBetween(PLAYERS * 3L / 10, PLAYERS * 7L / 10);
+    assertThat(playerRepository.getPlayers()).hasSize(PLAYERS);
+    assertThat(transactionRepository.getTransactions()).hasSize(PLAYERS);
+    for (int i = 0; i < PLAYERS; i++) {
+      String login = "player-" + i;
+      assertThat(playerRepository.getPlayerByLogin(login)).isPresent();
+      assertThat(transactionRepository.getTransactionsByPlayerLogin(login)).hasSize(1);
+      assertThat(transactionRepository.getTransactionById("tx-" + i)).isPresent();
+    }
+    assertThat(rebalancer.status()).containsEntry("misplacedRanges", 0L);
+  }
+
+  @Test
+  @DisplayName("Writes running during a rebalance should neither be lost nor duplicated")
+  public void rebalance_concurrentWrites_keepsEveryWrite() throws Exception {
+    addPlayers();
+    AtomicBoolean running = new AtomicBoolean(true);
+    CompletableFuture<Integer> writer =
+        CompletableFuture.supplyAsync(
+            () -> {
+              int written = 0;
+              while (running.get() || written < PLAYERS) {
+                String login = "player-" + written % PLAYERS;
+                transactionRepository.addTransaction(
+                    new Transaction(
+                        login, "late-" + written, TransactionType.CREDIT, BigDecimal.ONE));
+                written++;
+              }
+              return written;
+            });
+
+    rebalancer.rebalance(null, null);
+    running.set(false);
+    int written = writer.get();
+
+    assertThat(transactionRepository.getTransactions()).hasSize(PLAYERS + written);
+    long stored =
+        count(shards.get(0), "wallet.transactions") + count(shards.get(1), "wallet.transactions");
+    assertThat(stored).isEqualTo(PLAYERS + written);
+  }
+
+  @Test
+  @DisplayName("Writes of a router that missed a rebalance should be redirected to the new owner")
+  public void rebalance_staleRouter_redirectsWrites() throws SQLException {
+    addPlayers();
+    ShardRouter stale = newRouter();
+    try {
+      ShardedTransactionRepository staleRepository = new ShardedTransactionRepository(stale);
+
+      rebalancer.rebalance(null, null);
+      for (int i = 0; i < PLAYERS; i++) {
+        staleRepository.addTransaction(
+            new Transaction("player-" + i, "late-" + i, TransactionType.CREDIT, BigDecimal.ONE));
+      }
+
+      long stored =
+          count(shards.get(0), "wallet.transactions") + count(shards.get(1), "wallet.transactions");
+      assertThat(stored).isEqualTo(PLAYERS * 2L);
+      for (int i = 0; i < PLAYERS; i++) {
+        String login = "player-" + i;
+        assertThat(stale.shardOf(login)).isEqualTo(shardRouter.shardOf(login));
+        assertThat(transactionRepository.getTransactionsByPlayerLogin(login)).hasSize(2);
+      }
+    } finally {
+      stale.shutdown();
+    }
+  }
+
+  @Test
+  @DisplayName("A range whose transaction counts differ after the copy should stay on the source")
+  public void rebalance_countsDiffer_keepsRangeOnSource() throws SQLException {
+    addPlayers();
+    long token = shardRouter.getRing().tokenOf(HashRing.hash("player-0"));
+    execute(
+        shards.get(1),
+        "INSERT INTO wallet.players (login, balance, password) VALUES ('player-0', 0, 'password')",
+        "INSERT INTO wallet.transaction_keys (transaction_id, created_at)"
+            + " VALUES ('stray-0', NOW())",
+        "INSERT INTO wallet.transactions (player_id, transaction_id, type_code, amount, created_at)"
+            + " SELECT id, 'stray-0', 1, 1, NOW() FROM wallet.players WHERE login = 'player-0'");
+
+    assertThatThrownBy(() -> rebalancer.rebalance(token, 1))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("player-0");
+
+    assertThat(shardRouter.shardOf("player-0")).isZero();
+    assertThat(count(shards.get(0), "wallet.players")).isEqualTo(PLAYERS);
+    assertThat(transactionRepository.getTransactionsByPlayerLogin("player-0")).hasSize(1);
+  }
+
+  @Test
+  @DisplayName("A rebalance should be refused while another instance holds the rebalance lock")
+  public void rebalance_lockedByAnotherInstance_refused() throws SQLException {
+    addPlayers();
+    try (Connection other = shards.get(0).getConnection();
+        Statement statement = other.createStatement()) {
+      statement.execute("SELECT pg_advisory_lock(" + 0x5348415244L + ")");
+
+      assertThatThrownBy(() -> rebalancer.rebalance(null, null))
+          .isInstanceOf(IllegalStateException.class);
+      assertThat(count(shards.get(1), "wallet.players")).isZero();
+    }
+  }
+
+  @Test
+  @DisplayName("Moved ranges should survive a restart of the router")
+  public void init_existingRanges_restoresOwnership() {
+    addPlayers();
+    rebalancer.rebalance(null, null);
+
+    ShardRouter restarted = newRouter();
+    try {
+      for (int i = 0; i < PLAYERS; i++) {
+        assertThat(restarted.shardOf("player-" + i)).isEqualTo(shardRouter.shardOf("player-" + i));
+      }
+    } finally {
+      restarted.shutdown();
+    }
+  }
+
+  @Test
+  @DisplayName("Audit entries of all shards should be merged by timestamp")
+  public void getLogs_severalShards_mergedByTimestamp() {
+    rebalancer.rebalance(null, null);
+    var logRepository = new ShardedLogRepository(shardRouter);
+    LocalDateTime now = LocalDateTime.now().withNano(0);
+    for (int i = 0; i < 20; i++) {
+      logRepository.addLog(
+          new Log(now.minusSeconds(i), LogAction.AUTHORIZATION, "player-" + i, "Details"));
+    }
+
+    assertThat(logRepository.getLogs())
+        .hasSize(20)
+        .extracting(Log::getTimestamp)
+        .isSorted();
+  }
+
+  @Test
+  @DisplayName("Audit entries of all shards should be numbered by shard 0 and read after an ID")
+  public void getLogsAfter_severalShards_uniqueIdsInOrder() {
+    rebalancer.rebalance(null, null);
+    var logRepository = new ShardedLogRepository(shardRouter);
+    long first = logRepository.addLog(new Log(LogAction.AUTHORIZATION, null, "Details"));
+    List<Long> ids = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      ids.add(logRepository.addLog(new Log(LogAction.AUTHORIZATION, "player-" + i, "Details")));
+    }
+
+    assertThat(logRepository.getLogsAfter(first, 100))
+        .extracting(LogEntry::id)
+        .containsExactlyElementsOf(ids);
+  }
+
+  private void addPlayers() {
+    for (int i = 0; i < PLAYERS; i++) {
+      playerRepository.addPlayer(new Player("player-" + i, "password"));
+      transactionRepository.addTransaction(
+          new Transaction("player-" + i, "tx-" + i, TransactionType.CREDIT, BigDecimal.TEN));
+    }
+  }
+
+  private static ShardRouter newRouter() {
+    ShardRouter router = new ShardRouter(shards);
+    router.init();
+    return router;
+  }
+
+  private static long count(DatabaseConnection database, String table) throws SQLException {
+    try (Connection local = database.getConnection();
+        Statement statement = local.createStatement();
+        ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+      resultSet.next();
+      return resultSet.getLong(1);
+    }
+  }
+
+  private static void execute(DatabaseConnection database, String... statements)
+      throws SQLException {
+    try (Connection local = database.getConnection();
+        Statement statement = local.createStatement()) {
+      for (String sql : statements) {
+        statement.executeUpdate(sql);
+      }
+    }
+  }
+}
@@ -0,0 +1,185 @@
+package org.wallet.repository;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.DockerComposeContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.wallet.domain.repository.DatabaseConnection;
+import org.wallet.domain.repository.LiquibaseManager;
+import org.wallet.domain.repository.SyntheticDataLoader;
+import org.wallet.domain.repository.shard.ShardRouter;
+import org.wallet.utils.StringHasher;
+
+@Testcontainers
+public class SyntheticDataLoaderTest {
+
+  private static final int POSTGRES_PORT = 5432;
+
+  /** Fingerprint of the loaded transactions, independent of their keys and insertion order. */
+  private static final String FINGERPRINT_SQL =
+      "SELECT md5(string_agg(t.transaction_id || ':' || t.type_code || ':' || t.amount"
+          + " || ':' || t.created_at, ',' ORDER BY t.transaction_id))"
+          + " FROM wallet.transactions t WHERE t.transaction_id LIKE 'synthetic%'";
+
+  @Container
+  private static final DockerComposeContainer DOCKER_COMPOSE_CONTAINER =
+      new DockerComposeContainer(new File("src/test/java/resources/docker-compose-test.yml"))
+          .withExposedService("postgres", POSTGRES_PORT)
+          .withLocalCompose(true)
+          .withOptions("--compatibility");
+
+  private static DatabaseConnection connection;
+  private static ShardRouter shardRouter;
+
+  @BeforeAll
+  public static void setUp() throws SQLException {
+    String url =
+        "jdbc:postgresql://"
+            + DOCKER_COMPOSE_CONTAINER.getServiceHost("postgres", POSTGRES_PORT)
+            + ":"
+            + DOCKER_COMPOSE_CONTAINER.getServicePort("postgres", POSTGRES_PORT)
+            + "/wallet";
+    connection = new DatabaseConnection(url);
+    new LiquibaseManager(connection).migrate();
+    execute("DELETE FROM wallet.shard_ranges");
+    shardRouter = new ShardRouter(List.of(connection));
+    shardRouter.init();
+  }
+
+  @AfterAll
+  public static void tearDown() throws SQLException {
+    shardRouter.shutdown();
+    cleanUp();
+  }
+
+  @BeforeEach
+  public void setUpBeforeEach() throws SQLException {
+    cleanUp();
+  }
+
+  @Test
+  @DisplayName("Loaded players should have balances matching their transactions and audit entries")
+  public void load_writesConsistentData() throws SQLException {
+    long rollups = count("SELECT COALESCE(SUM(count), 0) FROM wallet.audit_rollups");
+
+    Map<String, Object> summary =
+        new SyntheticDataLoader(shardRouter, 3).load("synthetic", 2_500, 20_000, 1.0, 30, 7);
+
+    assertThat(summary).containsEntry("players", 2_500L);
+    long transactions = (long) summary.get("transactions");
+    assertThat(transactions).isBetween(19_000L, 21_000L);
+    assertThat(
+            count(
+                "SELECT COUNT(*) FROM wallet.transaction_keys"
+                    + " WHERE transaction_id LIKE 'synthetic-%'"))
+        .isEqualTo(transactions);
+    assertThat(
+            count(
+                "SELECT COUNT(*) FROM wallet.players p WHERE p.login LIKE 'synthetic-%'"
+                    + " AND p.balance <> (SELECT COALESCE(SUM(CASE WHEN t.type_code = 1"
+                    + " THEN -t.amount ELSE t.amount END), 0) FROM wallet.transactions t"
+                    + " WHERE t.player_id = p.id)"))
+        .isZero();
+    assertThat(count("SELECT MIN(balance) FROM wallet.players WHERE login LIKE 'synthetic-%'"))
+        .isGreaterThanOrEqualTo(0);
+    // The most active player has by far the most transactions.
+    assertThat(
+            count(
+                "SELECT COUNT(*) FROM wallet.transactions t JOIN wallet.players p"
+                    + " ON p.id = t.player_id WHERE p.login = 'synthetic-0'"))
+        .isGreaterThan(transactions / 20);
+    assertThat(
+            count(
+                "SELECT COUNT(*) FROM wallet.players WHERE login = 'synthetic-5' AND password = '"
+                    + StringHasher.hashString("synthetic-5")
+                    + "'"))
+        .isEqualTo(1);
+
+    assertThat(count("SELECT COUNT(*) FROM wallet.logs WHERE username LIKE 'synthetic-%'"))
+        .isEqualTo(summary.get("logs"));
+    assertThat(
+            count(
+                "SELECT COUNT(*) FROM wallet.logs WHERE username LIKE 'synthetic-%'"
+                    + " AND action_code = 1"))
+        .isEqualTo(2_500);
+    assertThat(
+            count(
+                "SELECT COUNT(*) FROM wallet.logs WHERE username LIKE 'synthetic-%'"
+                    + " AND action_code = 3"))
+        .isEqualTo(transactions);
+    assertThat(count("SELECT COALESCE(SUM(count), 0) FROM wallet.audit_rollups") - rollups)
+        .isEqualTo(summary.get("logs"));
+  }
+
+  @Test
+  @DisplayName("The same seed should load the same data whatever the number of threads")
+  public void load_sameSeed_isReproducible() throws SQLException {
+    new SyntheticDataLoader(shardRouter, 1).load("synthetic", 300, 3_000, 1.2, 10, 11);
+    String first = fingerprint();
+    cleanUp();
+
+    new SyntheticDataLoader(shardRouter, 4).load("synthetic", 300, 3_000, 1.2, 10, 11);
+
+    assertThat(fingerprint()).isEqualTo(first);
+  }
+
+  @Test
+  @DisplayName("A load should be rejected when players with its prefix exist")
+  public void load_existingPrefix_throwsException() {
+    SyntheticDataLoader loader = new SyntheticDataLoader(shardRouter, 2);
+    loader.load("synthetic", 10, 10, 1.0, 1, 1);
+
+    assertThatThrownBy(() -> loader.load("synthetic", 10, 10, 1.0, 1, 1))
+        .isInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(() -> loader.load("bad prefix", 10, 10, 1.0, 1, 1))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static String fingerprint() throws SQLException {
+    try (Connection local = connection.getConnection();
+        Statement statement = local.createStatement();
+        ResultSet resultSet = statement.executeQuery(FINGERPRINT_SQL)) {
+      resultSet.next();
+      return resultSet.getString(1);
+    }
+  }
+
+  private static void cleanUp() throws SQLException {
+    execute(
+        "DELETE FROM wallet.transactions WHERE transaction_id LIKE 'synthetic-%'",
+        "DELETE FROM wallet.transaction_keys WHERE transaction_id LIKE 'synthetic-%'",
+        "DELETE FROM wallet.logs WHERE username LIKE 'synthetic-%'",
+        "DELETE FROM wallet.players WHERE login LIKE 'synthetic-%'");
+  }
+
+  private static long count(String sql) throws SQLException {
+    try (Connection local = connection.getConnection();
+        Statement statement = local.createStatement();
+        ResultSet resultSet = statement.executeQuery(sql)) {
+      resultSet.next();
+      return resultSet.getLong(1);
+    }
+  }
+
+  private static void execute(String... statements) throws SQLException {
+    try (Connection local = connection.getConnection();
+        Statement statement = local.createStatement()) {
+      for (String sql : statements) {
+        statement.executeUpdate(sql);
+      }
+    }
+  }
+}
@@ -0,0 +1,276 @@
+package org.wallet.repository;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.testcontainers.containers.DockerComposeContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.wallet.domain.model.Transaction;
+import org.wallet.domain.model.TransactionType;
+import org.wallet.domain.repository.DatabaseConnection;
+import org.wallet.domain.repository.LiquibaseManager;
+import org.wallet.domain.repository.PartitionMaintenance;
+import org.wallet.domain.repository.shard.ShardRouter;
+import org.wallet.domain.repository.transaction.TransactionArchive;
+
+@Testcontainers
+public class TransactionArchiveTest {
+
+  private static final int POSTGRES_PORT = 5432;
+
+  @Container
+  private static final DockerComposeContainer DOCKER_COMPOSE_CONTAINER =
+      new DockerComposeContainer(new File("src/test/java/resources/docker-compose-test.yml"))
+          .withExposedService("postgres", POSTGRES_PORT)
+          .withLocalCompose(true)
+          .withOptions("--compatibility");
+
+  private static DatabaseConnection connection;
+  private static ShardRouter shardRouter;
+  private static PartitionMaintenance partitionMaintenance;
+
+  @TempDir Path directory;
+
+  @BeforeAll
+  public static void setUp() throws SQLException {
+    String url =
+        "jdbc:postgresql://"
+            + DOCKER_COMPOSE_CONTAINER.getServiceHost("postgres", POSTGRES_PORT)
+            + ":"
+            + DOCKER_COMPOSE_CONTAINER.getServicePort("postgres", POSTGRES_PORT)
+            + "/wallet";
+    connection = new DatabaseConnection(url);
+    new LiquibaseManager(connection).migrate();
+    execute("DELETE FROM wallet.shard_ranges");
+    shardRouter = new ShardRouter(List.of(connection));
+    shardRouter.init();
+    partitionMaintenance =
+        new PartitionMaintenance(shardRouter, Clock.systemDefaultZone(), 12, "archive");
+  }
+
+  @AfterAll
+  public static void tearDown() {
+    shardRouter.shutdown();
+  }
+
+  @BeforeEach
+  public void setUpBeforeEach() throws SQLException {
+    execute(
+        "DELETE FROM wallet.transactions",
+        "DELETE FROM wallet.transaction_keys",
+        "DELETE FROM wallet.players",
+        "INSERT INTO wallet.players (login, password, balance)"
+            + " VALUES ('alice', 'password', 0), ('bob', 'password', 0)");
+  }
+
+  @Test
+  @DisplayName("Archiving should move expired transactions from the database to the archive")
+  public void archive_expiredTransactions_movesThemToFiles() throws SQLException {
+    insert("alice", "alice-1", LocalDateTime.of(2020, 1, 5, 10, 0));
+    insert("bob", "bob-1", LocalDateTime.of(2020, 1, 6, 10, 0));
+    insert("alice", "alice-2", LocalDateTime.of(2020, 2, 5, 10, 0));
+    execute(
+        "INSERT INTO wallet.transactions (player_login, transaction_id, type, amount, created_at)"
+            + " VALUES ('bob', 'bob-legacy', 'CREDIT', 7.5, '2020-02-07 10:00')");
+    insert("alice", "alice-recent", LocalDateTime.now());
+    TransactionArchive archive = archive(Clock.systemDefaultZone());
+
+    Map<String, Object> summary = archive.archive();
+
+    assertThat(summary.get("rows")).isEqualTo(4L);
+    assertThat(count("SELECT COUNT(*) FROM wallet.transactions")).isEqualTo(1);
+    assertThat(count("SELECT COUNT(*) FROM wallet.transaction_keys")).isEqualTo(4);
+    assertThat(archive.status().get("months"))
+        .asInstanceOf(InstanceOfAssertFactories.ITERABLE)
+        .containsExactly("2020-01", "2020-02");
+    assertThat(archive.getTransactionsByPlayerLogin("alice"))
+        .extracting(Transaction::transactionId)
+        .containsExactly("alice-1", "alice-2");
+    assertThat(archive.getTransactionsByPlayerLogin("bob"))
+        .containsExactly(
+            new Transaction("bob", "bob-1", TransactionType.CREDIT, new BigDecimal("10")),
+            new Transaction("bob", "bob-legacy", TransactionType.CREDIT, new BigDecimal("7.5")));
+  }
+
+  @Test
+  @DisplayName("Archive files should be found again after a restart")
+  public void init_existingFiles_readsArchivedTransactions() throws SQLException {
+    insert("alice", "alice-1", LocalDateTime.of(2020, 1, 5, 10, 0));
+    archive(Clock.systemDefaultZone()).archive();
+
+    TransactionArchive restarted = archive(Clock.systemDefaultZone());
+
+    assertThat(restarted.getTransactionsByPlayerLogin("alice")).hasSize(1);
+  }
+
+  @Test
+  @DisplayName("Restoring a month should copy its transactions back and remove it from the archive")
+  public void restore_archivedMonth_copiesTransactionsBack() throws SQLException {
+    insert("alice", "alice-1", LocalDateTime.of(2020, 1, 5, 10, 0));
+    insert("bob", "bob-1", LocalDateTime.of(2020, 1, 6, 10, 0));
+    insert("alice", "alice-2", LocalDateTime.of(2020, 2, 5, 10, 0));
+    TransactionArchive archive = archive(Clock.systemDefaultZone());
+    archive.archive();
+
+    Map<String, Object> summary = archive.restore("2020-01");
+
+    assertThat(summary.get("restored")).isEqualTo(2L);
+    assertThat(count("SELECT COUNT(*) FROM wallet.transactions")).isEqualTo(2);
+    assertThat(archive.status().get("months"))
+        .asInstanceOf(InstanceOfAssertFactories.ITERABLE)
+        .containsExactly("2020-02");
+    assertThat(archive.getTransactionsByPlayerLogin("alice"))
+        .extracting(Transaction::transactionId)
+        .containsExactly("alice-2");
+    assertThatThrownBy(() -> archive.restore("2020-01"))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  @DisplayName("An expired month with a partition of its own should be dropped after archiving")
+  public void archive_monthWithPartition_dropsPartition() throws SQLException {
+    YearMonth month = YearMonth.of(2090, 1);
+    partitionMaintenance.createPartition(connection, "transactions", month);
+    insert("alice", "alice-1", LocalDateTime.of(2090, 1, 5, 10, 0));
+    ZonedDateTime now = ZonedDateTime.of(2092, 6, 15, 12, 0, 0, 0, ZoneId.systemDefault());
+    TransactionArchive archive = archive(Clock.fixed(now.toInstant(), now.getZone()));
+
+    archive.archive();
+
+    assertThat(count("SELECT COUNT(*) FROM pg_tables WHERE tablename = 'transactions_p209001'"))
+        .isZero();
+    assertThat(archive.getTransactionsByPlayerLogin("alice")).hasSize(1);
+
+    archive.restore("2090-01");
+
+    assertThat(count("SELECT COUNT(*) FROM wallet.transactions_p209001")).isEqualTo(1);
+    execute("DROP TABLE wallet.transactions_p209001");
+  }
+
+  @Test
+  @DisplayName("Restoring an invalid month should be rejected")
+  public void restore_invalidMonth_throwsIllegalArgumentException() {
+    TransactionArchive archive = archive(Clock.systemDefaultZone());
+
+    assertThatThrownBy(() -> archive.restore("january"))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  @DisplayName("A transaction archived twice by an interrupted run should be counted once")
+  public void getBalancesByPlayerLogin_archivedTwice_countedOnce() throws SQLException {
+    insert("alice", "alice-1", LocalDateTime.of(2020, 1, 5, 10, 0));
+    TransactionArchive archive = archive(Clock.systemDefaultZone());
+    archive.archive();
+    // A crash before the rows were removed leaves them in the database for the next run.
+    execute(
+        "INSERT INTO wallet.transactions (player_id, transaction_id, type_code, amount,"
+            + " created_at) SELECT id, 'alice-1', 2, 10, '2020-01-05 10:00'"
+            + " FROM wallet.players WHERE login = 'alice'");
+    archive.archive();
+
+    assertThat(archive.status().get("files")).isEqualTo(2);
+    assertThat(archive.getBalancesByPlayerLogin()).containsEntry("alice", new BigDecimal("10"));
+  }
+
+  @Test
+  @DisplayName("Only the instance holding the archive lock should write to the archive")
+  public void archive_lockedByAnotherInstance_refused() throws SQLException {
+    insert("alice", "alice-1", LocalDateTime.of(2020, 1, 5, 10, 0));
+    TransactionArchive archive = archive(Clock.systemDefaultZone());
+    try (Connection other = connection.getConnection();
+        Statement statement = other.createStatement()) {
+      statement.execute("SELECT pg_advisory_lock(" + 0x41524348495645L + ")");
+
+      archive.archiveExpired();
+      assertThatThrownBy(archive::archive).isInstanceOf(IllegalStateException.class);
+      assertThat(count("SELECT COUNT(*) FROM wallet.transactions")).isEqualTo(1);
+    }
+  }
+
+  @Test
+  @DisplayName("Files archived by another instance should be found after a refresh")
+  public void refresh_filesOfAnotherInstance_readsThem() throws SQLException {
+    insert("alice", "alice-1", LocalDateTime.of(2020, 1, 5, 10, 0));
+    TransactionArchive other = archive(Clock.systemDefaultZone());
+    TransactionArchive archive = archive(Clock.systemDefaultZone());
+    other.archive();
+
+    archive.refresh();
+
+    assertThat(archive.getTransactionsByPlayerLogin("alice")).hasSize(1);
+
+    other.restore("2020-01");
+    archive.refresh();
+
+    assertThat(archive.getTransactionsByPlayerLogin("alice")).isEmpty();
+  }
+
+  private TransactionArchive archive(Clock clock) {
+    TransactionArchive archive =
+        new TransactionArchive(shardRouter, partitionMaintenance, clock, directory, 24);
+    archive.init();
+    return archive;
+  }
+
+  private static void insert(String login, String transactionId, LocalDateTime createdAt)
+      throws SQLException {
+    try (Connection local = connection.getConnection();
+        PreparedStatement transaction =
+            local.prepareStatement(
+                "INSERT INTO wallet.transactions (player_id, transaction_id, type_code, amount,"
+                    + " created_at) SELECT id, ?, 2, 10, ? FROM wallet.players WHERE login = ?");
+        PreparedStatement key =
+            local.prepareStatement(
+                "INSERT INTO wallet.transaction_keys (transaction_id, created_at) VALUES (?, ?)")) {
+      transaction.setString(1, transactionId);
+      transaction.setTimestamp(2, Timestamp.valueOf(createdAt));
+      transaction.setString(3, login);
+      transaction.executeUpdate();
+      key.setString(1, transactionId);
+      key.setTimestamp(2, Timestamp.valueOf(createdAt));
+      key.executeUpdate();
+    }
+  }
+
+  private static long count(String sql) throws SQLException {
+    try (Connection local = connection.getConnection();
+        Statement statement = local.createStatement();
+        ResultSet resultSet = statement.executeQuery(sql)) {
+      resultSet.next();
+      return resultSet.getLong(1);
+    }
+  }
+
+  private static void execute(String... statements) throws SQLException {
+    try (Connection local = connection.getConnection();
+        Statement statement = local.createStatement()) {
+      for (String sql : statements) {
+        statement.executeUpdate(sql);
+      }
+    }
+  }
+}
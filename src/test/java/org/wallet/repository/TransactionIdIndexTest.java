@@ -0,0 +1,74 @@
+package org.wallet.repository;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.util.function.Consumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.wallet.domain.repository.transaction.TransactionIdIndex;
+import org.wallet.domain.repository.transaction.TransactionRepository;
+
+public class TransactionIdIndexTest {
+
+  private TransactionRepository transactionRepository;
+  private TransactionIdIndex transactionIdIndex;
+
+  @BeforeEach
+  public void setUp() {
+    transactionRepository = mock(TransactionRepository.class);
+    transactionIdIndex = new TransactionIdIndex(transactionRepository);
+  }
+
+  @Test
+  @DisplayName("Unknown transaction ID should be reported as new without a database query")
+  public void contains_unknownId_returnsFalseWithoutQuery() {
+    transactionIdIndex.load();
+
+    assertThat(transactionIdIndex.contains("newId")).isFalse();
+
+    verify(transactionRepository, never()).isTransactionExist(any());
+    assertThat(transactionIdIndex.getQueriesAvoided()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Recently added transaction ID should be reported as existing without a query")
+  public void contains_recentlyAddedId_returnsTrueWithoutQuery() {
+    transactionIdIndex.add("recentId");
+
+    assertThat(transactionIdIndex.contains("recentId")).isTrue();
+    verify(transactionRepository, never()).isTransactionExist(any());
+  }
+
+  @Test
+  @DisplayName("Lookups before the index is loaded should be answered by the database")
+  public void contains_notLoaded_queriesDatabase() {
+    when(transactionRepository.isTransactionExist("storedId")).thenReturn(true);
+
+    assertThat(transactionIdIndex.contains("storedId")).isTrue();
+    assertThat(transactionIdIndex.contains("newId")).isFalse();
+    verify(transactionRepository, times(2)).isTransactionExist(any());
+  }
+
+  @Test
+  @DisplayName("Transaction ID loaded at startup should be confirmed by the database")
+  @SuppressWarnings("unchecked")
+  public void contains_loadedId_fallsBackToDatabase() {
+    doAnswer(
+            invocation -> {
+              ((Consumer<String>) invocation.getArgument(0)).accept("storedId");
+              return null;
+            })
+        .when(transactionRepository)
+        .forEachTransactionId(any());
+    when(transactionRepository.isTransactionExist("storedId")).thenReturn(true);
+
+    transactionIdIndex.load();
+
+    assertThat(transactionIdIndex.contains("storedId")).isTrue();
+    verify(transactionRepository, times(1)).isTransactionExist("storedId");
+    assertThat(transactionIdIndex.getFalsePositives()).isZero();
+  }
+}
@@ -0,0 +1,285 @@
+package org.wallet.repository;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.DockerComposeContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.wallet.domain.model.LedgerBalance;
+import org.wallet.domain.model.Transaction;
+import org.wallet.domain.model.TransactionType;
+import org.wallet.domain.model.Transfer;
+import org.wallet.domain.repository.DatabaseConnection;
+import org.wallet.domain.repository.LiquibaseManager;
+import org.wallet.domain.repository.shard.ShardRouter;
+import org.wallet.domain.repository.shard.ShardedTransactionRepository;
+import org.wallet.exception.InsufficientMoneyException;
+import org.wallet.exception.TransactionAlreadyExistException;
+
+@Testcontainers
+public class TransferConcurrencyTest {
+
+  private static final int POSTGRES_PORT = 5432;
+  private static final int PLAYERS = 32;
+  private static final int TRANSFERS_PER_RUN = 600;
+
+  @Container
+  private static final DockerComposeContainer DOCKER_COMPOSE_CONTAINER =
+      new DockerComposeContainer(new File("src/test/java/resources/docker-compose-test.yml"))
+          .withExposedService("postgres", POSTGRES_PORT)
+          .withLocalCompose(true)
+          .withOptions("--compatibility");
+
+  private static DatabaseConnection connection;
+  private static ShardRouter shardRouter;
+
+  private ShardedTransactionRepository transactionRepository;
+
+  @BeforeAll
+  public static void setUp() throws SQLException {
+    String url =
+        "jdbc:postgresql://"
+            + DOCKER_COMPOSE_CONTAINER.getServiceHost("postgres", POSTGRES_PORT)
+            + ":"
+            + DOCKER_COMPOSE_CONTAINER.getServicePort("postgres", POSTGRES_PORT)
+            + "/wallet";
+    connection = new DatabaseConnection(url);
+    new LiquibaseManager(connection).migrate();
+    execute("DELETE FROM wallet.shard_ranges");
+    shardRouter = new ShardRouter(List.of(connection));
+    shardRouter.init();
+  }
+
+  @AfterAll
+  public static void tearDown() throws SQLException {
+    shardRouter.shutdown();
+    cleanUp();
+  }
+
+  @BeforeEach
+  public void setUpBeforeEach() throws SQLException {
+    cleanUp();
+    StringBuilder players = new StringBuilder();
+    for (int i = 0; i < PLAYERS; i++) {
+      players.append(i == 0 ? "" : ", ").append("('transfer-").append(i).append("', 1000, 'x')");
+    }
+    execute("INSERT INTO wallet.players (login, balance, password) VALUES " + players);
+    transactionRepository = new ShardedTransactionRepository(shardRouter);
+  }
+
+  @Test
+  @DisplayName("A transfer should debit the sender and credit the recipient under one ID")
+  public void transfer_movesAmountAndLinksLegs() throws SQLException {
+    List<LedgerBalance> balances =
+        transactionRepository.transfer(
+            new Transfer("transfer-single", "transfer-0", "transfer-1", new BigDecimal("250")));
+
+    assertThat(balances)
+        .extracting(LedgerBalance::login)
+        .containsExactly("transfer-0", "transfer-1");
+    assertThat(balances.get(0).balance()).isEqualByComparingTo("750");
+    assertThat(balances.get(1).balance()).isEqualByComparingTo("1250");
+    assertThat(count("SELECT balance FROM wallet.players WHERE login = 'transfer-1'"))
+        .isEqualTo(1250);
+    assertThat(
+            count(
+                "SELECT COUNT(*) FROM wallet.transactions WHERE transfer_id = 'transfer-single'"))
+        .isEqualTo(2);
+  }
+
+  @Test
+  @DisplayName("A failed transfer should change neither player")
+  public void transfer_failure_changesNothing() throws SQLException {
+    assertThatThrownBy(
+            () ->
+                transactionRepository.transfer(
+                    new Transfer("transfer-big", "transfer-0", "transfer-1", new BigDecimal(1001))))
+        .isInstanceOf(InsufficientMoneyException.class);
+    transactionRepository.transfer(
+        new Transfer("transfer-once", "transfer-0", "transfer-1", BigDecimal.ONE));
+    assertThatThrownBy(
+            () ->
+                transactionRepository.transfer(
+                    new Transfer("transfer-once", "transfer-1", "transfer-2", BigDecimal.ONE)))
+        .isInstanceOf(TransactionAlreadyExistException.class);
+
+    assertThat(count("SELECT SUM(balance) FROM wallet.players WHERE login LIKE 'transfer-%'"))
+        .isEqualTo(PLAYERS * 1000L);
+    assertThat(
+            count("SELECT COUNT(*) FROM wallet.transactions WHERE transfer_id LIKE 'transfer-%'"))
+        .isEqualTo(2);
+  }
+
+  @Test
+  @DisplayName("Concurrent transfers in both directions should neither deadlock nor lose money")
+  public void transfer_concurrentOpposingTransfers_conserveMoney() throws Exception {
+    for (int threads : new int[] {1, 2, 4, 8}) {
+      Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+      AtomicInteger applied = new AtomicInteger();
+      AtomicInteger sequence = new AtomicInteger();
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+      List<Future<?>> futures = new ArrayList<>();
+      long start = System.nanoTime();
+      for (int t = 0; t < threads; t++) {
+        long seed = 31L * threads + t;
+        futures.add(
+            executor.submit(
+                () -> {
+                  Random random = new Random(seed);
+                  int id;
+                  while ((id = sequence.getAndIncrement()) < TRANSFERS_PER_RUN) {
+                    // Few players and both directions make lock-order conflicts likely.
+                    int sender = random.nextInt(PLAYERS);
+                    int recipient = (sender + 1 + random.nextInt(PLAYERS - 1)) % PLAYERS;
+                    try {
+                      transactionRepository.transfer(
+                          new Transfer(
+                              "transfer-" + threads + "-" + id,
+                              "transfer-" + sender,
+                              "transfer-" + recipient,
+                              BigDecimal.valueOf(1 + random.nextInt(50))));
+                      applied.incrementAndGet();
+                    } catch (InsufficientMoneyException ignored) {
+                    } catch (Throwable e) {
+                      failures.add(e);
+                    }
+                  }
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get(2, TimeUnit.MINUTES);
+      }
+      executor.shutdown();
+      long elapsed = System.nanoTime() - start;
+
+      assertThat(failures).isEmpty();
+      System.out.printf(
+          "transfers: %d threads, %d applied, %.0f transfers/s%n",
+          threads, applied.get(), applied.get() * 1e9 / elapsed);
+    }
+
+    assertThat(count("SELECT SUM(balance) FROM wallet.players WHERE login LIKE 'transfer-%'"))
+        .isEqualTo(PLAYERS * 1000L);
+    assertThat(count("SELECT MIN(balance) FROM wallet.players WHERE login LIKE 'transfer-%'"))
+        .isGreaterThanOrEqualTo(0);
+    assertThat(
+            count(
+                "SELECT COUNT(*) FROM (SELECT transfer_id FROM wallet.transactions"
+                    + " WHERE transfer_id LIKE 'transfer-%' GROUP BY transfer_id"
+                    + " HAVING COUNT(*) <> 2 OR SUM(CASE WHEN type_code = 1 THEN -amount"
+                    + " ELSE amount END) <> 0) unbalanced"))
+        .isZero();
+  }
+
+  @Test
+  @DisplayName("Transactions applied during transfers of the same players should not be lost")
+  public void applyTransaction_concurrentWithTransfers_keepsEveryAmount() throws Exception {
+    int threads = 8;
+    Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+    AtomicInteger credited = new AtomicInteger();
+    AtomicInteger sequence = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      boolean transfers = t % 2 == 0;
+      futures.add(
+          executor.submit(
+              () -> {
+                int id;
+                while ((id = sequence.getAndIncrement()) < TRANSFERS_PER_RUN) {
+                  // Two players only, so every transaction contends with the transfers.
+                  int player = id % 2;
+                  try {
+                    if (transfers) {
+                      transactionRepository.transfer(
+                          new Transfer(
+                              "transfer-mixed-" + id,
+                              "transfer-" + player,
+                              "transfer-" + (1 - player),
+                              BigDecimal.TEN));
+                    } else {
+                      transactionRepository.applyTransaction(
+                          new Transaction(
+                              "transfer-" + player,
+                              "transfer-single-" + id,
+                              TransactionType.CREDIT,
+                              BigDecimal.ONE));
+                      credited.incrementAndGet();
+                    }
+                  } catch (InsufficientMoneyException ignored) {
+                  } catch (Throwable e) {
+                    failures.add(e);
+                  }
+                }
+              }));
+    }
+    for (Future<?> future : futures) {
+      future.get(2, TimeUnit.MINUTES);
+    }
+    executor.shutdown();
+
+    assertThat(failures).isEmpty();
+    assertThat(
+            count(
+                "SELECT SUM(balance) FROM wallet.players"
+                    + " WHERE login IN ('transfer-0', 'transfer-1')"))
+        .isEqualTo(2000L + credited.get());
+    assertThatThrownBy(
+            () ->
+                transactionRepository.applyTransaction(
+                    new Transaction(
+                        "transfer-2",
+                        "transfer-single-debit",
+                        TransactionType.DEBIT,
+                        new BigDecimal(1001))))
+        .isInstanceOf(InsufficientMoneyException.class);
+    assertThat(count("SELECT balance FROM wallet.players WHERE login = 'transfer-2'"))
+        .isEqualTo(1000);
+  }
+
+  private static void cleanUp() throws SQLException {
+    execute(
+        "DELETE FROM wallet.transactions WHERE transaction_id LIKE 'transfer-%'",
+        "DELETE FROM wallet.transaction_keys WHERE transaction_id LIKE 'transfer-%'",
+        "DELETE FROM wallet.players WHERE login LIKE 'transfer-%'");
+  }
+
+  private static long count(String sql) throws SQLException {
+    try (Connection local = connection.getConnection();
+        Statement statement = local.createStatement();
+        ResultSet resultSet = statement.executeQuery(sql)) {
+      resultSet.next();
+      return resultSet.getLong(1);
+    }
+  }
+
+  private static void execute(String... statements) throws SQLException {
+    try (Connection local = connection.getConnection();
+        Statement statement = local.createStatement()) {
+      for (String sql : statements) {
+        statement.executeUpdate(sql);
+      }
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package org.wallet.service;
 
 import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 import java.math.BigDecimal;
@@ -11,6 +12,7 @@ import org.junit.jupiter.api.Test;
 import org.wallet.domain.service.PlayerService;
 import org.wallet.exception.PlayerAlreadyExistException;
 import org.wallet.domain.model.Player;
+import org.wallet.domain.repository.player.LoginIndex;
 import org.wallet.domain.repository.player.PlayerRepository;
 import org.wallet.utils.StringHasher;
 
@@ -20,16 +22,19 @@ public class PlayerServiceTest {
   private static final String TEST_PASSWORD = "testPassword";
   private PlayerService playerService;
   private PlayerRepository playerRepository;
+  private LoginIndex loginIndex;
 
   @BeforeEach
   public void setUp() {
     playerRepository = mock(PlayerRepository.class);
-    playerService = new PlayerService(playerRepository);
+    loginIndex = new LoginIndex(playerRepository);
+    playerService = new PlayerService(playerRepository, loginIndex);
   }
 
   @Test
   @DisplayName("Checking if an existing player exists should return true")
   public void isPlayerExist_existingPlayer_shouldReturnTrue() {
+    loginIndex.add(TEST_USER);
     when(playerRepository.isPlayerExist(TEST_USER)).thenReturn(true);
 
     boolean result = playerService.isPlayerExist(TEST_USER);
@@ -40,11 +45,22 @@ public class PlayerServiceTest {
   @Test
   @DisplayName("Checking if a non-existing player exists should return false")
   public void isPlayerExist_nonExistingPlayer_shouldReturnFalse() {
-    when(playerRepository.isPlayerExist(TEST_USER)).thenReturn(false);
-
     boolean result = playerService.isPlayerExist(TEST_USER);
 
     assertThat(result).isFalse();
+    verify(playerRepository, times(1)).isPlayerExist(TEST_USER);
+  }
+
+  @Test
+  @DisplayName("A player registered on another instance should be found despite the filter")
+  public void getPlayerByLogin_playerUnknownToIndex_shouldBeFoundInDatabase() {
+    when(playerRepository.getPlayerByLogin(TEST_USER))
+        .thenReturn(Optional.of(new Player(TEST_USER, TEST_PASSWORD)));
+
+    Optional<Player> player = playerService.getPlayerByLogin(TEST_USER);
+
+    assertThat(player).isPresent();
+    assertThat(loginIndex.mightContain(TEST_USER)).isTrue();
   }
 
   @Test
@@ -58,12 +74,14 @@ public class PlayerServiceTest {
         .isNotNull()
         .extracting(Player::getLogin, Player::getPassword)
         .containsExactly(TEST_USER, StringHasher.hashString(TEST_PASSWORD));
+    verify(playerRepository, never()).isPlayerExist(any());
+    assertThat(loginIndex.mightContain(TEST_USER)).isTrue();
   }
 
   @Test
   @DisplayName("Registering an existing player should throw PlayerAlreadyExistException")
   public void registerPlayer_existingPlayer_shouldThrowPlayerAlreadyExistException() {
-    when(playerRepository.isPlayerExist(TEST_USER)).thenReturn(true);
+    doThrow(new PlayerAlreadyExistException()).when(playerRepository).addPlayer(any());
 
     assertThatThrownBy(
             () -> playerService.registerPlayer(TEST_USER, StringHasher.hashString(TEST_PASSWORD)))
@@ -73,6 +91,7 @@ public class PlayerServiceTest {
   @Test
   @DisplayName("Logging in with valid credentials should return the logged-in player")
   public void login_validCredentials_shouldReturnLoggedInPlayer() {
+    loginIndex.add(TEST_USER);
     String hashedPassword = StringHasher.hashString(TEST_PASSWORD);
     when(playerRepository.getPlayerByLogin(TEST_USER))
         .thenReturn(Optional.of(new Player(TEST_USER, hashedPassword)));
@@ -85,6 +104,7 @@ public class PlayerServiceTest {
   @Test
   @DisplayName("Logging in with an invalid password should return an empty Optional")
   public void login_invalidPassword_shouldReturnEmptyOptional() {
+    loginIndex.add(TEST_USER);
     String hashedPassword = StringHasher.hashString("differentPassword");
     when(playerRepository.getPlayerByLogin(TEST_USER))
         .thenReturn(Optional.of(new Player(TEST_USER, hashedPassword)));
@@ -97,8 +117,6 @@ public class PlayerServiceTest {
   @Test
   @DisplayName("Logging in with a non-existing player should return an empty Optional")
   public void login_nonExistingPlayer_shouldReturnEmptyOptional() {
-    when(playerRepository.getPlayerByLogin(TEST_USER)).thenReturn(Optional.empty());
-
     Optional<Player> loggedInPlayer = playerService.login(TEST_USER, TEST_PASSWORD);
 
     assertThat(loggedInPlayer).isEmpty();
@@ -7,37 +7,61 @@ import static org.wallet.utils.BigDecimalUtils.fromLong;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.wallet.domain.service.LedgerEventBus;
 import org.wallet.domain.service.TransactionService;
 import org.wallet.exception.InsufficientMoneyException;
 import org.wallet.exception.TransactionAlreadyExistException;
+import org.wallet.domain.model.LedgerBalance;
+import org.wallet.domain.model.LedgerEvent;
+import org.wallet.domain.model.LedgerPage;
 import org.wallet.domain.model.Player;
 import org.wallet.domain.model.Transaction;
 import org.wallet.domain.model.TransactionType;
+import org.wallet.domain.repository.transaction.BalanceCheckpoints;
+import org.wallet.domain.repository.transaction.TransactionArchive;
+import org.wallet.domain.repository.transaction.TransactionIdIndex;
 import org.wallet.domain.repository.transaction.TransactionRepository;
 
 public class TransactionServiceTest {
 
   private TransactionService transactionService;
 
+  private TransactionIdIndex transactionIdIndex;
+
+  private LedgerEventBus ledgerEventBus;
+
   @Mock private TransactionRepository transactionRepository;
 
+  @Mock private TransactionArchive transactionArchive;
+
+  @Mock private BalanceCheckpoints balanceCheckpoints;
+
   @Mock private Player player;
 
   @BeforeEach
   void setUp() {
     MockitoAnnotations.openMocks(this);
-    transactionService = new TransactionService(transactionRepository);
+    transactionIdIndex = new TransactionIdIndex(transactionRepository);
+    ledgerEventBus = new LedgerEventBus();
+    transactionService =
+        new TransactionService(
+            transactionRepository,
+            transactionIdIndex,
+            transactionArchive,
+            balanceCheckpoints,
+            ledgerEventBus);
   }
 
   @Test
   @DisplayName("When a transaction with a given ID exists, isTransactionExist should return true")
   void givenTransactionIdExists_whenIsTransactionExist_thenTrue() {
-    when(transactionRepository.isTransactionExist("testTransactionId")).thenReturn(true);
+    transactionIdIndex.add("testTransactionId");
 
     boolean result = transactionService.isTransactionExist("testTransactionId");
 
@@ -56,19 +80,50 @@ public class TransactionServiceTest {
   }
 
   @Test
-  @DisplayName("When registering a credit transaction, the player should be credited")
+  @DisplayName("When registering a credit transaction, the player should get the stored balance")
   void givenCreditTransaction_whenRegisterTransaction_thenPlayerCredited() {
     Transaction creditTransaction =
         new Transaction("testPlayer", "testTransactionId", TransactionType.CREDIT, fromLong(100));
 
     when(transactionRepository.getTransactionById("testTransactionId"))
         .thenReturn(Optional.empty());
-    when(player.canDebit(fromLong(100))).thenReturn(true);
+    when(transactionRepository.applyTransaction(creditTransaction))
+        .thenReturn(new LedgerBalance("testPlayer", fromLong(150), 7));
 
     transactionService.registerTransaction(player, creditTransaction);
 
-    verify(player, times(1)).credit(fromLong(100));
-    verify(transactionRepository, times(1)).addTransaction(creditTransaction);
+    verify(player, times(1)).setBalance(fromLong(150));
+    verify(player, times(1)).setLedgerVersion(7);
+    verify(transactionRepository, times(1)).applyTransaction(creditTransaction);
+    verify(transactionRepository, never()).addTransaction(creditTransaction);
+    verify(transactionRepository, never()).isTransactionExist("testTransactionId");
+    assertThat(transactionService.isTransactionExist("testTransactionId")).isTrue();
+  }
+
+  @Test
+  @DisplayName("A published transaction reaches the subscribers of its player only")
+  void givenSubscriber_whenPublishTransaction_thenEventPublished() {
+    Transaction creditTransaction =
+        new Transaction("testPlayer", "testTransactionId", TransactionType.CREDIT, fromLong(100));
+    List<LedgerEvent> events = new ArrayList<>();
+    List<LedgerEvent> otherEvents = new ArrayList<>();
+    ledgerEventBus.subscribe("testPlayer", events::add);
+    ledgerEventBus.subscribe("otherPlayer", otherEvents::add);
+
+    when(transactionRepository.getTransactionById("testTransactionId"))
+        .thenReturn(Optional.empty());
+    when(transactionRepository.applyTransaction(creditTransaction))
+        .thenReturn(new LedgerBalance("testPlayer", fromLong(150), 7));
+    when(player.getLogin()).thenReturn("testPlayer");
+    when(player.getBalance()).thenReturn(fromLong(150));
+    when(player.getLedgerVersion()).thenReturn(7L);
+
+    transactionService.registerTransaction(player, creditTransaction);
+    assertThat(events).isEmpty();
+    transactionService.publishTransaction(player, creditTransaction);
+
+    assertThat(events).containsExactly(new LedgerEvent(creditTransaction, fromLong(150), 7));
+    assertThat(otherEvents).isEmpty();
   }
 
   @Test
@@ -80,12 +135,13 @@ public class TransactionServiceTest {
 
     when(transactionRepository.getTransactionById("testTransactionId"))
         .thenReturn(Optional.empty());
-    when(player.canDebit(fromLong(50))).thenReturn(true);
+    when(transactionRepository.applyTransaction(debitTransaction))
+        .thenReturn(new LedgerBalance("testPlayer", fromLong(50), 3));
 
     transactionService.registerTransaction(player, debitTransaction);
 
-    verify(player, times(1)).debit(fromLong(50));
-    verify(transactionRepository, times(1)).addTransaction(debitTransaction);
+    verify(player, times(1)).setBalance(fromLong(50));
+    verify(transactionRepository, times(1)).applyTransaction(debitTransaction);
   }
 
   @Test
@@ -98,13 +154,14 @@ public class TransactionServiceTest {
 
     when(transactionRepository.getTransactionById("testTransactionId"))
         .thenReturn(Optional.empty());
-    when(player.canDebit(fromLong(100))).thenReturn(false);
+    when(transactionRepository.applyTransaction(debitTransaction))
+        .thenThrow(new InsufficientMoneyException());
 
     assertThatThrownBy(() -> transactionService.registerTransaction(player, debitTransaction))
         .isInstanceOf(InsufficientMoneyException.class);
 
-    verify(player, never()).debit(fromLong(100));
-    verify(transactionRepository, never()).addTransaction(debitTransaction);
+    verify(player, never()).setBalance(any());
+    assertThat(transactionService.isTransactionExist("testTransactionId")).isFalse();
   }
 
   @Test
@@ -115,14 +172,13 @@ public class TransactionServiceTest {
     Transaction existingTransaction =
         new Transaction("testPlayer", "testTransactionId", TransactionType.CREDIT, fromLong(100));
 
-    when(transactionRepository.isTransactionExist("testTransactionId")).thenReturn(true);
+    transactionIdIndex.add("testTransactionId");
 
     assertThatThrownBy(() -> transactionService.registerTransaction(player, existingTransaction))
         .isInstanceOf(TransactionAlreadyExistException.class);
 
-    verify(player, never()).credit(fromLong(anyLong()));
-    verify(player, never()).debit(fromLong(anyLong()));
-    verify(transactionRepository, never()).addTransaction(existingTransaction);
+    verify(player, never()).setBalance(any());
+    verify(transactionRepository, never()).applyTransaction(existingTransaction);
   }
 
   @Test
@@ -153,4 +209,78 @@ public class TransactionServiceTest {
 
     assertThat(transactions).isEmpty();
   }
+
+  @Test
+  @DisplayName(
+      "When a player has archived transactions, they should precede the transactions in the database")
+  void givenArchivedTransactions_whenGetTransactionByPlayer_thenArchivedTransactionsComeFirst() {
+    player = new Player("testPlayer", "testPassword");
+    Transaction archived =
+        new Transaction("testPlayer", "transaction1", TransactionType.CREDIT, fromLong(50));
+    Transaction restored =
+        new Transaction("testPlayer", "transaction2", TransactionType.DEBIT, fromLong(30));
+    Transaction recent =
+        new Transaction("testPlayer", "transaction3", TransactionType.CREDIT, fromLong(10));
+    when(transactionArchive.getTransactionsByPlayerLogin("testPlayer"))
+        .thenReturn(List.of(archived, restored));
+    when(transactionRepository.getTransactionsByPlayerLogin("testPlayer"))
+        .thenReturn(List.of(restored, recent));
+
+    List<Transaction> transactions = transactionService.getTransactionsByPlayer(player);
+
+    assertThat(transactions).containsExactly(archived, restored, recent);
+  }
+
+  @Test
+  @DisplayName("A page filled from the database should not read the archive")
+  void givenFullPage_whenGetLedgerPage_thenArchiveNotRead() {
+    player = new Player("testPlayer", "testPassword");
+    List<Transaction> recent = List.of(transaction(3), transaction(4));
+    when(transactionRepository.getLedgerPageByPlayerLogin("testPlayer", Long.MAX_VALUE, 2))
+        .thenReturn(new LedgerPage(7, recent, "103"));
+
+    LedgerPage page = transactionService.getLedgerPageByPlayer(player, null, 2);
+
+    assertThat(page).isEqualTo(new LedgerPage(7, recent, "103"));
+    verifyNoInteractions(transactionArchive);
+  }
+
+  @Test
+  @DisplayName("A page reaching past the database should continue with the archive")
+  void givenShortPage_whenGetLedgerPage_thenArchivedTransactionsPrecede() {
+    player = new Player("testPlayer", "testPassword");
+    when(transactionRepository.getLedgerPageByPlayerLogin("testPlayer", 103, 3))
+        .thenReturn(new LedgerPage(7, List.of(transaction(2)), null));
+    when(transactionArchive.getTransactionsByPlayerLogin("testPlayer"))
+        .thenReturn(List.of(transaction(0), transaction(1), transaction(2)));
+    when(transactionRepository.getStoredTransactionIds(
+            "testPlayer", List.of("transaction1", "transaction2")))
+        .thenReturn(Set.of("transaction2"));
+
+    LedgerPage page = transactionService.getLedgerPageByPlayer(player, "103", 3);
+
+    assertThat(page.transactions()).containsExactly(transaction(1), transaction(2));
+    assertThat(page.version()).isEqualTo(7);
+    assertThat(page.nextCursor()).isEqualTo("a1");
+
+    LedgerPage archived = transactionService.getLedgerPageByPlayer(player, page.nextCursor(), 3);
+
+    assertThat(archived).isEqualTo(new LedgerPage(-1, List.of(transaction(0)), null));
+    verify(transactionRepository, times(1)).getLedgerPageByPlayerLogin(any(), anyLong(), anyInt());
+  }
+
+  @Test
+  @DisplayName("A malformed cursor should be rejected")
+  void givenMalformedCursor_whenGetLedgerPage_thenIllegalArgumentException() {
+    player = new Player("testPlayer", "testPassword");
+
+    assertThatThrownBy(() -> transactionService.getLedgerPageByPlayer(player, "a-1", 10))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> transactionService.getLedgerPageByPlayer(player, "next", 10))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static Transaction transaction(int i) {
+    return new Transaction("testPlayer", "transaction" + i, TransactionType.CREDIT, fromLong(i));
+  }
 }
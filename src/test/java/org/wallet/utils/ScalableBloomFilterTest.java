@@ -0,0 +1,55 @@
+package org.wallet.utils;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class ScalableBloomFilterTest {
+
+  private static final int INSERTED = 200_000;
+  private static final int PROBES = 200_000;
+  private static final double FALSE_POSITIVE_PROBABILITY = 0.001;
+
+  @Test
+  @DisplayName("Added values should always be reported as possibly present")
+  public void mightContain_addedValues_returnsTrue() {
+    var filter = new ScalableBloomFilter(1_000, FALSE_POSITIVE_PROBABILITY);
+    for (int i = 0; i < INSERTED; i++) {
+      filter.add("tx-" + i);
+    }
+
+    for (int i = 0; i < INSERTED; i++) {
+      assertThat(filter.mightContain("tx-" + i)).isTrue();
+    }
+    assertThat(filter.size()).isEqualTo(INSERTED);
+  }
+
+  @Test
+  @DisplayName("False positive rate should stay below the target after the filter has grown")
+  public void mightContain_absentValues_falsePositiveRateWithinTarget() {
+    var filter = new ScalableBloomFilter(1_000, FALSE_POSITIVE_PROBABILITY);
+    for (int i = 0; i < INSERTED; i++) {
+      filter.add("tx-" + i);
+    }
+
+    long falsePositives = 0;
+    for (int i = 0; i < PROBES; i++) {
+      if (filter.mightContain("absent-" + i)) {
+        falsePositives++;
+      }
+    }
+
+    assertThat((double) falsePositives / PROBES).isLessThan(FALSE_POSITIVE_PROBABILITY * 2);
+    assertThat(filter.expectedFalsePositiveProbability()).isLessThan(FALSE_POSITIVE_PROBABILITY);
+  }
+
+  @Test
+  @DisplayName("Empty filter should report every value as absent")
+  public void mightContain_emptyFilter_returnsFalse() {
+    var filter = new ScalableBloomFilter(1_000, FALSE_POSITIVE_PROBABILITY);
+
+    assertThat(filter.mightContain("tx-1")).isFalse();
+    assertThat(filter.size()).isZero();
+  }
+}